@@ -16,6 +16,10 @@ public enum ConfigKeys {
     SSL_TRUSTSTORE_FILE,
     SSL_TRUSTSTORE_TYPE,
     SSL_TRUSTSTORE_PASSWORD,
+    SSL_RELOAD_ENABLED,
+    SSL_RELOAD_DELAY,
+    SSL_SESSION_CACHE_SIZE,
+    SSL_SESSION_TIMEOUT,
 
     SERVER_THREADS_MAX,
     SERVER_THREADS_MIN,
@@ -23,6 +27,10 @@ public enum ConfigKeys {
     SERVER_HOSTNAME,
     SERVER_PORT_MIN,
     SERVER_PORT_MAX,
+    SERVER_PORT_BLOCK_SIZE,
+    SERVER_ZONE,
+
+    COORDINATION_BACKEND,
 
     ZOOKEEPER_HOSTS,
     ZOOKEEPER_AUTH_ENABLED,
@@ -31,8 +39,36 @@ public enum ConfigKeys {
 
     EXECUTOR_THREADS,
 
+    HTTP_POOL_MAX_IDLE,
+    HTTP_POOL_KEEP_ALIVE,
+
+    DISCOVERY_LOCALITY_SPILLOVER,
+    DISCOVERY_LOCALITY_MIN_SPARE,
+    DISCOVERY_EJECTION_DURATION,
+    DISCOVERY_WEIGHT,
+    DISCOVERY_CAPACITY_INTERVAL_MIN,
+    DISCOVERY_CAPACITY_INTERVAL_MAX,
+    DISCOVERY_SNAPSHOT_ENABLED,
+
+    CONFIG_COMPRESSION_THRESHOLD,
+    CONFIG_CHUNK_SIZE,
+    CONFIG_SNAPSHOT_ENABLED,
+    CONFIG_POLL_INTERVAL,
+    CONFIG_POLL_PREFIXES,
+
+    SNAPSHOT_DIR,
+
     SHELL_HISTORY_FILE,
 
+    CRYPTO_BUFFER_SIZE,
+    CRYPTO_FILE_CHUNK_SIZE,
+    CRYPTO_ENVELOPE_ENABLED,
+    CRYPTO_ENVELOPE_MAX_MESSAGES,
+    CRYPTO_ENVELOPE_MAX_AGE,
+    CRYPTO_ENVELOPE_CACHE_SIZE,
+    CRYPTO_METRICS_SLOW_THRESHOLD,
+    CRYPTO_TEXT_ENCODING,
+
     SHARED_SECRET_VARIABLE;
 
     /**
@@ -0,0 +1,222 @@
+package microsys.common.config;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigUtil;
+import com.typesafe.config.ConfigValueType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides a view of the system configuration in which dynamic configuration values are layered over the static
+ * system configuration. Listeners can be registered for individual configuration keys and are notified with the new
+ * typed value whenever an update changes the effective value of the key.
+ */
+public class DynamicConfig {
+    private final static Logger LOG = LoggerFactory.getLogger(DynamicConfig.class);
+
+    @Nonnull
+    private final Config staticConfig;
+    @Nonnull
+    private final AtomicReference<Config> config;
+    @Nonnull
+    private final AtomicReference<Map<String, String>> overlay = new AtomicReference<>(Collections.emptyMap());
+    @Nonnull
+    private final List<Listener<?>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param staticConfig the static system configuration information
+     */
+    public DynamicConfig(@Nonnull final Config staticConfig) {
+        this.staticConfig = Objects.requireNonNull(staticConfig);
+        this.config = new AtomicReference<>(staticConfig);
+    }
+
+    /**
+     * @return the static system configuration information, without any dynamic values applied
+     */
+    @Nonnull
+    public Config getStaticConfig() {
+        return this.staticConfig;
+    }
+
+    /**
+     * @return the current system configuration with the dynamic values layered over the static configuration
+     */
+    @Nonnull
+    public Config get() {
+        return this.config.get();
+    }
+
+    /**
+     * @return the dynamic configuration values currently applied over the static configuration
+     */
+    @Nonnull
+    public Map<String, String> getOverlay() {
+        return this.overlay.get();
+    }
+
+    /**
+     * @param key the configuration key to monitor for changes
+     * @param getter the function used to retrieve the typed value of the key from a configuration, for example
+     *     {@code Config::getInt}
+     * @param consumer the consumer to notify with the new value when the effective value of the key changes
+     * @param <T> the type of the configuration value
+     */
+    public <T> void addListener(
+            @Nonnull final String key, @Nonnull final BiFunction<Config, String, T> getter,
+            @Nonnull final Consumer<T> consumer) {
+        this.listeners.add(new Listener<>(key, getter, consumer));
+    }
+
+    /**
+     * @return the configuration keys for which listeners have been registered
+     */
+    @Nonnull
+    public SortedSet<String> getListenedKeys() {
+        final SortedSet<String> keys = new TreeSet<>();
+        this.listeners.forEach(listener -> keys.add(listener.getKey()));
+        return keys;
+    }
+
+    /**
+     * Replace the dynamic configuration values layered over the static configuration, and notify any listeners whose
+     * values changed as a result.
+     *
+     * @param values the full set of dynamic configuration values, replacing any previously applied values
+     */
+    public synchronized void update(@Nonnull final Map<String, String> values) {
+        final Map<String, String> applied = new HashMap<>();
+        for (final Map.Entry<String, String> entry : Objects.requireNonNull(values).entrySet()) {
+            if (isApplicable(entry.getKey())) {
+                applied.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (applied.equals(getOverlay())) {
+            return;
+        }
+
+        final Config updated;
+        try {
+            updated = ConfigFactory.parseMap(applied).withFallback(getStaticConfig());
+        } catch (final ConfigException invalidValues) {
+            LOG.warn("Ignoring invalid dynamic configuration update: {}", invalidValues.getMessage());
+            return;
+        }
+
+        final Config previous = get();
+        this.overlay.set(Collections.unmodifiableMap(applied));
+        this.config.set(updated);
+
+        this.listeners.forEach(listener -> listener.notify(previous, updated));
+    }
+
+    /**
+     * @param key the dynamic configuration key to check
+     * @return whether the dynamic key can be layered over the static configuration, which is not possible when the
+     * key is not a valid path or would hide a whole section of the static configuration
+     */
+    protected boolean isApplicable(@Nonnull final String key) {
+        try {
+            if (getStaticConfig().hasPath(key)) {
+                return getStaticConfig().getValue(key).valueType() != ConfigValueType.OBJECT;
+            }
+
+            // Make sure the key does not hide a static value by turning it into an object.
+            final List<String> parts = ConfigUtil.splitPath(key);
+            for (int end = 1; end < parts.size(); end++) {
+                final String parent = ConfigUtil.joinPath(parts.subList(0, end));
+                if (getStaticConfig().hasPath(parent)
+                        && getStaticConfig().getValue(parent).valueType() != ConfigValueType.OBJECT) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (final ConfigException invalidPath) {
+            LOG.warn("Ignoring invalid dynamic configuration key: {}", key);
+            return false;
+        }
+    }
+
+    /**
+     * Holds the information about a registered configuration change listener.
+     *
+     * @param <T> the type of the configuration value
+     */
+    protected static class Listener<T> {
+        @Nonnull
+        private final String key;
+        @Nonnull
+        private final BiFunction<Config, String, T> getter;
+        @Nonnull
+        private final Consumer<T> consumer;
+
+        /**
+         * @param key the configuration key to monitor for changes
+         * @param getter the function used to retrieve the typed value of the key from a configuration
+         * @param consumer the consumer to notify with the new value when the effective value of the key changes
+         */
+        protected Listener(
+                @Nonnull final String key, @Nonnull final BiFunction<Config, String, T> getter,
+                @Nonnull final Consumer<T> consumer) {
+            this.key = Objects.requireNonNull(key);
+            this.getter = Objects.requireNonNull(getter);
+            this.consumer = Objects.requireNonNull(consumer);
+        }
+
+        /**
+         * @return the configuration key being monitored for changes
+         */
+        @Nonnull
+        protected String getKey() {
+            return this.key;
+        }
+
+        /**
+         * @param config the configuration from which the value should be retrieved
+         * @return the typed value, possibly empty if the value is missing or cannot be converted into the type
+         */
+        @Nonnull
+        protected Optional<T> getValue(@Nonnull final Config config) {
+            try {
+                return Optional.ofNullable(this.getter.apply(config, this.key));
+            } catch (final ConfigException badValue) {
+                LOG.warn("Invalid dynamic configuration value for {}: {}", this.key, badValue.getMessage());
+                return Optional.empty();
+            }
+        }
+
+        /**
+         * @param previous the configuration before the update
+         * @param updated the configuration after the update
+         */
+        protected void notify(@Nonnull final Config previous, @Nonnull final Config updated) {
+            final Optional<T> newValue = getValue(updated);
+            if (newValue.isPresent() && !newValue.equals(getValue(previous))) {
+                LOG.info("Dynamic configuration {} changed to {}", this.key, newValue.get());
+                try {
+                    this.consumer.accept(newValue.get());
+                } catch (final RuntimeException listenerFailed) {
+                    LOG.error("Failed to apply dynamic configuration change for " + this.key, listenerFailed);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package microsys.common.model;
+
+import com.typesafe.config.Config;
+
+import microsys.common.config.ConfigKeys;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Defines the available backends used to coordinate service discovery, port reservation, and dynamic configuration.
+ */
+public enum CoordinationBackend {
+    /**
+     * Coordination through zookeeper, shared by all the services in the system.
+     */
+    ZOOKEEPER,
+
+    /**
+     * In-process coordination, for tests and deployments running all of their services within a single JVM, which
+     * needs no zookeeper. The state is shared by all of the services in the JVM, but not with other processes, so
+     * services launched as separate processes (as the distribution scripts do) can not find each other.
+     */
+    MEMORY;
+
+    /**
+     * @param config the static system configuration information
+     * @return the configured coordination backend, defaulting to zookeeper when not configured
+     */
+    @Nonnull
+    public static CoordinationBackend fromConfig(@Nonnull final Config config) {
+        final String key = ConfigKeys.COORDINATION_BACKEND.getKey();
+        if (Objects.requireNonNull(config).hasPath(key)) {
+            return CoordinationBackend.valueOf(config.getString(key).toUpperCase());
+        }
+        return ZOOKEEPER;
+    }
+}
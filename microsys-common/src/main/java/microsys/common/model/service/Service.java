@@ -11,13 +11,16 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import microsys.common.model.Model;
 
 import java.util.Objects;
+import java.util.Optional;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
- * An immutable class representing the registration of a service for automatic discovery.
+ * An immutable class representing the registration of a service for automatic discovery. The published capacity is
+ * load information that changes while the service runs, so it is not part of the identity of the service: two
+ * registrations of the same service with different capacities are equal.
  */
 public class Service implements Model, Comparable<Service> {
     @Nonnull
@@ -28,6 +31,10 @@ public class Service implements Model, Comparable<Service> {
     private final boolean secure;
     @Nonnull
     private final String version;
+    @Nonnull
+    private final Optional<String> zone;
+    @Nonnull
+    private final Optional<ServiceCapacity> capacity;
 
     /**
      * @param type    the type of service represented
@@ -39,11 +46,43 @@ public class Service implements Model, Comparable<Service> {
     public Service(
             @Nonnull final ServiceType type, @Nonnull final String host, final int port, final boolean secure,
             @Nonnull final String version) {
+        this(type, host, port, secure, version, Optional.empty());
+    }
+
+    /**
+     * @param type    the type of service represented
+     * @param host    the host on which the service is running
+     * @param port    the port on which the service has bound
+     * @param secure  whether the service is operating with SSL enabled on the connection
+     * @param version the version of the service that is running
+     * @param zone    the rack or zone in which the service is running, if configured
+     */
+    public Service(
+            @Nonnull final ServiceType type, @Nonnull final String host, final int port, final boolean secure,
+            @Nonnull final String version, @Nonnull final Optional<String> zone) {
+        this(type, host, port, secure, version, zone, Optional.empty());
+    }
+
+    /**
+     * @param type     the type of service represented
+     * @param host     the host on which the service is running
+     * @param port     the port on which the service has bound
+     * @param secure   whether the service is operating with SSL enabled on the connection
+     * @param version  the version of the service that is running
+     * @param zone     the rack or zone in which the service is running, if configured
+     * @param capacity the most recently published load and weight of the service, if available
+     */
+    public Service(
+            @Nonnull final ServiceType type, @Nonnull final String host, final int port, final boolean secure,
+            @Nonnull final String version, @Nonnull final Optional<String> zone,
+            @Nonnull final Optional<ServiceCapacity> capacity) {
         this.type = Objects.requireNonNull(type);
         this.host = Objects.requireNonNull(host);
         this.port = port;
         this.secure = secure;
         this.version = version;
+        this.zone = Objects.requireNonNull(zone);
+        this.capacity = Objects.requireNonNull(capacity);
     }
 
     /**
@@ -67,6 +106,20 @@ public class Service implements Model, Comparable<Service> {
         this.port = json.get("port").getAsInt();
         this.secure = json.get("secure").getAsBoolean();
         this.version = json.get("version").getAsString();
+
+        if (json.has("zone")) {
+            Preconditions.checkArgument(json.get("zone").isJsonPrimitive(), "Zone field must be a primitive");
+            this.zone = Optional.of(json.get("zone").getAsString());
+        } else {
+            this.zone = Optional.empty();
+        }
+
+        if (json.has("capacity")) {
+            Preconditions.checkArgument(json.get("capacity").isJsonObject(), "Capacity field must be an object");
+            this.capacity = Optional.of(new ServiceCapacity(json.get("capacity").getAsJsonObject()));
+        } else {
+            this.capacity = Optional.empty();
+        }
     }
 
     /**
@@ -115,6 +168,32 @@ public class Service implements Model, Comparable<Service> {
         return this.version;
     }
 
+    /**
+     * @return the rack or zone in which the service is running, if configured
+     */
+    @Nonnull
+    public Optional<String> getZone() {
+        return this.zone;
+    }
+
+    /**
+     * @return the most recently published load and weight of the service, if available
+     */
+    @Nonnull
+    public Optional<ServiceCapacity> getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @param capacity the current load and weight of the service
+     * @return a copy of this service with the specified capacity
+     */
+    @Nonnull
+    public Service withCapacity(@Nonnull final ServiceCapacity capacity) {
+        return new Service(getType(), getHost(), getPort(), isSecure(), getVersion(), getZone(),
+                Optional.of(capacity));
+    }
+
     /**
      * @return a URL representation capable of being used to communicate with the service
      */
@@ -138,6 +217,7 @@ public class Service implements Model, Comparable<Service> {
         cmp.append(getPort(), other.getPort());
         cmp.append(isSecure(), other.isSecure());
         cmp.append(getVersion(), other.getVersion());
+        cmp.append(getZone().orElse(""), other.getZone().orElse(""));
         return cmp.toComparison();
     }
 
@@ -160,6 +240,7 @@ public class Service implements Model, Comparable<Service> {
         hash.append(getPort());
         hash.append(isSecure());
         hash.append(getVersion());
+        getZone().ifPresent(hash::append);
         return hash.toHashCode();
     }
 
@@ -175,6 +256,12 @@ public class Service implements Model, Comparable<Service> {
         str.append("port", getPort());
         str.append("secure", isSecure());
         str.append("version", getVersion());
+        if (getZone().isPresent()) {
+            str.append("zone", getZone().get());
+        }
+        if (getCapacity().isPresent()) {
+            str.append("capacity", getCapacity().get());
+        }
         return str.build();
     }
 
@@ -190,6 +277,12 @@ public class Service implements Model, Comparable<Service> {
         json.addProperty("port", getPort());
         json.addProperty("secure", isSecure());
         json.addProperty("version", getVersion());
+        if (getZone().isPresent()) {
+            json.addProperty("zone", getZone().get());
+        }
+        if (getCapacity().isPresent()) {
+            json.add("capacity", getCapacity().get().toJson());
+        }
         return json;
     }
 }
@@ -0,0 +1,179 @@
+package microsys.common.model.service;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.JsonObject;
+
+import org.apache.commons.lang3.builder.CompareToBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import microsys.common.model.Model;
+
+import java.util.Objects;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable object describing the current load of a running service along with its configured weight, published
+ * with the service discovery registration so that callers can send more requests to the services with the most spare
+ * capacity.
+ */
+public class ServiceCapacity implements Model, Comparable<ServiceCapacity> {
+    /**
+     * The weight assumed for services that do not publish their capacity.
+     */
+    public final static int DEFAULT_WEIGHT = 100;
+
+    // The smallest fraction of the weight used when the heap is nearly full, so the service still gets some requests
+    private final static double MIN_HEAP_FACTOR = 0.1;
+
+    private final int inFlight;
+    private final int queueDepth;
+    private final int heapUsedPercent;
+    private final int weight;
+
+    /**
+     * @param inFlight the number of requests currently being processed by the service
+     * @param queueDepth the number of tasks waiting in the executor queue of the service
+     * @param heapUsedPercent the percentage of the maximum heap currently in use, from 0 to 100
+     * @param weight the configured weight of the service, relative to other services of the same type
+     */
+    public ServiceCapacity(final int inFlight, final int queueDepth, final int heapUsedPercent, final int weight) {
+        Preconditions.checkArgument(inFlight >= 0, "In-flight requests must not be negative");
+        Preconditions.checkArgument(queueDepth >= 0, "Queue depth must not be negative");
+        Preconditions.checkArgument(heapUsedPercent >= 0 && heapUsedPercent <= 100,
+                "Heap used percent must be between 0 and 100");
+        Preconditions.checkArgument(weight >= 0, "Weight must not be negative");
+        this.inFlight = inFlight;
+        this.queueDepth = queueDepth;
+        this.heapUsedPercent = heapUsedPercent;
+        this.weight = weight;
+    }
+
+    /**
+     * @param json the JSON representation of a {@link ServiceCapacity} object
+     */
+    public ServiceCapacity(@Nonnull final JsonObject json) {
+        Objects.requireNonNull(json);
+        Preconditions.checkArgument(json.has("inFlight"), "In-flight field required");
+        Preconditions.checkArgument(json.get("inFlight").isJsonPrimitive(), "In-flight field must be a primitive");
+        Preconditions.checkArgument(json.has("queueDepth"), "Queue depth field required");
+        Preconditions.checkArgument(json.get("queueDepth").isJsonPrimitive(), "Queue depth field must be a primitive");
+        Preconditions.checkArgument(json.has("heapUsedPercent"), "Heap used percent field required");
+        Preconditions.checkArgument(json.get("heapUsedPercent").isJsonPrimitive(),
+                "Heap used percent field must be a primitive");
+        Preconditions.checkArgument(json.has("weight"), "Weight field required");
+        Preconditions.checkArgument(json.get("weight").isJsonPrimitive(), "Weight field must be a primitive");
+
+        this.inFlight = json.get("inFlight").getAsInt();
+        this.queueDepth = json.get("queueDepth").getAsInt();
+        this.heapUsedPercent = json.get("heapUsedPercent").getAsInt();
+        this.weight = json.get("weight").getAsInt();
+    }
+
+    /**
+     * @return the number of requests currently being processed by the service
+     */
+    public int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * @return the number of tasks waiting in the executor queue of the service
+     */
+    public int getQueueDepth() {
+        return this.queueDepth;
+    }
+
+    /**
+     * @return the percentage of the maximum heap currently in use, from 0 to 100
+     */
+    public int getHeapUsedPercent() {
+        return this.heapUsedPercent;
+    }
+
+    /**
+     * @return the configured weight of the service, relative to other services of the same type
+     */
+    public int getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * @return the relative amount of spare capacity of the service, which is its weight divided by the outstanding
+     *     work, reduced as the heap fills
+     */
+    public double getSpareCapacity() {
+        final double heapFactor = Math.max(MIN_HEAP_FACTOR, 1d - getHeapUsedPercent() / 100d);
+        return getWeight() * heapFactor / (1 + getInFlight() + getQueueDepth());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compareTo(@Nullable final ServiceCapacity other) {
+        if (other == null) {
+            return 1;
+        }
+
+        final CompareToBuilder cmp = new CompareToBuilder();
+        cmp.append(getInFlight(), other.getInFlight());
+        cmp.append(getQueueDepth(), other.getQueueDepth());
+        cmp.append(getHeapUsedPercent(), other.getHeapUsedPercent());
+        cmp.append(getWeight(), other.getWeight());
+        return cmp.toComparison();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(@CheckForNull final Object other) {
+        return (other instanceof ServiceCapacity) && compareTo((ServiceCapacity) other) == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        final HashCodeBuilder hash = new HashCodeBuilder();
+        hash.append(getInFlight());
+        hash.append(getQueueDepth());
+        hash.append(getHeapUsedPercent());
+        hash.append(getWeight());
+        return hash.toHashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public String toString() {
+        final ToStringBuilder str = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        str.append("inFlight", getInFlight());
+        str.append("queueDepth", getQueueDepth());
+        str.append("heapUsedPercent", getHeapUsedPercent());
+        str.append("weight", getWeight());
+        return str.build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public JsonObject toJson() {
+        final JsonObject json = new JsonObject();
+        json.addProperty("inFlight", getInFlight());
+        json.addProperty("queueDepth", getQueueDepth());
+        json.addProperty("heapUsedPercent", getHeapUsedPercent());
+        json.addProperty("weight", getWeight());
+        return json;
+    }
+}
@@ -0,0 +1,122 @@
+package microsys.common.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Perform testing on the {@link DynamicConfig} class.
+ */
+public class DynamicConfigTest {
+    @Test
+    public void testNoOverlay() {
+        final Config config = ConfigFactory.load();
+        final DynamicConfig dynamicConfig = new DynamicConfig(config);
+        assertEquals(config, dynamicConfig.getStaticConfig());
+        assertEquals(config, dynamicConfig.get());
+        assertTrue(dynamicConfig.getOverlay().isEmpty());
+    }
+
+    @Test
+    public void testUpdate() {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+        final List<Integer> threads = new LinkedList<>();
+        final List<Duration> timeouts = new LinkedList<>();
+        dynamicConfig.addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, threads::add);
+        dynamicConfig.addListener(ConfigKeys.SERVER_TIMEOUT.getKey(), Config::getDuration, timeouts::add);
+        assertEquals(new TreeSet<>(Arrays.asList(ConfigKeys.EXECUTOR_THREADS.getKey(),
+                ConfigKeys.SERVER_TIMEOUT.getKey())), dynamicConfig.getListenedKeys());
+
+        final Map<String, String> values = new HashMap<>();
+        values.put(ConfigKeys.EXECUTOR_THREADS.getKey(), "40");
+        values.put("other.key", "value");
+        dynamicConfig.update(values);
+
+        assertEquals(40, dynamicConfig.get().getInt(ConfigKeys.EXECUTOR_THREADS.getKey()));
+        assertEquals("value", dynamicConfig.get().getString("other.key"));
+        assertEquals(25, dynamicConfig.getStaticConfig().getInt(ConfigKeys.EXECUTOR_THREADS.getKey()));
+        assertEquals(Collections.singletonList(40), threads);
+        assertTrue(timeouts.isEmpty());
+
+        // The same values again do not notify the listeners.
+        dynamicConfig.update(values);
+        assertEquals(1, threads.size());
+
+        // Changing the timeout notifies only the timeout listener.
+        values.put(ConfigKeys.SERVER_TIMEOUT.getKey(), "5 seconds");
+        dynamicConfig.update(values);
+        assertEquals(1, threads.size());
+        assertEquals(Collections.singletonList(Duration.ofSeconds(5)), timeouts);
+
+        // Removing the dynamic values reverts back to the static configuration.
+        dynamicConfig.update(Collections.emptyMap());
+        assertEquals(25, dynamicConfig.get().getInt(ConfigKeys.EXECUTOR_THREADS.getKey()));
+        assertEquals(2, threads.size());
+        assertEquals(Integer.valueOf(25), threads.get(1));
+    }
+
+    @Test
+    public void testInvalidValue() {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+        final List<Integer> threads = new LinkedList<>();
+        dynamicConfig.addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, threads::add);
+
+        dynamicConfig.update(Collections.singletonMap(ConfigKeys.EXECUTOR_THREADS.getKey(), "invalid"));
+        assertTrue(threads.isEmpty());
+    }
+
+    @Test
+    public void testFailingListener() {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+        final List<Integer> threads = new LinkedList<>();
+        dynamicConfig.addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, value -> {
+            throw new RuntimeException("Fake");
+        });
+        dynamicConfig.addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, threads::add);
+
+        dynamicConfig.update(Collections.singletonMap(ConfigKeys.EXECUTOR_THREADS.getKey(), "10"));
+        assertEquals(Collections.singletonList(10), threads);
+    }
+
+    @Test
+    public void testInapplicableKeys() {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+
+        final Map<String, String> values = new HashMap<>();
+        // Would hide the whole server section.
+        values.put("server", "value");
+        // Would turn the executor.threads value into an object.
+        values.put("executor.threads.count", "5");
+        // Not a valid path.
+        values.put("invalid..key", "value");
+        dynamicConfig.update(values);
+
+        assertTrue(dynamicConfig.getOverlay().isEmpty());
+        assertEquals(25, dynamicConfig.get().getInt(ConfigKeys.EXECUTOR_THREADS.getKey()));
+    }
+
+    @Test
+    public void testConflictingKeys() {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+
+        final Map<String, String> values = new HashMap<>();
+        values.put("a", "value");
+        values.put("a.b", "value");
+        dynamicConfig.update(values);
+
+        assertTrue(dynamicConfig.getOverlay().isEmpty());
+    }
+}
@@ -0,0 +1,39 @@
+package microsys.common.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+import org.junit.Test;
+
+import microsys.common.config.ConfigKeys;
+
+import java.util.Collections;
+
+/**
+ * Perform testing on the {@link CoordinationBackend} enumeration.
+ */
+public class CoordinationBackendTest {
+    @Test
+    public void test() {
+        // Only here for 100% coverage.
+        assertTrue(CoordinationBackend.values().length > 0);
+        assertEquals(CoordinationBackend.MEMORY, CoordinationBackend.valueOf(CoordinationBackend.MEMORY.name()));
+    }
+
+    @Test
+    public void testFromConfig() {
+        assertEquals(CoordinationBackend.ZOOKEEPER, CoordinationBackend.fromConfig(ConfigFactory.empty()));
+        assertEquals(CoordinationBackend.ZOOKEEPER, CoordinationBackend.fromConfig(ConfigFactory.load()));
+        assertEquals(CoordinationBackend.MEMORY, CoordinationBackend.fromConfig(ConfigFactory.parseMap(Collections
+                .singletonMap(ConfigKeys.COORDINATION_BACKEND.getKey(), ConfigValueFactory.fromAnyRef("memory")))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromConfigInvalid() {
+        CoordinationBackend.fromConfig(ConfigFactory.parseMap(Collections
+                .singletonMap(ConfigKeys.COORDINATION_BACKEND.getKey(), ConfigValueFactory.fromAnyRef("x"))));
+    }
+}
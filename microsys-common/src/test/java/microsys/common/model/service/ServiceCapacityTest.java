@@ -0,0 +1,153 @@
+package microsys.common.model.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+/**
+ * Perform testing on the {@link ServiceCapacity} class.
+ */
+public class ServiceCapacityTest {
+    @Test
+    public void testGetters() {
+        final ServiceCapacity capacity = new ServiceCapacity(1, 2, 3, 4);
+        assertEquals(1, capacity.getInFlight());
+        assertEquals(2, capacity.getQueueDepth());
+        assertEquals(3, capacity.getHeapUsedPercent());
+        assertEquals(4, capacity.getWeight());
+    }
+
+    @Test
+    public void testGetSpareCapacity() {
+        assertEquals(100, new ServiceCapacity(0, 0, 0, 100).getSpareCapacity(), 0.0001);
+        assertEquals(25, new ServiceCapacity(2, 1, 0, 100).getSpareCapacity(), 0.0001);
+        assertEquals(50, new ServiceCapacity(0, 0, 50, 100).getSpareCapacity(), 0.0001);
+        assertEquals(10, new ServiceCapacity(0, 0, 100, 100).getSpareCapacity(), 0.0001);
+        assertEquals(0, new ServiceCapacity(0, 0, 0, 0).getSpareCapacity(), 0.0001);
+        assertTrue(new ServiceCapacity(5, 0, 0, 100).getSpareCapacity() < new ServiceCapacity(1, 0, 0, 100)
+                .getSpareCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeInFlight() {
+        new ServiceCapacity(-1, 0, 0, 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeQueueDepth() {
+        new ServiceCapacity(0, -1, 0, 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHeapUsedPercent() {
+        new ServiceCapacity(0, 0, 101, 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeight() {
+        new ServiceCapacity(0, 0, 0, -1);
+    }
+
+    @Test
+    public void testCompareTo() {
+        final ServiceCapacity a = new ServiceCapacity(1, 2, 3, 4);
+        final ServiceCapacity b = new ServiceCapacity(1, 2, 3, 5);
+        final ServiceCapacity c = new ServiceCapacity(2, 2, 3, 4);
+
+        assertEquals(1, a.compareTo(null));
+        assertEquals(0, a.compareTo(a));
+        assertEquals(-1, a.compareTo(b));
+        assertEquals(-1, a.compareTo(c));
+        assertEquals(1, c.compareTo(b));
+    }
+
+    @Test
+    public void testEquals() {
+        final ServiceCapacity a = new ServiceCapacity(1, 2, 3, 4);
+        final ServiceCapacity b = new ServiceCapacity(1, 2, 3, 5);
+
+        assertNotEquals(a, null);
+        assertEquals(a, a);
+        assertEquals(a, new ServiceCapacity(1, 2, 3, 4));
+        assertNotEquals(a, b);
+    }
+
+    @Test
+    public void testHashCode() {
+        final ServiceCapacity a = new ServiceCapacity(1, 2, 3, 4);
+        assertEquals(a.hashCode(), new ServiceCapacity(1, 2, 3, 4).hashCode());
+        assertNotEquals(a.hashCode(), new ServiceCapacity(1, 2, 3, 5).hashCode());
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("ServiceCapacity[inFlight=1,queueDepth=2,heapUsedPercent=3,weight=4]",
+                new ServiceCapacity(1, 2, 3, 4).toString());
+    }
+
+    @Test
+    public void testToJson() {
+        assertEquals("{\"inFlight\":1,\"queueDepth\":2,\"heapUsedPercent\":3,\"weight\":4}",
+                new ServiceCapacity(1, 2, 3, 4).toJson().toString());
+    }
+
+    @Test
+    public void testJsonConstructor() {
+        final ServiceCapacity original = new ServiceCapacity(1, 2, 3, 4);
+        assertEquals(original, new ServiceCapacity(original.toJson()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoInFlight() {
+        final String jsonStr = "{\"queueDepth\":2,\"heapUsedPercent\":3,\"weight\":4}";
+        new ServiceCapacity(new JsonParser().parse(jsonStr).getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorInFlightWrongType() {
+        final String jsonStr = "{\"inFlight\":[],\"queueDepth\":2,\"heapUsedPercent\":3,\"weight\":4}";
+        new ServiceCapacity(new JsonParser().parse(jsonStr).getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoQueueDepth() {
+        final String jsonStr = "{\"inFlight\":1,\"heapUsedPercent\":3,\"weight\":4}";
+        new ServiceCapacity(new JsonParser().parse(jsonStr).getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorQueueDepthWrongType() {
+        final String jsonStr = "{\"inFlight\":1,\"queueDepth\":[],\"heapUsedPercent\":3,\"weight\":4}";
+        new ServiceCapacity(new JsonParser().parse(jsonStr).getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoHeapUsedPercent() {
+        final String jsonStr = "{\"inFlight\":1,\"queueDepth\":2,\"weight\":4}";
+        new ServiceCapacity(new JsonParser().parse(jsonStr).getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorHeapUsedPercentWrongType() {
+        final String jsonStr = "{\"inFlight\":1,\"queueDepth\":2,\"heapUsedPercent\":[],\"weight\":4}";
+        new ServiceCapacity(new JsonParser().parse(jsonStr).getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoWeight() {
+        final String jsonStr = "{\"inFlight\":1,\"queueDepth\":2,\"heapUsedPercent\":3}";
+        new ServiceCapacity(new JsonParser().parse(jsonStr).getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorWeightWrongType() {
+        final String jsonStr = "{\"inFlight\":1,\"queueDepth\":2,\"heapUsedPercent\":3,\"weight\":[]}";
+        final JsonObject json = new JsonParser().parse(jsonStr).getAsJsonObject();
+        new ServiceCapacity(json);
+    }
+}
@@ -1,6 +1,7 @@
 package microsys.common.model.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 
 import com.google.gson.JsonObject;
@@ -8,6 +9,8 @@ import com.google.gson.JsonParser;
 
 import org.junit.Test;
 
+import java.util.Optional;
+
 /**
  * Perform testing on the {@link Service} class.
  */
@@ -233,4 +236,59 @@ public class ServiceTest {
         final Service service = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
         assertEquals("host:1234", service.getId());
     }
+
+    @Test
+    public void testZone() {
+        final Service none = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
+        final Service zoneA = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3", Optional.of("a"));
+        final Service zoneB = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3", Optional.of("b"));
+
+        assertFalse(none.getZone().isPresent());
+        assertEquals(Optional.of("a"), zoneA.getZone());
+        assertNotEquals(none, zoneA);
+        assertNotEquals(zoneA, zoneB);
+        assertEquals(-1, zoneA.compareTo(zoneB));
+        assertNotEquals(none.hashCode(), zoneA.hashCode());
+        assertEquals("Service[type=CONFIG,host=host,port=1234,secure=false,version=1.2.3,zone=a]", zoneA.toString());
+        assertEquals("{\"type\":\"CONFIG\",\"host\":\"host\",\"port\":1234,\"secure\":false,"
+                + "\"version\":\"1.2.3\",\"zone\":\"a\"}", zoneA.toJson().toString());
+        assertEquals(zoneA, new Service(zoneA.toJson()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorZoneWrongType() {
+        final String jsonStr =
+                "{\"type\":\"CONFIG\",\"host\":\"host\",\"port\":1234,\"secure\":true,\"version\":\"1.2.3\","
+                        + "\"zone\":[]}";
+        final JsonObject json = new JsonParser().parse(jsonStr).getAsJsonObject();
+        new Service(json);
+    }
+
+    @Test
+    public void testCapacity() {
+        final Service service = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
+        assertFalse(service.getCapacity().isPresent());
+
+        final Service loaded = service.withCapacity(new ServiceCapacity(1, 2, 3, 4));
+        assertEquals(Optional.of(new ServiceCapacity(1, 2, 3, 4)), loaded.getCapacity());
+        assertEquals(service.getId(), loaded.getId());
+
+        // The capacity is not part of the identity of the service.
+        assertEquals(service, loaded);
+        assertEquals(0, service.compareTo(loaded));
+        assertEquals(loaded, service.withCapacity(new ServiceCapacity(2, 2, 3, 4)));
+        assertEquals(service.hashCode(), loaded.hashCode());
+        assertEquals("Service[type=CONFIG,host=host,port=1234,secure=false,version=1.2.3,"
+                + "capacity=ServiceCapacity[inFlight=1,queueDepth=2,heapUsedPercent=3,weight=4]]", loaded.toString());
+        assertEquals(loaded.getCapacity(), new Service(loaded.toJson()).getCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorCapacityWrongType() {
+        final String jsonStr =
+                "{\"type\":\"CONFIG\",\"host\":\"host\",\"port\":1234,\"secure\":true,\"version\":\"1.2.3\","
+                        + "\"capacity\":5}";
+        final JsonObject json = new JsonParser().parse(jsonStr).getAsJsonObject();
+        new Service(json);
+    }
 }
@@ -4,40 +4,54 @@ import com.google.gson.JsonParser;
 
 import microsys.common.model.service.Service;
 import microsys.common.model.service.ServiceType;
+import microsys.config.model.ConfigFilter;
 import microsys.config.model.ConfigKeyValue;
 import microsys.config.model.ConfigKeyValueCollection;
 import microsys.config.service.ConfigService;
 import microsys.config.service.ConfigServiceException;
+import microsys.config.snapshot.ConfigSnapshot;
 import microsys.discovery.DiscoveryException;
 import microsys.service.client.ServiceException;
 import microsys.service.model.ServiceEnvironment;
 import microsys.service.model.ServiceRequest;
 import microsys.service.model.ServiceResponse;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedList;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nonnull;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * Provides remote access over REST to the configuration service.
+ * Provides remote access over REST to the configuration service. When configuration snapshots are enabled, the
+ * values retrieved from the configuration service are persisted locally and used to answer reads, flagged as stale,
+ * when the configuration service cannot be reached.
  */
 public class ConfigClient implements ConfigService {
     @Nonnull
     private final ServiceEnvironment serviceEnvironment;
+    @Nonnull
+    private final Optional<ConfigSnapshot> snapshot;
+    @Nonnull
+    private final AtomicReference<ConfigKeyValueCollection> snapshotValues = new AtomicReference<>();
 
     /**
      * @param serviceEnvironment the service environment
      */
     public ConfigClient(@Nonnull final ServiceEnvironment serviceEnvironment) {
         this.serviceEnvironment = Objects.requireNonNull(serviceEnvironment);
+        this.snapshot = Optional.ofNullable(serviceEnvironment.getConfig()).flatMap(config -> ConfigSnapshot
+                .create(config, "config-client-" + serviceEnvironment.getServiceType().name().toLowerCase()));
     }
 
     /**
@@ -48,6 +62,39 @@ public class ConfigClient implements ConfigService {
         return this.serviceEnvironment;
     }
 
+    /**
+     * @return the local snapshot in which the configuration values are persisted, possibly empty if disabled
+     */
+    @Nonnull
+    protected Optional<ConfigSnapshot> getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * @return the most recently known configuration values, flagged as stale, possibly empty if snapshots are
+     * disabled or no snapshot is available
+     */
+    @Nonnull
+    protected Optional<ConfigKeyValueCollection> getSnapshotValues() {
+        if (this.snapshotValues.get() == null && getSnapshot().isPresent()) {
+            getSnapshot().get().load().ifPresent(coll -> this.snapshotValues.compareAndSet(null, coll));
+        }
+        return Optional.ofNullable(this.snapshotValues.get());
+    }
+
+    /**
+     * @param coll the configuration values retrieved from the configuration service to store in the local snapshot,
+     * which is only rewritten when the values differ from those already stored
+     * @throws ConfigServiceException if there is a problem writing the snapshot
+     */
+    protected void saveSnapshot(@Nonnull final ConfigKeyValueCollection coll) throws ConfigServiceException {
+        final Optional<ConfigKeyValueCollection> existing = getSnapshotValues();
+        if (getSnapshot().isPresent() && !(existing.isPresent() && existing.get().asMap().equals(coll.asMap()))) {
+            this.snapshotValues.set(new ConfigKeyValueCollection(coll.asMap().values(), true));
+            getSnapshot().get().save(coll);
+        }
+    }
+
     /**
      * @return a randomly chosen {@link Service} object from service discovery to use when connecting to the
      * configuration service
@@ -63,6 +110,23 @@ public class ConfigClient implements ConfigService {
         return random.get();
     }
 
+    /**
+     * @param key the configuration key being requested or changed
+     * @return the {@link Service} object from service discovery to which requests for the key are consistently sent,
+     * so that any caching within the configuration service sees every request for the key
+     * @throws DiscoveryException if there is a problem retrieving the {@link Service}
+     * @throws ConfigServiceException if there no configuration {@link Service} objects are available
+     */
+    @Nonnull
+    protected Service getConsistent(@Nonnull final String key) throws DiscoveryException, ConfigServiceException {
+        final Optional<Service> consistent =
+                getServiceEnvironment().getDiscoveryManager().getConsistent(ServiceType.CONFIG, key);
+        if (!consistent.isPresent()) {
+            throw new ConfigServiceException("Unable to find a running configuration service");
+        }
+        return consistent.get();
+    }
+
     /**
      * @param response the {@link Response} to be processed
      * @return the {@link ConfigKeyValue} object parsed from the response data, if available
@@ -88,6 +152,29 @@ public class ConfigClient implements ConfigService {
         }
     }
 
+    /**
+     * @param url the full URL from which a collection of configuration values should be retrieved
+     * @return the {@link ConfigKeyValueCollection} returned from the remote configuration service
+     * @throws IOException if there is a problem processing the response data
+     * @throws ServiceException if there was a problem verifying the response signature
+     * @throws ConfigServiceException if there was a problem with the remote configuration service
+     */
+    @Nonnull
+    protected ConfigKeyValueCollection getCollection(@Nonnull final String url)
+            throws IOException, ServiceException, ConfigServiceException {
+        final ServiceRequest serviceRequest = new ServiceRequest();
+        final Request request = new Request.Builder().url(Objects.requireNonNull(url))
+                .header(ServiceRequest.SERVICE_REQUEST_HEADER, serviceRequest.toJson().toString()).get().build();
+        final Response response = getServiceEnvironment().getHttpClient().newCall(request).execute();
+        switch (response.code()) {
+            case HttpServletResponse.SC_OK:
+                ServiceResponse.verify(getServiceEnvironment(), serviceRequest, response);
+                return new ConfigKeyValueCollection(new JsonParser().parse(response.body().string()).getAsJsonObject());
+            default:
+                throw new ConfigServiceException(response.body().string());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -95,17 +182,100 @@ public class ConfigClient implements ConfigService {
     @Nonnull
     public Future<ConfigKeyValueCollection> getAll() {
         return getServiceEnvironment().getExecutor().submit(() -> {
-            final ServiceRequest serviceRequest = new ServiceRequest();
-            final Request request = new Request.Builder().url(getRandom().asUrl())
-                    .header(ServiceRequest.SERVICE_REQUEST_HEADER, serviceRequest.toJson().toString()).get().build();
-            final Response response = getServiceEnvironment().getHttpClient().newCall(request).execute();
-            switch (response.code()) {
-                case HttpServletResponse.SC_OK:
-                    ServiceResponse.verify(getServiceEnvironment(), serviceRequest, response);
-                    return new ConfigKeyValueCollection(
-                            new JsonParser().parse(response.body().string()).getAsJsonObject());
-                default:
-                    throw new ConfigServiceException(response.body().string());
+            try {
+                final ConfigKeyValueCollection coll = getCollection(getRandom().asUrl());
+                saveSnapshot(coll);
+                return coll;
+            } catch (final Exception exception) {
+                return getSnapshotValues().orElseThrow(() -> exception);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<ConfigKeyValueCollection> getAll(@Nonnull final ConfigFilter filter) {
+        Objects.requireNonNull(filter);
+        return getServiceEnvironment().getExecutor().submit(() -> {
+            try {
+                if (filter.getRegex().isPresent()) {
+                    return filter.apply(getCollection(getUrl(getRandom(), getServerFilter(filter))));
+                }
+                return getCollection(getUrl(getRandom(), filter));
+            } catch (final Exception exception) {
+                return filter.apply(getSnapshotValues().orElseThrow(() -> exception));
+            }
+        });
+    }
+
+    /**
+     * @param filter the filter criteria requested by the caller
+     * @return the criteria the configuration service is able to apply on behalf of the filter, which does not support
+     * regular expressions, leaving the regular expression and the paging that depends on it to be applied locally
+     */
+    @Nonnull
+    protected ConfigFilter getServerFilter(@Nonnull final ConfigFilter filter) {
+        return new ConfigFilter(filter.getContains(), Optional.empty(), filter.getPrefix(), 0, Optional.empty());
+    }
+
+    /**
+     * @param service the configuration service to which the request will be sent
+     * @param filter the filter criteria to include as query parameters, other than any regular expression, which the
+     * server does not support
+     * @return the URL to use when retrieving the filtered configuration values
+     */
+    @Nonnull
+    protected String getUrl(@Nonnull final Service service, @Nonnull final ConfigFilter filter) {
+        final HttpUrl.Builder url = HttpUrl.parse(Objects.requireNonNull(service).asUrl()).newBuilder();
+        filter.getContains().ifPresent(value -> url.addQueryParameter("contains", value));
+        filter.getPrefix().ifPresent(value -> url.addQueryParameter("prefix", value));
+        if (filter.getOffset() > 0) {
+            url.addQueryParameter("offset", String.valueOf(filter.getOffset()));
+        }
+        filter.getLimit().ifPresent(value -> url.addQueryParameter("limit", String.valueOf(value)));
+        return url.build().toString();
+    }
+
+    /**
+     * @param service the configuration service to which the request will be sent
+     * @param prefix the configuration key prefix to include as an encoded path segment
+     * @return the URL to use when retrieving the configuration values with keys that start with the prefix
+     */
+    @Nonnull
+    protected String getPrefixUrl(@Nonnull final Service service, @Nonnull final String prefix) {
+        return HttpUrl.parse(Objects.requireNonNull(service).asUrl()).newBuilder().addPathSegment("prefix")
+                .addPathSegment(Objects.requireNonNull(prefix)).build().toString();
+    }
+
+    /**
+     * @param service the configuration service to which the request will be sent
+     * @param key the configuration key to include as an encoded path segment
+     * @return the URL to use when retrieving or removing the configuration value for the key
+     */
+    @Nonnull
+    protected String getKeyUrl(@Nonnull final Service service, @Nonnull final String key) {
+        return HttpUrl.parse(Objects.requireNonNull(service).asUrl()).newBuilder()
+                .addPathSegment(Objects.requireNonNull(key)).build().toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<ConfigKeyValueCollection> getByPrefix(@Nonnull final String prefix) {
+        Objects.requireNonNull(prefix);
+        return getServiceEnvironment().getExecutor().submit(() -> {
+            try {
+                return getCollection(getPrefixUrl(getRandom(), prefix));
+            } catch (final Exception exception) {
+                final ConfigKeyValueCollection snapshotValues = getSnapshotValues().orElseThrow(() -> exception);
+                final Collection<ConfigKeyValue> coll = new LinkedList<>();
+                snapshotValues.asSet().stream().filter(kv -> kv.getKey().startsWith(prefix)).forEach(coll::add);
+                return new ConfigKeyValueCollection(coll, true);
             }
         });
     }
@@ -118,10 +288,16 @@ public class ConfigClient implements ConfigService {
     public Future<Optional<ConfigKeyValue>> get(@Nonnull final String key) {
         Objects.requireNonNull(key);
         return getServiceEnvironment().getExecutor().submit(() -> {
-            final ServiceRequest serviceRequest = new ServiceRequest();
-            final Request request = new Request.Builder().url(getRandom().asUrl() + key)
-                    .header(ServiceRequest.SERVICE_REQUEST_HEADER, serviceRequest.toJson().toString()).get().build();
-            return handleResponse(serviceRequest, getServiceEnvironment().getHttpClient().newCall(request).execute());
+            try {
+                final ServiceRequest serviceRequest = new ServiceRequest();
+                final Request request = new Request.Builder().url(getKeyUrl(getConsistent(key), key))
+                        .header(ServiceRequest.SERVICE_REQUEST_HEADER, serviceRequest.toJson().toString()).get()
+                        .build();
+                return handleResponse(serviceRequest,
+                        getServiceEnvironment().getHttpClient().newCall(request).execute());
+            } catch (final Exception exception) {
+                return getSnapshotValues().orElseThrow(() -> exception).get(key);
+            }
         });
     }
 
@@ -136,7 +312,7 @@ public class ConfigClient implements ConfigService {
             final RequestBody body =
                     RequestBody.create(MediaType.parse("application/json; charset=utf-8"), kv.toJson().toString());
             final ServiceRequest serviceRequest = new ServiceRequest();
-            final Request request = new Request.Builder().url(getRandom().asUrl())
+            final Request request = new Request.Builder().url(getConsistent(kv.getKey()).asUrl())
                     .header(ServiceRequest.SERVICE_REQUEST_HEADER, serviceRequest.toJson().toString()).post(body)
                     .build();
             return handleResponse(serviceRequest, getServiceEnvironment().getHttpClient().newCall(request).execute());
@@ -152,7 +328,7 @@ public class ConfigClient implements ConfigService {
         Objects.requireNonNull(key);
         return getServiceEnvironment().getExecutor().submit(() -> {
             final ServiceRequest serviceRequest = new ServiceRequest();
-            final Request request = new Request.Builder().url(getRandom().asUrl() + key)
+            final Request request = new Request.Builder().url(getKeyUrl(getConsistent(key), key))
                     .header(ServiceRequest.SERVICE_REQUEST_HEADER, serviceRequest.toJson().toString()).delete().build();
             return handleResponse(serviceRequest, getServiceEnvironment().getHttpClient().newCall(request).execute());
         });
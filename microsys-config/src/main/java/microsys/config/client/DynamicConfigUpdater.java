@@ -0,0 +1,134 @@
+package microsys.config.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.config.DynamicConfig;
+import microsys.config.model.ConfigKeyValue;
+import microsys.config.model.ConfigKeyValueCollection;
+import microsys.config.service.ConfigService;
+import microsys.service.model.ServiceEnvironment;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Periodically retrieves the dynamic configuration values from a {@link ConfigService} and applies them to the
+ * {@link microsys.common.config.DynamicConfig} of the service environment, so running services pick up configuration
+ * changes without a restart.
+ */
+public class DynamicConfigUpdater implements Closeable {
+    private final static Logger LOG = LoggerFactory.getLogger(DynamicConfigUpdater.class);
+
+    @Nonnull
+    private final ServiceEnvironment serviceEnvironment;
+    @Nonnull
+    private final ConfigService configService;
+    @Nonnull
+    private final ScheduledExecutorService scheduler;
+    @Nonnull
+    private final AtomicReference<Map<String, String>> lastValues = new AtomicReference<>();
+
+    /**
+     * @param serviceEnvironment the service environment whose dynamic configuration will be updated
+     * @param configService the {@link ConfigService} from which the dynamic configuration values are retrieved
+     */
+    public DynamicConfigUpdater(
+            @Nonnull final ServiceEnvironment serviceEnvironment, @Nonnull final ConfigService configService) {
+        this.serviceEnvironment = Objects.requireNonNull(serviceEnvironment);
+        this.configService = Objects.requireNonNull(configService);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("dynamic-config-%d").setDaemon(true).build());
+    }
+
+    /**
+     * @return the service environment whose dynamic configuration will be updated
+     */
+    @Nonnull
+    protected ServiceEnvironment getServiceEnvironment() {
+        return this.serviceEnvironment;
+    }
+
+    /**
+     * @return the {@link ConfigService} from which the dynamic configuration values are retrieved
+     */
+    @Nonnull
+    protected ConfigService getConfigService() {
+        return this.configService;
+    }
+
+    /**
+     * Begin periodically updating the dynamic configuration, starting immediately.
+     */
+    public void start() {
+        final long interval = getServiceEnvironment().getConfig()
+                .getDuration(ConfigKeys.CONFIG_POLL_INTERVAL.getKey(), TimeUnit.MILLISECONDS);
+        this.scheduler.scheduleWithFixedDelay(this::update, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the configuration key prefixes to retrieve from the configuration service, made up of the keys with
+     * registered dynamic configuration listeners and any additionally configured prefixes, excluding any prefix
+     * already covered by a shorter one
+     */
+    @Nonnull
+    protected SortedSet<String> getPrefixes() {
+        final DynamicConfig dynamicConfig = getServiceEnvironment().getDynamicConfig();
+        final SortedSet<String> requested = new TreeSet<>(dynamicConfig.getListenedKeys());
+        final String prefixesKey = ConfigKeys.CONFIG_POLL_PREFIXES.getKey();
+        if (dynamicConfig.get().hasPath(prefixesKey)) {
+            requested.addAll(dynamicConfig.get().getStringList(prefixesKey));
+        }
+
+        // Sorted order places each prefix directly ahead of the keys it covers.
+        final SortedSet<String> prefixes = new TreeSet<>();
+        for (final String prefix : requested) {
+            if (prefixes.isEmpty() || !prefix.startsWith(prefixes.last())) {
+                prefixes.add(prefix);
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * Retrieve the current dynamic configuration values of interest to this service and apply them to the service
+     * environment when they have changed since the last update.
+     */
+    public void update() {
+        try {
+            final Map<String, String> values = new HashMap<>();
+            for (final String prefix : getPrefixes()) {
+                final ConfigKeyValueCollection coll = getConfigService().getByPrefix(prefix).get(10, TimeUnit.SECONDS);
+                for (final ConfigKeyValue kv : coll.asSet()) {
+                    values.put(kv.getKey(), kv.getValue());
+                }
+            }
+            if (!values.equals(this.lastValues.getAndSet(values))) {
+                getServiceEnvironment().getDynamicConfig().update(values);
+            }
+        } catch (final Exception updateFailed) {
+            LOG.warn("Failed to update dynamic configuration: {}", updateFailed.getMessage());
+        }
+    }
+
+    /**
+     * Stop updating the dynamic configuration.
+     */
+    @Override
+    public void close() {
+        this.scheduler.shutdownNow();
+    }
+}
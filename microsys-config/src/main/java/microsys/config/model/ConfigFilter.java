@@ -0,0 +1,226 @@
+package microsys.config.model;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.JsonObject;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.CompareToBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import microsys.common.model.Model;
+import microsys.common.util.OptionalComparator;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Represents the criteria used to limit the dynamic configuration values returned from a query. All the specified
+ * criteria must match for a configuration value to be included. Paging is applied to the matching values in key
+ * order.
+ */
+public class ConfigFilter implements Model, Comparable<ConfigFilter> {
+    @Nonnull
+    private final Optional<String> contains;
+    @Nonnull
+    private final Optional<String> regex;
+    @Nonnull
+    private final Optional<String> prefix;
+    private final int offset;
+    @Nonnull
+    private final Optional<Integer> limit;
+
+    @Nonnull
+    private final Optional<Pattern> pattern;
+
+    /**
+     * @param contains text that must appear in either the key or value, ignoring case
+     * @param regex a regular expression that must be found in either the key or value
+     * @param prefix the prefix with which the key must start
+     * @param offset the number of matching values to skip
+     * @param limit the maximum number of matching values to return
+     */
+    public ConfigFilter(
+            @Nonnull final Optional<String> contains, @Nonnull final Optional<String> regex,
+            @Nonnull final Optional<String> prefix, final int offset, @Nonnull final Optional<Integer> limit) {
+        Preconditions.checkArgument(offset >= 0, "Offset must not be negative");
+        Preconditions.checkArgument(!Objects.requireNonNull(limit).isPresent() || limit.get() >= 0,
+                "Limit must not be negative");
+
+        this.contains = Objects.requireNonNull(contains);
+        this.regex = Objects.requireNonNull(regex);
+        this.prefix = Objects.requireNonNull(prefix);
+        this.offset = offset;
+        this.limit = limit;
+
+        // Throws an IllegalArgumentException when the expression is invalid.
+        this.pattern = regex.map(Pattern::compile);
+    }
+
+    /**
+     * @param json a {@link JsonObject} from which a {@link ConfigFilter} will be parsed
+     */
+    public ConfigFilter(@Nonnull final JsonObject json) {
+        this(getString(Objects.requireNonNull(json), "contains"), getString(json, "regex"),
+                getString(json, "prefix"), json.has("offset") ? json.get("offset").getAsInt() : 0,
+                json.has("limit") ? Optional.of(json.get("limit").getAsInt()) : Optional.empty());
+    }
+
+    @Nonnull
+    private static Optional<String> getString(@Nonnull final JsonObject json, @Nonnull final String field) {
+        if (json.has(field)) {
+            Preconditions.checkArgument(json.get(field).isJsonPrimitive(), "Invalid " + field + " field");
+            return Optional.of(json.get(field).getAsString());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the text that must appear in either the key or value, ignoring case
+     */
+    @Nonnull
+    public Optional<String> getContains() {
+        return this.contains;
+    }
+
+    /**
+     * @return the regular expression that must be found in either the key or value
+     */
+    @Nonnull
+    public Optional<String> getRegex() {
+        return this.regex;
+    }
+
+    /**
+     * @return the prefix with which the key must start
+     */
+    @Nonnull
+    public Optional<String> getPrefix() {
+        return this.prefix;
+    }
+
+    /**
+     * @return the number of matching values to skip
+     */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * @return the maximum number of matching values to return
+     */
+    @Nonnull
+    public Optional<Integer> getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * @param kv the {@link ConfigKeyValue} to check
+     * @return whether the configuration key and value match the filter criteria, ignoring paging
+     */
+    public boolean matches(@Nonnull final ConfigKeyValue kv) {
+        Objects.requireNonNull(kv);
+        if (getPrefix().isPresent() && !kv.getKey().startsWith(getPrefix().get())) {
+            return false;
+        }
+        if (getContains().isPresent() && !StringUtils.containsIgnoreCase(kv.getKey(), getContains().get())
+                && !StringUtils.containsIgnoreCase(kv.getValue(), getContains().get())) {
+            return false;
+        }
+        return !this.pattern.isPresent() || this.pattern.get().matcher(kv.getKey()).find()
+                || this.pattern.get().matcher(kv.getValue()).find();
+    }
+
+    /**
+     * @param coll the configuration values to filter
+     * @return the matching page of configuration values, retaining the stale flag of the provided collection
+     */
+    @Nonnull
+    public ConfigKeyValueCollection apply(@Nonnull final ConfigKeyValueCollection coll) {
+        final List<ConfigKeyValue> matching = Objects.requireNonNull(coll).asSet().stream().filter(this::matches)
+                .skip(getOffset()).limit(getLimit().orElse(Integer.MAX_VALUE)).collect(Collectors.toCollection(
+                        LinkedList::new));
+        return new ConfigKeyValueCollection(matching, coll.isStale());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compareTo(@Nullable final ConfigFilter other) {
+        if (other == null) {
+            return 1;
+        }
+
+        final CompareToBuilder cmp = new CompareToBuilder();
+        cmp.append(getContains(), other.getContains(), new OptionalComparator<String>());
+        cmp.append(getRegex(), other.getRegex(), new OptionalComparator<String>());
+        cmp.append(getPrefix(), other.getPrefix(), new OptionalComparator<String>());
+        cmp.append(getOffset(), other.getOffset());
+        cmp.append(getLimit(), other.getLimit(), new OptionalComparator<Integer>());
+        return cmp.toComparison();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(@CheckForNull final Object other) {
+        return (other instanceof ConfigFilter) && compareTo((ConfigFilter) other) == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        final HashCodeBuilder hash = new HashCodeBuilder();
+        hash.append(getContains());
+        hash.append(getRegex());
+        hash.append(getPrefix());
+        hash.append(getOffset());
+        hash.append(getLimit());
+        return hash.toHashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public String toString() {
+        final ToStringBuilder str = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        str.append("contains", getContains());
+        str.append("regex", getRegex());
+        str.append("prefix", getPrefix());
+        str.append("offset", getOffset());
+        str.append("limit", getLimit());
+        return str.build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public JsonObject toJson() {
+        final JsonObject json = new JsonObject();
+        getContains().ifPresent(value -> json.addProperty("contains", value));
+        getRegex().ifPresent(value -> json.addProperty("regex", value));
+        getPrefix().ifPresent(value -> json.addProperty("prefix", value));
+        if (getOffset() > 0) {
+            json.addProperty("offset", getOffset());
+        }
+        getLimit().ifPresent(value -> json.addProperty("limit", value));
+        return json;
+    }
+}
@@ -32,12 +32,22 @@ import javax.annotation.Nullable;
 public class ConfigKeyValueCollection implements Model, Comparable<ConfigKeyValueCollection> {
     @Nonnull
     private final Map<String, ConfigKeyValue> map = new TreeMap<>();
+    private final boolean stale;
 
     /**
      * @param values the configuration key
+     * @param stale whether the configuration values were loaded from a local snapshot and may be out of date
      */
-    public ConfigKeyValueCollection(@Nonnull final Collection<ConfigKeyValue> values) {
+    public ConfigKeyValueCollection(@Nonnull final Collection<ConfigKeyValue> values, final boolean stale) {
         Objects.requireNonNull(values).forEach(kv -> getMap().put(kv.getKey(), kv));
+        this.stale = stale;
+    }
+
+    /**
+     * @param values the configuration key
+     */
+    public ConfigKeyValueCollection(@Nonnull final Collection<ConfigKeyValue> values) {
+        this(values, false);
     }
 
     /**
@@ -55,6 +65,8 @@ public class ConfigKeyValueCollection implements Model, Comparable<ConfigKeyValu
         Objects.requireNonNull(json);
         Preconditions.checkArgument(json.has("config"), "Config field required");
         Preconditions.checkArgument(json.get("config").isJsonArray(), "Config field must be an array");
+        Preconditions.checkArgument(!json.has("stale") || json.get("stale").isJsonPrimitive(),
+                "Stale field must be a primitive");
 
         final JsonArray arr = json.getAsJsonArray("config");
         arr.forEach(element -> {
@@ -62,6 +74,7 @@ public class ConfigKeyValueCollection implements Model, Comparable<ConfigKeyValu
             final ConfigKeyValue kv = new ConfigKeyValue(element.getAsJsonObject());
             getMap().put(kv.getKey(), kv);
         });
+        this.stale = json.has("stale") && json.get("stale").getAsBoolean();
     }
 
     /**
@@ -72,6 +85,13 @@ public class ConfigKeyValueCollection implements Model, Comparable<ConfigKeyValu
         return this.map;
     }
 
+    /**
+     * @return whether the configuration values were loaded from a local snapshot and may be out of date
+     */
+    public boolean isStale() {
+        return this.stale;
+    }
+
     /**
      * @param key the configuration key for which a configuration value should be retrieved
      * @return the requested configuration value, possibly empty if the specified key was not found
@@ -115,6 +135,7 @@ public class ConfigKeyValueCollection implements Model, Comparable<ConfigKeyValu
 
         final CompareToBuilder cmp = new CompareToBuilder();
         cmp.append(asSet(), other.asSet(), new CollectionComparator<ConfigKeyValue>());
+        cmp.append(isStale(), other.isStale());
         return cmp.toComparison();
     }
 
@@ -133,6 +154,7 @@ public class ConfigKeyValueCollection implements Model, Comparable<ConfigKeyValu
     public int hashCode() {
         final HashCodeBuilder hash = new HashCodeBuilder();
         hash.append(asMap());
+        hash.append(isStale());
         return hash.toHashCode();
     }
 
@@ -157,6 +179,9 @@ public class ConfigKeyValueCollection implements Model, Comparable<ConfigKeyValu
         asSet().stream().map(ConfigKeyValue::toJson).forEach(arr::add);
         final JsonObject json = new JsonObject();
         json.add("config", arr);
+        if (isStale()) {
+            json.addProperty("stale", true);
+        }
         return json;
     }
 }
@@ -1,12 +1,15 @@
 package microsys.config.route;
 
+import com.google.common.base.Preconditions;
 import com.google.common.net.MediaType;
 
+import microsys.config.model.ConfigFilter;
 import microsys.config.service.ConfigService;
 import microsys.service.model.ServiceEnvironment;
 import spark.Request;
 import spark.Response;
 
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -15,7 +18,10 @@ import javax.annotation.Nonnull;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * Retrieve all of the dynamic system configuration properties managed in this system.
+ * Retrieve all of the dynamic system configuration properties managed in this system. The {@code contains},
+ * {@code prefix}, {@code offset} and {@code limit} query parameters can be used to filter and page the returned values
+ * on the server. Regular expression filters are rejected, since evaluating an arbitrary expression supplied by a
+ * caller could tie up the server, and are instead applied by clients to the values they receive.
  */
 public class GetAll extends BaseConfigRoute {
     /**
@@ -26,6 +32,28 @@ public class GetAll extends BaseConfigRoute {
         super(serviceEnvironment, configService);
     }
 
+    /**
+     * @param request the request from which the filter query parameters will be retrieved
+     * @return the filter described by the query parameters, possibly empty if no filter parameters were provided
+     * @throws IllegalArgumentException if the filter query parameters are invalid or include a regular expression
+     */
+    @Nonnull
+    protected Optional<ConfigFilter> getFilter(@Nonnull final Request request) {
+        Preconditions.checkArgument(request.queryParams("regex") == null,
+                "Regular expression filters are not supported by the server");
+
+        final Optional<String> contains = Optional.ofNullable(request.queryParams("contains"));
+        final Optional<String> prefix = Optional.ofNullable(request.queryParams("prefix"));
+        final Optional<String> offset = Optional.ofNullable(request.queryParams("offset"));
+        final Optional<String> limit = Optional.ofNullable(request.queryParams("limit"));
+
+        if (!contains.isPresent() && !prefix.isPresent() && !offset.isPresent() && !limit.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ConfigFilter(contains, Optional.empty(), prefix, offset.map(Integer::parseInt).orElse(0),
+                limit.map(Integer::parseInt)));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -33,9 +61,20 @@ public class GetAll extends BaseConfigRoute {
     @Nonnull
     public Object handle(@Nonnull final Request request, @Nonnull final Response response)
             throws ExecutionException, InterruptedException, TimeoutException {
+        final Optional<ConfigFilter> filter;
+        try {
+            filter = getFilter(request);
+        } catch (final IllegalArgumentException badFilter) {
+            response.status(HttpServletResponse.SC_BAD_REQUEST);
+            return "Invalid configuration filter: " + badFilter.getMessage();
+        }
+
         response.status(HttpServletResponse.SC_OK);
         response.type(MediaType.JSON_UTF_8.type());
 
+        if (filter.isPresent()) {
+            return getConfigService().getAll(filter.get()).get(10, TimeUnit.SECONDS).toJson();
+        }
         return getConfigService().getAll().get(10, TimeUnit.SECONDS).toJson();
     }
 }
@@ -0,0 +1,53 @@
+package microsys.config.route;
+
+import com.google.common.net.MediaType;
+
+import org.apache.commons.lang3.StringUtils;
+
+import microsys.config.service.ConfigService;
+import microsys.service.model.ServiceEnvironment;
+import spark.Request;
+import spark.Response;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Retrieve the dynamic system configuration properties with keys that start with the provided prefix. The prefix is
+ * taken from the rest of the request path, so prefixes containing an encoded slash are matched as a whole.
+ */
+public class GetByPrefix extends BaseConfigRoute {
+    /**
+     * @param serviceEnvironment the service environment
+     * @param configService the {@link ConfigService} used to manage the dynamic system configuration properties
+     */
+    public GetByPrefix(
+            @Nonnull final ServiceEnvironment serviceEnvironment, @Nonnull final ConfigService configService) {
+        super(serviceEnvironment, configService);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Object handle(@Nonnull final Request request, @Nonnull final Response response)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        final String prefix = String.join("/", Optional.ofNullable(request.splat()).orElse(new String[0]));
+
+        if (StringUtils.isEmpty(prefix)) {
+            response.status(HttpServletResponse.SC_BAD_REQUEST);
+            return "Invalid configuration key prefix";
+        } else {
+            response.status(HttpServletResponse.SC_OK);
+            response.type(MediaType.JSON_UTF_8.type());
+
+            return getConfigService().getByPrefix(prefix).get(10, TimeUnit.SECONDS).toJson();
+        }
+    }
+}
@@ -3,17 +3,23 @@ package microsys.config.runner;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
+import microsys.common.model.CoordinationBackend;
 import microsys.common.model.service.ServiceType;
+import microsys.config.client.DynamicConfigUpdater;
 import microsys.config.route.Get;
 import microsys.config.route.GetAll;
+import microsys.config.route.GetByPrefix;
 import microsys.config.route.Set;
 import microsys.config.route.Unset;
 import microsys.config.service.ConfigService;
+import microsys.config.service.ConfigServiceException;
 import microsys.config.service.impl.CuratorConfigService;
+import microsys.config.service.impl.MemoryConfigService;
 import microsys.service.BaseService;
 import spark.Spark;
 
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 
 import javax.annotation.Nonnull;
@@ -22,6 +28,9 @@ import javax.annotation.Nonnull;
  * The main class used to run this service.
  */
 public class Runner extends BaseService {
+    @Nonnull
+    private Optional<DynamicConfigUpdater> dynamicConfigUpdater = Optional.empty();
+
     /**
      * This constructor initializes the system configuration, then configures the REST end-points and starts the
      * micro service
@@ -32,16 +41,45 @@ public class Runner extends BaseService {
      */
     public Runner(@Nonnull final Config config, @Nonnull final CountDownLatch serverStopLatch) throws Exception {
         super(Objects.requireNonNull(config), ServiceType.CONFIG, serverStopLatch);
-        addRoutes(new CuratorConfigService(getServiceEnvironment()));
+        final ConfigService configService = createConfigService();
+        addRoutes(configService);
+
+        this.dynamicConfigUpdater = Optional.of(new DynamicConfigUpdater(getServiceEnvironment(), configService));
+        this.dynamicConfigUpdater.get().start();
+    }
+
+    /**
+     * @return the {@link ConfigService} for the configured coordination backend
+     * @throws ConfigServiceException if there is a problem creating the configuration service
+     */
+    @Nonnull
+    protected ConfigService createConfigService() throws ConfigServiceException {
+        if (getServiceEnvironment().getCoordinationBackend() == CoordinationBackend.MEMORY) {
+            return new MemoryConfigService();
+        }
+        return new CuratorConfigService(getServiceEnvironment());
     }
 
     protected void addRoutes(@Nonnull final ConfigService configService) {
         Spark.get("/", new GetAll(getServiceEnvironment(), configService));
+        Spark.get("/prefix/*", new GetByPrefix(getServiceEnvironment(), configService));
         Spark.get("/:key", new Get(getServiceEnvironment(), configService));
         Spark.post("/", new Set(getServiceEnvironment(), configService));
         Spark.delete("/:key", new Unset(getServiceEnvironment(), configService));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        // The service may be stopped during construction, before the updater field is initialized.
+        if (this.dynamicConfigUpdater != null && this.dynamicConfigUpdater.isPresent()) {
+            this.dynamicConfigUpdater.get().close();
+        }
+        super.stop();
+    }
+
     /**
      * @param args the command-line parameters
      * @throws Exception if there is a problem during service initialization
@@ -1,5 +1,6 @@
 package microsys.config.service;
 
+import microsys.config.model.ConfigFilter;
 import microsys.config.model.ConfigKeyValue;
 import microsys.config.model.ConfigKeyValueCollection;
 
@@ -15,6 +16,19 @@ public interface ConfigService {
      */
     Future<ConfigKeyValueCollection> getAll();
 
+    /**
+     * @param filter the criteria used to limit and page the returned configuration values
+     * @return the page of available configuration values matching the filter
+     */
+    Future<ConfigKeyValueCollection> getAll(ConfigFilter filter);
+
+    /**
+     * @param prefix the key prefix used to limit the returned configuration values, for example {@code "security."}
+     * to retrieve all the configuration values in the security namespace
+     * @return all the available configuration values with keys starting with the specified prefix
+     */
+    Future<ConfigKeyValueCollection> getByPrefix(String prefix);
+
     /**
      * @param key the configuration key for which a configuration value will be retrieved
      * @return the requested configuration value, possibly empty if the specified configuration key is not recognized
@@ -1,42 +1,87 @@
 package microsys.config.service.impl;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.imps.CuratorFrameworkState;
 import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.TreeCache;
 import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
 import org.apache.curator.framework.recipes.cache.TreeCacheListener;
+import org.apache.zookeeper.KeeperException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import microsys.common.config.ConfigKeys;
+import microsys.config.model.ConfigFilter;
 import microsys.config.model.ConfigKeyValue;
 import microsys.config.model.ConfigKeyValueCollection;
 import microsys.config.service.ConfigService;
 import microsys.config.service.ConfigServiceException;
+import microsys.config.snapshot.ConfigSnapshot;
+import microsys.config.util.CompressionUtils;
 import microsys.service.model.ServiceEnvironment;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
 
 /**
  * A {@link ConfigService} implementation that makes use of a {@link CuratorFramework} to
  * store dynamic system configuration information in zookeeper.
+ *
+ * Values larger than the configured compression threshold are stored gzip-compressed, and stored values larger than
+ * the configured chunk size are split across child nodes of the configuration key node. Encoded values begin with a
+ * zero marker byte followed by a type byte, so plain values written by older versions are still readable. Decoding
+ * only happens when a value is read, so the tree cache holds the compressed bytes.
+ *
+ * When configuration snapshots are enabled, the values are also persisted into a local snapshot file each time they
+ * change. Until the tree cache has finished loading the values from zookeeper, reads are served from the snapshot and
+ * the returned collections are flagged as stale.
  */
 public class CuratorConfigService implements ConfigService, TreeCacheListener {
     private final static Logger LOG = LoggerFactory.getLogger(CuratorConfigService.class);
 
     private final static String PATH = "/dynamic-config";
+    private final static String SNAPSHOT_NAME = "config-service";
+
+    // The delays between attempts to create the root path - arbitrary
+    private final static long ROOT_RETRY_MIN_MILLIS = 100;
+    private final static long ROOT_RETRY_MAX_MILLIS = 30_000;
+
+    private final static byte MARKER = 0x00;
+    private final static byte TYPE_COMPRESSED = 'G';
+    private final static byte TYPE_CHUNKED = 'C';
+    private final static byte TYPE_PENDING = 'P';
 
     @Nonnull
     private final ServiceEnvironment serviceEnvironment;
     @Nonnull
     private final TreeCache treeCache;
+    @Nonnull
+    private final NavigableSet<String> keyIndex = new ConcurrentSkipListSet<>();
+    private final long compressionThreshold;
+    private final long chunkSize;
+    @Nonnull
+    private final Optional<ConfigSnapshot> snapshot;
+    @Nonnull
+    private final Optional<ConfigKeyValueCollection> snapshotValues;
+    @Nonnull
+    private final AtomicBoolean initialized = new AtomicBoolean(false);
+    @Nonnull
+    private final AtomicBoolean snapshotPending = new AtomicBoolean(false);
 
     /**
      * @param serviceEnvironment the service environment
@@ -46,19 +91,24 @@ public class CuratorConfigService implements ConfigService, TreeCacheListener {
         this.serviceEnvironment = Objects.requireNonNull(serviceEnvironment);
 
         try {
-            final CuratorFramework curator = this.serviceEnvironment.getCuratorFramework();
-            if (curator.checkExists().forPath(PATH) == null) {
-                curator.create().creatingParentsIfNeeded().forPath(PATH);
-            }
+            this.compressionThreshold = this.serviceEnvironment.getConfig()
+                    .getBytes(ConfigKeys.CONFIG_COMPRESSION_THRESHOLD.getKey());
+            this.chunkSize = this.serviceEnvironment.getConfig().getBytes(ConfigKeys.CONFIG_CHUNK_SIZE.getKey());
+            this.snapshot = ConfigSnapshot.create(this.serviceEnvironment.getConfig(), SNAPSHOT_NAME);
+            this.snapshotValues = this.snapshot.isPresent() ? this.snapshot.get().load() : Optional.empty();
 
+            // Add this class as a listener before starting so the key index sees the initial data. The tree cache
+            // loads asynchronously, so startup does not wait on zookeeper.
+            final CuratorFramework curator = this.serviceEnvironment.getCuratorFramework();
             this.treeCache = new TreeCache(curator, PATH);
+            this.treeCache.getListenable().addListener(this);
             this.treeCache.start();
         } catch (final Exception exception) {
             throw new ConfigServiceException("Failed to initialize config service", exception);
         }
 
-        // Add this class as a listener.
-        this.treeCache.getListenable().addListener(this);
+        // Create the root path in the background, the tree cache will pick it up when it exists.
+        createRootPath();
     }
 
     /**
@@ -77,6 +127,109 @@ public class CuratorConfigService implements ConfigService, TreeCacheListener {
         return this.treeCache;
     }
 
+    /**
+     * Create the root path in the background so startup does not wait on zookeeper. Creation is retried with an
+     * increasing delay until it succeeds, the curator framework is closed, or the executor is shut down.
+     *
+     * @return the future that completes when the root path exists or creation has been abandoned
+     */
+    @Nonnull
+    protected Future<?> createRootPath() {
+        return getServiceEnvironment().getExecutor().submit(() -> {
+            long delay = ROOT_RETRY_MIN_MILLIS;
+            while (true) {
+                final CuratorFramework curator = getServiceEnvironment().getCuratorFramework();
+                try {
+                    if (curator.checkExists().forPath(PATH) == null) {
+                        curator.create().creatingParentsIfNeeded().forPath(PATH);
+                    }
+                    return null;
+                } catch (final KeeperException.NodeExistsException alreadyCreated) {
+                    // Another service created the root path first.
+                    return null;
+                } catch (final Exception exception) {
+                    if (curator.getState() == CuratorFrameworkState.STOPPED) {
+                        LOG.warn("Giving up on creating config root path {}, curator is closed", PATH);
+                        return null;
+                    }
+                    LOG.warn("Failed to create config root path {}, retrying in {}ms", PATH, delay, exception);
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                } catch (final InterruptedException interrupted) {
+                    LOG.warn("Interrupted before creating config root path {}", PATH);
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                delay = Math.min(delay * 2, ROOT_RETRY_MAX_MILLIS);
+            }
+        });
+    }
+
+    /**
+     * @return the size in bytes at or above which configuration values will be compressed when stored
+     */
+    protected long getCompressionThreshold() {
+        return this.compressionThreshold;
+    }
+
+    /**
+     * @return the maximum number of bytes to store in a single zookeeper node before splitting the value into chunks
+     */
+    protected long getChunkSize() {
+        return this.chunkSize;
+    }
+
+    /**
+     * @return the local snapshot in which the configuration values are persisted, possibly empty if disabled
+     */
+    @Nonnull
+    protected Optional<ConfigSnapshot> getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * @return the configuration values to serve until the tree cache is initialized, only available when a
+     * snapshot was loaded
+     */
+    @Nonnull
+    protected Optional<ConfigKeyValueCollection> getSnapshotValues() {
+        return isInitialized() ? Optional.empty() : this.snapshotValues;
+    }
+
+    /**
+     * @return whether the tree cache has finished loading the initial configuration values from zookeeper
+     */
+    protected boolean isInitialized() {
+        return this.initialized.get();
+    }
+
+    /**
+     * Write the current configuration values into the local snapshot in the background. Multiple requests made
+     * while a write is pending are combined into a single write.
+     */
+    protected void saveSnapshot() {
+        if (getSnapshot().isPresent() && this.snapshotPending.compareAndSet(false, true)) {
+            getServiceEnvironment().getExecutor().submit(() -> {
+                this.snapshotPending.set(false);
+                try {
+                    getSnapshot().get().save(getCurrent());
+                } catch (final ConfigServiceException saveException) {
+                    LOG.warn("Failed to save configuration snapshot: {}", saveException.getMessage());
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * @return the sorted index of the configuration keys currently available, used to perform prefix lookups
+     */
+    @Nonnull
+    protected NavigableSet<String> getKeyIndex() {
+        return this.keyIndex;
+    }
+
     /**
      * @param key the configuration key for which a zookeeper path should be created
      * @return the zookeeper path representation of the provided key
@@ -87,12 +240,194 @@ public class CuratorConfigService implements ConfigService, TreeCacheListener {
     }
 
     /**
+     * @param path the zookeeper path for which the configuration key should be retrieved
+     * @return the configuration key represented by the path, possibly empty if the path does not represent a key
+     */
+    @Nonnull
+    protected Optional<String> getKey(@Nonnull final String path) {
+        final String parent = PATH + "/";
+        if (Objects.requireNonNull(path).startsWith(parent) && path.length() > parent.length()) {
+            final String key = path.substring(parent.length());
+            if (!key.contains("/")) {
+                return Optional.of(key);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param bytes the configuration value as bytes as stored in zookeeper
+     * @return whether the stored value is a placeholder for a chunked value that has not been fully written yet
+     */
+    protected boolean isPending(@Nonnull final byte[] bytes) {
+        return isEncoded(bytes, TYPE_PENDING);
+    }
+
+    /**
+     * @param bytes the configuration value as bytes as stored in zookeeper
+     * @param type the encoding type to check
+     * @return whether the stored value has been encoded with the specified type
+     */
+    protected boolean isEncoded(@Nonnull final byte[] bytes, final byte type) {
+        return Objects.requireNonNull(bytes).length > 1 && bytes[0] == MARKER && bytes[1] == type;
+    }
+
+    /**
+     * @param key the configuration key associated with the stored value, used to find any chunks
      * @param bytes the configuration value as bytes as stored in zookeeper
      * @return the String value of the bytes
+     * @throws ConfigServiceException if there is a problem decoding the stored value
      */
     @Nonnull
-    protected String getValue(@Nonnull final byte[] bytes) {
-        return new String(Objects.requireNonNull(bytes), StandardCharsets.UTF_8);
+    protected String getValue(@Nonnull final String key, @Nonnull final byte[] bytes)
+            throws ConfigServiceException {
+        return new String(decode(Objects.requireNonNull(key), Objects.requireNonNull(bytes)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param key the configuration key associated with the stored value, used to find any chunks
+     * @param bytes the configuration value as bytes as stored in zookeeper
+     * @return the decoded, uncompressed bytes of the configuration value
+     * @throws ConfigServiceException if there is a problem decoding the stored value
+     */
+    @Nonnull
+    protected byte[] decode(@Nonnull final String key, @Nonnull final byte[] bytes) throws ConfigServiceException {
+        try {
+            if (isEncoded(bytes, TYPE_COMPRESSED)) {
+                return CompressionUtils.decompress(Arrays.copyOfRange(bytes, 2, bytes.length));
+            } else if (isEncoded(bytes, TYPE_CHUNKED)) {
+                return decode(key, getChunks(key, bytes));
+            }
+            return bytes;
+        } catch (final IOException decodeException) {
+            throw new ConfigServiceException("Failed to decode configuration value for key: " + key, decodeException);
+        }
+    }
+
+    /**
+     * @param key the configuration key associated with the chunked value
+     * @param header the chunk header stored in the configuration key node
+     * @return the reassembled bytes stored across the chunk nodes
+     * @throws ConfigServiceException if there is a problem retrieving the chunk data
+     */
+    @Nonnull
+    protected byte[] getChunks(@Nonnull final String key, @Nonnull final byte[] header)
+            throws ConfigServiceException {
+        // The header contains the chunk generation and the number of chunks, separated by a colon.
+        final String[] parts = new String(header, 2, header.length - 2, StandardCharsets.UTF_8).split(":");
+        final String generation = parts[0];
+        final int count = Integer.parseInt(parts[1]);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (int chunk = 0; chunk < count; chunk++) {
+            final String chunkPath = getChunkPath(key, generation, chunk);
+            final Optional<ChildData> data = Optional.ofNullable(getTreeCache().getCurrentData(chunkPath));
+            if (data.isPresent() && data.get().getData() != null) {
+                baos.write(data.get().getData(), 0, data.get().getData().length);
+            } else {
+                // The tree cache may not have received the chunk yet, so read it directly.
+                try {
+                    final byte[] bytes = getServiceEnvironment().getCuratorFramework().getData().forPath(chunkPath);
+                    baos.write(bytes, 0, bytes.length);
+                } catch (final Exception chunkException) {
+                    throw new ConfigServiceException(
+                            "Failed to retrieve configuration value chunk for key: " + key, chunkException);
+                }
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * @param key the configuration key associated with the chunked value
+     * @param generation the generation of chunks written for the configuration value
+     * @param chunk the index of the chunk
+     * @return the zookeeper path of the chunk node
+     */
+    @Nonnull
+    protected String getChunkPath(@Nonnull final String key, @Nonnull final String generation, final int chunk) {
+        return String.format("%s/%s/%d", getPath(key), Objects.requireNonNull(generation), chunk);
+    }
+
+    /**
+     * @param value the configuration value to be encoded for storage in zookeeper
+     * @return the bytes to store, compressed if the value is at least as large as the compression threshold
+     * @throws IOException if there is a problem compressing the value
+     */
+    @Nonnull
+    protected byte[] encode(@Nonnull final String value) throws IOException {
+        final byte[] bytes = Objects.requireNonNull(value).getBytes(StandardCharsets.UTF_8);
+        // Values that happen to begin with the marker byte are always compressed so they are not misread.
+        if (bytes.length >= getCompressionThreshold() || (bytes.length > 0 && bytes[0] == MARKER)) {
+            final byte[] compressed = CompressionUtils.compress(bytes);
+            final byte[] encoded = new byte[compressed.length + 2];
+            encoded[0] = MARKER;
+            encoded[1] = TYPE_COMPRESSED;
+            System.arraycopy(compressed, 0, encoded, 2, compressed.length);
+            return encoded;
+        }
+        return bytes;
+    }
+
+    /**
+     * @param type the encoding type
+     * @param content the additional content to include after the type
+     * @return the encoded bytes
+     */
+    @Nonnull
+    protected byte[] getHeader(final byte type, @Nonnull final String content) {
+        final byte[] bytes = Objects.requireNonNull(content).getBytes(StandardCharsets.UTF_8);
+        final byte[] header = new byte[bytes.length + 2];
+        header[0] = MARKER;
+        header[1] = type;
+        System.arraycopy(bytes, 0, header, 2, bytes.length);
+        return header;
+    }
+
+    /**
+     * @param key the configuration key to store
+     * @param data the encoded configuration value to store, split into chunks if necessary
+     * @param exists whether the configuration key node already exists in zookeeper
+     * @throws Exception if there is a problem writing the data into zookeeper
+     */
+    protected void store(@Nonnull final String key, @Nonnull final byte[] data, final boolean exists)
+            throws Exception {
+        final CuratorFramework curator = getServiceEnvironment().getCuratorFramework();
+        final String path = getPath(key);
+
+        Optional<String> generation = Optional.empty();
+        byte[] value = data;
+        if (data.length > getChunkSize()) {
+            if (!exists) {
+                // Readers ignore the placeholder until the chunk header replaces it.
+                curator.create().creatingParentsIfNeeded().forPath(path, getHeader(TYPE_PENDING, ""));
+            }
+
+            // Write the chunks before the header that references them so readers never see a partial value.
+            generation = Optional.of(UUID.randomUUID().toString());
+            int chunk = 0;
+            for (int offset = 0; offset < data.length; offset += getChunkSize(), chunk++) {
+                final int end = (int) Math.min(data.length, offset + getChunkSize());
+                curator.create().creatingParentsIfNeeded()
+                        .forPath(getChunkPath(key, generation.get(), chunk), Arrays.copyOfRange(data, offset, end));
+            }
+            value = getHeader(TYPE_CHUNKED, String.format("%s:%d", generation.get(), chunk));
+        }
+
+        if (exists || generation.isPresent()) {
+            curator.setData().forPath(path, value);
+        } else {
+            curator.create().creatingParentsIfNeeded().forPath(path, value);
+        }
+
+        if (exists) {
+            // Remove any chunks from previous versions of the value.
+            for (final String child : curator.getChildren().forPath(path)) {
+                if (!generation.isPresent() || !generation.get().equals(child)) {
+                    curator.delete().deletingChildrenIfNeeded().forPath(String.format("%s/%s", path, child));
+                }
+            }
+        }
     }
 
     /**
@@ -102,13 +437,88 @@ public class CuratorConfigService implements ConfigService, TreeCacheListener {
     @Nonnull
     public Future<ConfigKeyValueCollection> getAll() {
         return getServiceEnvironment().getExecutor().submit(() -> {
-            final Collection<ConfigKeyValue> coll = new LinkedList<>();
-            final Optional<Map<String, ChildData>> data = Optional.ofNullable(getTreeCache().getCurrentChildren(PATH));
-            if (data.isPresent()) {
-                data.get().entrySet().stream()
-                        .forEach(e -> coll.add(new ConfigKeyValue(e.getKey(), getValue(e.getValue().getData()))));
+            final Optional<ConfigKeyValueCollection> snapshotValues = getSnapshotValues();
+            if (snapshotValues.isPresent()) {
+                return snapshotValues.get();
             }
-            return new ConfigKeyValueCollection(coll);
+            return getCurrent();
+        });
+    }
+
+    /**
+     * @return the current configuration values available in the tree cache
+     * @throws ConfigServiceException if there is a problem decoding the stored values
+     */
+    @Nonnull
+    protected ConfigKeyValueCollection getCurrent() throws ConfigServiceException {
+        final Collection<ConfigKeyValue> coll = new LinkedList<>();
+        final Optional<Map<String, ChildData>> data = Optional.ofNullable(getTreeCache().getCurrentChildren(PATH));
+        if (data.isPresent()) {
+            for (final Map.Entry<String, ChildData> entry : data.get().entrySet()) {
+                final byte[] bytes = entry.getValue().getData();
+                if (bytes != null && !isPending(bytes)) {
+                    coll.add(new ConfigKeyValue(entry.getKey(), getValue(entry.getKey(), bytes)));
+                }
+            }
+        }
+        return new ConfigKeyValueCollection(coll);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<ConfigKeyValueCollection> getByPrefix(@Nonnull final String prefix) {
+        Objects.requireNonNull(prefix);
+        return getServiceEnvironment().getExecutor().submit(() -> {
+            final Optional<ConfigKeyValueCollection> snapshotValues = getSnapshotValues();
+            if (snapshotValues.isPresent()) {
+                final Collection<ConfigKeyValue> coll = new LinkedList<>();
+                snapshotValues.get().asSet().stream().filter(kv -> kv.getKey().startsWith(prefix))
+                        .forEach(coll::add);
+                return new ConfigKeyValueCollection(coll, true);
+            }
+            return getCurrentByPrefix(prefix);
+        });
+    }
+
+    /**
+     * @param prefix the key prefix used to limit the returned configuration values
+     * @return the current configuration values available in the tree cache with keys starting with the prefix
+     * @throws ConfigServiceException if there is a problem decoding the stored values
+     */
+    @Nonnull
+    protected ConfigKeyValueCollection getCurrentByPrefix(@Nonnull final String prefix)
+            throws ConfigServiceException {
+        final Collection<ConfigKeyValue> coll = new LinkedList<>();
+        for (final String key : getKeyIndex().subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            final Optional<ChildData> data = Optional.ofNullable(getTreeCache().getCurrentData(getPath(key)));
+            if (data.isPresent() && data.get().getData() != null && !isPending(data.get().getData())) {
+                coll.add(new ConfigKeyValue(key, getValue(key, data.get().getData())));
+            }
+        }
+        return new ConfigKeyValueCollection(coll);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<ConfigKeyValueCollection> getAll(@Nonnull final ConfigFilter filter) {
+        Objects.requireNonNull(filter);
+        return getServiceEnvironment().getExecutor().submit(() -> {
+            final Optional<ConfigKeyValueCollection> snapshotValues = getSnapshotValues();
+            if (snapshotValues.isPresent()) {
+                return filter.apply(snapshotValues.get());
+            }
+
+            // Use the key index to narrow down the values when a prefix is available.
+            if (filter.getPrefix().isPresent()) {
+                return filter.apply(getCurrentByPrefix(filter.getPrefix().get()));
+            }
+            return filter.apply(getCurrent());
         });
     }
 
@@ -120,14 +530,28 @@ public class CuratorConfigService implements ConfigService, TreeCacheListener {
     public Future<Optional<ConfigKeyValue>> get(@Nonnull final String key) {
         Objects.requireNonNull(key);
         return getServiceEnvironment().getExecutor().submit(() -> {
-            final Optional<ChildData> existing = Optional.ofNullable(getTreeCache().getCurrentData(getPath(key)));
-            if (existing.isPresent()) {
-                return Optional.of(new ConfigKeyValue(key, getValue(existing.get().getData())));
+            final Optional<ConfigKeyValueCollection> snapshotValues = getSnapshotValues();
+            if (snapshotValues.isPresent()) {
+                return snapshotValues.get().get(key);
             }
-            return Optional.empty();
+            return getExisting(key);
         });
     }
 
+    /**
+     * @param key the configuration key for which the current value should be retrieved from the tree cache
+     * @return the current configuration value, possibly empty if the key does not exist or is not fully written
+     * @throws ConfigServiceException if there is a problem decoding the stored value
+     */
+    @Nonnull
+    protected Optional<ConfigKeyValue> getExisting(@Nonnull final String key) throws ConfigServiceException {
+        final Optional<ChildData> existing = Optional.ofNullable(getTreeCache().getCurrentData(getPath(key)));
+        if (existing.isPresent() && existing.get().getData() != null && !isPending(existing.get().getData())) {
+            return Optional.of(new ConfigKeyValue(key, getValue(key, existing.get().getData())));
+        }
+        return Optional.empty();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -136,27 +560,17 @@ public class CuratorConfigService implements ConfigService, TreeCacheListener {
     public Future<Optional<ConfigKeyValue>> set(@Nonnull final ConfigKeyValue kv) {
         Objects.requireNonNull(kv);
         return getServiceEnvironment().getExecutor().submit(() -> {
-            final Optional<ChildData> existing =
-                    Optional.ofNullable(getTreeCache().getCurrentData(getPath(kv.getKey())));
+            final boolean exists = getTreeCache().getCurrentData(getPath(kv.getKey())) != null;
+            // Decode the previous value before it is replaced since its chunks are removed during the update.
+            final Optional<ConfigKeyValue> existing = getExisting(kv.getKey());
             try {
-                final String path = getPath(kv.getKey());
-                final byte[] value = kv.getValue().getBytes(StandardCharsets.UTF_8);
-                if (existing.isPresent()) {
-                    getServiceEnvironment().getCuratorFramework().setData().forPath(path, value);
-                } else {
-                    getServiceEnvironment().getCuratorFramework().create().creatingParentsIfNeeded()
-                            .forPath(path, value);
-                }
+                store(kv.getKey(), encode(kv.getValue()), exists);
             } catch (final Exception setException) {
                 LOG.error("Failed to set configuration value for key: {}", kv.getKey());
                 throw new ConfigServiceException(
                         "Failed to set configuration value for key: " + kv.getKey(), setException);
             }
-
-            if (existing.isPresent()) {
-                return Optional.of(new ConfigKeyValue(kv.getKey(), getValue(existing.get().getData())));
-            }
-            return Optional.empty();
+            return existing;
         });
     }
 
@@ -168,21 +582,19 @@ public class CuratorConfigService implements ConfigService, TreeCacheListener {
     public Future<Optional<ConfigKeyValue>> unset(@Nonnull final String key) {
         Objects.requireNonNull(key);
         return getServiceEnvironment().getExecutor().submit(() -> {
-            final Optional<ChildData> existing = Optional.ofNullable(getTreeCache().getCurrentData(getPath(key)));
+            final boolean exists = getTreeCache().getCurrentData(getPath(key)) != null;
+            final Optional<ConfigKeyValue> existing = getExisting(key);
             try {
-                if (existing.isPresent()) {
-                    getServiceEnvironment().getCuratorFramework().delete().forPath(getPath(key));
+                if (exists) {
+                    getServiceEnvironment().getCuratorFramework().delete().deletingChildrenIfNeeded()
+                            .forPath(getPath(key));
                 }
             } catch (final Exception unsetException) {
                 LOG.error("Failed to remove configuration value with key: {}", key);
                 throw new ConfigServiceException(
                         "Failed to remove configuration value with key: " + key, unsetException);
             }
-
-            if (existing.isPresent()) {
-                return Optional.of(new ConfigKeyValue(key, getValue(existing.get().getData())));
-            }
-            return Optional.empty();
+            return existing;
         });
     }
 
@@ -192,8 +604,34 @@ public class CuratorConfigService implements ConfigService, TreeCacheListener {
     @Override
     public void childEvent(@Nonnull final CuratorFramework client, @Nonnull final TreeCacheEvent event)
             throws Exception {
+        if (event.getType() == TreeCacheEvent.Type.INITIALIZED) {
+            this.initialized.set(true);
+            saveSnapshot();
+        } else if (isInitialized() && event.getData() != null) {
+            saveSnapshot();
+        }
+
         if (event.getData() != null) {
-            if (event.getData().getData() != null) {
+            final Optional<String> key = getKey(event.getData().getPath());
+            if (key.isPresent()) {
+                switch (event.getType()) {
+                    case NODE_ADDED:
+                    case NODE_UPDATED:
+                        getKeyIndex().add(key.get());
+                        break;
+                    case NODE_REMOVED:
+                        getKeyIndex().remove(key.get());
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            if (event.getData().getData() != null && event.getData().getData().length > 0
+                    && event.getData().getData()[0] == MARKER) {
+                LOG.info("Configuration {}: {} => ({} encoded bytes)", event.getType(), event.getData().getPath(),
+                        event.getData().getData().length);
+            } else if (event.getData().getData() != null) {
                 LOG.info("Configuration {}: {} => {}", event.getType(), event.getData().getPath(),
                         new String(event.getData().getData(), StandardCharsets.UTF_8));
             } else {
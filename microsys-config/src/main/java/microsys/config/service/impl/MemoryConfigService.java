@@ -0,0 +1,140 @@
+package microsys.config.service.impl;
+
+import microsys.config.model.ConfigFilter;
+import microsys.config.model.ConfigKeyValue;
+import microsys.config.model.ConfigKeyValueCollection;
+import microsys.config.service.ConfigService;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides an in-memory implementation of a {@link ConfigService}, for single-node deployments and tests that should
+ * not need a running zookeeper. By default the values are shared by all of the memory config services within the
+ * JVM, in the same way the memory discovery managers share their registrations, so config service instances running
+ * in one process serve the same values. The values are not shared with other processes, and are lost when the JVM
+ * exits.
+ */
+public class MemoryConfigService implements ConfigService {
+    // The configuration values shared by all of the memory config services within this JVM
+    @Nonnull
+    private final static ConcurrentNavigableMap<String, String> SHARED = new ConcurrentSkipListMap<>();
+
+    @Nonnull
+    private final ConcurrentNavigableMap<String, String> values;
+
+    /**
+     * Create a config service holding the configuration values shared within this JVM.
+     */
+    public MemoryConfigService() {
+        this(SHARED);
+    }
+
+    /**
+     * @param values the {@link ConcurrentNavigableMap} holding the configuration keys and values
+     */
+    public MemoryConfigService(@Nonnull final ConcurrentNavigableMap<String, String> values) {
+        this.values = Objects.requireNonNull(values);
+    }
+
+    /**
+     * @return the {@link ConcurrentNavigableMap} holding the configuration keys and the matching values, sorted by key
+     */
+    @Nonnull
+    protected ConcurrentNavigableMap<String, String> getValues() {
+        return this.values;
+    }
+
+    /**
+     * @param values the configuration keys and values to include in the collection
+     * @return a {@link ConfigKeyValueCollection} holding the specified values
+     */
+    @Nonnull
+    protected ConfigKeyValueCollection getCollection(@Nonnull final Map<String, String> values) {
+        final Collection<ConfigKeyValue> coll = new LinkedList<>();
+        values.forEach((key, value) -> coll.add(new ConfigKeyValue(key, value)));
+        return new ConfigKeyValueCollection(coll);
+    }
+
+    /**
+     * @param prefix the key prefix used to limit the returned configuration values
+     * @return the configuration values with keys starting with the prefix
+     */
+    @Nonnull
+    protected ConfigKeyValueCollection getCollectionByPrefix(@Nonnull final String prefix) {
+        return getCollection(getValues().subMap(prefix, true, prefix + Character.MAX_VALUE, false));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<ConfigKeyValueCollection> getAll() {
+        return CompletableFuture.completedFuture(getCollection(getValues()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<ConfigKeyValueCollection> getAll(@Nonnull final ConfigFilter filter) {
+        Objects.requireNonNull(filter);
+        // Use the sorted keys to narrow down the values when a prefix is available.
+        final ConfigKeyValueCollection coll = filter.getPrefix().isPresent() ?
+                getCollectionByPrefix(filter.getPrefix().get()) : getCollection(getValues());
+        return CompletableFuture.completedFuture(filter.apply(coll));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<ConfigKeyValueCollection> getByPrefix(@Nonnull final String prefix) {
+        return CompletableFuture.completedFuture(getCollectionByPrefix(Objects.requireNonNull(prefix)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<Optional<ConfigKeyValue>> get(@Nonnull final String key) {
+        Objects.requireNonNull(key);
+        return CompletableFuture.completedFuture(
+                Optional.ofNullable(getValues().get(key)).map(value -> new ConfigKeyValue(key, value)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<Optional<ConfigKeyValue>> set(@Nonnull final ConfigKeyValue kv) {
+        Objects.requireNonNull(kv);
+        return CompletableFuture.completedFuture(Optional.ofNullable(getValues().put(kv.getKey(), kv.getValue()))
+                .map(value -> new ConfigKeyValue(kv.getKey(), value)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Future<Optional<ConfigKeyValue>> unset(@Nonnull final String key) {
+        Objects.requireNonNull(key);
+        return CompletableFuture.completedFuture(
+                Optional.ofNullable(getValues().remove(key)).map(value -> new ConfigKeyValue(key, value)));
+    }
+}
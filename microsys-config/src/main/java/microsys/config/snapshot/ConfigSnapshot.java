@@ -0,0 +1,109 @@
+package microsys.config.snapshot;
+
+import com.google.gson.JsonParser;
+import com.typesafe.config.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import microsys.common.config.ConfigKeys;
+import microsys.config.model.ConfigKeyValueCollection;
+import microsys.config.service.ConfigServiceException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Persists the most recently known dynamic configuration values into a local file so they can be served quickly
+ * during startup and while zookeeper is unavailable. The file is replaced atomically each time it is written so a
+ * reader never sees a partially written snapshot.
+ */
+public class ConfigSnapshot {
+    private final static Logger LOG = LoggerFactory.getLogger(ConfigSnapshot.class);
+
+    @Nonnull
+    private final Path file;
+
+    /**
+     * @param file the local file in which the configuration snapshot is stored
+     */
+    public ConfigSnapshot(@Nonnull final Path file) {
+        this.file = Objects.requireNonNull(file);
+    }
+
+    /**
+     * @param config the static system configuration
+     * @param name the name of the snapshot, unique to the process type writing it
+     * @return the configured {@link ConfigSnapshot}, possibly empty if configuration snapshots are disabled
+     */
+    @Nonnull
+    public static Optional<ConfigSnapshot> create(@Nonnull final Config config, @Nonnull final String name) {
+        if (!Objects.requireNonNull(config).getBoolean(ConfigKeys.CONFIG_SNAPSHOT_ENABLED.getKey())) {
+            return Optional.empty();
+        }
+        final Path dir = Paths.get(config.getString(ConfigKeys.SNAPSHOT_DIR.getKey()));
+        return Optional.of(new ConfigSnapshot(dir.resolve(Objects.requireNonNull(name) + ".json")));
+    }
+
+    /**
+     * @return the local file in which the configuration snapshot is stored
+     */
+    @Nonnull
+    public Path getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return the configuration values from the snapshot file, flagged as stale, possibly empty if the snapshot file
+     * does not exist or could not be read
+     */
+    @Nonnull
+    public Optional<ConfigKeyValueCollection> load() {
+        if (!Files.exists(getFile())) {
+            return Optional.empty();
+        }
+
+        try (final Reader reader = Files.newBufferedReader(getFile(), StandardCharsets.UTF_8)) {
+            final ConfigKeyValueCollection coll =
+                    new ConfigKeyValueCollection(new JsonParser().parse(reader).getAsJsonObject());
+            return Optional.of(new ConfigKeyValueCollection(coll.asMap().values(), true));
+        } catch (final IOException | RuntimeException loadException) {
+            LOG.warn("Failed to load configuration snapshot from {}: {}", getFile(), loadException.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param coll the configuration values to be written into the snapshot file
+     * @throws ConfigServiceException if there is a problem writing the snapshot file
+     */
+    public void save(@Nonnull final ConfigKeyValueCollection coll) throws ConfigServiceException {
+        Objects.requireNonNull(coll);
+        try {
+            final Path dir = getFile().toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+
+            // Write into a temporary file first and then rename it over the existing snapshot.
+            final Path temp = Files.createTempFile(dir, getFile().getFileName().toString(), ".tmp");
+            try (final Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(new ConfigKeyValueCollection(coll.asMap().values()).toJson().toString());
+            } catch (final IOException writeException) {
+                Files.deleteIfExists(temp);
+                throw writeException;
+            }
+            Files.move(temp, getFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException saveException) {
+            throw new ConfigServiceException("Failed to save configuration snapshot to " + getFile(), saveException);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package microsys.config.util;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides some compression utility methods used when storing large dynamic configuration values.
+ */
+public class CompressionUtils {
+    /**
+     * @param bytes the uncompressed bytes to be compressed
+     * @return the gzip-compressed representation of the provided bytes
+     * @throws IOException if there is a problem compressing the data
+     */
+    @Nonnull
+    public static byte[] compress(@Nonnull final byte[] bytes) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(Objects.requireNonNull(bytes).length / 4 + 32);
+        try (final OutputStream gzip = new GZIPOutputStream(baos)) {
+            gzip.write(bytes);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * @param bytes the gzip-compressed bytes to be decompressed
+     * @return the uncompressed bytes
+     * @throws IOException if there is a problem decompressing the data
+     */
+    @Nonnull
+    public static byte[] decompress(@Nonnull final byte[] bytes) throws IOException {
+        try (final InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(Objects.requireNonNull(bytes)))) {
+            return ByteStreams.toByteArray(gzip);
+        }
+    }
+}
@@ -20,10 +20,12 @@ import ch.qos.logback.classic.Level;
 import microsys.common.config.ConfigKeys;
 import microsys.common.model.service.Service;
 import microsys.common.model.service.ServiceType;
+import microsys.config.model.ConfigFilter;
 import microsys.config.model.ConfigKeyValue;
 import microsys.config.model.ConfigKeyValueCollection;
 import microsys.config.runner.Runner;
 import microsys.config.service.impl.CuratorConfigService;
+import microsys.config.snapshot.ConfigSnapshot;
 import microsys.discovery.DiscoveryManager;
 import microsys.service.BaseService;
 import microsys.service.filter.RequestLoggingFilter;
@@ -32,6 +34,8 @@ import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import spark.webserver.JettySparkServer;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -103,6 +107,27 @@ public class ConfigClientIT {
         final ConfigKeyValueCollection afterSet = client.getAll().get();
         assertEquals(1, afterSet.size());
 
+        assertEquals(1, client.getByPrefix("ke").get().size());
+        assertEquals(0, client.getByPrefix("missing").get().size());
+
+        // Reserved characters in the prefix are sent as part of the prefix.
+        assertFalse(client.set(new ConfigKeyValue("reserved?a#b%c d", "value")).get().isPresent());
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertEquals(1, client.getByPrefix("reserved?a#b%c ").get().size());
+        assertEquals(0, client.getByPrefix("reserved?a#b%d").get().size());
+        assertEquals(0, client.getByPrefix("reserved/a").get().size());
+        assertTrue(client.unset("reserved?a#b%c d").get().isPresent());
+
+        final ConfigFilter filter =
+                new ConfigFilter(Optional.of("VAL"), Optional.of("^v"), Optional.of("k"), 0, Optional.of(1));
+        assertEquals(1, client.getAll(filter).get().size());
+        final ConfigFilter noMatch =
+                new ConfigFilter(Optional.empty(), Optional.of("^x"), Optional.empty(), 0, Optional.empty());
+        assertEquals(0, client.getAll(noMatch).get().size());
+        final ConfigFilter offset =
+                new ConfigFilter(Optional.empty(), Optional.empty(), Optional.empty(), 1, Optional.empty());
+        assertEquals(0, client.getAll(offset).get().size());
+
         // Overwrite the previous value.
         final Optional<ConfigKeyValue> oldValue = client.set(new ConfigKeyValue("key", "new-value")).get();
         assertTrue(oldValue.isPresent());
@@ -139,8 +164,39 @@ public class ConfigClientIT {
         client.getAll().get();
     }
 
+    @Test
+    public void testNoConfigServiceSnapshot() throws Exception {
+        final Path dir = Files.createTempDirectory("snapshot");
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.CONFIG_SNAPSHOT_ENABLED.getKey(), ConfigValueFactory.fromAnyRef(true));
+        map.put(ConfigKeys.SNAPSHOT_DIR.getKey(), ConfigValueFactory.fromAnyRef(dir.toString()));
+        new ConfigSnapshot(dir.resolve("config-client-config.json"))
+                .save(new ConfigKeyValueCollection(new ConfigKeyValue("key", "value")));
+
+        final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
+        Mockito.when(mockDiscovery.getRandom(ServiceType.CONFIG)).thenReturn(Optional.empty());
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.CONFIG), Mockito.anyString()))
+                .thenReturn(Optional.empty());
+
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getConfig())
+                .thenReturn(ConfigFactory.parseMap(map).withFallback(ConfigFactory.load()));
+        Mockito.when(serviceEnvironment.getServiceType()).thenReturn(ServiceType.CONFIG);
+        Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
+        Mockito.when(serviceEnvironment.getExecutor()).thenReturn(Executors.newFixedThreadPool(1));
+
+        final ConfigClient client = new ConfigClient(serviceEnvironment);
+        final ConfigKeyValueCollection coll = client.getAll().get();
+        assertTrue(coll.isStale());
+        assertEquals(1, coll.size());
+        assertEquals(1, client.getByPrefix("k").get().size());
+        assertEquals(0, client.getByPrefix("missing").get().size());
+        assertEquals(new ConfigKeyValue("key", "value"), client.get("key").get().get());
+        assertFalse(client.get("missing").get().isPresent());
+    }
+
     @Test(expected = ExecutionException.class)
-    public void testNoConfigServiceGet() throws Exception {
+    public void testNoConfigServiceGetByPrefix() throws Exception {
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
         Mockito.when(mockDiscovery.getRandom(ServiceType.CONFIG)).thenReturn(Optional.empty());
 
@@ -148,6 +204,20 @@ public class ConfigClientIT {
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
         Mockito.when(serviceEnvironment.getExecutor()).thenReturn(Executors.newFixedThreadPool(1));
 
+        final ConfigClient client = new ConfigClient(serviceEnvironment);
+        client.getByPrefix("key").get();
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testNoConfigServiceGet() throws Exception {
+        final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.CONFIG), Mockito.anyString()))
+                .thenReturn(Optional.empty());
+
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
+        Mockito.when(serviceEnvironment.getExecutor()).thenReturn(Executors.newFixedThreadPool(1));
+
         final ConfigClient client = new ConfigClient(serviceEnvironment);
         client.get("key").get();
     }
@@ -155,7 +225,8 @@ public class ConfigClientIT {
     @Test(expected = ExecutionException.class)
     public void testNoConfigServiceSet() throws Exception {
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.CONFIG)).thenReturn(Optional.empty());
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.CONFIG), Mockito.anyString()))
+                .thenReturn(Optional.empty());
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -168,7 +239,8 @@ public class ConfigClientIT {
     @Test(expected = ExecutionException.class)
     public void testNoConfigServiceUnset() throws Exception {
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.CONFIG)).thenReturn(Optional.empty());
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.CONFIG), Mockito.anyString()))
+                .thenReturn(Optional.empty());
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -203,8 +275,9 @@ public class ConfigClientIT {
         mockServer.enqueue(response);
 
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.CONFIG)).thenReturn(Optional.of(
-                new Service(ServiceType.CONFIG, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.CONFIG), Mockito.anyString()))
+                .thenReturn(Optional.of(new Service(
+                        ServiceType.CONFIG, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -221,8 +294,9 @@ public class ConfigClientIT {
         mockServer.enqueue(response);
 
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.CONFIG)).thenReturn(Optional.of(
-                new Service(ServiceType.CONFIG, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.CONFIG), Mockito.anyString()))
+                .thenReturn(Optional.of(new Service(
+                        ServiceType.CONFIG, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -239,8 +313,9 @@ public class ConfigClientIT {
         mockServer.enqueue(response);
 
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.CONFIG)).thenReturn(Optional.of(
-                new Service(ServiceType.CONFIG, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.CONFIG), Mockito.anyString()))
+                .thenReturn(Optional.of(new Service(
+                        ServiceType.CONFIG, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -0,0 +1,141 @@
+package microsys.config.client;
+
+import static org.junit.Assert.assertEquals;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.config.DynamicConfig;
+import microsys.config.model.ConfigKeyValue;
+import microsys.config.model.ConfigKeyValueCollection;
+import microsys.config.service.ConfigService;
+import microsys.service.model.ServiceEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Perform testing on the {@link DynamicConfigUpdater} class.
+ */
+public class DynamicConfigUpdaterTest {
+    @Test
+    public void testUpdate() {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+        dynamicConfig.addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, threads -> {
+        });
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getDynamicConfig()).thenReturn(dynamicConfig);
+
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+        Mockito.when(configService.getByPrefix(ConfigKeys.EXECUTOR_THREADS.getKey())).thenReturn(CompletableFuture.completedFuture(
+                new ConfigKeyValueCollection(new ConfigKeyValue(ConfigKeys.EXECUTOR_THREADS.getKey(), "5"))));
+
+        try (final DynamicConfigUpdater updater = new DynamicConfigUpdater(serviceEnvironment, configService)) {
+            updater.update();
+        }
+        assertEquals(5, dynamicConfig.get().getInt(ConfigKeys.EXECUTOR_THREADS.getKey()));
+    }
+
+    @Test
+    public void testUpdateFailure() {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+        dynamicConfig.addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, threads -> {
+        });
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getDynamicConfig()).thenReturn(dynamicConfig);
+
+        final CompletableFuture<ConfigKeyValueCollection> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("Fake"));
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+        Mockito.when(configService.getByPrefix(ConfigKeys.EXECUTOR_THREADS.getKey())).thenReturn(failed);
+
+        try (final DynamicConfigUpdater updater = new DynamicConfigUpdater(serviceEnvironment, configService)) {
+            updater.update();
+        }
+        assertEquals(25, dynamicConfig.get().getInt(ConfigKeys.EXECUTOR_THREADS.getKey()));
+    }
+
+    @Test
+    public void testStart() throws Exception {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+        dynamicConfig.addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, threads -> {
+        });
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getConfig()).thenReturn(ConfigFactory.load());
+        Mockito.when(serviceEnvironment.getDynamicConfig()).thenReturn(dynamicConfig);
+
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+        Mockito.when(configService.getByPrefix(ConfigKeys.EXECUTOR_THREADS.getKey())).thenReturn(CompletableFuture.completedFuture(
+                new ConfigKeyValueCollection(new ConfigKeyValue(ConfigKeys.EXECUTOR_THREADS.getKey(), "7"))));
+
+        try (final DynamicConfigUpdater updater = new DynamicConfigUpdater(serviceEnvironment, configService)) {
+            updater.start();
+
+            // Wait a little to allow the first update to run.
+            TimeUnit.MILLISECONDS.sleep(300);
+        }
+        assertEquals(7, dynamicConfig.get().getInt(ConfigKeys.EXECUTOR_THREADS.getKey()));
+    }
+
+    @Test
+    public void testUpdateUnchanged() {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+        final List<Integer> threads = new LinkedList<>();
+        dynamicConfig.addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, threads::add);
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getDynamicConfig()).thenReturn(dynamicConfig);
+
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+        Mockito.when(configService.getByPrefix(ConfigKeys.EXECUTOR_THREADS.getKey())).thenReturn(
+                CompletableFuture.completedFuture(new ConfigKeyValueCollection(
+                        new ConfigKeyValue(ConfigKeys.EXECUTOR_THREADS.getKey(), "5"))));
+
+        try (final DynamicConfigUpdater updater = new DynamicConfigUpdater(serviceEnvironment, configService)) {
+            updater.update();
+            updater.update();
+        }
+        assertEquals(Collections.singletonList(5), threads);
+    }
+
+    @Test
+    public void testGetPrefixes() {
+        final Config config = ConfigFactory.parseString(
+                String.format("%s = [ \"executor.\", \"server.\" ]", ConfigKeys.CONFIG_POLL_PREFIXES.getKey()))
+                .withFallback(ConfigFactory.load());
+        final DynamicConfig dynamicConfig = new DynamicConfig(config);
+        dynamicConfig.addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, threads -> {
+        });
+        dynamicConfig.addListener(ConfigKeys.SSL_ENABLED.getKey(), Config::getBoolean, enabled -> {
+        });
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getDynamicConfig()).thenReturn(dynamicConfig);
+
+        try (final DynamicConfigUpdater updater =
+                     new DynamicConfigUpdater(serviceEnvironment, Mockito.mock(ConfigService.class))) {
+            assertEquals(new TreeSet<>(Arrays.asList("executor.", "server.", ConfigKeys.SSL_ENABLED.getKey())),
+                    updater.getPrefixes());
+        }
+    }
+
+    @Test
+    public void testUpdateNoPrefixes() {
+        final DynamicConfig dynamicConfig = new DynamicConfig(ConfigFactory.load());
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getDynamicConfig()).thenReturn(dynamicConfig);
+
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+        try (final DynamicConfigUpdater updater = new DynamicConfigUpdater(serviceEnvironment, configService)) {
+            updater.update();
+        }
+        Mockito.verifyZeroInteractions(configService);
+    }
+}
@@ -0,0 +1,154 @@
+package microsys.config.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Perform testing on the {@link ConfigFilter} class.
+ */
+public class ConfigFilterTest {
+    private final static ConfigKeyValue KV1 = new ConfigKeyValue("security.a", "Value-One");
+    private final static ConfigKeyValue KV2 = new ConfigKeyValue("security.b", "value-two");
+    private final static ConfigKeyValue KV3 = new ConfigKeyValue("web.port", "8080");
+
+    private ConfigFilter filter(
+            final String contains, final String regex, final String prefix, final int offset, final Integer limit) {
+        return new ConfigFilter(Optional.ofNullable(contains), Optional.ofNullable(regex), Optional.ofNullable(prefix),
+                offset, Optional.ofNullable(limit));
+    }
+
+    @Test
+    public void testMatchesEmpty() {
+        final ConfigFilter filter = filter(null, null, null, 0, null);
+        assertTrue(filter.matches(KV1));
+        assertTrue(filter.matches(KV3));
+    }
+
+    @Test
+    public void testMatchesContains() {
+        final ConfigFilter filter = filter("value-one", null, null, 0, null);
+        assertTrue(filter.matches(KV1));
+        assertFalse(filter.matches(KV2));
+        assertTrue(filter("SECURITY", null, null, 0, null).matches(KV2));
+    }
+
+    @Test
+    public void testMatchesRegex() {
+        final ConfigFilter filter = filter(null, "^\\d+$", null, 0, null);
+        assertFalse(filter.matches(KV1));
+        assertTrue(filter.matches(KV3));
+        assertTrue(filter(null, "\\.b$", null, 0, null).matches(KV2));
+    }
+
+    @Test
+    public void testMatchesPrefix() {
+        final ConfigFilter filter = filter(null, null, "security.", 0, null);
+        assertTrue(filter.matches(KV1));
+        assertTrue(filter.matches(KV2));
+        assertFalse(filter.matches(KV3));
+    }
+
+    @Test
+    public void testMatchesCombined() {
+        final ConfigFilter filter = filter("two", null, "security.", 0, null);
+        assertFalse(filter.matches(KV1));
+        assertTrue(filter.matches(KV2));
+        assertFalse(filter.matches(KV3));
+    }
+
+    @Test
+    public void testApply() {
+        final ConfigKeyValueCollection coll = new ConfigKeyValueCollection(Arrays.asList(KV1, KV2, KV3), true);
+
+        final ConfigKeyValueCollection all = filter(null, null, null, 0, null).apply(coll);
+        assertEquals(3, all.size());
+        assertTrue(all.isStale());
+
+        final ConfigKeyValueCollection page = filter(null, null, null, 1, 1).apply(coll);
+        assertEquals(1, page.size());
+        assertTrue(page.get("security.b").isPresent());
+
+        assertEquals(0, filter(null, null, null, 5, null).apply(coll).size());
+        assertEquals(0, filter(null, null, null, 0, 0).apply(coll).size());
+        assertEquals(2, filter(null, null, "security.", 0, 5).apply(coll).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeOffset() {
+        filter(null, null, null, -1, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        filter(null, null, null, 0, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRegex() {
+        filter(null, "[", null, 0, null);
+    }
+
+    @Test
+    public void testJson() {
+        final ConfigFilter original = filter("a", "b", "c", 1, 2);
+        assertEquals("{\"contains\":\"a\",\"regex\":\"b\",\"prefix\":\"c\",\"offset\":1,\"limit\":2}",
+                original.toJson().toString());
+        assertEquals(original, new ConfigFilter(original.toJson()));
+
+        final ConfigFilter empty = filter(null, null, null, 0, null);
+        assertEquals("{}", empty.toJson().toString());
+        assertEquals(empty, new ConfigFilter(empty.toJson()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonInvalidField() {
+        final JsonObject json = new JsonParser().parse("{ contains: [] }").getAsJsonObject();
+        new ConfigFilter(json);
+    }
+
+    @Test
+    public void testCompareTo() {
+        final ConfigFilter a = filter("a", null, null, 0, null);
+        final ConfigFilter b = filter("b", null, null, 0, null);
+        final ConfigFilter c = filter("b", null, null, 0, 5);
+
+        assertEquals(1, a.compareTo(null));
+        assertEquals(0, a.compareTo(a));
+        assertEquals(-1, a.compareTo(b));
+        assertEquals(1, b.compareTo(a));
+        assertEquals(-1, b.compareTo(c));
+        assertEquals(1, c.compareTo(b));
+    }
+
+    @Test
+    public void testEquals() {
+        final ConfigFilter a = filter("a", null, null, 0, null);
+        final ConfigFilter b = filter("a", null, null, 1, null);
+
+        assertNotEquals(a, null);
+        assertEquals(a, a);
+        assertNotEquals(a, b);
+        assertEquals(a, filter("a", null, null, 0, null));
+    }
+
+    @Test
+    public void testHashCode() {
+        assertEquals(filter("a", "b", "c", 1, 2).hashCode(), filter("a", "b", "c", 1, 2).hashCode());
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("ConfigFilter[contains=Optional[a],regex=Optional.empty,prefix=Optional.empty,offset=0,"
+                + "limit=Optional[5]]", filter("a", null, null, 0, 5).toString());
+    }
+}
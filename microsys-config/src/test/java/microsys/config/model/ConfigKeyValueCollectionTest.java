@@ -1,6 +1,7 @@
 package microsys.config.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -9,6 +10,7 @@ import com.google.gson.JsonParser;
 
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.SortedSet;
 
@@ -36,6 +38,25 @@ public class ConfigKeyValueCollectionTest {
         assertEquals(original, copy);
     }
 
+    @Test
+    public void testStale() {
+        final ConfigKeyValue kv1 = new ConfigKeyValue("key1", "value");
+        final ConfigKeyValueCollection fresh = new ConfigKeyValueCollection(Collections.singleton(kv1));
+        final ConfigKeyValueCollection stale = new ConfigKeyValueCollection(Collections.singleton(kv1), true);
+
+        assertFalse(fresh.isStale());
+        assertTrue(stale.isStale());
+        assertNotEquals(fresh, stale);
+        assertFalse(fresh.toJson().has("stale"));
+        assertEquals(stale, new ConfigKeyValueCollection(stale.toJson()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromJsonStaleNotPrimitive() {
+        final JsonObject json = new JsonParser().parse("{ config: [], stale: [] }").getAsJsonObject();
+        new ConfigKeyValueCollection(json);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testFromJsonNoConfig() {
         final JsonObject json = new JsonParser().parse("{ }").getAsJsonObject();
@@ -10,6 +10,7 @@ import com.google.gson.JsonObject;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import microsys.config.model.ConfigFilter;
 import microsys.config.model.ConfigKeyValue;
 import microsys.config.model.ConfigKeyValueCollection;
 import microsys.config.service.ConfigService;
@@ -17,6 +18,7 @@ import microsys.service.model.ServiceEnvironment;
 import spark.Request;
 import spark.Response;
 
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 import javax.servlet.http.HttpServletResponse;
@@ -50,4 +52,66 @@ public class GetAllTest {
                 "{\"config\":[{\"key\":\"key1\",\"value\":\"value1\"},{\"key\":\"key2\",\"value\":\"value2\"}]}",
                 obj.toString());
     }
+
+    @Test
+    public void testWithFilter() throws Exception {
+        final ConfigKeyValue kv1 = new ConfigKeyValue("key1", "value1");
+        final ConfigKeyValueCollection coll = new ConfigKeyValueCollection(kv1);
+        final ConfigFilter filter =
+                new ConfigFilter(Optional.of("value"), Optional.empty(), Optional.of("key"), 1, Optional.of(2));
+
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+        Mockito.when(configService.getAll(filter)).thenReturn(CompletableFuture.completedFuture(coll));
+
+        final GetAll getAll = new GetAll(serviceEnvironment, configService);
+
+        final Request request = Mockito.mock(Request.class);
+        Mockito.when(request.queryParams("contains")).thenReturn("value");
+        Mockito.when(request.queryParams("prefix")).thenReturn("key");
+        Mockito.when(request.queryParams("offset")).thenReturn("1");
+        Mockito.when(request.queryParams("limit")).thenReturn("2");
+        final Response response = Mockito.mock(Response.class);
+
+        final Object obj = getAll.handle(request, response);
+
+        Mockito.verify(response).status(HttpServletResponse.SC_OK);
+        Mockito.verify(configService).getAll(filter);
+        assertEquals("{\"config\":[{\"key\":\"key1\",\"value\":\"value1\"}]}", obj.toString());
+    }
+
+    @Test
+    public void testWithInvalidFilter() throws Exception {
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+
+        final GetAll getAll = new GetAll(serviceEnvironment, configService);
+
+        final Request request = Mockito.mock(Request.class);
+        Mockito.when(request.queryParams("limit")).thenReturn("not-a-number");
+        final Response response = Mockito.mock(Response.class);
+
+        final Object obj = getAll.handle(request, response);
+
+        Mockito.verify(response).status(HttpServletResponse.SC_BAD_REQUEST);
+        assertTrue(obj.toString().startsWith("Invalid configuration filter"));
+    }
+
+    @Test
+    public void testWithRegexFilter() throws Exception {
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+
+        final GetAll getAll = new GetAll(serviceEnvironment, configService);
+
+        final Request request = Mockito.mock(Request.class);
+        Mockito.when(request.queryParams("regex")).thenReturn("(a+)+$");
+        final Response response = Mockito.mock(Response.class);
+
+        final Object obj = getAll.handle(request, response);
+
+        Mockito.verify(response).status(HttpServletResponse.SC_BAD_REQUEST);
+        Mockito.verifyZeroInteractions(configService);
+        assertTrue(obj.toString().startsWith("Invalid configuration filter"));
+    }
 }
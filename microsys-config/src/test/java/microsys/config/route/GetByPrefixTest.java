@@ -0,0 +1,69 @@
+package microsys.config.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.net.MediaType;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import microsys.config.model.ConfigKeyValue;
+import microsys.config.model.ConfigKeyValueCollection;
+import microsys.config.service.ConfigService;
+import microsys.service.model.ServiceEnvironment;
+import spark.Request;
+import spark.Response;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Perform testing on the {@link GetByPrefix} class.
+ */
+public class GetByPrefixTest {
+    @Test
+    public void testNoPrefix() throws Exception {
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+
+        final GetByPrefix getByPrefix = new GetByPrefix(serviceEnvironment, configService);
+
+        final Request request = Mockito.mock(Request.class);
+        final Response response = Mockito.mock(Response.class);
+
+        final Object obj = getByPrefix.handle(request, response);
+
+        Mockito.verify(response).status(HttpServletResponse.SC_BAD_REQUEST);
+        assertEquals("Invalid configuration key prefix", obj);
+    }
+
+    @Test
+    public void testWithResponse() throws Exception {
+        final ConfigKeyValue kv1 = new ConfigKeyValue("security.key1", "value1");
+        final ConfigKeyValue kv2 = new ConfigKeyValue("security.key2", "value2");
+        final ConfigKeyValueCollection coll = new ConfigKeyValueCollection(kv1, kv2);
+
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        final ConfigService configService = Mockito.mock(ConfigService.class);
+        Mockito.when(configService.getByPrefix("security.")).thenReturn(CompletableFuture.completedFuture(coll));
+
+        final GetByPrefix getByPrefix = new GetByPrefix(serviceEnvironment, configService);
+
+        final Request request = Mockito.mock(Request.class);
+        Mockito.when(request.splat()).thenReturn(new String[] {"security."});
+        final Response response = Mockito.mock(Response.class);
+
+        final Object obj = getByPrefix.handle(request, response);
+
+        Mockito.verify(response).status(HttpServletResponse.SC_OK);
+        Mockito.verify(response).type(MediaType.JSON_UTF_8.type());
+        assertNotNull(obj);
+        assertTrue(obj instanceof JsonObject);
+        assertEquals("{\"config\":[{\"key\":\"security.key1\",\"value\":\"value1\"},"
+                + "{\"key\":\"security.key2\",\"value\":\"value2\"}]}", obj.toString());
+    }
+}
@@ -1,5 +1,7 @@
 package microsys.config.runner;
 
+import static org.junit.Assert.assertTrue;
+
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigValue;
@@ -12,7 +14,9 @@ import org.slf4j.LoggerFactory;
 import ch.qos.logback.classic.Level;
 import microsys.common.config.ConfigKeys;
 import microsys.config.service.impl.CuratorConfigService;
+import microsys.config.service.impl.MemoryConfigService;
 import microsys.service.BaseService;
+import spark.Spark;
 import spark.webserver.JettySparkServer;
 
 import java.util.HashMap;
@@ -35,7 +39,30 @@ public class RunnerTest {
             map.put(ConfigKeys.ZOOKEEPER_HOSTS.getKey(), ConfigValueFactory.fromAnyRef(zookeeper.getConnectString()));
             final Config config = ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
 
-            new Runner(config, new CountDownLatch(1)).stop();
+            final Runner runner = new Runner(config, new CountDownLatch(1));
+
+            // Stopping before the server is initialized leaves the routes registered for the next test class.
+            Spark.awaitInitialization();
+            runner.stop();
+        }
+    }
+
+    @Test
+    public void testMemoryBackend() throws Exception {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(JettySparkServer.class)).setLevel(Level.OFF);
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(BaseService.class)).setLevel(Level.OFF);
+
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.COORDINATION_BACKEND.getKey(), ConfigValueFactory.fromAnyRef("memory"));
+        final Config config = ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
+
+        // No zookeeper is needed with the memory backend.
+        final Runner runner = new Runner(config, new CountDownLatch(1));
+        Spark.awaitInitialization();
+        try {
+            assertTrue(runner.createConfigService() instanceof MemoryConfigService);
+        } finally {
+            runner.stop();
         }
     }
 }
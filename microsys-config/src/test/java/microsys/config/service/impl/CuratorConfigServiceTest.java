@@ -6,21 +6,36 @@ import static org.junit.Assert.assertTrue;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.imps.CuratorFrameworkState;
 import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.TreeCache;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.KeeperException;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Strings;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+
 import ch.qos.logback.classic.Level;
+import microsys.common.config.ConfigKeys;
+import microsys.config.model.ConfigFilter;
 import microsys.config.model.ConfigKeyValue;
 import microsys.config.model.ConfigKeyValueCollection;
 import microsys.config.service.ConfigServiceException;
+import microsys.config.snapshot.ConfigSnapshot;
 import microsys.service.model.ServiceEnvironment;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -47,6 +62,7 @@ public class CuratorConfigServiceTest {
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getExecutor()).thenReturn(executor);
         Mockito.when(serviceEnvironment.getCuratorFramework()).thenReturn(curator);
+        Mockito.when(serviceEnvironment.getConfig()).thenReturn(ConfigFactory.load());
 
         try {
             final CuratorConfigService svc = new CuratorConfigService(serviceEnvironment);
@@ -105,6 +121,7 @@ public class CuratorConfigServiceTest {
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getExecutor()).thenReturn(executor);
         Mockito.when(serviceEnvironment.getCuratorFramework()).thenReturn(curator);
+        Mockito.when(serviceEnvironment.getConfig()).thenReturn(ConfigFactory.load());
 
         try {
             curator.create().forPath("/dynamic-config");
@@ -124,6 +141,216 @@ public class CuratorConfigServiceTest {
         }
     }
 
+    @Test
+    public void testGetByPrefix() throws Exception {
+        // Don't want to see too much logging.
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(CuratorConfigService.class)).setLevel(Level.OFF);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final TestingServer testingServer = new TestingServer();
+        final CuratorFramework curator = CuratorFrameworkFactory.builder().namespace("namespace-prefix")
+                .connectString(testingServer.getConnectString()).defaultData(new byte[0])
+                .retryPolicy(new ExponentialBackoffRetry(1000, 3)).build();
+        curator.start();
+        curator.blockUntilConnected(5, TimeUnit.SECONDS);
+
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getExecutor()).thenReturn(executor);
+        Mockito.when(serviceEnvironment.getCuratorFramework()).thenReturn(curator);
+        Mockito.when(serviceEnvironment.getConfig()).thenReturn(ConfigFactory.load());
+
+        try {
+            final CuratorConfigService svc = new CuratorConfigService(serviceEnvironment);
+
+            svc.set(new ConfigKeyValue("security.a", "1")).get();
+            svc.set(new ConfigKeyValue("security.b", "2")).get();
+            svc.set(new ConfigKeyValue("securityx", "3")).get();
+            svc.set(new ConfigKeyValue("web.a", "4")).get();
+
+            // Wait a little to allow the values to be stored.
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            final ConfigKeyValueCollection security = svc.getByPrefix("security.").get();
+            assertEquals(2, security.size());
+            assertEquals(new ConfigKeyValue("security.a", "1"), security.get("security.a").get());
+            assertEquals(new ConfigKeyValue("security.b", "2"), security.get("security.b").get());
+
+            assertEquals(3, svc.getByPrefix("security").get().size());
+            assertEquals(1, svc.getByPrefix("web.").get().size());
+            assertEquals(0, svc.getByPrefix("missing.").get().size());
+
+            svc.unset("security.a").get();
+
+            // Wait a little to allow the value to be removed.
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            assertEquals(1, svc.getByPrefix("security.").get().size());
+
+            final ConfigFilter filter =
+                    new ConfigFilter(Optional.empty(), Optional.of("^[34]$"), Optional.empty(), 0, Optional.empty());
+            assertEquals(2, svc.getAll(filter).get().size());
+            final ConfigFilter prefixed =
+                    new ConfigFilter(Optional.empty(), Optional.empty(), Optional.of("security"), 1, Optional.of(5));
+            final ConfigKeyValueCollection page = svc.getAll(prefixed).get();
+            assertEquals(1, page.size());
+            assertTrue(page.get("securityx").isPresent());
+        } finally {
+            curator.close();
+            testingServer.close();
+        }
+    }
+
+    @Test
+    public void testLargeValues() throws Exception {
+        // Don't want to see too much logging.
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(CuratorConfigService.class)).setLevel(Level.OFF);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final TestingServer testingServer = new TestingServer();
+        final CuratorFramework curator = CuratorFrameworkFactory.builder().namespace("namespace-large")
+                .connectString(testingServer.getConnectString()).defaultData(new byte[0])
+                .retryPolicy(new ExponentialBackoffRetry(1000, 3)).build();
+        curator.start();
+        curator.blockUntilConnected(5, TimeUnit.SECONDS);
+
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.CONFIG_COMPRESSION_THRESHOLD.getKey(), ConfigValueFactory.fromAnyRef(16));
+        map.put(ConfigKeys.CONFIG_CHUNK_SIZE.getKey(), ConfigValueFactory.fromAnyRef(64));
+
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getExecutor()).thenReturn(executor);
+        Mockito.when(serviceEnvironment.getCuratorFramework()).thenReturn(curator);
+        Mockito.when(serviceEnvironment.getConfig())
+                .thenReturn(ConfigFactory.parseMap(map).withFallback(ConfigFactory.load()));
+
+        try {
+            final CuratorConfigService svc = new CuratorConfigService(serviceEnvironment);
+
+            // Small values are stored as-is, medium values are compressed, large values are compressed and chunked.
+            final StringBuilder large = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                large.append(i).append(',');
+            }
+            final String medium = Strings.repeat("medium", 10);
+            final String marker = "\u0000marker";
+
+            svc.set(new ConfigKeyValue("small", "value")).get();
+            svc.set(new ConfigKeyValue("medium", medium)).get();
+            svc.set(new ConfigKeyValue("large", large.toString())).get();
+            svc.set(new ConfigKeyValue("marker", marker)).get();
+
+            // Wait a little to allow the values to be stored.
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            assertEquals("value", new String(curator.getData().forPath("/dynamic-config/small"),
+                    StandardCharsets.UTF_8));
+            assertTrue(curator.getData().forPath("/dynamic-config/medium").length < medium.length());
+            assertFalse(curator.getChildren().forPath("/dynamic-config/large").isEmpty());
+
+            final ConfigKeyValueCollection all = svc.getAll().get();
+            assertEquals(4, all.size());
+            assertEquals("value", all.get("small").get().getValue());
+            assertEquals(medium, all.get("medium").get().getValue());
+            assertEquals(large.toString(), all.get("large").get().getValue());
+            assertEquals(marker, all.get("marker").get().getValue());
+
+            // Replace the chunked value with a different chunked value, and verify the old chunks are removed.
+            final String larger = large.toString() + large.toString();
+            final Optional<ConfigKeyValue> old = svc.set(new ConfigKeyValue("large", larger)).get();
+            assertTrue(old.isPresent());
+            assertEquals(large.toString(), old.get().getValue());
+            assertEquals(1, curator.getChildren().forPath("/dynamic-config/large").size());
+
+            // Wait a little to allow the value to be stored.
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            assertEquals(larger, svc.get("large").get().get().getValue());
+
+            // Replace the chunked value with a small value.
+            svc.set(new ConfigKeyValue("large", "small")).get();
+            assertTrue(curator.getChildren().forPath("/dynamic-config/large").isEmpty());
+
+            // Wait a little to allow the value to be stored.
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            assertEquals("small", svc.get("large").get().get().getValue());
+
+            svc.set(new ConfigKeyValue("large", larger)).get();
+
+            // Wait a little to allow the value to be stored.
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            final Optional<ConfigKeyValue> unset = svc.unset("large").get();
+            assertTrue(unset.isPresent());
+            assertEquals(larger, unset.get().getValue());
+            assertEquals(null, curator.checkExists().forPath("/dynamic-config/large"));
+        } finally {
+            curator.close();
+            testingServer.close();
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        // Don't want to see too much logging.
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(CuratorConfigService.class)).setLevel(Level.OFF);
+
+        final Path dir = Files.createTempDirectory("snapshot");
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.CONFIG_SNAPSHOT_ENABLED.getKey(), ConfigValueFactory.fromAnyRef(true));
+        map.put(ConfigKeys.SNAPSHOT_DIR.getKey(), ConfigValueFactory.fromAnyRef(dir.toString()));
+        final Config config = ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
+        new ConfigSnapshot(dir.resolve("config-service.json"))
+                .save(new ConfigKeyValueCollection(new ConfigKeyValue("key", "snapshot")));
+
+        // Zookeeper is not running yet. The root path is created in the background, so allow a second thread.
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final TestingServer testingServer = new TestingServer(false);
+        final CuratorFramework curator = CuratorFrameworkFactory.builder().namespace("namespace-snapshot")
+                .connectString(testingServer.getConnectString()).defaultData(new byte[0])
+                .connectionTimeoutMs(1000).retryPolicy(new ExponentialBackoffRetry(100, 3)).build();
+        curator.start();
+
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getExecutor()).thenReturn(executor);
+        Mockito.when(serviceEnvironment.getCuratorFramework()).thenReturn(curator);
+        Mockito.when(serviceEnvironment.getConfig()).thenReturn(config);
+
+        try {
+            final CuratorConfigService svc = new CuratorConfigService(serviceEnvironment);
+
+            // The values come from the snapshot until zookeeper is available.
+            final ConfigKeyValueCollection stale = svc.getAll().get();
+            assertTrue(stale.isStale());
+            assertEquals("snapshot", stale.get("key").get().getValue());
+            assertTrue(svc.getByPrefix("k").get().isStale());
+            assertEquals(new ConfigKeyValue("key", "snapshot"), svc.get("key").get().get());
+
+            testingServer.start();
+            curator.blockUntilConnected(5, TimeUnit.SECONDS);
+
+            // Wait a little to allow the tree cache to initialize.
+            TimeUnit.MILLISECONDS.sleep(1000);
+
+            final ConfigKeyValueCollection fresh = svc.getAll().get();
+            assertFalse(fresh.isStale());
+            assertEquals(0, fresh.size());
+
+            svc.set(new ConfigKeyValue("key", "value")).get();
+
+            // Wait a little to allow the value to be stored and the snapshot to be written.
+            TimeUnit.MILLISECONDS.sleep(500);
+
+            final Optional<ConfigKeyValueCollection> saved = new ConfigSnapshot(dir.resolve("config-service.json"))
+                    .load();
+            assertTrue(saved.isPresent());
+            assertEquals("value", saved.get().get("key").get().getValue());
+        } finally {
+            curator.close();
+            testingServer.close();
+        }
+    }
+
     @Test(expected = ExecutionException.class)
     public void testSetException() throws Exception {
         // Don't want to see too much logging.
@@ -140,6 +367,7 @@ public class CuratorConfigServiceTest {
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getExecutor()).thenReturn(executor);
         Mockito.when(serviceEnvironment.getCuratorFramework()).thenReturn(curator);
+        Mockito.when(serviceEnvironment.getConfig()).thenReturn(ConfigFactory.load());
 
         try {
             final CuratorConfigService svc = new CuratorConfigService(serviceEnvironment);
@@ -191,7 +419,64 @@ public class CuratorConfigServiceTest {
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getExecutor()).thenReturn(executor);
         Mockito.when(serviceEnvironment.getCuratorFramework()).thenReturn(curator);
+        Mockito.when(serviceEnvironment.getConfig()).thenReturn(ConfigFactory.load());
 
         new CuratorConfigService(serviceEnvironment);
     }
+
+    @Test
+    public void testCreateRootPathRetry() throws Exception {
+        // Don't want to see too much logging.
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(CuratorConfigService.class)).setLevel(Level.OFF);
+
+        final CuratorFramework curator = Mockito.mock(CuratorFramework.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(curator.checkExists().forPath(Mockito.anyString())).thenReturn(null);
+        Mockito.when(curator.create().creatingParentsIfNeeded().forPath(Mockito.anyString()))
+                .thenThrow(new KeeperException.ConnectionLossException()).thenReturn("/dynamic-config");
+        Mockito.when(curator.getState()).thenReturn(CuratorFrameworkState.STARTED);
+
+        final CuratorConfigService svc = mockRootPathService(curator);
+        svc.createRootPath().get(5, TimeUnit.SECONDS);
+
+        Mockito.verify(curator.create().creatingParentsIfNeeded(), Mockito.times(2)).forPath("/dynamic-config");
+    }
+
+    @Test
+    public void testCreateRootPathAlreadyCreated() throws Exception {
+        final CuratorFramework curator = Mockito.mock(CuratorFramework.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(curator.checkExists().forPath(Mockito.anyString())).thenReturn(null);
+        Mockito.when(curator.create().creatingParentsIfNeeded().forPath(Mockito.anyString()))
+                .thenThrow(new KeeperException.NodeExistsException());
+
+        final CuratorConfigService svc = mockRootPathService(curator);
+        svc.createRootPath().get(5, TimeUnit.SECONDS);
+
+        Mockito.verify(curator.create().creatingParentsIfNeeded(), Mockito.times(1)).forPath("/dynamic-config");
+    }
+
+    @Test
+    public void testCreateRootPathClosed() throws Exception {
+        // Don't want to see too much logging.
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(CuratorConfigService.class)).setLevel(Level.OFF);
+
+        final CuratorFramework curator = Mockito.mock(CuratorFramework.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(curator.checkExists().forPath(Mockito.anyString())).thenThrow(new IllegalStateException("Fake"));
+        Mockito.when(curator.getState()).thenReturn(CuratorFrameworkState.STOPPED);
+
+        final CuratorConfigService svc = mockRootPathService(curator);
+        svc.createRootPath().get(5, TimeUnit.SECONDS);
+
+        Mockito.verify(curator, Mockito.times(1)).getState();
+    }
+
+    private CuratorConfigService mockRootPathService(final CuratorFramework curator) {
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getExecutor()).thenReturn(Executors.newSingleThreadExecutor());
+        Mockito.when(serviceEnvironment.getCuratorFramework()).thenReturn(curator);
+
+        final CuratorConfigService svc = Mockito.mock(CuratorConfigService.class);
+        Mockito.when(svc.getServiceEnvironment()).thenReturn(serviceEnvironment);
+        Mockito.when(svc.createRootPath()).thenCallRealMethod();
+        return svc;
+    }
 }
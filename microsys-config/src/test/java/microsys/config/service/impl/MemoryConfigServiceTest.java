@@ -0,0 +1,74 @@
+package microsys.config.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import microsys.config.model.ConfigFilter;
+import microsys.config.model.ConfigKeyValue;
+import microsys.config.model.ConfigKeyValueCollection;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Perform testing of the {@link MemoryConfigService} class.
+ */
+public class MemoryConfigServiceTest {
+    @Test
+    public void test() throws Exception {
+        final MemoryConfigService svc = new MemoryConfigService(new ConcurrentSkipListMap<>());
+
+        assertEquals(0, svc.getAll().get().size());
+        assertFalse(svc.get("key").get().isPresent());
+        assertFalse(svc.unset("key").get().isPresent());
+
+        final Optional<ConfigKeyValue> set = svc.set(new ConfigKeyValue("key", "value")).get();
+        assertFalse(set.isPresent());
+        assertEquals(Optional.of(new ConfigKeyValue("key", "value")), svc.get("key").get());
+
+        final Optional<ConfigKeyValue> update = svc.set(new ConfigKeyValue("key", "new-value")).get();
+        assertEquals(Optional.of(new ConfigKeyValue("key", "value")), update);
+        assertEquals(new ConfigKeyValueCollection(new ConfigKeyValue("key", "new-value")), svc.getAll().get());
+
+        final Optional<ConfigKeyValue> unset = svc.unset("key").get();
+        assertEquals(Optional.of(new ConfigKeyValue("key", "new-value")), unset);
+        assertEquals(0, svc.getAll().get().size());
+    }
+
+    @Test
+    public void testPrefixAndFilter() throws Exception {
+        final MemoryConfigService svc = new MemoryConfigService(new ConcurrentSkipListMap<>());
+        svc.set(new ConfigKeyValue("a.one", "1")).get();
+        svc.set(new ConfigKeyValue("a.two", "2")).get();
+        svc.set(new ConfigKeyValue("b.one", "3")).get();
+
+        assertEquals(3, svc.getAll().get().size());
+        assertEquals(2, svc.getByPrefix("a.").get().size());
+        assertEquals(0, svc.getByPrefix("c.").get().size());
+
+        final ConfigFilter prefix = new ConfigFilter(
+                Optional.empty(), Optional.empty(), Optional.of("a."), 0, Optional.of(1));
+        assertEquals(new ConfigKeyValueCollection(new ConfigKeyValue("a.one", "1")), svc.getAll(prefix).get());
+
+        final ConfigFilter contains = new ConfigFilter(
+                Optional.of("one"), Optional.empty(), Optional.empty(), 0, Optional.empty());
+        assertEquals(2, svc.getAll(contains).get().size());
+    }
+
+    @Test
+    public void testShared() throws Exception {
+        final MemoryConfigService first = new MemoryConfigService();
+        final MemoryConfigService second = new MemoryConfigService();
+        try {
+            first.set(new ConfigKeyValue("memory.config.shared", "value")).get();
+            assertEquals(Optional.of(new ConfigKeyValue("memory.config.shared", "value")),
+                    second.get("memory.config.shared").get());
+        } finally {
+            first.unset("memory.config.shared").get();
+        }
+        assertFalse(second.get("memory.config.shared").get().isPresent());
+    }
+}
@@ -0,0 +1,87 @@
+package microsys.config.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import microsys.common.config.ConfigKeys;
+import microsys.config.model.ConfigKeyValue;
+import microsys.config.model.ConfigKeyValueCollection;
+import microsys.config.service.ConfigServiceException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Perform testing on the {@link ConfigSnapshot} class.
+ */
+public class ConfigSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCreateDisabled() {
+        assertFalse(ConfigSnapshot.create(ConfigFactory.load(), "name").isPresent());
+    }
+
+    @Test
+    public void testCreateEnabled() {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.CONFIG_SNAPSHOT_ENABLED.getKey(), ConfigValueFactory.fromAnyRef(true));
+        map.put(ConfigKeys.SNAPSHOT_DIR.getKey(), ConfigValueFactory.fromAnyRef(folder.getRoot().getPath()));
+        final Config config = ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
+
+        final Optional<ConfigSnapshot> snapshot = ConfigSnapshot.create(config, "name");
+        assertTrue(snapshot.isPresent());
+        assertEquals(folder.getRoot().toPath().resolve("name.json"), snapshot.get().getFile());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws ConfigServiceException {
+        final Path file = folder.getRoot().toPath().resolve("dir").resolve("snapshot.json");
+        final ConfigSnapshot snapshot = new ConfigSnapshot(file);
+        assertFalse(snapshot.load().isPresent());
+
+        final ConfigKeyValueCollection coll = new ConfigKeyValueCollection(new ConfigKeyValue("key", "value"));
+        snapshot.save(coll);
+        assertTrue(Files.exists(file));
+
+        final Optional<ConfigKeyValueCollection> loaded = snapshot.load();
+        assertTrue(loaded.isPresent());
+        assertTrue(loaded.get().isStale());
+        assertEquals(coll.asMap(), loaded.get().asMap());
+
+        // Overwrite the existing snapshot.
+        snapshot.save(new ConfigKeyValueCollection(Collections.emptyList()));
+        assertEquals(0, snapshot.load().get().size());
+        assertEquals(1, file.getParent().toFile().list().length);
+    }
+
+    @Test
+    public void testLoadInvalid() throws Exception {
+        final Path file = folder.newFile("invalid.json").toPath();
+        Files.write(file, "invalid".getBytes(StandardCharsets.UTF_8));
+        assertFalse(new ConfigSnapshot(file).load().isPresent());
+    }
+
+    @Test(expected = ConfigServiceException.class)
+    public void testSaveFailure() throws Exception {
+        // The parent of the snapshot file is a regular file, so the directory cannot be created.
+        final Path file = folder.newFile("file").toPath().resolve("snapshot.json");
+        new ConfigSnapshot(file).save(new ConfigKeyValueCollection(Collections.emptyList()));
+    }
+}
@@ -0,0 +1,40 @@
+package microsys.config.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Strings;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Perform testing on the {@link CompressionUtils} class.
+ */
+public class CompressionUtilsTest {
+    @Test
+    public void testConstructor() {
+        // Only here for 100% coverage.
+        new CompressionUtils();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final byte[] bytes = Strings.repeat("value", 100).getBytes(StandardCharsets.UTF_8);
+        final byte[] compressed = CompressionUtils.compress(bytes);
+        assertTrue(compressed.length < bytes.length);
+        assertArrayEquals(bytes, CompressionUtils.decompress(compressed));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertArrayEquals(new byte[0], CompressionUtils.decompress(CompressionUtils.compress(new byte[0])));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecompressInvalid() throws IOException {
+        CompressionUtils.decompress("invalid".getBytes(StandardCharsets.UTF_8));
+    }
+}
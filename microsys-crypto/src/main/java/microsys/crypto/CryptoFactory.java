@@ -1,12 +1,14 @@
 package microsys.crypto;
 
+import java.util.concurrent.ExecutorService;
+
 import javax.annotation.Nonnull;
 import javax.net.ssl.SSLContext;
 
 /**
  * Defines the interface provided by system crypto providers.
  */
-public interface CryptoFactory {
+public interface CryptoFactory extends AutoCloseable {
     /**
      * @return the {@link PasswordBasedEncryption} to use when encrypting and decrypting system data
      * @throws EncryptionException if there is a problem creating the password-based encryption implementation
@@ -28,6 +30,13 @@ public interface CryptoFactory {
     @Nonnull
     public SSLContext getSSLContext() throws EncryptionException;
 
+    /**
+     * @return the {@link CryptoMetrics} recording the timing of the operations performed by the crypto
+     *     implementations of this factory
+     */
+    @Nonnull
+    CryptoMetrics getMetrics();
+
     /**
      * @param key the key within the static system configuration for which the value should be retrieved
      * @return the requested configuration value, decrypting it if necessary
@@ -35,4 +44,43 @@ public interface CryptoFactory {
      */
     @Nonnull
     String getDecryptedConfig(@Nonnull String key) throws EncryptionException;
+
+    /**
+     * @param key the key within the static system configuration for which the value should be retrieved
+     * @return a copy of the requested configuration value, decrypting it if necessary, which the caller may clear
+     *     when done with it
+     * @throws EncryptionException if there is a problem performing the decryption
+     */
+    @Nonnull
+    char[] getDecryptedConfigChars(@Nonnull String key) throws EncryptionException;
+
+    /**
+     * Decrypt all of the encrypted values in the static system configuration concurrently, so that later requests for
+     * the values do not need to perform any decryption. Values that fail to decrypt are left to be decrypted (and
+     * report the failure) when requested.
+     *
+     * @param executor the {@link ExecutorService} on which the values are decrypted
+     * @return the number of configuration values decrypted
+     */
+    int decryptConfig(@Nonnull ExecutorService executor);
+
+    /**
+     * Load the key pair and {@link SSLContext} again from the key store and trust store files, replacing the current
+     * ones only when the files load successfully, and then notify the reload listeners.
+     *
+     * @throws EncryptionException if there is a problem loading the key store or trust store files, in which case the
+     *     current key pair and {@link SSLContext} remain in use
+     */
+    void reload() throws EncryptionException;
+
+    /**
+     * @param listener the listener notified after the key pair and {@link SSLContext} have been reloaded
+     */
+    void addReloadListener(@Nonnull Runnable listener);
+
+    /**
+     * Release any cached keys and decrypted values held by this factory, clearing the decrypted values from memory.
+     */
+    @Override
+    void close();
 }
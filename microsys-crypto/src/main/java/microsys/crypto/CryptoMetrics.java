@@ -0,0 +1,305 @@
+package microsys.crypto;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Records the number of calls and a timing histogram for each {@link CryptoOperation}, and logs any single operation
+ * that takes longer than the slow-operation threshold along with the code that called it. Recording is lock-free, so
+ * a single instance is shared by all the crypto implementations of a factory, and services export the values through
+ * {@link #getStats(CryptoOperation)} or {@link #toJson()}.
+ */
+public class CryptoMetrics {
+    private final static Logger LOG = LoggerFactory.getLogger(CryptoMetrics.class);
+
+    // Operations slower than this are logged by default - arbitrary
+    public final static long DEFAULT_SLOW_THRESHOLD_MILLIS = 100;
+
+    // The upper bounds (exclusive, in microseconds) of the histogram buckets, the last bucket holds everything slower
+    private final static long[] BUCKET_BOUNDS = {100, 1_000, 10_000, 100_000, 1_000_000};
+
+    // Stack frames from these packages are skipped when finding the caller of a slow operation
+    private final static String[] INTERNAL_PACKAGES =
+            {"java.", "javax.", "jdk.", "sun.", "com.sun.", "microsys.crypto."};
+    // Stack frames from these modules are skipped too, which covers JDK internals outside the packages above
+    private final static String[] INTERNAL_MODULES = {"java.", "jdk."};
+
+    // Finds the module of a stack frame, only available when running on JDK 9 or later
+    @Nonnull
+    private final static Optional<Method> MODULE_NAME = findModuleName();
+
+    private final long slowThresholdNanos;
+    @Nonnull
+    private final Map<CryptoOperation, Recorder> recorders = new EnumMap<>(CryptoOperation.class);
+
+    /**
+     * Create metrics using the default slow-operation threshold.
+     */
+    public CryptoMetrics() {
+        this(DEFAULT_SLOW_THRESHOLD_MILLIS);
+    }
+
+    /**
+     * @param slowThresholdMillis operations taking longer than this number of milliseconds are logged
+     */
+    public CryptoMetrics(final long slowThresholdMillis) {
+        Preconditions.checkArgument(slowThresholdMillis >= 0, "Slow threshold must not be negative");
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        for (final CryptoOperation operation : CryptoOperation.values()) {
+            this.recorders.put(operation, new Recorder());
+        }
+    }
+
+    /**
+     * @return operations taking longer than this number of milliseconds are logged
+     */
+    public long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.slowThresholdNanos);
+    }
+
+    /**
+     * @param operation the operation that was performed
+     * @param elapsedNanos the time taken by the operation, in nanoseconds
+     */
+    public void record(@Nonnull final CryptoOperation operation, final long elapsedNanos) {
+        this.recorders.get(Objects.requireNonNull(operation)).record(elapsedNanos);
+        if (elapsedNanos > this.slowThresholdNanos) {
+            LOG.warn("Slow {} operation took {} ms, called from {}", operation.getName(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getCaller());
+        }
+    }
+
+    /**
+     * @return the first stack frame of the current thread outside of the JDK and the crypto module, which identifies
+     *     the code that requested the operation
+     */
+    @Nonnull
+    protected static String getCaller() {
+        return getCaller(Thread.currentThread().getStackTrace());
+    }
+
+    /**
+     * @param stack the stack frames to search, innermost first
+     * @return the first stack frame outside of the JDK and the crypto module
+     */
+    @Nonnull
+    protected static String getCaller(@Nonnull final StackTraceElement[] stack) {
+        for (final StackTraceElement frame : Objects.requireNonNull(stack)) {
+            if (!isInternal(frame)) {
+                return frame.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * @param frame the stack frame to check
+     * @return whether the frame belongs to a JDK module or package, or to the crypto module itself
+     */
+    protected static boolean isInternal(@Nonnull final StackTraceElement frame) {
+        if (Arrays.stream(INTERNAL_PACKAGES).anyMatch(Objects.requireNonNull(frame).getClassName()::startsWith)) {
+            return true;
+        }
+        final Optional<String> module = getModuleName(frame);
+        return module.isPresent() && Arrays.stream(INTERNAL_MODULES).anyMatch(module.get()::startsWith);
+    }
+
+    /**
+     * @param frame the stack frame for which the module should be found
+     * @return the name of the module containing the frame, empty for unnamed modules or when running on JDK 8
+     */
+    @Nonnull
+    private static Optional<String> getModuleName(@Nonnull final StackTraceElement frame) {
+        if (!MODULE_NAME.isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable((String) MODULE_NAME.get().invoke(frame));
+        } catch (final ReflectiveOperationException notAvailable) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the method that returns the module name of a stack frame, empty when running on JDK 8
+     */
+    @Nonnull
+    private static Optional<Method> findModuleName() {
+        try {
+            return Optional.of(StackTraceElement.class.getMethod("getModuleName"));
+        } catch (final NoSuchMethodException jdk8) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param operation the operation for which the statistics should be retrieved
+     * @return a snapshot of the statistics recorded for the operation
+     */
+    @Nonnull
+    public OperationStats getStats(@Nonnull final CryptoOperation operation) {
+        return this.recorders.get(Objects.requireNonNull(operation)).snapshot();
+    }
+
+    /**
+     * @return the JSON representation of the statistics recorded for every operation, keyed by operation name
+     */
+    @Nonnull
+    public JsonObject toJson() {
+        final JsonObject json = new JsonObject();
+        for (final CryptoOperation operation : CryptoOperation.values()) {
+            json.add(operation.getName(), getStats(operation).toJson());
+        }
+        return json;
+    }
+
+    /**
+     * Holds the running totals for a single operation.
+     */
+    private static class Recorder {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+
+        private Recorder() {
+            for (int bucket = 0; bucket < this.buckets.length; bucket++) {
+                this.buckets[bucket] = new LongAdder();
+            }
+        }
+
+        private void record(final long elapsedNanos) {
+            this.count.increment();
+            this.totalNanos.add(elapsedNanos);
+            this.maxNanos.accumulate(elapsedNanos);
+
+            final long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && micros >= BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            this.buckets[bucket].increment();
+        }
+
+        @Nonnull
+        private OperationStats snapshot() {
+            final long[] counts = new long[this.buckets.length];
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                counts[bucket] = this.buckets[bucket].sum();
+            }
+            return new OperationStats(this.count.sum(), this.totalNanos.sum(), this.maxNanos.get(), counts);
+        }
+    }
+
+    /**
+     * An immutable snapshot of the statistics recorded for a single operation.
+     */
+    public static class OperationStats {
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        @Nonnull
+        private final long[] histogram;
+
+        /**
+         * @param count the number of times the operation was performed
+         * @param totalNanos the total time taken by the operation, in nanoseconds
+         * @param maxNanos the longest time taken by a single operation, in nanoseconds
+         * @param histogram the number of operations in each of the histogram buckets
+         */
+        public OperationStats(
+                final long count, final long totalNanos, final long maxNanos, @Nonnull final long[] histogram) {
+            Preconditions.checkArgument(Objects.requireNonNull(histogram).length == BUCKET_BOUNDS.length + 1,
+                    "Invalid number of histogram buckets");
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.histogram = Arrays.copyOf(histogram, histogram.length);
+        }
+
+        /**
+         * @return the number of times the operation was performed
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * @return the total time taken by the operation, in nanoseconds
+         */
+        public long getTotalNanos() {
+            return this.totalNanos;
+        }
+
+        /**
+         * @return the longest time taken by a single operation, in nanoseconds
+         */
+        public long getMaxNanos() {
+            return this.maxNanos;
+        }
+
+        /**
+         * @return the mean time taken by the operation in milliseconds, or zero when it has not been performed
+         */
+        public double getMeanMillis() {
+            return getCount() == 0 ? 0d : ((double) getTotalNanos()) / getCount() / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * @return the number of operations in each histogram bucket, where bucket {@code i} holds the operations
+         *     faster than the {@code i}th bucket bound (see {@link #getBucketBounds()}) and the last bucket holds the
+         *     rest
+         */
+        @Nonnull
+        public long[] getHistogram() {
+            return Arrays.copyOf(this.histogram, this.histogram.length);
+        }
+
+        /**
+         * @return the exclusive upper bounds of the histogram buckets, in microseconds
+         */
+        @Nonnull
+        public static long[] getBucketBounds() {
+            return Arrays.copyOf(BUCKET_BOUNDS, BUCKET_BOUNDS.length);
+        }
+
+        /**
+         * @return the JSON representation of these statistics, with the histogram keyed by bucket bound
+         */
+        @Nonnull
+        public JsonObject toJson() {
+            final JsonArray histogram = new JsonArray();
+            for (int bucket = 0; bucket < this.histogram.length; bucket++) {
+                final JsonObject entry = new JsonObject();
+                if (bucket < BUCKET_BOUNDS.length) {
+                    entry.addProperty("lessThanMicros", BUCKET_BOUNDS[bucket]);
+                }
+                entry.addProperty("count", this.histogram[bucket]);
+                histogram.add(entry);
+            }
+
+            final JsonObject json = new JsonObject();
+            json.addProperty("count", getCount());
+            json.addProperty("meanMillis", getMeanMillis());
+            json.addProperty("maxMillis", ((double) getMaxNanos()) / TimeUnit.MILLISECONDS.toNanos(1));
+            json.add("histogram", histogram);
+            return json;
+        }
+    }
+}
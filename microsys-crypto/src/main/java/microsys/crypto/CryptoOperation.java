@@ -0,0 +1,51 @@
+package microsys.crypto;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Defines the crypto operations for which timing metrics are recorded.
+ */
+public enum CryptoOperation {
+    /**
+     * Signing data with the system private key.
+     */
+    SIGN,
+
+    /**
+     * Verifying a signature with the system public key.
+     */
+    VERIFY,
+
+    /**
+     * Encrypting data or files.
+     */
+    ENCRYPT,
+
+    /**
+     * Decrypting data or files.
+     */
+    DECRYPT,
+
+    /**
+     * Generating a new random secret key.
+     */
+    KEYGEN,
+
+    /**
+     * Deriving a secret key from a password.
+     */
+    KEY_DERIVATION,
+
+    /**
+     * Loading a key store or trust store file.
+     */
+    KEYSTORE_LOAD;
+
+    /**
+     * @return the name of this operation as used in metric output
+     */
+    @Nonnull
+    public String getName() {
+        return name().toLowerCase().replaceAll("_", ".");
+    }
+}
@@ -2,7 +2,11 @@ package microsys.crypto;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 
 /**
  * Responsible for performing password-based encryption.
@@ -17,6 +21,26 @@ public interface PasswordBasedEncryption {
      */
     void encrypt(final InputStream input, final OutputStream output) throws EncryptionException;
 
+    /**
+     * Encrypt data from the provided input channel and write to the provided output channel, for example to encrypt
+     * one {@link java.nio.channels.FileChannel} into another.
+     *
+     * @param input the channel providing the data to encrypt
+     * @param output the channel to which encrypted data will be written
+     * @throws EncryptionException if there is a problem performing the encryption
+     */
+    void encrypt(ReadableByteChannel input, WritableByteChannel output) throws EncryptionException;
+
+    /**
+     * Encrypt the remaining data in the input buffer and write the encrypted data into the output buffer. Either
+     * buffer may be a direct buffer.
+     *
+     * @param input the buffer holding the data to encrypt
+     * @param output the buffer into which the encrypted data will be written, which must have enough space remaining
+     * @throws EncryptionException if there is a problem performing the encryption
+     */
+    void encrypt(ByteBuffer input, ByteBuffer output) throws EncryptionException;
+
     /**
      * Encrypt the provided data byte array and return the encrypted data.
      *
@@ -31,11 +55,21 @@ public interface PasswordBasedEncryption {
      *
      * @param data the data to be encrypted as a string
      * @param charset the {@link Charset} to use when retrieving bytes from the string
-     * @return the encrypted data as a hex string
+     * @return the encrypted data as a string in the configured {@link TextEncoding}
      * @throws EncryptionException if there is a problem performing the encryption
      */
     String encryptString(String data, Charset charset) throws EncryptionException;
 
+    /**
+     * Encrypt the provided input file into the provided output file using a chunked, authenticated format in which the
+     * chunks are encrypted in parallel. Files encrypted this way must be decrypted with {@link #decryptFile}.
+     *
+     * @param input the file to encrypt
+     * @param output the file to which encrypted data will be written, replacing any existing content
+     * @throws EncryptionException if there is a problem performing the encryption
+     */
+    void encryptFile(Path input, Path output) throws EncryptionException;
+
     /**
      * Decrypt data from the provided input stream and write to the provided output stream.
      *
@@ -45,6 +79,37 @@ public interface PasswordBasedEncryption {
      */
     void decrypt(final InputStream input, final OutputStream output) throws EncryptionException;
 
+    /**
+     * Decrypt data from the provided input channel and write to the provided output channel, for example to decrypt
+     * one {@link java.nio.channels.FileChannel} into another.
+     *
+     * @param input the channel providing the data to decrypt
+     * @param output the channel to which decrypted data will be written
+     * @throws EncryptionException if there is a problem performing the decryption
+     */
+    void decrypt(ReadableByteChannel input, WritableByteChannel output) throws EncryptionException;
+
+    /**
+     * Decrypt the remaining data in the input buffer and write the decrypted data into the output buffer. Either
+     * buffer may be a direct buffer.
+     *
+     * @param input the buffer holding the data to decrypt
+     * @param output the buffer into which the decrypted data will be written, which must have enough space remaining
+     * @throws EncryptionException if there is a problem performing the decryption
+     */
+    void decrypt(ByteBuffer input, ByteBuffer output) throws EncryptionException;
+
+    /**
+     * Decrypt the provided input file, encrypted with {@link #encryptFile}, into the provided output file. The chunks
+     * are decrypted in parallel.
+     *
+     * @param input the file to decrypt
+     * @param output the file to which decrypted data will be written, replacing any existing content
+     * @throws EncryptionException if there is a problem performing the decryption, including when the encrypted file
+     *     has been modified
+     */
+    void decryptFile(Path input, Path output) throws EncryptionException;
+
     /**
      * Decrypt the provided data byte array and return the unencrypted data.
      *
@@ -57,7 +122,7 @@ public interface PasswordBasedEncryption {
     /**
      * Decrypt the provided data string and return the unencrypted data.
      *
-     * @param data the data to be decrypted as a hex string
+     * @param data the data to be decrypted as a string in any {@link TextEncoding}
      * @param charset the {@link Charset} to use when recreating the string value
      * @return the decrypted data as a string
      * @throws EncryptionException if there is a problem performing the decryption
@@ -0,0 +1,67 @@
+package microsys.crypto;
+
+import microsys.crypto.util.HexUtils;
+
+import java.util.Base64;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Defines the available text representations of encrypted data and signatures. Base64 values carry a prefix, which
+ * never appears in a hex string, so {@link #decode(String)} accepts either representation and values written before
+ * the encoding was changed continue to decode.
+ */
+public enum TextEncoding {
+    /**
+     * Lower-case hex characters, two per byte.
+     */
+    HEX {
+        @Override
+        @Nonnull
+        public String encode(@Nonnull final byte[] data) {
+            return HexUtils.bytesToHex(Objects.requireNonNull(data));
+        }
+    },
+
+    /**
+     * Prefixed, unpadded URL-safe Base64, which is a third smaller than hex and safe to use in HTTP headers.
+     */
+    BASE64URL {
+        @Override
+        @Nonnull
+        public String encode(@Nonnull final byte[] data) {
+            final String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(Objects.requireNonNull(data));
+            return BASE64URL_PREFIX + encoded;
+        }
+    };
+
+    /**
+     * The prefix identifying a Base64 value.
+     */
+    public final static String BASE64URL_PREFIX = "b64:";
+
+    /**
+     * @param data the bytes to encode
+     * @return the text representation of the bytes
+     */
+    @Nonnull
+    public abstract String encode(@Nonnull byte[] data);
+
+    /**
+     * @param text the text representation of some bytes, in either of the available encodings
+     * @return the decoded bytes
+     * @throws EncryptionException if the text is not a valid representation in either encoding
+     */
+    @Nonnull
+    public static byte[] decode(@Nonnull final String text) throws EncryptionException {
+        try {
+            if (Objects.requireNonNull(text).startsWith(BASE64URL_PREFIX)) {
+                return Base64.getUrlDecoder().decode(text.substring(BASE64URL_PREFIX.length()));
+            }
+            return HexUtils.hexToBytes(text);
+        } catch (final IllegalArgumentException invalid) {
+            throw new EncryptionException("Invalid encoded data", invalid);
+        }
+    }
+}
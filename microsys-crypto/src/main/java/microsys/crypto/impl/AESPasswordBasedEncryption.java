@@ -1,20 +1,34 @@
 package microsys.crypto.impl;
 
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import microsys.crypto.CryptoMetrics;
+import microsys.crypto.CryptoOperation;
 import microsys.crypto.EncryptionException;
+import microsys.crypto.TextEncoding;
 import microsys.crypto.PasswordBasedEncryption;
+import microsys.crypto.util.CipherUtils;
 import microsys.crypto.util.HexUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Nonnull;
 import javax.crypto.Cipher;
@@ -26,7 +40,8 @@ import javax.crypto.spec.SecretKeySpec;
 
 /**
  * Provides an implementation of the {@link PasswordBasedEncryption} interface, and is responsible for performing
- * password-based encryption of system data.
+ * password-based encryption of system data. Keys derived during decryption are cached by salt, since the key
+ * derivation is intentionally expensive and the same encrypted values tend to be decrypted repeatedly.
  */
 public class AESPasswordBasedEncryption implements PasswordBasedEncryption {
     private final static String ALGORITHM = "AES";
@@ -38,18 +53,120 @@ public class AESPasswordBasedEncryption implements PasswordBasedEncryption {
     private final static String KEYGEN_SPEC = "PBKDF2WithHmacSHA1";
     private final static int SALT_LENGTH = 16; // in bytes
     private final static int ITERATIONS = 32768;
+    private final static int IV_LENGTH = 16; // 16-byte initialization vector regardless of key size
+
+    // Process input/output streams in chunks by default - arbitrary
+    public final static int DEFAULT_BUFFER_SIZE = 64 * 1024;
 
-    // Process input/output streams in chunks - arbitrary
-    private final static int BUFFER_SIZE = 1024;
+    // The maximum number of derived keys to keep in the cache - arbitrary
+    private final static int MAX_CACHED_KEYS = 256;
 
     @Nonnull
     private final char[] password;
+    private final int bufferSize;
+    private final int fileChunkSize;
+    @Nonnull
+    private final CryptoMetrics metrics;
+    @Nonnull
+    private final TextEncoding textEncoding;
+
+    @Nonnull
+    private final Cache<String, SecretKey> keyCache =
+            CacheBuilder.newBuilder().maximumSize(MAX_CACHED_KEYS).build();
 
     /**
      * @param password the password to use when encrypting and decrypting data
      */
     public AESPasswordBasedEncryption(@Nonnull final char[] password) {
+        this(password, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param password the password to use when encrypting and decrypting data
+     * @param bufferSize the number of bytes to process in each chunk when encrypting and decrypting streams
+     */
+    public AESPasswordBasedEncryption(@Nonnull final char[] password, final int bufferSize) {
+        this(password, bufferSize, new CryptoMetrics());
+    }
+
+    /**
+     * @param password the password to use when encrypting and decrypting data
+     * @param bufferSize the number of bytes to process in each chunk when encrypting and decrypting streams
+     * @param metrics the {@link CryptoMetrics} in which the timing of each operation is recorded
+     */
+    public AESPasswordBasedEncryption(
+            @Nonnull final char[] password, final int bufferSize, @Nonnull final CryptoMetrics metrics) {
+        this(password, bufferSize, metrics, TextEncoding.HEX);
+    }
+
+    /**
+     * @param password the password to use when encrypting and decrypting data
+     * @param bufferSize the number of bytes to process in each chunk when encrypting and decrypting streams
+     * @param metrics the {@link CryptoMetrics} in which the timing of each operation is recorded
+     * @param textEncoding the {@link TextEncoding} used for the encrypted strings this class creates
+     */
+    public AESPasswordBasedEncryption(
+            @Nonnull final char[] password, final int bufferSize, @Nonnull final CryptoMetrics metrics,
+            @Nonnull final TextEncoding textEncoding) {
+        this(password, bufferSize, ChunkedFileEncryption.DEFAULT_CHUNK_SIZE, metrics, textEncoding);
+    }
+
+    /**
+     * @param password the password to use when encrypting and decrypting data
+     * @param bufferSize the number of bytes to process in each chunk when encrypting and decrypting streams
+     * @param fileChunkSize the number of plain bytes in each independently encrypted chunk of a file
+     * @param metrics the {@link CryptoMetrics} in which the timing of each operation is recorded
+     * @param textEncoding the {@link TextEncoding} used for the encrypted strings this class creates
+     */
+    public AESPasswordBasedEncryption(
+            @Nonnull final char[] password, final int bufferSize, final int fileChunkSize,
+            @Nonnull final CryptoMetrics metrics, @Nonnull final TextEncoding textEncoding) {
+        Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive");
+        Preconditions.checkArgument(fileChunkSize > 0, "File chunk size must be positive");
         this.password = Objects.requireNonNull(password);
+        this.bufferSize = bufferSize;
+        this.fileChunkSize = fileChunkSize;
+        this.metrics = Objects.requireNonNull(metrics);
+        this.textEncoding = Objects.requireNonNull(textEncoding);
+    }
+
+    /**
+     * @return the number of bytes to process in each chunk when encrypting and decrypting streams
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * @return the number of plain bytes in each independently encrypted chunk of a file
+     */
+    public int getFileChunkSize() {
+        return this.fileChunkSize;
+    }
+
+    /**
+     * @return the {@link CryptoMetrics} in which the timing of each operation is recorded
+     */
+    @Nonnull
+    public CryptoMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return the {@link TextEncoding} used for the encrypted strings this class creates
+     */
+    @Nonnull
+    public TextEncoding getTextEncoding() {
+        return this.textEncoding;
+    }
+
+    /**
+     * @return the {@link ChunkedFileEncryption} used to encrypt and decrypt files, using the file chunk size and the
+     *     chunk executor shared within the JVM
+     */
+    @Nonnull
+    protected ChunkedFileEncryption getChunkedFileEncryption() {
+        return new ChunkedFileEncryption(getFileChunkSize());
     }
 
     /**
@@ -74,10 +191,97 @@ public class AESPasswordBasedEncryption implements PasswordBasedEncryption {
     protected SecretKey keygen(final int keyLength, @Nonnull final byte[] salt)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
         Objects.requireNonNull(salt);
-        final SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance(KEYGEN_SPEC);
-        final KeySpec keySpec = new PBEKeySpec(this.password, salt, ITERATIONS, keyLength);
-        final SecretKey secretKey = secretKeyFactory.generateSecret(keySpec);
-        return new SecretKeySpec(secretKey.getEncoded(), ALGORITHM);
+        final long start = System.nanoTime();
+        try {
+            final SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance(KEYGEN_SPEC);
+            final KeySpec keySpec = new PBEKeySpec(this.password, salt, ITERATIONS, keyLength);
+            final SecretKey secretKey = secretKeyFactory.generateSecret(keySpec);
+            return new SecretKeySpec(secretKey.getEncoded(), ALGORITHM);
+        } finally {
+            getMetrics().record(CryptoOperation.KEY_DERIVATION, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Retrieve the AES encryption key for a password and salt, deriving it only when it is not already cached.
+     *
+     * @param keyLength the length of the key to retrieve
+     * @param salt the salt from which the key is derived
+     * @return the {@link SecretKey} used to perform the decryption
+     */
+    @Nonnull
+    protected SecretKey getKey(final int keyLength, @Nonnull final byte[] salt)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        final String cacheKey = keyLength + ":" + HexUtils.bytesToHex(Objects.requireNonNull(salt));
+        try {
+            return this.keyCache.get(cacheKey, () -> keygen(keyLength, salt));
+        } catch (final ExecutionException keygenFailed) {
+            if (keygenFailed.getCause() instanceof NoSuchAlgorithmException) {
+                throw (NoSuchAlgorithmException) keygenFailed.getCause();
+            }
+            throw (InvalidKeySpecException) keygenFailed.getCause();
+        }
+    }
+
+    /**
+     * @return the number of derived keys currently cached
+     */
+    public long getCachedKeyCount() {
+        return this.keyCache.size();
+    }
+
+    /**
+     * Remove all of the derived keys from the cache.
+     */
+    public void clearCache() {
+        this.keyCache.invalidateAll();
+    }
+
+    /**
+     * Generate a new salt, derive the encryption key, write the key length, salt and initialization vector into the
+     * header, and initialize a cipher for encryption with the derived key.
+     *
+     * @param header the stream into which the encrypted data header will be written
+     * @return the {@link Cipher} initialized to encrypt the data that follows the header
+     */
+    @Nonnull
+    protected Cipher getEncryptCipher(@Nonnull final ByteArrayOutputStream header) throws Exception {
+        // Generate salt and derive keys for authentication and encryption
+        final int keyLength = 128; // The unlimited-strength jce not required for this.
+        final byte[] salt = generateSalt(SALT_LENGTH);
+        final SecretKey key = keygen(keyLength, salt);
+
+        // Initialize AES encryption
+        final Cipher cipher = CipherUtils.getCipher(CIPHER_SPEC);
+        cipher.init(Cipher.ENCRYPT_MODE, key);
+
+        // Get initialization vector
+        final byte[] iv = cipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV();
+
+        // Write authentication and AES initialization data
+        header.write(keyLength / 8);
+        header.write(salt);
+        header.write(iv);
+        return cipher;
+    }
+
+    /**
+     * Read the key length, salt and initialization vector from the header and initialize a cipher for decryption
+     * with the derived key.
+     *
+     * @param header provides the bytes of the encrypted data header
+     * @return the {@link Cipher} initialized to decrypt the data that follows the header
+     */
+    @Nonnull
+    protected Cipher getDecryptCipher(@Nonnull final CipherUtils.HeaderSource header) throws Exception {
+        final int keyLength = (header.read(1)[0] & 0xFF) * 8;
+        final byte[] salt = header.read(SALT_LENGTH);
+        final byte[] iv = header.read(IV_LENGTH);
+
+        // Initialize AES decryption
+        final Cipher cipher = CipherUtils.getCipher(CIPHER_SPEC);
+        cipher.init(Cipher.DECRYPT_MODE, getKey(keyLength, salt), new IvParameterSpec(iv));
+        return cipher;
     }
 
     /**
@@ -89,33 +293,89 @@ public class AESPasswordBasedEncryption implements PasswordBasedEncryption {
             throws EncryptionException {
         Objects.requireNonNull(input);
         Objects.requireNonNull(output);
+        final long start = System.nanoTime();
         try {
-            // Generate salt and derive keys for authentication and encryption
-            final int keyLength = 128; // The unlimited-strength jce not required for this.
-            final byte[] salt = generateSalt(SALT_LENGTH);
-            final SecretKey key = keygen(keyLength, salt);
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            final Cipher cipher = getEncryptCipher(header);
+            header.writeTo(output);
 
-            // Initialize AES encryption
-            final Cipher cipher = Cipher.getInstance(CIPHER_SPEC);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
+            CipherUtils.process(cipher, input, output, getBufferSize());
+        } catch (final Exception exception) {
+            throw new EncryptionException("Failed to encrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.ENCRYPT, System.nanoTime() - start);
+        }
+    }
 
-            // Get initialization vector
-            final byte[] iv = cipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encrypt(@Nonnull final ReadableByteChannel input, @Nonnull final WritableByteChannel output)
+            throws EncryptionException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long start = System.nanoTime();
+        try {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            final Cipher cipher = getEncryptCipher(header);
+            final ByteBuffer headerBuffer = ByteBuffer.wrap(header.toByteArray());
+            while (headerBuffer.hasRemaining()) {
+                output.write(headerBuffer);
+            }
 
-            // Write authentication and AES initialization data
-            output.write(keyLength / 8);
-            output.write(salt);
-            output.write(iv);
+            CipherUtils.process(cipher, input, output, getBufferSize());
+        } catch (final Exception exception) {
+            throw new EncryptionException("Failed to encrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.ENCRYPT, System.nanoTime() - start);
+        }
+    }
 
-            // Read data from input into buffer, encrypt and write to output
-            final byte[] buffer = new byte[BUFFER_SIZE];
-            int numRead;
-            while ((numRead = input.read(buffer)) > 0) {
-                output.write(cipher.update(buffer, 0, numRead));
-            }
-            output.write(cipher.doFinal());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encrypt(@Nonnull final ByteBuffer input, @Nonnull final ByteBuffer output)
+            throws EncryptionException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long start = System.nanoTime();
+        try {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            final Cipher cipher = getEncryptCipher(header);
+            output.put(header.toByteArray());
+            cipher.doFinal(input, output);
         } catch (final Exception exception) {
             throw new EncryptionException("Failed to encrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.ENCRYPT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encryptFile(@Nonnull final Path input, @Nonnull final Path output) throws EncryptionException {
+        final long start = System.nanoTime();
+        try {
+            final int keyLength = 128; // The unlimited-strength jce not required for this.
+            final byte[] salt = generateSalt(SALT_LENGTH);
+            final SecretKey key;
+            try {
+                key = keygen(keyLength, salt);
+            } catch (final Exception exception) {
+                throw new EncryptionException("Failed to encrypt file " + input, exception);
+            }
+
+            // The key header holds the key length and salt needed to derive the key again
+            final byte[] keyHeader = new byte[1 + SALT_LENGTH];
+            keyHeader[0] = (byte) (keyLength / 8);
+            System.arraycopy(salt, 0, keyHeader, 1, SALT_LENGTH);
+            getChunkedFileEncryption().encrypt(key, keyHeader, input, output);
+        } finally {
+            getMetrics().record(CryptoOperation.ENCRYPT, System.nanoTime() - start);
         }
     }
 
@@ -136,7 +396,8 @@ public class AESPasswordBasedEncryption implements PasswordBasedEncryption {
     @Override
     @Nonnull
     public String encryptString(@Nonnull final String data, @Nonnull final Charset charset) throws EncryptionException {
-        return HexUtils.bytesToHex(encrypt(Objects.requireNonNull(data).getBytes(Objects.requireNonNull(charset))));
+        final byte[] encrypted = encrypt(Objects.requireNonNull(data).getBytes(Objects.requireNonNull(charset)));
+        return getTextEncoding().encode(encrypted);
     }
 
     /**
@@ -148,36 +409,70 @@ public class AESPasswordBasedEncryption implements PasswordBasedEncryption {
             throws EncryptionException {
         Objects.requireNonNull(input);
         Objects.requireNonNull(output);
+        final long start = System.nanoTime();
         try {
-            final int keyLength = input.read() * 8;
-
-            // Read the salt value
-            final byte[] salt = new byte[SALT_LENGTH];
-            int saltRead = 0;
-            while (saltRead < SALT_LENGTH) {
-                saltRead += input.read(salt, saltRead, SALT_LENGTH - saltRead);
-            }
-
-            // Read the initialization vector value
-            final byte[] iv = new byte[16]; // 16-byte initialization vector regardless of key size
-            int ivRead = 0;
-            while (ivRead < 16) {
-                ivRead += input.read(iv, ivRead, 16 - ivRead);
-            }
+            final Cipher cipher = getDecryptCipher(length -> CipherUtils.readFully(input, length));
+            CipherUtils.process(cipher, input, output, getBufferSize());
+        } catch (final Exception exception) {
+            throw new EncryptionException("Failed to decrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.DECRYPT, System.nanoTime() - start);
+        }
+    }
 
-            // Initialize AES decryption
-            final Cipher cipher = Cipher.getInstance(CIPHER_SPEC);
-            cipher.init(Cipher.DECRYPT_MODE, keygen(keyLength, salt), new IvParameterSpec(iv));
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decrypt(@Nonnull final ReadableByteChannel input, @Nonnull final WritableByteChannel output)
+            throws EncryptionException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long start = System.nanoTime();
+        try {
+            final Cipher cipher = getDecryptCipher(length -> CipherUtils.readFully(input, length));
+            CipherUtils.process(cipher, input, output, getBufferSize());
+        } catch (final Exception exception) {
+            throw new EncryptionException("Failed to decrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.DECRYPT, System.nanoTime() - start);
+        }
+    }
 
-            // Read data from input into buffer, decrypt and write to output
-            final byte[] buffer = new byte[BUFFER_SIZE];
-            int numRead;
-            while ((numRead = input.read(buffer)) > 0) {
-                output.write(cipher.update(buffer, 0, numRead));
-            }
-            output.write(cipher.doFinal());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decrypt(@Nonnull final ByteBuffer input, @Nonnull final ByteBuffer output)
+            throws EncryptionException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long start = System.nanoTime();
+        try {
+            final Cipher cipher = getDecryptCipher(length -> CipherUtils.readFully(input, length));
+            cipher.doFinal(input, output);
         } catch (final Exception exception) {
             throw new EncryptionException("Failed to decrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.DECRYPT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decryptFile(@Nonnull final Path input, @Nonnull final Path output) throws EncryptionException {
+        final long start = System.nanoTime();
+        try {
+            getChunkedFileEncryption().decrypt(keyHeader -> {
+                if (keyHeader.length != 1 + SALT_LENGTH) {
+                    throw new EncryptionException("Invalid key header length: " + keyHeader.length);
+                }
+                return getKey((keyHeader[0] & 0xFF) * 8, Arrays.copyOfRange(keyHeader, 1, keyHeader.length));
+            }, input, output);
+        } finally {
+            getMetrics().record(CryptoOperation.DECRYPT, System.nanoTime() - start);
         }
     }
 
@@ -198,6 +493,6 @@ public class AESPasswordBasedEncryption implements PasswordBasedEncryption {
     @Override
     @Nonnull
     public String decryptString(@Nonnull final String data, @Nonnull final Charset charset) throws EncryptionException {
-        return new String(decrypt(HexUtils.hexToBytes(Objects.requireNonNull(data))), Objects.requireNonNull(charset));
+        return new String(decrypt(TextEncoding.decode(Objects.requireNonNull(data))), Objects.requireNonNull(charset));
     }
 }
@@ -1,45 +1,174 @@
 package microsys.crypto.impl;
 
+import com.google.common.base.Preconditions;
+
+import microsys.crypto.CryptoMetrics;
+import microsys.crypto.CryptoOperation;
 import microsys.crypto.EncryptionException;
+import microsys.crypto.TextEncoding;
 import microsys.crypto.SymmetricKeyEncryption;
-import microsys.crypto.util.HexUtils;
+import microsys.crypto.util.CipherUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.security.Key;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Signature;
 import java.util.Objects;
+import java.util.Optional;
 
 import javax.annotation.Nonnull;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 /**
  * Provides an implementation of the {@link SymmetricKeyEncryption} interface, using the the AES algorithm to perform
  * the encryption and decryption of data (with the key encrypted using the symmetric-key algorithm), along with using
  * the provided {@link KeyPair} to perform symmetric-key encryption, decryption, and signing operations.
+ * <p>
+ * The signature algorithm is chosen based on the type of the key pair: RSA keys sign with {@code SHA1withRSA} (so
+ * existing signatures continue to verify), EC keys sign with the much faster {@code SHA256withECDSA}, and EdDSA keys
+ * sign with {@code Ed25519} when the JDK provides it. Encryption wraps the AES key with the key pair, which requires
+ * an RSA key pair.
+ * <p>
+ * When a {@link DataKeyCache} is provided, data is encrypted in envelope mode: the AES data key is reused across
+ * messages (with a random initialization vector per message), and unwrapped data keys are cached during decryption.
+ * Envelope-mode data starts with a zero byte, which never starts data encrypted without envelope mode, so both forms
+ * can always be decrypted.
  */
 public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
     private final static String ALGORITHM = "AES";
 
-    // Process input/output streams in chunks - arbitrary
-    private final static int BUFFER_SIZE = 1024;
+    // Envelope-mode specification - changing will break existing encrypted streams!
+    private final static int ENVELOPE_VERSION = 0;
+    private final static String ENVELOPE_CIPHER_SPEC = "AES/CBC/PKCS5Padding";
+    private final static int IV_LENGTH = 16;
+
+    // Process input/output streams in chunks by default - arbitrary
+    public final static int DEFAULT_BUFFER_SIZE = 64 * 1024;
 
     @Nonnull
     private final KeyPair keyPair;
+    private final int bufferSize;
+    private final int fileChunkSize;
+    @Nonnull
+    private final Optional<DataKeyCache> dataKeyCache;
+    @Nonnull
+    private final String signatureAlgorithm;
+    @Nonnull
+    private final CryptoMetrics metrics;
+    @Nonnull
+    private final TextEncoding textEncoding;
 
     /**
      * @param keyPair the {@link KeyPair} containing the public and private symmetric keys
      */
     public AESSymmetricKeyEncryption(@Nonnull final KeyPair keyPair) throws EncryptionException {
+        this(keyPair, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param keyPair the {@link KeyPair} containing the public and private symmetric keys
+     * @param bufferSize the number of bytes to process in each chunk when encrypting and decrypting streams
+     */
+    public AESSymmetricKeyEncryption(@Nonnull final KeyPair keyPair, final int bufferSize)
+            throws EncryptionException {
+        this(keyPair, bufferSize, Optional.empty());
+    }
+
+    /**
+     * @param keyPair the {@link KeyPair} containing the public and private symmetric keys
+     * @param bufferSize the number of bytes to process in each chunk when encrypting and decrypting streams
+     * @param dataKeyCache the cache of data keys to use for envelope encryption, or empty to generate a new key for
+     *     every message
+     */
+    public AESSymmetricKeyEncryption(
+            @Nonnull final KeyPair keyPair, final int bufferSize, @Nonnull final Optional<DataKeyCache> dataKeyCache)
+            throws EncryptionException {
+        this(keyPair, bufferSize, dataKeyCache, new CryptoMetrics());
+    }
+
+    /**
+     * @param keyPair the {@link KeyPair} containing the public and private symmetric keys
+     * @param bufferSize the number of bytes to process in each chunk when encrypting and decrypting streams
+     * @param dataKeyCache the cache of data keys to use for envelope encryption, or empty to generate a new key for
+     *     every message
+     * @param metrics the {@link CryptoMetrics} in which the timing of each operation is recorded
+     */
+    public AESSymmetricKeyEncryption(
+            @Nonnull final KeyPair keyPair, final int bufferSize, @Nonnull final Optional<DataKeyCache> dataKeyCache,
+            @Nonnull final CryptoMetrics metrics) throws EncryptionException {
+        this(keyPair, bufferSize, dataKeyCache, metrics, TextEncoding.HEX);
+    }
+
+    /**
+     * @param keyPair the {@link KeyPair} containing the public and private symmetric keys
+     * @param bufferSize the number of bytes to process in each chunk when encrypting and decrypting streams
+     * @param dataKeyCache the cache of data keys to use for envelope encryption, or empty to generate a new key for
+     *     every message
+     * @param metrics the {@link CryptoMetrics} in which the timing of each operation is recorded
+     * @param textEncoding the {@link TextEncoding} used for the encrypted strings and signatures this class creates
+     */
+    public AESSymmetricKeyEncryption(
+            @Nonnull final KeyPair keyPair, final int bufferSize, @Nonnull final Optional<DataKeyCache> dataKeyCache,
+            @Nonnull final CryptoMetrics metrics, @Nonnull final TextEncoding textEncoding)
+            throws EncryptionException {
+        this(keyPair, bufferSize, ChunkedFileEncryption.DEFAULT_CHUNK_SIZE, dataKeyCache, metrics, textEncoding);
+    }
+
+    /**
+     * @param keyPair the {@link KeyPair} containing the public and private symmetric keys
+     * @param bufferSize the number of bytes to process in each chunk when encrypting and decrypting streams
+     * @param fileChunkSize the number of plain bytes in each independently encrypted chunk of a file
+     * @param dataKeyCache the cache of data keys to use for envelope encryption, or empty to generate a new key for
+     *     every message
+     * @param metrics the {@link CryptoMetrics} in which the timing of each operation is recorded
+     * @param textEncoding the {@link TextEncoding} used for the encrypted strings and signatures this class creates
+     */
+    public AESSymmetricKeyEncryption(
+            @Nonnull final KeyPair keyPair, final int bufferSize, final int fileChunkSize,
+            @Nonnull final Optional<DataKeyCache> dataKeyCache, @Nonnull final CryptoMetrics metrics,
+            @Nonnull final TextEncoding textEncoding) throws EncryptionException {
+        Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive");
+        Preconditions.checkArgument(fileChunkSize > 0, "File chunk size must be positive");
         this.keyPair = Objects.requireNonNull(keyPair);
+        this.bufferSize = bufferSize;
+        this.fileChunkSize = fileChunkSize;
+        this.dataKeyCache = Objects.requireNonNull(dataKeyCache);
+        this.metrics = Objects.requireNonNull(metrics);
+        this.textEncoding = Objects.requireNonNull(textEncoding);
+        this.signatureAlgorithm = getSignatureAlgorithm(keyPair.getPublic());
+    }
+
+    /**
+     * @param key the public or private key used to sign or verify
+     * @return the name of the signature algorithm to use with the key
+     */
+    @Nonnull
+    public static String getSignatureAlgorithm(@Nonnull final Key key) {
+        final String keyAlgorithm = Objects.requireNonNull(key).getAlgorithm();
+        switch (keyAlgorithm) {
+            case "EC":
+                return "SHA256withECDSA";
+            case "EdDSA":
+            case "Ed25519":
+                return "Ed25519";
+            default:
+                // RSA and DSA keys keep the original algorithm so previously created signatures remain valid.
+                return "SHA1with" + keyAlgorithm;
+        }
     }
 
     /**
@@ -49,17 +178,75 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
         return this.keyPair;
     }
 
+    /**
+     * @return the name of the signature algorithm used to sign and verify data with the key pair
+     */
+    @Nonnull
+    public String getSignatureAlgorithm() {
+        return this.signatureAlgorithm;
+    }
+
+    /**
+     * @return the number of bytes to process in each chunk when encrypting and decrypting streams
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * @return the number of plain bytes in each independently encrypted chunk of a file
+     */
+    public int getFileChunkSize() {
+        return this.fileChunkSize;
+    }
+
+    /**
+     * @return the cache of data keys used for envelope encryption, possibly empty when envelope mode is disabled
+     */
+    @Nonnull
+    public Optional<DataKeyCache> getDataKeyCache() {
+        return this.dataKeyCache;
+    }
+
+    /**
+     * @return the {@link CryptoMetrics} in which the timing of each operation is recorded
+     */
+    @Nonnull
+    public CryptoMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return the {@link TextEncoding} used for the encrypted strings this class creates
+     */
+    @Nonnull
+    public TextEncoding getTextEncoding() {
+        return this.textEncoding;
+    }
+
+    /**
+     * @return the {@link ChunkedFileEncryption} used to encrypt and decrypt files, using the file chunk size and the
+     *     chunk executor shared within the JVM
+     */
+    @Nonnull
+    protected ChunkedFileEncryption getChunkedFileEncryption() {
+        return new ChunkedFileEncryption(getFileChunkSize());
+    }
+
     /**
      * @param keyLength the length of the key to generate
      * @return the {@link SecretKey} used to do the encryption and decryption of system data
      */
     protected SecretKey createSecretKey(final int keyLength) throws EncryptionException {
+        final long start = System.nanoTime();
         try {
             final KeyGenerator keyGenerator = KeyGenerator.getInstance(ALGORITHM);
             keyGenerator.init(keyLength);
             return keyGenerator.generateKey();
         } catch (final Exception exception) {
             throw new EncryptionException("Failed to generate secret key for encryption", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.KEYGEN, System.nanoTime() - start);
         }
     }
 
@@ -71,7 +258,7 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
     protected byte[] getEncryptedSecretKey(@Nonnull final SecretKey secretKey) throws Exception {
         Objects.requireNonNull(secretKey);
         final PrivateKey privateKey = getKeyPair().getPrivate();
-        final Cipher symmetricCipher = Cipher.getInstance(privateKey.getAlgorithm());
+        final Cipher symmetricCipher = CipherUtils.getCipher(privateKey.getAlgorithm());
         symmetricCipher.init(Cipher.ENCRYPT_MODE, privateKey);
         return symmetricCipher.doFinal(secretKey.getEncoded());
     }
@@ -84,11 +271,83 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
     protected SecretKeySpec getDecryptedSecretKey(@Nonnull final byte[] encrypted) throws Exception {
         Objects.requireNonNull(encrypted);
         final PublicKey publicKey = getKeyPair().getPublic();
-        final Cipher symmetricCipher = Cipher.getInstance(publicKey.getAlgorithm());
+        final Cipher symmetricCipher = CipherUtils.getCipher(publicKey.getAlgorithm());
         symmetricCipher.init(Cipher.DECRYPT_MODE, publicKey);
         return new SecretKeySpec(symmetricCipher.doFinal(encrypted), ALGORITHM);
     }
 
+    /**
+     * Generate a new secret key (or reuse the current data key in envelope mode), write the encrypted secret key into
+     * the header, and initialize a cipher for encryption with the secret key.
+     *
+     * @param header the stream into which the encrypted data header will be written
+     * @return the {@link Cipher} initialized to encrypt the data that follows the header
+     */
+    @Nonnull
+    protected Cipher getEncryptCipher(@Nonnull final ByteArrayOutputStream header) throws Exception {
+        final int keyLength = 128; // The unlimited-strength jce not required for this.
+        if (getDataKeyCache().isPresent()) {
+            final DataKeyCache.DataKey dataKey = getDataKeyCache().get().getDataKey(() -> {
+                final SecretKey secretKey = createSecretKey(keyLength);
+                return new DataKeyCache.DataKey(secretKey, getEncryptedSecretKey(secretKey));
+            });
+
+            final Cipher cipher = CipherUtils.getCipher(ENVELOPE_CIPHER_SPEC);
+            cipher.init(Cipher.ENCRYPT_MODE, dataKey.getKey());
+            final byte[] iv = cipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV();
+
+            // Write the version marker, wrapped data key, and per-message initialization vector into the header
+            header.write(ENVELOPE_VERSION);
+            header.write(dataKey.getWrapped().length / 8);
+            header.write(dataKey.getWrapped());
+            header.write(iv);
+            return cipher;
+        }
+
+        final SecretKey secretKey = createSecretKey(keyLength);
+        final Cipher cipher = CipherUtils.getCipher(ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(secretKey.getEncoded(), ALGORITHM));
+
+        // First, write the secret key into the header
+        final byte[] encryptedSecretKey = getEncryptedSecretKey(secretKey);
+        header.write(encryptedSecretKey.length / 8);
+        header.write(encryptedSecretKey);
+        return cipher;
+    }
+
+    /**
+     * Read the encrypted secret key from the header and initialize a cipher for decryption with the secret key. Data
+     * encrypted in envelope mode is recognized by its version marker.
+     *
+     * @param header provides the bytes of the encrypted data header
+     * @return the {@link Cipher} initialized to decrypt the data that follows the header
+     */
+    @Nonnull
+    protected Cipher getDecryptCipher(@Nonnull final CipherUtils.HeaderSource header) throws Exception {
+        final int first = header.read(1)[0] & 0xFF;
+        if (first == ENVELOPE_VERSION) {
+            final byte[] wrapped = header.read((header.read(1)[0] & 0xFF) * 8);
+            final SecretKey dataKey;
+            if (getDataKeyCache().isPresent()) {
+                dataKey = getDataKeyCache().get().getUnwrapped(wrapped, () -> getDecryptedSecretKey(wrapped));
+            } else {
+                dataKey = getDecryptedSecretKey(wrapped);
+            }
+
+            final Cipher cipher = CipherUtils.getCipher(ENVELOPE_CIPHER_SPEC);
+            cipher.init(Cipher.DECRYPT_MODE, dataKey, new IvParameterSpec(header.read(IV_LENGTH)));
+            return cipher;
+        }
+
+        // Read the encrypted key value
+        final int encryptedKeyLength = first * 8;
+        final SecretKeySpec secretKey = getDecryptedSecretKey(header.read(encryptedKeyLength));
+
+        final Cipher cipher = CipherUtils.getCipher(ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, secretKey);
+        return cipher;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -98,26 +357,83 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
             throws EncryptionException {
         Objects.requireNonNull(input);
         Objects.requireNonNull(output);
+        final long start = System.nanoTime();
         try {
-            final int keyLength = 128; // The unlimited-strength jce not required for this.
-            final SecretKey secretKey = createSecretKey(keyLength);
-            final Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(secretKey.getEncoded(), ALGORITHM));
-
-            // First, write the secret key into the output stream
-            final byte[] encryptedSecretKey = getEncryptedSecretKey(secretKey);
-            output.write(encryptedSecretKey.length / 8);
-            output.write(encryptedSecretKey);
-
-            // Read data from input into buffer, encrypt and write to output
-            final byte[] buffer = new byte[BUFFER_SIZE];
-            int numRead;
-            while ((numRead = input.read(buffer)) > 0) {
-                output.write(cipher.update(buffer, 0, numRead));
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            final Cipher cipher = getEncryptCipher(header);
+            header.writeTo(output);
+
+            CipherUtils.process(cipher, input, output, getBufferSize());
+        } catch (final Exception exception) {
+            throw new EncryptionException("Failed to encrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.ENCRYPT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encrypt(@Nonnull final ReadableByteChannel input, @Nonnull final WritableByteChannel output)
+            throws EncryptionException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long start = System.nanoTime();
+        try {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            final Cipher cipher = getEncryptCipher(header);
+            final ByteBuffer headerBuffer = ByteBuffer.wrap(header.toByteArray());
+            while (headerBuffer.hasRemaining()) {
+                output.write(headerBuffer);
             }
-            output.write(cipher.doFinal());
+
+            CipherUtils.process(cipher, input, output, getBufferSize());
+        } catch (final Exception exception) {
+            throw new EncryptionException("Failed to encrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.ENCRYPT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encrypt(@Nonnull final ByteBuffer input, @Nonnull final ByteBuffer output)
+            throws EncryptionException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long start = System.nanoTime();
+        try {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            final Cipher cipher = getEncryptCipher(header);
+            output.put(header.toByteArray());
+            cipher.doFinal(input, output);
         } catch (final Exception exception) {
             throw new EncryptionException("Failed to encrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.ENCRYPT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encryptFile(@Nonnull final Path input, @Nonnull final Path output) throws EncryptionException {
+        final long start = System.nanoTime();
+        try {
+            final SecretKey secretKey = createSecretKey(128); // The unlimited-strength jce not required for this.
+            final byte[] encryptedSecretKey;
+            try {
+                encryptedSecretKey = getEncryptedSecretKey(secretKey);
+            } catch (final Exception exception) {
+                throw new EncryptionException("Failed to encrypt file " + input, exception);
+            }
+            getChunkedFileEncryption().encrypt(secretKey, encryptedSecretKey, input, output);
+        } finally {
+            getMetrics().record(CryptoOperation.ENCRYPT, System.nanoTime() - start);
         }
     }
 
@@ -138,7 +454,8 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
     @Override
     @Nonnull
     public String encryptString(@Nonnull final String data, @Nonnull final Charset charset) throws EncryptionException {
-        return HexUtils.bytesToHex(encrypt(Objects.requireNonNull(data).getBytes(Objects.requireNonNull(charset))));
+        final byte[] encrypted = encrypt(Objects.requireNonNull(data).getBytes(Objects.requireNonNull(charset)));
+        return getTextEncoding().encode(encrypted);
     }
 
     /**
@@ -150,29 +467,65 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
             throws EncryptionException {
         Objects.requireNonNull(input);
         Objects.requireNonNull(output);
+        final long start = System.nanoTime();
         try {
-            // Read the encrypted key value
-            final int encryptedKeyLength = input.read() * 8;
-            final byte[] encryptedKey = new byte[encryptedKeyLength];
-            int keyRead = 0;
-            while (keyRead < encryptedKeyLength) {
-                keyRead += input.read(encryptedKey, keyRead, encryptedKeyLength - keyRead);
-            }
-
-            final SecretKeySpec secretKey = getDecryptedSecretKey(encryptedKey);
+            final Cipher cipher = getDecryptCipher(length -> CipherUtils.readFully(input, length));
+            CipherUtils.process(cipher, input, output, getBufferSize());
+        } catch (final Exception exception) {
+            throw new EncryptionException("Failed to decrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.DECRYPT, System.nanoTime() - start);
+        }
+    }
 
-            final Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decrypt(@Nonnull final ReadableByteChannel input, @Nonnull final WritableByteChannel output)
+            throws EncryptionException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long start = System.nanoTime();
+        try {
+            final Cipher cipher = getDecryptCipher(length -> CipherUtils.readFully(input, length));
+            CipherUtils.process(cipher, input, output, getBufferSize());
+        } catch (final Exception exception) {
+            throw new EncryptionException("Failed to decrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.DECRYPT, System.nanoTime() - start);
+        }
+    }
 
-            // Read data from input into buffer, decrypt and write to output
-            final byte[] buffer = new byte[BUFFER_SIZE];
-            int numRead;
-            while ((numRead = input.read(buffer)) > 0) {
-                output.write(cipher.update(buffer, 0, numRead));
-            }
-            output.write(cipher.doFinal());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decrypt(@Nonnull final ByteBuffer input, @Nonnull final ByteBuffer output)
+            throws EncryptionException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long start = System.nanoTime();
+        try {
+            final Cipher cipher = getDecryptCipher(length -> CipherUtils.readFully(input, length));
+            cipher.doFinal(input, output);
         } catch (final Exception exception) {
             throw new EncryptionException("Failed to decrypt data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.DECRYPT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decryptFile(@Nonnull final Path input, @Nonnull final Path output) throws EncryptionException {
+        final long start = System.nanoTime();
+        try {
+            getChunkedFileEncryption().decrypt(this::getDecryptedSecretKey, input, output);
+        } finally {
+            getMetrics().record(CryptoOperation.DECRYPT, System.nanoTime() - start);
         }
     }
 
@@ -193,7 +546,7 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
     @Override
     @Nonnull
     public String decryptString(@Nonnull final String data, @Nonnull final Charset charset) throws EncryptionException {
-        return new String(decrypt(HexUtils.hexToBytes(Objects.requireNonNull(data))), Objects.requireNonNull(charset));
+        return new String(decrypt(TextEncoding.decode(Objects.requireNonNull(data))), Objects.requireNonNull(charset));
     }
 
     /**
@@ -203,14 +556,17 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
     @Nonnull
     public byte[] sign(@Nonnull final byte[] data) throws EncryptionException {
         Objects.requireNonNull(data);
+        final long start = System.nanoTime();
         try {
             final PrivateKey privateKey = getKeyPair().getPrivate();
-            final Signature signature = Signature.getInstance("SHA1with" + privateKey.getAlgorithm());
+            final Signature signature = CipherUtils.getSignature(getSignatureAlgorithm());
             signature.initSign(privateKey);
             signature.update(data);
             return signature.sign();
         } catch (final Exception exception) {
             throw new EncryptionException("Failed to sign data", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.SIGN, System.nanoTime() - start);
         }
     }
 
@@ -220,7 +576,7 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
     @Override
     @Nonnull
     public String signString(@Nonnull final String data, @Nonnull final Charset charset) throws EncryptionException {
-        return HexUtils.bytesToHex(sign(Objects.requireNonNull(data).getBytes(Objects.requireNonNull(charset))));
+        return getTextEncoding().encode(sign(Objects.requireNonNull(data).getBytes(Objects.requireNonNull(charset))));
     }
 
     /**
@@ -230,14 +586,17 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
     @Nonnull
     public boolean verify(@Nonnull final byte[] data, @Nonnull final byte[] signatureData) throws EncryptionException {
         Objects.requireNonNull(data);
+        final long start = System.nanoTime();
         try {
             final PublicKey publicKey = getKeyPair().getPublic();
-            final Signature signature = Signature.getInstance("SHA1with" + publicKey.getAlgorithm());
+            final Signature signature = CipherUtils.getSignature(getSignatureAlgorithm());
             signature.initVerify(publicKey);
             signature.update(data);
             return signature.verify(signatureData);
         } catch (final Exception exception) {
             throw new EncryptionException("Failed to verify signature", exception);
+        } finally {
+            getMetrics().record(CryptoOperation.VERIFY, System.nanoTime() - start);
         }
     }
 
@@ -250,6 +609,6 @@ public class AESSymmetricKeyEncryption implements SymmetricKeyEncryption {
             @Nonnull final String data, @Nonnull final Charset charset, @Nonnull final String signatureData)
             throws EncryptionException {
         final byte[] dataBytes = Objects.requireNonNull(data).getBytes(Objects.requireNonNull(charset));
-        return verify(dataBytes, HexUtils.hexToBytes(signatureData));
+        return verify(dataBytes, TextEncoding.decode(signatureData));
     }
 }
@@ -0,0 +1,423 @@
+package microsys.crypto.impl;
+
+import com.google.common.base.Preconditions;
+
+import microsys.crypto.EncryptionException;
+import microsys.crypto.util.CipherUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Encrypts and decrypts files using a chunked, authenticated format. The file is split into fixed-size chunks which
+ * are each encrypted with AES-GCM, using a nonce derived from a random per-file prefix and the chunk index, and with
+ * the file header as additional authenticated data. Since every chunk has a known position in both the plain and the
+ * encrypted file, the chunks are processed in parallel by a bounded number of worker tasks using positional reads and
+ * writes. The workers run on a dedicated executor, shared by default by all the instances in the JVM, rather than the
+ * common fork-join pool. Each worker allocates its own chunk buffers and reuses them for every chunk it processes, so
+ * at most the parallelism times two chunks of buffer space are held during a call, and none once it returns. Chunks
+ * are expected to be MiB-scale so that even multi-GB files are processed in a few thousand chunks.
+ * <p>
+ * The encrypted file layout is: magic bytes, the length and bytes of the key header (describing how to recover the
+ * key), the chunk size, the plain data length, the nonce prefix, and then the encrypted chunks each followed by the
+ * authentication tag.
+ */
+public class ChunkedFileEncryption {
+    // Chunked format specification - changing will break existing encrypted files!
+    private final static byte[] MAGIC = {'M', 'C', 'F', 1};
+    private final static String CIPHER_SPEC = "AES/GCM/NoPadding";
+    private final static int TAG_LENGTH = 16; // in bytes
+    private final static int NONCE_PREFIX_LENGTH = 4; // in bytes, followed by the 8-byte chunk index
+
+    // The number of plain bytes in each chunk by default - arbitrary
+    public final static int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    // Bounds the buffers allocated for each chunk, including when reading the chunk size from a file - arbitrary
+    public final static int MAX_CHUNK_SIZE = 256 * 1024 * 1024;
+
+    // The number of chunks processed concurrently by default, one for each processor
+    public final static int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    // How long an idle thread of the shared executor is kept before exiting - arbitrary
+    private final static long IDLE_THREAD_SECONDS = 60;
+
+    // The executor shared by default by all the instances within this JVM, with threads that exit when idle
+    @Nonnull
+    private final static ExecutorService SHARED_EXECUTOR = createSharedExecutor();
+
+    /**
+     * Recovers the encryption key from the key header stored in an encrypted file.
+     */
+    @FunctionalInterface
+    public interface KeyResolver {
+        /**
+         * @param keyHeader the key header stored in the encrypted file
+         * @return the key used to encrypt the file
+         * @throws Exception if there is a problem recovering the key
+         */
+        @Nonnull
+        SecretKey resolve(@Nonnull byte[] keyHeader) throws Exception;
+    }
+
+    private final int chunkSize;
+    @Nonnull
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    /**
+     * Process the chunks on the executor shared within the JVM, using the default parallelism.
+     *
+     * @param chunkSize the number of plain bytes in each encrypted chunk, at most {@link #MAX_CHUNK_SIZE}
+     */
+    public ChunkedFileEncryption(final int chunkSize) {
+        this(chunkSize, SHARED_EXECUTOR, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param chunkSize the number of plain bytes in each encrypted chunk, at most {@link #MAX_CHUNK_SIZE}
+     * @param executor the {@link ExecutorService} on which the chunks are encrypted and decrypted, which should not
+     *     be used by the callers of this class, since they block waiting for the chunks to be processed
+     * @param parallelism the maximum number of chunks processed concurrently by each call
+     */
+    public ChunkedFileEncryption(
+            final int chunkSize, @Nonnull final ExecutorService executor, final int parallelism) {
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive");
+        Preconditions.checkArgument(chunkSize <= MAX_CHUNK_SIZE, "Chunk size must not exceed " + MAX_CHUNK_SIZE);
+        Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive");
+        this.chunkSize = chunkSize;
+        this.executor = Objects.requireNonNull(executor);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return a new executor with a thread for each processor, which exit when idle
+     */
+    @Nonnull
+    private static ExecutorService createSharedExecutor() {
+        final AtomicInteger threads = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_PARALLELISM, DEFAULT_PARALLELISM,
+                IDLE_THREAD_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    final Thread thread = new Thread(runnable, "chunked-file-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @return the number of plain bytes in each encrypted chunk
+     */
+    public int getChunkSize() {
+        return this.chunkSize;
+    }
+
+    /**
+     * @return the {@link ExecutorService} on which the chunks are encrypted and decrypted
+     */
+    @Nonnull
+    protected ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * @return the maximum number of chunks processed concurrently by each call
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * @param key the key used to encrypt the file
+     * @param keyHeader describes how to recover the key, for example the wrapped key or the key derivation salt
+     * @param input the plain file to encrypt
+     * @param output the file to which the encrypted data is written
+     * @throws EncryptionException if there is a problem performing the encryption
+     */
+    public void encrypt(
+            @Nonnull final SecretKey key, @Nonnull final byte[] keyHeader, @Nonnull final Path input,
+            @Nonnull final Path output) throws EncryptionException {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(keyHeader);
+        checkDistinct(input, output);
+        try (final FileChannel in = FileChannel.open(Objects.requireNonNull(input), StandardOpenOption.READ);
+             final FileChannel out = FileChannel.open(Objects.requireNonNull(output), StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+            new SecureRandom().nextBytes(noncePrefix);
+
+            final long plainLength = in.size();
+            final ByteBuffer header = ByteBuffer
+                    .allocate(MAGIC.length + 4 + keyHeader.length + 4 + 8 + NONCE_PREFIX_LENGTH);
+            header.put(MAGIC).putInt(keyHeader.length).put(keyHeader).putInt(getChunkSize()).putLong(plainLength)
+                    .put(noncePrefix);
+            header.flip();
+            final byte[] aad = Arrays.copyOf(header.array(), header.limit());
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+
+            processChunks(plainLength, getChunkSize(), (index, plain, encrypted) -> {
+                final long plainOffset = index * getChunkSize();
+                final int length = (int) Math.min(getChunkSize(), plainLength - plainOffset);
+                final long encryptedOffset = aad.length + index * (getChunkSize() + TAG_LENGTH);
+
+                readFully(in, ByteBuffer.wrap(plain, 0, length), plainOffset);
+
+                final Cipher cipher = CipherUtils.getCipher(CIPHER_SPEC);
+                cipher.init(Cipher.ENCRYPT_MODE, key, getParameterSpec(noncePrefix, index));
+                cipher.updateAAD(aad);
+                final int encryptedLength = cipher.doFinal(plain, 0, length, encrypted, 0);
+                writeFully(out, ByteBuffer.wrap(encrypted, 0, encryptedLength), encryptedOffset);
+            });
+        } catch (final Exception exception) {
+            deleteQuietly(output);
+            throw new EncryptionException("Failed to encrypt file " + input, exception);
+        }
+    }
+
+    /**
+     * @param keyResolver used to recover the key from the key header stored in the encrypted file
+     * @param input the encrypted file to decrypt
+     * @param output the file to which the plain data is written
+     * @throws EncryptionException if there is a problem performing the decryption, including when the encrypted file
+     *     has been modified or truncated
+     */
+    public void decrypt(
+            @Nonnull final KeyResolver keyResolver, @Nonnull final Path input, @Nonnull final Path output)
+            throws EncryptionException {
+        Objects.requireNonNull(keyResolver);
+        checkDistinct(input, output);
+        try (final FileChannel in = FileChannel.open(Objects.requireNonNull(input), StandardOpenOption.READ);
+             final FileChannel out = FileChannel.open(Objects.requireNonNull(output), StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (!Arrays.equals(MAGIC, CipherUtils.readFully(in, MAGIC.length))) {
+                throw new IOException("Unrecognized encrypted file format");
+            }
+            final int keyHeaderLength = ByteBuffer.wrap(CipherUtils.readFully(in, 4)).getInt();
+            if (keyHeaderLength < 0 || keyHeaderLength > in.size()) {
+                throw new IOException("Invalid key header length: " + keyHeaderLength);
+            }
+            final byte[] keyHeader = CipherUtils.readFully(in, keyHeaderLength);
+            final ByteBuffer settings = ByteBuffer.wrap(CipherUtils.readFully(in, 4 + 8 + NONCE_PREFIX_LENGTH));
+            final int fileChunkSize = settings.getInt();
+            final long plainLength = settings.getLong();
+            final byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+            settings.get(noncePrefix);
+            if (fileChunkSize <= 0 || fileChunkSize > MAX_CHUNK_SIZE || plainLength < 0) {
+                throw new IOException("Invalid encrypted file header");
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate((int) in.position());
+            in.read(header, 0);
+            final byte[] aad = header.array();
+
+            final long chunks = getChunkCount(plainLength, fileChunkSize);
+            if (in.size() != aad.length + plainLength + chunks * TAG_LENGTH) {
+                throw new IOException("Encrypted file size does not match the header, the file may be truncated");
+            }
+
+            final SecretKey key = keyResolver.resolve(keyHeader);
+            processChunks(plainLength, fileChunkSize, (index, plain, encrypted) -> {
+                final long plainOffset = index * fileChunkSize;
+                final int length = (int) Math.min(fileChunkSize, plainLength - plainOffset);
+                final long encryptedOffset = aad.length + index * (fileChunkSize + TAG_LENGTH);
+
+                readFully(in, ByteBuffer.wrap(encrypted, 0, length + TAG_LENGTH), encryptedOffset);
+
+                final Cipher cipher = CipherUtils.getCipher(CIPHER_SPEC);
+                cipher.init(Cipher.DECRYPT_MODE, key, getParameterSpec(noncePrefix, index));
+                cipher.updateAAD(aad);
+                final int plainBytes = cipher.doFinal(encrypted, 0, length + TAG_LENGTH, plain, 0);
+                writeFully(out, ByteBuffer.wrap(plain, 0, plainBytes), plainOffset);
+            });
+        } catch (final Exception exception) {
+            deleteQuietly(output);
+            throw new EncryptionException("Failed to decrypt file " + input, exception);
+        }
+    }
+
+    /**
+     * @param plainLength the length of the plain data
+     * @param chunkSize the number of plain bytes in each chunk
+     * @return the number of chunks, which is always at least one so that even empty files are authenticated
+     */
+    protected static long getChunkCount(final long plainLength, final int chunkSize) {
+        return Math.max(1, (plainLength + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * @param noncePrefix the random per-file nonce prefix
+     * @param index the index of the chunk
+     * @return the GCM parameters for the chunk, with a nonce unique to the file and chunk
+     */
+    @Nonnull
+    protected static GCMParameterSpec getParameterSpec(@Nonnull final byte[] noncePrefix, final long index) {
+        final ByteBuffer nonce = ByteBuffer.allocate(NONCE_PREFIX_LENGTH + 8);
+        nonce.put(noncePrefix).putLong(index);
+        return new GCMParameterSpec(TAG_LENGTH * 8, nonce.array());
+    }
+
+    /**
+     * @param channel the file channel from which data is read
+     * @param buffer the buffer to fill completely
+     * @param position the file position at which to start reading
+     * @throws IOException if there is a problem reading, or the end of the file is reached before the buffer is full
+     */
+    protected static void readFully(
+            @Nonnull final FileChannel channel, @Nonnull final ByteBuffer buffer, final long position)
+            throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at position " + offset);
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * @param channel the file channel to which data is written
+     * @param buffer the buffer to write completely
+     * @param position the file position at which to start writing
+     * @throws IOException if there is a problem writing
+     */
+    protected static void writeFully(
+            @Nonnull final FileChannel channel, @Nonnull final ByteBuffer buffer, final long position)
+            throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    /**
+     * Process all of the chunks in parallel, using at most the configured parallelism. Each worker task allocates one
+     * pair of chunk buffers and takes the next unprocessed chunk until none are left, so the buffers are released as
+     * soon as the call returns. After a chunk fails, the workers stop taking new chunks, and the call waits for all of
+     * them to finish before throwing so that no worker still uses the files.
+     *
+     * @param plainLength the length of the plain data
+     * @param chunkSize the number of plain bytes in each chunk
+     * @param processor performs the processing of a single chunk
+     * @throws Exception if there is a problem processing any of the chunks
+     */
+    protected void processChunks(
+            final long plainLength, final int chunkSize, @Nonnull final ChunkProcessor processor) throws Exception {
+        final long chunks = getChunkCount(plainLength, chunkSize);
+        final int workers = (int) Math.min(getParallelism(), chunks);
+        final AtomicLong next = new AtomicLong();
+        final AtomicBoolean failed = new AtomicBoolean(false);
+
+        final List<Future<Void>> futures = new ArrayList<>(workers);
+        Exception failure = null;
+        try {
+            for (int worker = 0; worker < workers; worker++) {
+                futures.add(getExecutor().submit(() -> {
+                    final byte[] plain = new byte[chunkSize];
+                    final byte[] encrypted = new byte[chunkSize + TAG_LENGTH];
+                    long index;
+                    while (!failed.get() && (index = next.getAndIncrement()) < chunks) {
+                        try {
+                            processor.process(index, plain, encrypted);
+                        } catch (final Exception exception) {
+                            failed.set(true);
+                            throw exception;
+                        }
+                    }
+                    return null;
+                }));
+            }
+        } catch (final RejectedExecutionException rejected) {
+            failed.set(true);
+            failure = rejected;
+        }
+
+        for (final Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (final ExecutionException executionFailed) {
+                if (failure == null) {
+                    final Throwable cause = executionFailed.getCause();
+                    failure = cause instanceof Exception ? (Exception) cause : executionFailed;
+                }
+            } catch (final InterruptedException interrupted) {
+                failed.set(true);
+                futures.forEach(remaining -> remaining.cancel(true));
+                Thread.currentThread().interrupt();
+                throw interrupted;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @param input the input file
+     * @param output the output file
+     * @throws EncryptionException if the output file is the same as the input file, which would be overwritten
+     */
+    protected static void checkDistinct(@Nonnull final Path input, @Nonnull final Path output)
+            throws EncryptionException {
+        try {
+            if (Files.exists(Objects.requireNonNull(output))
+                    && Files.isSameFile(Objects.requireNonNull(input), output)) {
+                throw new EncryptionException("The input and output files must be different: " + input);
+            }
+        } catch (final IOException checkFailed) {
+            throw new EncryptionException("Failed to check file " + output, checkFailed);
+        }
+    }
+
+    /**
+     * @param path the file to delete, ignoring any failures
+     */
+    protected static void deleteQuietly(@Nonnull final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException ignored) {
+            // Nothing else to do.
+        }
+    }
+
+    /**
+     * Performs the processing of a single chunk.
+     */
+    @FunctionalInterface
+    protected interface ChunkProcessor {
+        /**
+         * @param index the index of the chunk to process
+         * @param plain a buffer owned by the calling worker, large enough for the plain bytes of a chunk
+         * @param encrypted a buffer owned by the calling worker, large enough for the encrypted bytes of a chunk
+         * @throws Exception if there is a problem processing the chunk
+         */
+        void process(long index, @Nonnull byte[] plain, @Nonnull byte[] encrypted) throws Exception;
+    }
+}
@@ -0,0 +1,169 @@
+package microsys.crypto.impl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import microsys.crypto.util.HexUtils;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nonnull;
+import javax.crypto.SecretKey;
+
+/**
+ * Manages the data keys used for envelope encryption. A data key is reused for a bounded number of messages and a
+ * bounded amount of time before a new one is generated, so the expensive wrapping of the data key with the private
+ * key is only done occasionally. Unwrapped data keys are cached by their wrapped bytes, so decrypting many values
+ * encrypted with the same data key only unwraps the key once.
+ */
+public class DataKeyCache {
+    private final int maxMessages;
+    private final long maxAgeMillis;
+
+    @Nonnull
+    private final Cache<String, SecretKey> unwrapped;
+
+    @Nonnull
+    private Optional<DataKey> current = Optional.empty();
+
+    /**
+     * @param maxMessages the maximum number of messages to encrypt with a single data key
+     * @param maxAgeMillis the maximum amount of time, in milliseconds, for which a data key will be used to encrypt
+     * @param maxUnwrappedKeys the maximum number of unwrapped data keys to cache for decryption
+     */
+    public DataKeyCache(final int maxMessages, final long maxAgeMillis, final int maxUnwrappedKeys) {
+        Preconditions.checkArgument(maxMessages > 0, "Maximum messages must be positive");
+        Preconditions.checkArgument(maxAgeMillis > 0, "Maximum age must be positive");
+        Preconditions.checkArgument(maxUnwrappedKeys >= 0, "Maximum unwrapped keys must not be negative");
+        this.maxMessages = maxMessages;
+        this.maxAgeMillis = maxAgeMillis;
+        this.unwrapped = CacheBuilder.newBuilder().maximumSize(maxUnwrappedKeys).build();
+    }
+
+    /**
+     * @return the maximum number of messages to encrypt with a single data key
+     */
+    public int getMaxMessages() {
+        return this.maxMessages;
+    }
+
+    /**
+     * @return the maximum amount of time, in milliseconds, for which a data key will be used to encrypt
+     */
+    public long getMaxAgeMillis() {
+        return this.maxAgeMillis;
+    }
+
+    /**
+     * @param creator used to create a new data key when the current data key has expired
+     * @return the data key to use when encrypting the next message
+     * @throws Exception if there is a problem creating a new data key
+     */
+    @Nonnull
+    public synchronized DataKey getDataKey(@Nonnull final Callable<DataKey> creator) throws Exception {
+        Objects.requireNonNull(creator);
+        if (!this.current.isPresent() || isExpired(this.current.get())) {
+            final DataKey dataKey = creator.call();
+            this.current = Optional.of(dataKey);
+            // The new key is already unwrapped, so decrypting values from this process needs no unwrap.
+            this.unwrapped.put(HexUtils.bytesToHex(dataKey.getWrapped()), dataKey.getKey());
+        }
+        this.current.get().uses++;
+        return this.current.get();
+    }
+
+    /**
+     * @param dataKey the data key to check
+     * @return whether the data key has been used for too many messages or for too long
+     */
+    protected boolean isExpired(@Nonnull final DataKey dataKey) {
+        return dataKey.getUses() >= getMaxMessages()
+                || System.currentTimeMillis() - dataKey.getCreated() >= getMaxAgeMillis();
+    }
+
+    /**
+     * @param wrapped the wrapped bytes of the data key
+     * @param unwrapper used to unwrap the data key when it is not already cached
+     * @return the unwrapped data key
+     * @throws Exception if there is a problem unwrapping the data key
+     */
+    @Nonnull
+    public SecretKey getUnwrapped(@Nonnull final byte[] wrapped, @Nonnull final Callable<SecretKey> unwrapper)
+            throws Exception {
+        try {
+            return this.unwrapped.get(HexUtils.bytesToHex(Objects.requireNonNull(wrapped)), unwrapper);
+        } catch (final ExecutionException unwrapFailed) {
+            throw (Exception) unwrapFailed.getCause();
+        }
+    }
+
+    /**
+     * @return the number of unwrapped data keys currently cached
+     */
+    public long getUnwrappedCount() {
+        return this.unwrapped.size();
+    }
+
+    /**
+     * Discard the current data key and all of the cached unwrapped data keys.
+     */
+    public synchronized void clear() {
+        this.current = Optional.empty();
+        this.unwrapped.invalidateAll();
+    }
+
+    /**
+     * Holds a data key along with its wrapped form and usage information.
+     */
+    public static class DataKey {
+        @Nonnull
+        private final SecretKey key;
+        @Nonnull
+        private final byte[] wrapped;
+        private final long created = System.currentTimeMillis();
+        private int uses = 0;
+
+        /**
+         * @param key the data key used to encrypt messages
+         * @param wrapped the data key bytes encrypted with the private key
+         */
+        public DataKey(@Nonnull final SecretKey key, @Nonnull final byte[] wrapped) {
+            this.key = Objects.requireNonNull(key);
+            this.wrapped = Objects.requireNonNull(wrapped);
+        }
+
+        /**
+         * @return the data key used to encrypt messages
+         */
+        @Nonnull
+        public SecretKey getKey() {
+            return this.key;
+        }
+
+        /**
+         * @return the data key bytes encrypted with the private key
+         */
+        @Nonnull
+        public byte[] getWrapped() {
+            return this.wrapped;
+        }
+
+        /**
+         * @return the time at which the data key was created, in milliseconds since the epoch
+         */
+        public long getCreated() {
+            return this.created;
+        }
+
+        /**
+         * @return the number of messages encrypted with the data key
+         */
+        public int getUses() {
+            return this.uses;
+        }
+    }
+}
@@ -1,41 +1,93 @@
 package microsys.crypto.impl;
 
+import com.google.common.collect.ImmutableMap;
 import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueType;
 
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import microsys.common.config.ConfigKeys;
 import microsys.crypto.CryptoFactory;
+import microsys.crypto.CryptoMetrics;
+import microsys.crypto.CryptoOperation;
 import microsys.crypto.EncryptionException;
 import microsys.crypto.PasswordBasedEncryption;
 import microsys.crypto.SymmetricKeyEncryption;
+import microsys.crypto.TextEncoding;
 
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.Key;
 import java.security.KeyPair;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManagerFactory;
 
 /**
- * Provides access to the cryptography implementations used throughout this system.
+ * Provides access to the cryptography implementations used throughout this system. The encryption implementations
+ * and the decrypted configuration values are retained, so the key store is only loaded once and each encrypted
+ * configuration value is only decrypted once per process. Decrypted configuration values are held as character arrays
+ * so they can be cleared from memory when the factory is closed.
+ * <p>
+ * The key pair and {@link SSLContext} can be reloaded when the key store and trust store files are replaced, either
+ * explicitly or by watching the files for changes, so certificates can be rotated without restarting the process.
  */
 public class DefaultCryptoFactory implements CryptoFactory {
+    private final static Logger LOG = LoggerFactory.getLogger(DefaultCryptoFactory.class);
+
     @Nonnull
     private final Config config;
+    @Nonnull
+    private final CryptoMetrics metrics;
+
+    @Nonnull
+    private Optional<AESPasswordBasedEncryption> passwordBasedEncryption = Optional.empty();
+    @Nonnull
+    private Optional<AESSymmetricKeyEncryption> symmetricKeyEncryption = Optional.empty();
+    @Nonnull
+    private Optional<SSLContext> sslContext = Optional.empty();
+    @Nonnull
+    private Optional<KeyStoreWatcher> keyStoreWatcher = Optional.empty();
+    @Nonnull
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    @Nonnull
+    private volatile Map<String, char[]> preloadedConfig = ImmutableMap.of();
+    @Nonnull
+    private final Map<String, char[]> decryptedConfig = new ConcurrentHashMap<>();
 
     /**
      * @param config the static system configuration
      */
     public DefaultCryptoFactory(@Nonnull final Config config) {
         this.config = Objects.requireNonNull(config);
+        this.metrics = createMetrics(config);
     }
 
     /**
@@ -45,6 +97,60 @@ public class DefaultCryptoFactory implements CryptoFactory {
         return this.config;
     }
 
+    /**
+     * @param config the static system configuration
+     * @return the {@link CryptoMetrics} shared by the crypto implementations created by this factory
+     */
+    @Nonnull
+    protected static CryptoMetrics createMetrics(@Nonnull final Config config) {
+        if (config.hasPath(ConfigKeys.CRYPTO_METRICS_SLOW_THRESHOLD.getKey())) {
+            return new CryptoMetrics(
+                    config.getDuration(ConfigKeys.CRYPTO_METRICS_SLOW_THRESHOLD.getKey(), TimeUnit.MILLISECONDS));
+        }
+        return new CryptoMetrics();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public CryptoMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return the number of bytes to process in each chunk when encrypting and decrypting streams
+     */
+    protected int getBufferSize() {
+        if (getConfig().hasPath(ConfigKeys.CRYPTO_BUFFER_SIZE.getKey())) {
+            return getConfig().getBytes(ConfigKeys.CRYPTO_BUFFER_SIZE.getKey()).intValue();
+        }
+        return AESPasswordBasedEncryption.DEFAULT_BUFFER_SIZE;
+    }
+
+    /**
+     * @return the number of plain bytes in each independently encrypted chunk when encrypting and decrypting files
+     */
+    protected int getFileChunkSize() {
+        if (getConfig().hasPath(ConfigKeys.CRYPTO_FILE_CHUNK_SIZE.getKey())) {
+            return getConfig().getBytes(ConfigKeys.CRYPTO_FILE_CHUNK_SIZE.getKey()).intValue();
+        }
+        return ChunkedFileEncryption.DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * @return the {@link TextEncoding} used for the encrypted strings and signatures created by the crypto
+     *     implementations
+     */
+    @Nonnull
+    protected TextEncoding getTextEncoding() {
+        if (getConfig().hasPath(ConfigKeys.CRYPTO_TEXT_ENCODING.getKey())) {
+            return TextEncoding.valueOf(getConfig().getString(ConfigKeys.CRYPTO_TEXT_ENCODING.getKey()).toUpperCase());
+        }
+        return TextEncoding.HEX;
+    }
+
     /**
      * @return the shared secret defined for the system
      * @throws EncryptionException if there is a problem retrieving the shared secret value
@@ -63,8 +169,13 @@ public class DefaultCryptoFactory implements CryptoFactory {
      */
     @Override
     @Nonnull
-    public PasswordBasedEncryption getPasswordBasedEncryption() throws EncryptionException {
-        return new AESPasswordBasedEncryption(getSharedSecret().toCharArray());
+    public synchronized PasswordBasedEncryption getPasswordBasedEncryption() throws EncryptionException {
+        if (!this.passwordBasedEncryption.isPresent()) {
+            this.passwordBasedEncryption =
+                    Optional.of(new AESPasswordBasedEncryption(getSharedSecret().toCharArray(), getBufferSize(),
+                            getFileChunkSize(), getMetrics(), getTextEncoding()));
+        }
+        return this.passwordBasedEncryption.get();
     }
 
     /**
@@ -77,6 +188,7 @@ public class DefaultCryptoFactory implements CryptoFactory {
     @Nonnull
     protected KeyStore getStore(@Nonnull final String file, @Nonnull final String type, @Nonnull final char[] pass)
             throws EncryptionException {
+        final long start = System.nanoTime();
         try (final FileInputStream fis = new FileInputStream(Objects.requireNonNull(file))) {
             final KeyStore keyStore = KeyStore.getInstance(Objects.requireNonNull(type));
             keyStore.load(fis, Objects.requireNonNull(pass));
@@ -84,6 +196,8 @@ public class DefaultCryptoFactory implements CryptoFactory {
         } catch (final Exception exception) {
             throw new EncryptionException("Failed to load key store from file " + file + " (with type " + type + ")",
                     exception);
+        } finally {
+            getMetrics().record(CryptoOperation.KEYSTORE_LOAD, System.nanoTime() - start);
         }
     }
 
@@ -95,7 +209,7 @@ public class DefaultCryptoFactory implements CryptoFactory {
     protected KeyStore getKeyStore() throws EncryptionException {
         final String file = getConfig().getString(ConfigKeys.SSL_KEYSTORE_FILE.getKey());
         final String type = getConfig().getString(ConfigKeys.SSL_KEYSTORE_TYPE.getKey());
-        final char[] pass = getDecryptedConfig(ConfigKeys.SSL_KEYSTORE_PASSWORD.getKey()).toCharArray();
+        final char[] pass = getDecryptedConfigChars(ConfigKeys.SSL_KEYSTORE_PASSWORD.getKey());
         return getStore(file, type, pass);
     }
 
@@ -107,7 +221,7 @@ public class DefaultCryptoFactory implements CryptoFactory {
     protected KeyStore getTrustStore() throws EncryptionException {
         final String file = getConfig().getString(ConfigKeys.SSL_TRUSTSTORE_FILE.getKey());
         final String type = getConfig().getString(ConfigKeys.SSL_TRUSTSTORE_TYPE.getKey());
-        final char[] pass = getDecryptedConfig(ConfigKeys.SSL_TRUSTSTORE_PASSWORD.getKey()).toCharArray();
+        final char[] pass = getDecryptedConfigChars(ConfigKeys.SSL_TRUSTSTORE_PASSWORD.getKey());
         return getStore(file, type, pass);
     }
 
@@ -124,7 +238,7 @@ public class DefaultCryptoFactory implements CryptoFactory {
             }
             final String alias = keyStore.aliases().nextElement();
             if (keyStore.isKeyEntry(alias)) {
-                final char[] pass = getDecryptedConfig(ConfigKeys.SSL_KEYSTORE_PASSWORD.getKey()).toCharArray();
+                final char[] pass = getDecryptedConfigChars(ConfigKeys.SSL_KEYSTORE_PASSWORD.getKey());
                 final Key key = keyStore.getKey(alias, pass);
                 return new KeyPair(keyStore.getCertificate(alias).getPublicKey(), (PrivateKey) key);
             } else {
@@ -142,8 +256,36 @@ public class DefaultCryptoFactory implements CryptoFactory {
      */
     @Override
     @Nonnull
-    public SymmetricKeyEncryption getSymmetricKeyEncryption() throws EncryptionException {
-        return new AESSymmetricKeyEncryption(getSymmetricKeyPair());
+    public synchronized SymmetricKeyEncryption getSymmetricKeyEncryption() throws EncryptionException {
+        if (!this.symmetricKeyEncryption.isPresent()) {
+            this.symmetricKeyEncryption = Optional.of(createSymmetricKeyEncryption());
+        }
+        return this.symmetricKeyEncryption.get();
+    }
+
+    /**
+     * @return a new {@link AESSymmetricKeyEncryption} using the key pair loaded from the key store
+     * @throws EncryptionException if there is a problem loading the key pair
+     */
+    @Nonnull
+    protected AESSymmetricKeyEncryption createSymmetricKeyEncryption() throws EncryptionException {
+        return new AESSymmetricKeyEncryption(getSymmetricKeyPair(), getBufferSize(), getFileChunkSize(),
+                createDataKeyCache(), getMetrics(), getTextEncoding());
+    }
+
+    /**
+     * @return the cache of data keys to use for envelope encryption, or empty if envelope encryption is disabled
+     */
+    @Nonnull
+    protected Optional<DataKeyCache> createDataKeyCache() {
+        if (!getConfig().hasPath(ConfigKeys.CRYPTO_ENVELOPE_ENABLED.getKey())
+                || !getConfig().getBoolean(ConfigKeys.CRYPTO_ENVELOPE_ENABLED.getKey())) {
+            return Optional.empty();
+        }
+        final int maxMessages = getConfig().getInt(ConfigKeys.CRYPTO_ENVELOPE_MAX_MESSAGES.getKey());
+        final long maxAge = getConfig().getDuration(ConfigKeys.CRYPTO_ENVELOPE_MAX_AGE.getKey(), TimeUnit.MILLISECONDS);
+        final int cacheSize = getConfig().getInt(ConfigKeys.CRYPTO_ENVELOPE_CACHE_SIZE.getKey());
+        return Optional.of(new DataKeyCache(maxMessages, maxAge, cacheSize));
     }
 
     /**
@@ -151,7 +293,19 @@ public class DefaultCryptoFactory implements CryptoFactory {
      */
     @Override
     @Nonnull
-    public SSLContext getSSLContext() throws EncryptionException {
+    public synchronized SSLContext getSSLContext() throws EncryptionException {
+        if (!this.sslContext.isPresent()) {
+            this.sslContext = Optional.of(createSSLContext());
+        }
+        return this.sslContext.get();
+    }
+
+    /**
+     * @return a new {@link SSLContext} based on the static SSL configuration and the key store and trust store files
+     * @throws EncryptionException if there is a problem creating or initializing the {@link SSLContext}
+     */
+    @Nonnull
+    protected SSLContext createSSLContext() throws EncryptionException {
         try {
             if (!getConfig().getBoolean(ConfigKeys.SSL_ENABLED.getKey())) {
                 return SSLContext.getDefault();
@@ -160,7 +314,7 @@ public class DefaultCryptoFactory implements CryptoFactory {
             final KeyStore keyStore = getKeyStore();
             final KeyStore trustStore = getTrustStore();
 
-            final char[] pass = getDecryptedConfig(ConfigKeys.SSL_KEYSTORE_PASSWORD.getKey()).toCharArray();
+            final char[] pass = getDecryptedConfigChars(ConfigKeys.SSL_KEYSTORE_PASSWORD.getKey());
             final KeyManagerFactory keyManagerFactory =
                     KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
             keyManagerFactory.init(keyStore, pass);
@@ -172,6 +326,7 @@ public class DefaultCryptoFactory implements CryptoFactory {
             final SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(),
                     new SecureRandom());
+            configureSessions(sslContext.getClientSessionContext());
             return sslContext;
         } catch (final EncryptionException exception) {
             throw exception;
@@ -186,15 +341,224 @@ public class DefaultCryptoFactory implements CryptoFactory {
     @Override
     @Nonnull
     public String getDecryptedConfig(@Nonnull final String key) throws EncryptionException {
-        final String value = Objects.requireNonNull(getConfig()).getString(Objects.requireNonNull(key));
-        if (StringUtils.startsWith(value, "PBE{") && StringUtils.endsWith(value, "}")) {
-            return getPasswordBasedEncryption()
-                    .decryptString(value.substring(4, value.length() - 1), StandardCharsets.UTF_8);
-        } else if (StringUtils.startsWith(value, "SKE{") && StringUtils.endsWith(value, "}")) {
-            return getSymmetricKeyEncryption()
-                    .decryptString(value.substring(4, value.length() - 1), StandardCharsets.UTF_8);
+        final Optional<char[]> decrypted = getDecrypted(key);
+        if (decrypted.isPresent()) {
+            return new String(decrypted.get());
+        }
+        return getConfig().getString(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public char[] getDecryptedConfigChars(@Nonnull final String key) throws EncryptionException {
+        final Optional<char[]> decrypted = getDecrypted(key);
+        if (decrypted.isPresent()) {
+            return decrypted.get().clone();
+        }
+        return getConfig().getString(key).toCharArray();
+    }
+
+    /**
+     * @param key the key within the static system configuration for which the value should be retrieved
+     * @return the decrypted configuration value, possibly empty if the configuration value is not encrypted
+     * @throws EncryptionException if there is a problem performing the decryption
+     */
+    @Nonnull
+    protected Optional<char[]> getDecrypted(@Nonnull final String key) throws EncryptionException {
+        final char[] preloaded = this.preloadedConfig.get(Objects.requireNonNull(key));
+        if (preloaded != null) {
+            return Optional.of(preloaded);
+        }
+        final char[] cached = this.decryptedConfig.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        final String value = getConfig().getString(key);
+        if (!isEncrypted(value)) {
+            return Optional.empty();
+        }
+        final char[] decrypted = decrypt(value);
+        final char[] existing = this.decryptedConfig.putIfAbsent(key, decrypted);
+        if (existing != null) {
+            // Another thread decrypted the same value first.
+            Arrays.fill(decrypted, '\0');
+            return Optional.of(existing);
+        }
+        return Optional.of(decrypted);
+    }
+
+    /**
+     * @param value the configuration value to check
+     * @return whether the configuration value is wrapped in one of the encryption markers
+     */
+    protected static boolean isEncrypted(@Nullable final String value) {
+        return (StringUtils.startsWith(value, "PBE{") || StringUtils.startsWith(value, "SKE{"))
+                && StringUtils.endsWith(value, "}");
+    }
+
+    /**
+     * @param value the encrypted configuration value, including the encryption marker
+     * @return the decrypted configuration value
+     * @throws EncryptionException if there is a problem performing the decryption
+     */
+    @Nonnull
+    protected char[] decrypt(@Nonnull final String value) throws EncryptionException {
+        final String data = value.substring(4, value.length() - 1);
+        final byte[] decrypted;
+        if (value.startsWith("PBE{")) {
+            decrypted = getPasswordBasedEncryption().decrypt(TextEncoding.decode(data));
         } else {
-            return value;
+            decrypted = getSymmetricKeyEncryption().decrypt(TextEncoding.decode(data));
         }
+
+        final CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(decrypted));
+        final char[] result = Arrays.copyOf(chars.array(), chars.limit());
+        Arrays.fill(chars.array(), '\0');
+        Arrays.fill(decrypted, (byte) 0);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int decryptConfig(@Nonnull final ExecutorService executor) {
+        Objects.requireNonNull(executor);
+        final Map<String, CompletableFuture<char[]>> futures = new TreeMap<>();
+        for (final Map.Entry<String, ConfigValue> entry : getConfig().entrySet()) {
+            if (entry.getValue().valueType() == ConfigValueType.STRING) {
+                final String value = (String) entry.getValue().unwrapped();
+                if (isEncrypted(value)) {
+                    futures.put(entry.getKey(), CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return decrypt(value);
+                        } catch (final EncryptionException decryptFailed) {
+                            throw new CompletionException(decryptFailed);
+                        }
+                    }, executor));
+                }
+            }
+        }
+
+        final ImmutableMap.Builder<String, char[]> decrypted = ImmutableMap.builder();
+        for (final Map.Entry<String, CompletableFuture<char[]>> entry : futures.entrySet()) {
+            try {
+                decrypted.put(entry.getKey(), entry.getValue().join());
+            } catch (final CompletionException decryptFailed) {
+                LOG.warn("Failed to decrypt configuration value {}", entry.getKey(), decryptFailed.getCause());
+            }
+        }
+
+        final Map<String, char[]> preloaded = decrypted.build();
+        synchronized (this) {
+            clear(this.preloadedConfig);
+            this.preloadedConfig = preloaded;
+        }
+        return preloaded.size();
+    }
+
+    /**
+     * @param values the decrypted values to clear from memory
+     */
+    protected static void clear(@Nonnull final Map<String, char[]> values) {
+        values.values().forEach(value -> Arrays.fill(value, '\0'));
+    }
+
+    /**
+     * Size the TLS session cache so connections to other services resume previous sessions rather than performing a
+     * full handshake. Only client sessions are configured, since the embedded web server builds its own Jetty SSL
+     * context from the key store files and does not use this {@link SSLContext}.
+     *
+     * @param sessionContext the client {@link SSLSessionContext} to configure
+     */
+    protected void configureSessions(@Nonnull final SSLSessionContext sessionContext) {
+        if (getConfig().hasPath(ConfigKeys.SSL_SESSION_CACHE_SIZE.getKey())) {
+            sessionContext.setSessionCacheSize(getConfig().getInt(ConfigKeys.SSL_SESSION_CACHE_SIZE.getKey()));
+        }
+        if (getConfig().hasPath(ConfigKeys.SSL_SESSION_TIMEOUT.getKey())) {
+            sessionContext.setSessionTimeout(
+                    (int) getConfig().getDuration(ConfigKeys.SSL_SESSION_TIMEOUT.getKey(), TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Start watching the key store and trust store files, reloading them after they change. Nothing is watched when
+     * SSL is disabled.
+     *
+     * @throws EncryptionException if there is a problem watching the files
+     */
+    public synchronized void watchKeyStores() throws EncryptionException {
+        if (this.keyStoreWatcher.isPresent() || !getConfig().getBoolean(ConfigKeys.SSL_ENABLED.getKey())) {
+            return;
+        }
+        final List<Path> files = Arrays.asList(Paths.get(getConfig().getString(ConfigKeys.SSL_KEYSTORE_FILE.getKey())),
+                Paths.get(getConfig().getString(ConfigKeys.SSL_TRUSTSTORE_FILE.getKey())));
+        final long delay = getConfig().getDuration(ConfigKeys.SSL_RELOAD_DELAY.getKey(), TimeUnit.MILLISECONDS);
+        try {
+            this.keyStoreWatcher = Optional.of(new KeyStoreWatcher(files, delay, () -> {
+                try {
+                    reload();
+                } catch (final EncryptionException reloadFailed) {
+                    LOG.error("Failed to reload the key store and trust store, continuing with the current keys",
+                            reloadFailed);
+                }
+            }));
+        } catch (final IOException watchFailed) {
+            throw new EncryptionException("Failed to watch the key store and trust store files", watchFailed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reload() throws EncryptionException {
+        // Load everything from the new files before swapping, so a partially written file leaves the current keys.
+        final SSLContext newSslContext = createSSLContext();
+        final boolean symmetricKeyLoaded;
+        synchronized (this) {
+            symmetricKeyLoaded = this.symmetricKeyEncryption.isPresent();
+        }
+        final Optional<AESSymmetricKeyEncryption> newSymmetricKeyEncryption =
+                symmetricKeyLoaded ? Optional.of(createSymmetricKeyEncryption()) : Optional.empty();
+
+        synchronized (this) {
+            this.sslContext = Optional.of(newSslContext);
+            this.symmetricKeyEncryption.flatMap(AESSymmetricKeyEncryption::getDataKeyCache)
+                    .ifPresent(DataKeyCache::clear);
+            this.symmetricKeyEncryption = newSymmetricKeyEncryption;
+        }
+        LOG.info("Reloaded the key store and trust store");
+        this.reloadListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addReloadListener(@Nonnull final Runnable listener) {
+        this.reloadListeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() {
+        this.keyStoreWatcher.ifPresent(KeyStoreWatcher::close);
+        this.keyStoreWatcher = Optional.empty();
+        this.sslContext = Optional.empty();
+        clear(this.preloadedConfig);
+        this.preloadedConfig = ImmutableMap.of();
+        clear(this.decryptedConfig);
+        this.decryptedConfig.clear();
+        this.passwordBasedEncryption.ifPresent(AESPasswordBasedEncryption::clearCache);
+        this.passwordBasedEncryption = Optional.empty();
+        this.symmetricKeyEncryption.flatMap(AESSymmetricKeyEncryption::getDataKeyCache).ifPresent(DataKeyCache::clear);
+        this.symmetricKeyEncryption = Optional.empty();
     }
 }
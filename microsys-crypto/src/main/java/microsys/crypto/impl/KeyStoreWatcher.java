@@ -0,0 +1,142 @@
+package microsys.crypto.impl;
+
+import com.google.common.base.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Watches the key store and trust store files for changes, invoking a callback once the files have stopped changing.
+ * Certificate rotation tools typically write a file in several steps, so the callback is only invoked after no further
+ * changes have been seen for the configured delay.
+ */
+public class KeyStoreWatcher implements AutoCloseable {
+    private final static Logger LOG = LoggerFactory.getLogger(KeyStoreWatcher.class);
+
+    @Nonnull
+    private final Set<Path> files;
+    private final long delayMillis;
+    @Nonnull
+    private final Runnable onChange;
+    @Nonnull
+    private final WatchService watchService;
+    @Nonnull
+    private final Thread thread;
+
+    /**
+     * @param files the files to watch for changes
+     * @param delayMillis the amount of time, in milliseconds, without further changes before the callback is invoked
+     * @param onChange the callback invoked when the watched files have changed
+     * @throws IOException if there is a problem watching the directories containing the files
+     */
+    public KeyStoreWatcher(
+            @Nonnull final Collection<Path> files, final long delayMillis, @Nonnull final Runnable onChange)
+            throws IOException {
+        Preconditions.checkArgument(!Objects.requireNonNull(files).isEmpty(), "Files to watch must be provided");
+        Preconditions.checkArgument(delayMillis >= 0, "Delay must not be negative");
+        this.files = Collections.unmodifiableSet(
+                files.stream().map(Path::toAbsolutePath).map(Path::normalize).collect(Collectors.toSet()));
+        this.delayMillis = delayMillis;
+        this.onChange = Objects.requireNonNull(onChange);
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        final Set<Path> directories = new HashSet<>();
+        for (final Path file : this.files) {
+            if (directories.add(file.getParent())) {
+                file.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+
+        this.thread = new Thread(this::watch, "keystore-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return the files being watched for changes
+     */
+    @Nonnull
+    public Set<Path> getFiles() {
+        return this.files;
+    }
+
+    /**
+     * @return the amount of time, in milliseconds, without further changes before the callback is invoked
+     */
+    public long getDelayMillis() {
+        return this.delayMillis;
+    }
+
+    /**
+     * Wait for changes to the watched files, invoking the callback once the changes have settled.
+     */
+    protected void watch() {
+        try {
+            while (true) {
+                if (isChanged(this.watchService.take())) {
+                    // Wait for the files to stop changing before invoking the callback.
+                    WatchKey next;
+                    while ((next = this.watchService.poll(getDelayMillis(), TimeUnit.MILLISECONDS)) != null) {
+                        isChanged(next);
+                    }
+                    try {
+                        this.onChange.run();
+                    } catch (final Exception exception) {
+                        LOG.error("Failed to process key store change", exception);
+                    }
+                }
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException closed) {
+            // The watcher has been closed.
+        }
+    }
+
+    /**
+     * @param watchKey the {@link WatchKey} providing the file system events, which is reset afterwards
+     * @return whether any of the events are for one of the watched files
+     */
+    protected boolean isChanged(@Nonnull final WatchKey watchKey) {
+        final Path directory = (Path) watchKey.watchable();
+        boolean changed = false;
+        for (final WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || getFiles().contains(directory.resolve((Path) event.context()))) {
+                changed = true;
+            }
+        }
+        watchKey.reset();
+        return changed;
+    }
+
+    /**
+     * Stop watching for changes.
+     */
+    @Override
+    public void close() {
+        try {
+            this.watchService.close();
+        } catch (final IOException closeFailed) {
+            LOG.warn("Failed to close key store watcher", closeFailed);
+        }
+        this.thread.interrupt();
+    }
+}
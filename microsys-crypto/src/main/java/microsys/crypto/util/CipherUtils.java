@@ -0,0 +1,202 @@
+package microsys.crypto.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+
+/**
+ * Provides some cipher processing utility methods. {@link Cipher} and {@link Signature} instances are expensive to
+ * look up from the security providers and are not thread-safe, so they are cached per thread and re-initialized by
+ * the caller before each use.
+ */
+public class CipherUtils {
+    /**
+     * Provides the bytes of an encrypted data header from the underlying stream, channel, or buffer.
+     */
+    @FunctionalInterface
+    public interface HeaderSource {
+        /**
+         * @param length the number of header bytes to read
+         * @return the header bytes read from the underlying data
+         * @throws IOException if there is a problem reading the header bytes
+         */
+        @Nonnull
+        byte[] read(int length) throws IOException;
+    }
+
+    private final static ThreadLocal<Map<String, Cipher>> CIPHERS = ThreadLocal.withInitial(HashMap::new);
+    private final static ThreadLocal<Map<String, Signature>> SIGNATURES = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * @param transformation the name of the cipher transformation, for example {@code AES/CBC/PKCS5Padding}
+     * @return the {@link Cipher} for the transformation cached for the current thread, which must be initialized
+     *     before use
+     * @throws GeneralSecurityException if the transformation is not supported
+     */
+    @Nonnull
+    public static Cipher getCipher(@Nonnull final String transformation) throws GeneralSecurityException {
+        final Map<String, Cipher> ciphers = CIPHERS.get();
+        Cipher cipher = ciphers.get(Objects.requireNonNull(transformation));
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation);
+            ciphers.put(transformation, cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * @param algorithm the name of the signature algorithm, for example {@code SHA1withRSA}
+     * @return the {@link Signature} for the algorithm cached for the current thread, which must be initialized
+     *     before use
+     * @throws GeneralSecurityException if the algorithm is not supported
+     */
+    @Nonnull
+    public static Signature getSignature(@Nonnull final String algorithm) throws GeneralSecurityException {
+        final Map<String, Signature> signatures = SIGNATURES.get();
+        Signature signature = signatures.get(Objects.requireNonNull(algorithm));
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm);
+            signatures.put(algorithm, signature);
+        }
+        return signature;
+    }
+
+    /**
+     * Pass all of the data from the input stream through the initialized cipher, writing the results to the output
+     * stream. The input and output buffers are allocated once and reused for every chunk.
+     *
+     * @param cipher the initialized {@link Cipher} used to process the data
+     * @param input the stream providing the data to process
+     * @param output the stream to which the processed data is written
+     * @param bufferSize the number of bytes to process in each chunk
+     * @throws IOException if there is a problem reading or writing the data
+     * @throws GeneralSecurityException if there is a problem processing the data
+     */
+    public static void process(
+            @Nonnull final Cipher cipher, @Nonnull final InputStream input, @Nonnull final OutputStream output,
+            final int bufferSize) throws IOException, GeneralSecurityException {
+        final byte[] inBuffer = new byte[bufferSize];
+        final byte[] outBuffer = new byte[getOutputBufferSize(cipher, bufferSize)];
+        int numRead;
+        while ((numRead = input.read(inBuffer)) >= 0) {
+            if (numRead > 0) {
+                output.write(outBuffer, 0, cipher.update(inBuffer, 0, numRead, outBuffer));
+            }
+        }
+        output.write(outBuffer, 0, cipher.doFinal(outBuffer, 0));
+    }
+
+    /**
+     * Pass all of the data from the input channel through the initialized cipher, writing the results to the output
+     * channel. Direct buffers are allocated once and reused for every chunk.
+     *
+     * @param cipher the initialized {@link Cipher} used to process the data
+     * @param input the channel providing the data to process
+     * @param output the channel to which the processed data is written
+     * @param bufferSize the number of bytes to process in each chunk
+     * @throws IOException if there is a problem reading or writing the data
+     * @throws GeneralSecurityException if there is a problem processing the data
+     */
+    public static void process(
+            @Nonnull final Cipher cipher, @Nonnull final ReadableByteChannel input,
+            @Nonnull final WritableByteChannel output, final int bufferSize)
+            throws IOException, GeneralSecurityException {
+        final ByteBuffer inBuffer = ByteBuffer.allocateDirect(bufferSize);
+        final ByteBuffer outBuffer = ByteBuffer.allocateDirect(getOutputBufferSize(cipher, bufferSize));
+        while (input.read(inBuffer) >= 0) {
+            inBuffer.flip();
+            cipher.update(inBuffer, outBuffer);
+            inBuffer.clear();
+            writeFully(output, outBuffer);
+        }
+        inBuffer.flip();
+        cipher.doFinal(inBuffer, outBuffer);
+        writeFully(output, outBuffer);
+    }
+
+    /**
+     * @param cipher the initialized {@link Cipher} that will write into the output buffer
+     * @param bufferSize the number of input bytes processed in each chunk
+     * @return the output buffer size large enough to hold the results of any chunk, including any data the cipher
+     *     holds back from a previous chunk, and the final block
+     */
+    protected static int getOutputBufferSize(@Nonnull final Cipher cipher, final int bufferSize) {
+        Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive");
+        return cipher.getOutputSize(bufferSize) + 2 * Math.max(cipher.getBlockSize(), 1);
+    }
+
+    /**
+     * @param output the channel to which the buffered data is written
+     * @param buffer the buffer in write mode holding the data to write, which is cleared afterwards
+     * @throws IOException if there is a problem writing the data
+     */
+    protected static void writeFully(@Nonnull final WritableByteChannel output, @Nonnull final ByteBuffer buffer)
+            throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * @param input the channel from which data is read
+     * @param length the number of bytes to read
+     * @return the bytes read from the channel
+     * @throws IOException if there is a problem reading the data, or the channel ends before all the bytes are read
+     */
+    @Nonnull
+    public static byte[] readFully(@Nonnull final ReadableByteChannel input, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (input.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of encrypted data");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param input the buffer from which data is read
+     * @param length the number of bytes to read
+     * @return the bytes read from the buffer
+     * @throws IOException if the buffer does not hold enough bytes
+     */
+    @Nonnull
+    public static byte[] readFully(@Nonnull final ByteBuffer input, final int length) throws IOException {
+        if (input.remaining() < length) {
+            throw new EOFException("Unexpected end of encrypted data");
+        }
+        final byte[] data = new byte[length];
+        input.get(data);
+        return data;
+    }
+
+    /**
+     * @param input the stream from which data is read
+     * @param length the number of bytes to read
+     * @return the bytes read from the stream
+     * @throws IOException if there is a problem reading the data, or the stream ends before all the bytes are read
+     */
+    @Nonnull
+    public static byte[] readFully(@Nonnull final InputStream input, final int length) throws IOException {
+        final byte[] data = new byte[length];
+        ByteStreams.readFully(input, data);
+        return data;
+    }
+}
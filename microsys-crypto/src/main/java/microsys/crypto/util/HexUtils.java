@@ -1,35 +1,121 @@
 package microsys.crypto.util;
 
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
 /**
- * Provides some hex processing utility methods.
+ * Provides some hex processing utility methods. Decoding uses a lookup table rather than {@link Character#digit}, and
+ * the overloads that accept a destination write directly into caller-provided storage so no intermediate arrays or
+ * strings are allocated.
  */
 public class HexUtils {
     protected final static char[] HEX_ARRAY = "0123456789abcdef".toCharArray();
 
+    // Maps each ASCII character to its hex digit value, or -1 when the character is not a hex digit
+    private final static byte[] DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int digit = 0; digit < 10; digit++) {
+            DIGITS['0' + digit] = (byte) digit;
+        }
+        for (int digit = 0; digit < 6; digit++) {
+            DIGITS['a' + digit] = (byte) (10 + digit);
+            DIGITS['A' + digit] = (byte) (10 + digit);
+        }
+    }
+
     /**
      * @param bytes the byte array to be converted into a string of hex characters
      * @return the string of hex characters
      */
-    public static String bytesToHex(final byte[] bytes) {
-        final char[] hexChars = new char[bytes.length * 2];
-        for (int j = 0; j < bytes.length; j++) {
-            final int v = bytes[j] & 0xFF;
-            hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-            hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
-        }
+    @Nonnull
+    public static String bytesToHex(@Nonnull final byte[] bytes) {
+        final char[] hexChars = new char[Objects.requireNonNull(bytes).length * 2];
+        bytesToHex(bytes, hexChars, 0);
         return new String(hexChars);
     }
 
+    /**
+     * @param bytes the byte array to be converted into hex characters
+     * @param dest the array into which the hex characters are written
+     * @param offset the index in the destination array at which the first hex character is written
+     * @return the index in the destination array following the last hex character written
+     */
+    public static int bytesToHex(@Nonnull final byte[] bytes, @Nonnull final char[] dest, final int offset) {
+        Objects.requireNonNull(bytes);
+        Objects.requireNonNull(dest);
+        Preconditions.checkArgument(offset >= 0 && offset + bytes.length * 2 <= dest.length,
+                "Destination array too small");
+        int index = offset;
+        for (final byte b : bytes) {
+            final int v = b & 0xFF;
+            dest[index++] = HEX_ARRAY[v >>> 4];
+            dest[index++] = HEX_ARRAY[v & 0x0F];
+        }
+        return index;
+    }
+
+    /**
+     * @param bytes the byte array to be converted into hex characters
+     * @param dest the {@link Appendable} to which the hex characters are appended
+     * @throws IOException if there is a problem appending to the destination
+     */
+    public static void bytesToHex(@Nonnull final byte[] bytes, @Nonnull final Appendable dest) throws IOException {
+        Objects.requireNonNull(bytes);
+        Objects.requireNonNull(dest);
+        for (final byte b : bytes) {
+            final int v = b & 0xFF;
+            dest.append(HEX_ARRAY[v >>> 4]);
+            dest.append(HEX_ARRAY[v & 0x0F]);
+        }
+    }
+
     /**
      * @param hex the hex string to convert into a byte array
      * @return the byte array represented by the hex string
+     * @throws IllegalArgumentException if the string has an odd length or contains characters that are not hex digits
+     */
+    @Nonnull
+    public static byte[] hexToBytes(@Nonnull final CharSequence hex) {
+        final ByteBuffer data = ByteBuffer.allocate(Objects.requireNonNull(hex).length() / 2);
+        hexToBytes(hex, data);
+        return data.array();
+    }
+
+    /**
+     * @param hex the hex characters to convert into bytes
+     * @param dest the {@link ByteBuffer} into which the bytes are written, starting at its current position
+     * @throws IllegalArgumentException if the characters have an odd length or contain characters that are not hex
+     *     digits
+     * @throws java.nio.BufferOverflowException if the destination buffer does not have enough space remaining
      */
-    public static byte[] hexToBytes(final String hex) {
+    public static void hexToBytes(@Nonnull final CharSequence hex, @Nonnull final ByteBuffer dest) {
+        Objects.requireNonNull(hex);
+        Objects.requireNonNull(dest);
         final int len = hex.length();
-        final byte[] data = new byte[len / 2];
+        Preconditions.checkArgument(len % 2 == 0, "Hex string length must be even");
         for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4) + Character.digit(hex.charAt(i + 1), 16));
+            dest.put((byte) ((digit(hex.charAt(i)) << 4) | digit(hex.charAt(i + 1))));
+        }
+    }
+
+    /**
+     * @param c the hex character
+     * @return the value of the hex digit
+     * @throws IllegalArgumentException if the character is not a hex digit
+     */
+    private static int digit(final char c) {
+        final int value = c < DIGITS.length ? DIGITS[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid hex character: " + c);
         }
-        return data;
+        return value;
     }
 }
@@ -0,0 +1,99 @@
+package microsys.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Perform testing on the {@link CryptoMetrics} class.
+ */
+public class CryptoMetricsTest {
+    @Test
+    public void testDefaultThreshold() {
+        assertEquals(CryptoMetrics.DEFAULT_SLOW_THRESHOLD_MILLIS, new CryptoMetrics().getSlowThresholdMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeThreshold() {
+        new CryptoMetrics(-1);
+    }
+
+    @Test
+    public void testRecord() {
+        final CryptoMetrics metrics = new CryptoMetrics(100);
+        metrics.record(CryptoOperation.SIGN, TimeUnit.MICROSECONDS.toNanos(50));
+        metrics.record(CryptoOperation.SIGN, TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.record(CryptoOperation.SIGN, TimeUnit.SECONDS.toNanos(2));
+
+        final CryptoMetrics.OperationStats stats = metrics.getStats(CryptoOperation.SIGN);
+        assertEquals(3, stats.getCount());
+        assertEquals(TimeUnit.SECONDS.toNanos(2), stats.getMaxNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(2005050), stats.getTotalNanos());
+        assertEquals(668.35, stats.getMeanMillis(), 0.001);
+        assertArrayEquals(new long[] {1, 0, 1, 0, 0, 1}, stats.getHistogram());
+
+        // Other operations are unaffected.
+        assertEquals(0, metrics.getStats(CryptoOperation.VERIFY).getCount());
+        assertEquals(0d, metrics.getStats(CryptoOperation.VERIFY).getMeanMillis(), 0.001);
+    }
+
+    @Test
+    public void testGetCaller() {
+        // The test itself lives in the crypto package, so the caller is the test framework that invoked it.
+        final String caller = CryptoMetrics.getCaller();
+        assertFalse(caller.startsWith("microsys.crypto."));
+        assertFalse(caller.startsWith("java."));
+        assertTrue(caller.startsWith("org.junit."));
+    }
+
+    @Test
+    public void testGetCallerSkipsJdkFrames() {
+        final StackTraceElement[] stack = {
+                new StackTraceElement("java.lang.Thread", "getStackTrace", "Thread.java", 1559),
+                new StackTraceElement("microsys.crypto.CryptoMetrics", "record", "CryptoMetrics.java", 80),
+                new StackTraceElement("jdk.internal.reflect.NativeMethodAccessorImpl", "invoke0", null, -2),
+                new StackTraceElement("jdk.proxy2.$Proxy12", "sign", null, -1),
+                new StackTraceElement("microsys.security.Signer", "sign", "Signer.java", 42),
+        };
+        assertEquals("microsys.security.Signer.sign(Signer.java:42)", CryptoMetrics.getCaller(stack));
+    }
+
+    @Test
+    public void testGetCallerUnknown() {
+        final StackTraceElement[] stack = {
+                new StackTraceElement("jdk.internal.misc.Unsafe", "park", null, -2),
+        };
+        assertEquals("unknown", CryptoMetrics.getCaller(stack));
+    }
+
+    @Test
+    public void testBucketBounds() {
+        assertArrayEquals(new long[] {100, 1_000, 10_000, 100_000, 1_000_000},
+                CryptoMetrics.OperationStats.getBucketBounds());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStatsWrongHistogram() {
+        new CryptoMetrics.OperationStats(0, 0, 0, new long[2]);
+    }
+
+    @Test
+    public void testToJson() {
+        final CryptoMetrics metrics = new CryptoMetrics();
+        metrics.record(CryptoOperation.VERIFY, TimeUnit.MILLISECONDS.toNanos(2));
+
+        final JsonObject json = metrics.toJson();
+        assertEquals(CryptoOperation.values().length, json.entrySet().size());
+        assertEquals("{\"count\":1,\"meanMillis\":2.0,\"maxMillis\":2.0,\"histogram\":[{\"lessThanMicros\":100,"
+                + "\"count\":0},{\"lessThanMicros\":1000,\"count\":0},{\"lessThanMicros\":10000,\"count\":1},"
+                + "{\"lessThanMicros\":100000,\"count\":0},{\"lessThanMicros\":1000000,\"count\":0},{\"count\":0}]}",
+                json.get("verify").toString());
+    }
+}
@@ -0,0 +1,24 @@
+package microsys.crypto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Perform testing on the {@link CryptoOperation} enumeration.
+ */
+public class CryptoOperationTest {
+    @Test
+    public void test() {
+        // Only here for 100% coverage.
+        assertTrue(CryptoOperation.values().length > 0);
+        assertEquals(CryptoOperation.SIGN, CryptoOperation.valueOf(CryptoOperation.SIGN.name()));
+    }
+
+    @Test
+    public void testGetName() {
+        assertEquals("sign", CryptoOperation.SIGN.getName());
+        assertEquals("keystore.load", CryptoOperation.KEYSTORE_LOAD.getName());
+    }
+}
@@ -0,0 +1,50 @@
+package microsys.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Perform testing on the {@link TextEncoding} enumeration.
+ */
+public class TextEncodingTest {
+    private final static byte[] DATA = {0x01, (byte) 0xFB, (byte) 0xFF, 0x3E};
+
+    @Test
+    public void test() {
+        // Only here for 100% coverage.
+        assertTrue(TextEncoding.values().length > 0);
+        assertEquals(TextEncoding.HEX, TextEncoding.valueOf(TextEncoding.HEX.name()));
+    }
+
+    @Test
+    public void testHex() throws EncryptionException {
+        assertEquals("01fbff3e", TextEncoding.HEX.encode(DATA));
+        assertArrayEquals(DATA, TextEncoding.decode(TextEncoding.HEX.encode(DATA)));
+    }
+
+    @Test
+    public void testBase64Url() throws EncryptionException {
+        // URL-safe characters and no padding.
+        assertEquals("b64:Afv_Pg", TextEncoding.BASE64URL.encode(DATA));
+        assertArrayEquals(DATA, TextEncoding.decode(TextEncoding.BASE64URL.encode(DATA)));
+    }
+
+    @Test
+    public void testBase64UrlShorter() {
+        final byte[] signature = new byte[256];
+        assertTrue(TextEncoding.BASE64URL.encode(signature).length() < TextEncoding.HEX.encode(signature).length());
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecodeInvalidHex() throws EncryptionException {
+        TextEncoding.decode("xyz");
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecodeInvalidBase64() throws EncryptionException {
+        TextEncoding.decode("b64:***");
+    }
+}
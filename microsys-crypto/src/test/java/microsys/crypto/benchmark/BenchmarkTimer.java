@@ -0,0 +1,84 @@
+package microsys.crypto.benchmark;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A minimal timing harness used by the crypto benchmarks. Each operation is warmed up, then run repeatedly for a
+ * fixed duration and reported in operations per second. The benchmark classes are not named {@code *Test} or
+ * {@code *IT}, so surefire never runs them. Run them after {@code mvn test-compile} with the module and test classes
+ * and the module dependencies on the class path, for example:
+ * <pre>
+ * mvn -pl microsys-crypto dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp microsys-crypto/target/classes:microsys-crypto/target/test-classes:$(cat microsys-crypto/target/cp.txt) \
+ *     microsys.crypto.benchmark.PasswordBasedEncryptionBenchmark
+ * </pre>
+ */
+public class BenchmarkTimer {
+    // How long to run each operation before and while measuring - arbitrary
+    public final static long DEFAULT_WARMUP_MILLIS = 2_000;
+    public final static long DEFAULT_MEASURE_MILLIS = 5_000;
+
+    // Folds in the result of every operation so the JIT cannot remove the work being measured
+    private static volatile int sink;
+
+    private final long warmupNanos;
+    private final long measureNanos;
+
+    /**
+     * Create a timer using the default warm up and measurement durations.
+     */
+    public BenchmarkTimer() {
+        this(DEFAULT_WARMUP_MILLIS, DEFAULT_MEASURE_MILLIS);
+    }
+
+    /**
+     * @param warmupMillis how long to run each operation before measuring it, in milliseconds
+     * @param measureMillis how long to run each operation while measuring it, in milliseconds
+     */
+    public BenchmarkTimer(final long warmupMillis, final long measureMillis) {
+        Preconditions.checkArgument(warmupMillis >= 0, "Warm up time must not be negative");
+        Preconditions.checkArgument(measureMillis > 0, "Measurement time must be positive");
+        this.warmupNanos = TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        this.measureNanos = TimeUnit.MILLISECONDS.toNanos(measureMillis);
+    }
+
+    /**
+     * @param name the name of the operation to print with the result
+     * @param operation the operation to measure
+     * @return the measured number of operations per second
+     * @throws Exception if the operation fails
+     */
+    public double measure(@Nonnull final String name, @Nonnull final Callable<?> operation) throws Exception {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(operation);
+        run(operation, this.warmupNanos);
+
+        final long start = System.nanoTime();
+        final long count = run(operation, this.measureNanos);
+        final double opsPerSecond = count / ((double) (System.nanoTime() - start) / TimeUnit.SECONDS.toNanos(1));
+        System.out.println(String.format("%-50s %14.1f ops/s", name, opsPerSecond));
+        return opsPerSecond;
+    }
+
+    /**
+     * @param operation the operation to run
+     * @param durationNanos how long to keep running the operation, in nanoseconds
+     * @return the number of times the operation was run, always at least once
+     * @throws Exception if the operation fails
+     */
+    protected static long run(@Nonnull final Callable<?> operation, final long durationNanos) throws Exception {
+        final long end = System.nanoTime() + durationNanos;
+        long count = 0;
+        do {
+            sink += Objects.hashCode(operation.call());
+            count++;
+        } while (System.nanoTime() < end);
+        return count;
+    }
+}
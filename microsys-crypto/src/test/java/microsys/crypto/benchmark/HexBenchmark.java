@@ -0,0 +1,55 @@
+package microsys.crypto.benchmark;
+
+import microsys.crypto.TextEncoding;
+import microsys.crypto.util.HexUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Compares the table-driven {@link HexUtils} codec against the previous {@link Character#digit} based decoding, the
+ * allocation-free overloads against the string ones, and the hex and Base64 {@link TextEncoding} representations.
+ */
+public class HexBenchmark {
+    // The size of the encoded data, that of an RSA 2048 signature - arbitrary
+    private final static int DATA_SIZE = 256;
+
+    /**
+     * @param args unused
+     * @throws Exception if any of the benchmarked operations fail
+     */
+    public static void main(final String... args) throws Exception {
+        final byte[] data = new byte[DATA_SIZE];
+        new Random(0).nextBytes(data);
+        final String hex = HexUtils.bytesToHex(data);
+        final String base64 = TextEncoding.BASE64URL.encode(data);
+        final char[] chars = new char[hex.length()];
+        final ByteBuffer buffer = ByteBuffer.allocate(data.length);
+
+        final BenchmarkTimer timer = new BenchmarkTimer();
+        timer.measure("hexToBytes, Character.digit", () -> digitHexToBytes(hex));
+        timer.measure("hexToBytes, lookup table", () -> HexUtils.hexToBytes(hex));
+        timer.measure("hexToBytes, into a ByteBuffer", () -> {
+            buffer.clear();
+            HexUtils.hexToBytes(hex, buffer);
+            return buffer.get(0);
+        });
+        timer.measure("bytesToHex, new String", () -> HexUtils.bytesToHex(data));
+        timer.measure("bytesToHex, into a char[]", () -> HexUtils.bytesToHex(data, chars, 0));
+        timer.measure("TextEncoding.HEX encode", () -> TextEncoding.HEX.encode(data));
+        timer.measure("TextEncoding.BASE64URL encode", () -> TextEncoding.BASE64URL.encode(data));
+        timer.measure("TextEncoding decode hex", () -> TextEncoding.decode(hex));
+        timer.measure("TextEncoding decode Base64", () -> TextEncoding.decode(base64));
+        System.out.println(String.format("Encoded length: hex %d, Base64 %d", hex.length(), base64.length()));
+    }
+
+    private static byte[] digitHexToBytes(final String hex) {
+        // The decoding used before the lookup table was added.
+        final int len = hex.length();
+        final byte[] data = new byte[len / 2];
+        for (int i = 0; i < len; i += 2) {
+            data[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4) + Character.digit(hex.charAt(i + 1), 16));
+        }
+        return data;
+    }
+}
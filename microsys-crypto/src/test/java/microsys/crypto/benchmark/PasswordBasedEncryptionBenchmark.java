@@ -0,0 +1,72 @@
+package microsys.crypto.benchmark;
+
+import static microsys.common.config.ConfigKeys.SHARED_SECRET_VARIABLE;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+
+import microsys.crypto.impl.AESPasswordBasedEncryption;
+import microsys.crypto.impl.DefaultCryptoFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the savings from caching derived password-based encryption keys and memoizing decrypted configuration
+ * values. The uncached cases derive a new key on every decryption, which is what happened for every encrypted
+ * configuration lookup before the caches were added.
+ */
+public class PasswordBasedEncryptionBenchmark {
+    // The number of encrypted configuration lookups made while a service starts, one each for the key store and
+    // trust store passwords in the key store, trust store, SSL context and symmetric key pair loading
+    private final static int STARTUP_LOOKUPS = 4;
+
+    /**
+     * @param args unused
+     * @throws Exception if any of the benchmarked operations fail
+     */
+    public static void main(final String... args) throws Exception {
+        final char[] password = "secret".toCharArray();
+        final String encrypted =
+                new AESPasswordBasedEncryption(password).encryptString("changeit", StandardCharsets.UTF_8);
+        final Config config = createConfig(encrypted);
+
+        final BenchmarkTimer timer = new BenchmarkTimer();
+        final AESPasswordBasedEncryption shared = new AESPasswordBasedEncryption(password);
+        final double uncached = timer.measure("decrypt, key derived each time",
+                () -> new AESPasswordBasedEncryption(password).decryptString(encrypted, StandardCharsets.UTF_8));
+        final double cached = timer.measure("decrypt, cached key",
+                () -> shared.decryptString(encrypted, StandardCharsets.UTF_8));
+
+        final double startupUncached = timer.measure("startup lookups, key derived each time", () -> {
+            String value = null;
+            for (int lookup = 0; lookup < STARTUP_LOOKUPS; lookup++) {
+                value = new AESPasswordBasedEncryption(password).decryptString(encrypted, StandardCharsets.UTF_8);
+            }
+            return value;
+        });
+        final double startupMemoized = timer.measure("startup lookups, memoized by the crypto factory", () -> {
+            final DefaultCryptoFactory crypto = new DefaultCryptoFactory(config);
+            String value = null;
+            for (int lookup = 0; lookup < STARTUP_LOOKUPS; lookup++) {
+                value = crypto.getDecryptedConfig("password");
+            }
+            crypto.close();
+            return value;
+        });
+
+        System.out.println(String.format("Cached decrypt speedup: %.1fx, startup lookup speedup: %.1fx",
+                cached / uncached, startupMemoized / startupUncached));
+    }
+
+    private static Config createConfig(final String encrypted) {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put("SHARED_SECRET", ConfigValueFactory.fromAnyRef("secret"));
+        map.put(SHARED_SECRET_VARIABLE.getKey(), ConfigValueFactory.fromAnyRef("SHARED_SECRET"));
+        map.put("password", ConfigValueFactory.fromAnyRef("PBE{" + encrypted + "}"));
+        return ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
+    }
+}
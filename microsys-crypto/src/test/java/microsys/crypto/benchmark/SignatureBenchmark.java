@@ -0,0 +1,59 @@
+package microsys.crypto.benchmark;
+
+import microsys.crypto.impl.AESSymmetricKeyEncryption;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Compares the number of signs and verifies per second for each type of key pair supported by
+ * {@link AESSymmetricKeyEncryption}. Ed25519 is skipped when the running JDK does not provide it.
+ */
+public class SignatureBenchmark {
+    // The size of the data being signed, roughly that of a service response header - arbitrary
+    private final static int DATA_SIZE = 256;
+
+    /**
+     * @param args unused
+     * @throws Exception if any of the benchmarked operations fail
+     */
+    public static void main(final String... args) throws Exception {
+        final byte[] data = new byte[DATA_SIZE];
+        Arrays.fill(data, (byte) 'x');
+
+        final BenchmarkTimer timer = new BenchmarkTimer();
+        benchmark(timer, data, "RSA", 2048);
+        benchmark(timer, data, "EC", 256);
+        benchmark(timer, data, "Ed25519", 0);
+    }
+
+    private static void benchmark(final BenchmarkTimer timer, final byte[] data, final String algorithm, final int size)
+            throws Exception {
+        final Optional<KeyPair> keyPair = generate(algorithm, size);
+        if (!keyPair.isPresent()) {
+            System.out.println(String.format("%-50s %14s", algorithm, "not available"));
+            return;
+        }
+
+        final AESSymmetricKeyEncryption ske = new AESSymmetricKeyEncryption(keyPair.get());
+        final byte[] signature = ske.sign(data);
+        final String name = ske.getSignatureAlgorithm() + " (" + signature.length + " byte signature)";
+        timer.measure("sign " + name, () -> ske.sign(data));
+        timer.measure("verify " + name, () -> ske.verify(data, signature));
+    }
+
+    private static Optional<KeyPair> generate(final String algorithm, final int size) {
+        try {
+            final KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+            if (size > 0) {
+                generator.initialize(size);
+            }
+            return Optional.of(generator.generateKeyPair());
+        } catch (final NoSuchAlgorithmException unavailable) {
+            return Optional.empty();
+        }
+    }
+}
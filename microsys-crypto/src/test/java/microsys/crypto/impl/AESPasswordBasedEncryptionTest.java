@@ -3,21 +3,35 @@ package microsys.crypto.impl;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
+import microsys.crypto.CryptoMetrics;
+import microsys.crypto.CryptoOperation;
 import microsys.crypto.EncryptionException;
+import microsys.crypto.TextEncoding;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.Random;
 
 /**
  * Perform testing on the {@link AESPasswordBasedEncryption} class.
  */
 public class AESPasswordBasedEncryptionTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void testRoundTripStreamSameAES() throws EncryptionException, IOException {
         final AESPasswordBasedEncryption aes = new AESPasswordBasedEncryption("password".toCharArray());
@@ -39,6 +53,27 @@ public class AESPasswordBasedEncryptionTest {
         assertTrue(Objects.deepEquals(original, decrypted));
     }
 
+    @Test
+    public void testDerivedKeyCache() throws EncryptionException {
+        final AESPasswordBasedEncryption aes = Mockito.spy(new AESPasswordBasedEncryption("password".toCharArray()));
+
+        final byte[] original = {0x01, 0x02, 0x03, (byte) 0xFD, (byte) 0xFE, (byte) 0xFF};
+        final byte[] encrypted = aes.encrypt(original);
+        assertEquals(0, aes.getCachedKeyCount());
+
+        assertTrue(Objects.deepEquals(original, aes.decrypt(encrypted)));
+        assertTrue(Objects.deepEquals(original, aes.decrypt(encrypted)));
+        assertEquals(1, aes.getCachedKeyCount());
+
+        aes.decrypt(aes.encrypt(original));
+        assertEquals(2, aes.getCachedKeyCount());
+
+        aes.clearCache();
+        assertEquals(0, aes.getCachedKeyCount());
+        assertTrue(Objects.deepEquals(original, aes.decrypt(encrypted)));
+        assertEquals(1, aes.getCachedKeyCount());
+    }
+
     @Test
     public void testRoundTripStreamMultipleAES() throws EncryptionException, IOException {
         final AESPasswordBasedEncryption aes1 = new AESPasswordBasedEncryption("password".toCharArray());
@@ -172,4 +207,125 @@ public class AESPasswordBasedEncryptionTest {
 
         aes.decrypt(input, output);
     }
+
+    @Test
+    public void testRoundTripChannel() throws EncryptionException, IOException {
+        final AESPasswordBasedEncryption aes = new AESPasswordBasedEncryption("password".toCharArray());
+
+        final byte[] original = new byte[100_000];
+        new Random(1).nextBytes(original);
+        final ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        aes.encrypt(Channels.newChannel(new ByteArrayInputStream(original)), Channels.newChannel(encrypted));
+
+        final ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        aes.decrypt(Channels.newChannel(new ByteArrayInputStream(encrypted.toByteArray())),
+                Channels.newChannel(decrypted));
+        assertTrue(Objects.deepEquals(original, decrypted.toByteArray()));
+
+        // The channel format is the same as the stream format.
+        assertTrue(Objects.deepEquals(original, aes.decrypt(encrypted.toByteArray())));
+    }
+
+    @Test
+    public void testRoundTripByteBuffer() throws EncryptionException {
+        final AESPasswordBasedEncryption aes = new AESPasswordBasedEncryption("password".toCharArray());
+
+        final byte[] original = new byte[5000];
+        new Random(2).nextBytes(original);
+        final ByteBuffer encrypted = ByteBuffer.allocateDirect(original.length + 1024);
+        aes.encrypt(ByteBuffer.wrap(original), encrypted);
+        encrypted.flip();
+
+        final ByteBuffer decrypted = ByteBuffer.allocateDirect(original.length + 1024);
+        aes.decrypt(encrypted, decrypted);
+        decrypted.flip();
+
+        final byte[] result = new byte[decrypted.remaining()];
+        decrypted.get(result);
+        assertTrue(Objects.deepEquals(original, result));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testEncryptByteBufferTooSmall() throws EncryptionException {
+        final AESPasswordBasedEncryption aes = new AESPasswordBasedEncryption("password".toCharArray());
+        aes.encrypt(ByteBuffer.wrap(new byte[100]), ByteBuffer.allocate(10));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecryptByteBufferTruncated() throws EncryptionException {
+        final AESPasswordBasedEncryption aes = new AESPasswordBasedEncryption("password".toCharArray());
+        aes.decrypt(ByteBuffer.wrap(new byte[] {0x01}), ByteBuffer.allocate(10));
+    }
+
+    @Test
+    public void testRoundTripSmallBufferSize() throws EncryptionException {
+        final AESPasswordBasedEncryption aes = new AESPasswordBasedEncryption("password".toCharArray(), 3);
+        assertEquals(3, aes.getBufferSize());
+
+        final byte[] original = new byte[1000];
+        new Random(3).nextBytes(original);
+        assertTrue(Objects.deepEquals(original, aes.decrypt(aes.encrypt(original))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBufferSize() throws EncryptionException {
+        new AESPasswordBasedEncryption("password".toCharArray(), 0);
+    }
+
+    @Test
+    public void testRoundTripFile() throws EncryptionException, IOException {
+        final AESPasswordBasedEncryption aes1 = new AESPasswordBasedEncryption("password".toCharArray(), 1024);
+        final AESPasswordBasedEncryption aes2 = new AESPasswordBasedEncryption("password".toCharArray(), 4096);
+
+        final byte[] original = new byte[10000];
+        new Random().nextBytes(original);
+        final Path input = Files.write(this.tmp.newFile().toPath(), original);
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        final Path decrypted = this.tmp.getRoot().toPath().resolve("decrypted");
+
+        aes1.encryptFile(input, encrypted);
+        aes2.decryptFile(encrypted, decrypted);
+        assertTrue(Arrays.equals(original, Files.readAllBytes(decrypted)));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecryptFileWrongPassword() throws EncryptionException, IOException {
+        final AESPasswordBasedEncryption aes1 = new AESPasswordBasedEncryption("password".toCharArray());
+        final AESPasswordBasedEncryption aes2 = new AESPasswordBasedEncryption("different".toCharArray());
+
+        final Path input = Files.write(this.tmp.newFile().toPath(), new byte[] {0x01, 0x02, 0x03});
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        aes1.encryptFile(input, encrypted);
+        aes2.decryptFile(encrypted, this.tmp.getRoot().toPath().resolve("decrypted"));
+    }
+
+    @Test
+    public void testMetrics() throws EncryptionException {
+        final CryptoMetrics metrics = new CryptoMetrics();
+        final AESPasswordBasedEncryption aes = new AESPasswordBasedEncryption("password".toCharArray(),
+                AESPasswordBasedEncryption.DEFAULT_BUFFER_SIZE, metrics);
+        assertEquals(metrics, aes.getMetrics());
+
+        final String encrypted = aes.encryptString("data", StandardCharsets.UTF_8);
+        assertEquals("data", aes.decryptString(encrypted, StandardCharsets.UTF_8));
+
+        assertEquals(1, metrics.getStats(CryptoOperation.ENCRYPT).getCount());
+        assertEquals(1, metrics.getStats(CryptoOperation.DECRYPT).getCount());
+        assertEquals(2, metrics.getStats(CryptoOperation.KEY_DERIVATION).getCount());
+    }
+
+    @Test
+    public void testBase64UrlEncoding() throws EncryptionException {
+        final AESPasswordBasedEncryption hex = new AESPasswordBasedEncryption("password".toCharArray());
+        final AESPasswordBasedEncryption base64 = new AESPasswordBasedEncryption("password".toCharArray(),
+                AESPasswordBasedEncryption.DEFAULT_BUFFER_SIZE, new CryptoMetrics(), TextEncoding.BASE64URL);
+        assertEquals(TextEncoding.HEX, hex.getTextEncoding());
+        assertEquals(TextEncoding.BASE64URL, base64.getTextEncoding());
+
+        final String encrypted = base64.encryptString("data", StandardCharsets.UTF_8);
+        assertTrue(encrypted.startsWith(TextEncoding.BASE64URL_PREFIX));
+        assertEquals("data", hex.decryptString(encrypted, StandardCharsets.UTF_8));
+        assertEquals("data", base64.decryptString(hex.encryptString("data", StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8));
+    }
 }
@@ -1,28 +1,46 @@
 package microsys.crypto.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
+import microsys.crypto.CryptoMetrics;
+import microsys.crypto.CryptoOperation;
 import microsys.crypto.EncryptionException;
+import microsys.crypto.TextEncoding;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Perform testing on the {@link AESSymmetricKeyEncryption} class.
  */
 public class AESSymmetricKeyEncryptionTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     protected KeyPair getKeyPair() throws EncryptionException {
         try {
             final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
@@ -269,6 +287,7 @@ public class AESSymmetricKeyEncryptionTest {
 
         final AESSymmetricKeyEncryption ske = Mockito.mock(AESSymmetricKeyEncryption.class);
         Mockito.when(ske.getKeyPair()).thenReturn(keyPair);
+        Mockito.when(ske.getMetrics()).thenReturn(new CryptoMetrics());
         Mockito.when(ske.sign(Mockito.any())).thenCallRealMethod();
 
         ske.sign(new byte[0]);
@@ -283,6 +302,7 @@ public class AESSymmetricKeyEncryptionTest {
 
         final AESSymmetricKeyEncryption ske = Mockito.mock(AESSymmetricKeyEncryption.class);
         Mockito.when(ske.getKeyPair()).thenReturn(keyPair);
+        Mockito.when(ske.getMetrics()).thenReturn(new CryptoMetrics());
         Mockito.when(ske.verify(Mockito.any(), Mockito.any())).thenCallRealMethod();
 
         ske.verify(new byte[0], new byte[0]);
@@ -293,4 +313,248 @@ public class AESSymmetricKeyEncryptionTest {
         final AESSymmetricKeyEncryption ske = new AESSymmetricKeyEncryption(getKeyPair());
         ske.createSecretKey(-1);
     }
+
+    @Test
+    public void testRoundTripChannel() throws EncryptionException, IOException {
+        final AESSymmetricKeyEncryption ske = new AESSymmetricKeyEncryption(getKeyPair());
+
+        final byte[] original = new byte[100_000];
+        new Random(1).nextBytes(original);
+        final ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        ske.encrypt(Channels.newChannel(new ByteArrayInputStream(original)), Channels.newChannel(encrypted));
+
+        final ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        ske.decrypt(Channels.newChannel(new ByteArrayInputStream(encrypted.toByteArray())),
+                Channels.newChannel(decrypted));
+        assertTrue(Objects.deepEquals(original, decrypted.toByteArray()));
+
+        // The channel format is the same as the stream format.
+        assertTrue(Objects.deepEquals(original, ske.decrypt(encrypted.toByteArray())));
+    }
+
+    @Test
+    public void testRoundTripByteBuffer() throws EncryptionException {
+        final AESSymmetricKeyEncryption ske = new AESSymmetricKeyEncryption(getKeyPair());
+
+        final byte[] original = new byte[5000];
+        new Random(2).nextBytes(original);
+        final ByteBuffer encrypted = ByteBuffer.allocateDirect(original.length + 1024);
+        ske.encrypt(ByteBuffer.wrap(original), encrypted);
+        encrypted.flip();
+
+        final ByteBuffer decrypted = ByteBuffer.allocateDirect(original.length + 1024);
+        ske.decrypt(encrypted, decrypted);
+        decrypted.flip();
+
+        final byte[] result = new byte[decrypted.remaining()];
+        decrypted.get(result);
+        assertTrue(Objects.deepEquals(original, result));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testEncryptByteBufferTooSmall() throws EncryptionException {
+        final AESSymmetricKeyEncryption ske = new AESSymmetricKeyEncryption(getKeyPair());
+        ske.encrypt(ByteBuffer.wrap(new byte[100]), ByteBuffer.allocate(10));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecryptByteBufferTruncated() throws EncryptionException {
+        final AESSymmetricKeyEncryption ske = new AESSymmetricKeyEncryption(getKeyPair());
+        ske.decrypt(ByteBuffer.wrap(new byte[] {0x01}), ByteBuffer.allocate(10));
+    }
+
+    @Test
+    public void testRoundTripSmallBufferSize() throws EncryptionException {
+        final AESSymmetricKeyEncryption ske = new AESSymmetricKeyEncryption(getKeyPair(), 3);
+        assertEquals(3, ske.getBufferSize());
+
+        final byte[] original = new byte[1000];
+        new Random(3).nextBytes(original);
+        assertTrue(Objects.deepEquals(original, ske.decrypt(ske.encrypt(original))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBufferSize() throws EncryptionException {
+        new AESSymmetricKeyEncryption(getKeyPair(), 0);
+    }
+
+    @Test
+    public void testEnvelopeReusesDataKey() throws EncryptionException {
+        final DataKeyCache cache = new DataKeyCache(2, TimeUnit.MINUTES.toMillis(1), 10);
+        final AESSymmetricKeyEncryption ske = new AESSymmetricKeyEncryption(getKeyPair(), 1024, Optional.of(cache));
+        assertTrue(ske.getDataKeyCache().isPresent());
+
+        final byte[] original = "original data".getBytes(StandardCharsets.UTF_8);
+        final byte[] first = ske.encrypt(original);
+        final byte[] second = ske.encrypt(original);
+        final byte[] third = ske.encrypt(original);
+
+        // Envelope data starts with the version marker followed by the wrapped data key.
+        assertEquals(0, first[0]);
+        final int headerLength = 2 + (first[1] & 0xFF) * 8;
+        assertTrue(Arrays.equals(Arrays.copyOf(first, headerLength), Arrays.copyOf(second, headerLength)));
+        assertFalse(Arrays.equals(Arrays.copyOf(first, headerLength), Arrays.copyOf(third, headerLength)));
+
+        // The per-message initialization vector keeps equal values from producing equal ciphertext.
+        assertFalse(Arrays.equals(first, second));
+
+        assertTrue(Arrays.equals(original, ske.decrypt(first)));
+        assertTrue(Arrays.equals(original, ske.decrypt(second)));
+        assertTrue(Arrays.equals(original, ske.decrypt(third)));
+        assertEquals(2, cache.getUnwrappedCount());
+    }
+
+    @Test
+    public void testEnvelopeCompatibility() throws EncryptionException {
+        final KeyPair keyPair = getKeyPair();
+        final AESSymmetricKeyEncryption plain = new AESSymmetricKeyEncryption(keyPair);
+        final AESSymmetricKeyEncryption envelope = new AESSymmetricKeyEncryption(keyPair, 1024,
+                Optional.of(new DataKeyCache(100, TimeUnit.MINUTES.toMillis(1), 10)));
+
+        final String original = "original data";
+        assertEquals(original, envelope.decryptString(
+                plain.encryptString(original, StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        assertEquals(original, plain.decryptString(
+                envelope.encryptString(original, StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEnvelopeUnwrapsOnce() throws EncryptionException {
+        final KeyPair keyPair = getKeyPair();
+        final AESSymmetricKeyEncryption writer = new AESSymmetricKeyEncryption(keyPair, 1024,
+                Optional.of(new DataKeyCache(100, TimeUnit.MINUTES.toMillis(1), 10)));
+        final DataKeyCache readerCache = new DataKeyCache(100, TimeUnit.MINUTES.toMillis(1), 10);
+        final AESSymmetricKeyEncryption reader =
+                Mockito.spy(new AESSymmetricKeyEncryption(keyPair, 1024, Optional.of(readerCache)));
+
+        for (int i = 0; i < 5; i++) {
+            final byte[] original = ("value " + i).getBytes(StandardCharsets.UTF_8);
+            assertTrue(Arrays.equals(original, reader.decrypt(writer.encrypt(original))));
+        }
+        assertEquals(1, readerCache.getUnwrappedCount());
+        try {
+            Mockito.verify(reader, Mockito.times(1)).getDecryptedSecretKey(Mockito.any());
+        } catch (final Exception exception) {
+            throw new EncryptionException("Unexpected failure", exception);
+        }
+    }
+
+    @Test
+    public void testRoundTripFile() throws EncryptionException, IOException {
+        final KeyPair keyPair = getKeyPair();
+        final AESSymmetricKeyEncryption aes1 = new AESSymmetricKeyEncryption(keyPair, 1024);
+        final AESSymmetricKeyEncryption aes2 = new AESSymmetricKeyEncryption(keyPair, 4096);
+
+        final byte[] original = new byte[10000];
+        new Random().nextBytes(original);
+        final Path input = Files.write(this.tmp.newFile().toPath(), original);
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        final Path decrypted = this.tmp.getRoot().toPath().resolve("decrypted");
+
+        aes1.encryptFile(input, encrypted);
+        aes2.decryptFile(encrypted, decrypted);
+        assertTrue(Arrays.equals(original, Files.readAllBytes(decrypted)));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecryptFileWrongKeyPair() throws EncryptionException, IOException {
+        final AESSymmetricKeyEncryption aes1 = new AESSymmetricKeyEncryption(getKeyPair());
+        final AESSymmetricKeyEncryption aes2 = new AESSymmetricKeyEncryption(getKeyPair());
+
+        final Path input = Files.write(this.tmp.newFile().toPath(), new byte[] {0x01, 0x02, 0x03});
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        aes1.encryptFile(input, encrypted);
+        aes2.decryptFile(encrypted, this.tmp.getRoot().toPath().resolve("decrypted"));
+    }
+
+    protected KeyPair getECKeyPair() throws EncryptionException {
+        try {
+            final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            keyPairGenerator.initialize(256);
+            return keyPairGenerator.generateKeyPair();
+        } catch (final NoSuchAlgorithmException badAlgorithm) {
+            throw new EncryptionException("Unrecognized algorithm", badAlgorithm);
+        }
+    }
+
+    @Test
+    public void testGetSignatureAlgorithm() throws EncryptionException {
+        assertEquals("SHA1withRSA", new AESSymmetricKeyEncryption(getKeyPair()).getSignatureAlgorithm());
+        assertEquals("SHA256withECDSA", new AESSymmetricKeyEncryption(getECKeyPair()).getSignatureAlgorithm());
+
+        final Key edKey = Mockito.mock(Key.class);
+        Mockito.when(edKey.getAlgorithm()).thenReturn("EdDSA");
+        assertEquals("Ed25519", AESSymmetricKeyEncryption.getSignatureAlgorithm(edKey));
+
+        final Key dsaKey = Mockito.mock(Key.class);
+        Mockito.when(dsaKey.getAlgorithm()).thenReturn("DSA");
+        assertEquals("SHA1withDSA", AESSymmetricKeyEncryption.getSignatureAlgorithm(dsaKey));
+    }
+
+    @Test
+    public void testSignVerifyEC() throws EncryptionException {
+        final KeyPair keyPair = getECKeyPair();
+        final AESSymmetricKeyEncryption aes1 = new AESSymmetricKeyEncryption(keyPair);
+        final AESSymmetricKeyEncryption aes2 = new AESSymmetricKeyEncryption(keyPair);
+
+        final String original = "original data";
+        final String signature = aes1.signString(original, StandardCharsets.UTF_8);
+        assertTrue(aes2.verifyString(original, StandardCharsets.UTF_8, signature));
+        assertFalse(aes2.verifyString("modified data", StandardCharsets.UTF_8, signature));
+    }
+
+    @Test
+    public void testVerifyECWrongKeyPair() throws EncryptionException {
+        final AESSymmetricKeyEncryption aes1 = new AESSymmetricKeyEncryption(getECKeyPair());
+        final AESSymmetricKeyEncryption aes2 = new AESSymmetricKeyEncryption(getECKeyPair());
+
+        final byte[] original = "original data".getBytes(StandardCharsets.UTF_8);
+        assertFalse(aes2.verify(original, aes1.sign(original)));
+    }
+
+    @Test
+    public void testMetrics() throws EncryptionException {
+        final CryptoMetrics metrics = new CryptoMetrics();
+        final AESSymmetricKeyEncryption ske = new AESSymmetricKeyEncryption(getKeyPair(),
+                AESSymmetricKeyEncryption.DEFAULT_BUFFER_SIZE, Optional.empty(), metrics);
+        assertEquals(metrics, ske.getMetrics());
+
+        final byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+        ske.decrypt(ske.encrypt(data));
+        assertTrue(ske.verify(data, ske.sign(data)));
+
+        assertEquals(1, metrics.getStats(CryptoOperation.ENCRYPT).getCount());
+        assertEquals(1, metrics.getStats(CryptoOperation.DECRYPT).getCount());
+        assertEquals(1, metrics.getStats(CryptoOperation.KEYGEN).getCount());
+        assertEquals(1, metrics.getStats(CryptoOperation.SIGN).getCount());
+        assertEquals(1, metrics.getStats(CryptoOperation.VERIFY).getCount());
+    }
+
+    @Test
+    public void testBase64UrlEncoding() throws EncryptionException {
+        final KeyPair keyPair = getKeyPair();
+        final AESSymmetricKeyEncryption hex = new AESSymmetricKeyEncryption(keyPair);
+        final AESSymmetricKeyEncryption base64 = new AESSymmetricKeyEncryption(keyPair,
+                AESSymmetricKeyEncryption.DEFAULT_BUFFER_SIZE, Optional.empty(), new CryptoMetrics(),
+                TextEncoding.BASE64URL);
+        assertEquals(TextEncoding.HEX, hex.getTextEncoding());
+        assertEquals(TextEncoding.BASE64URL, base64.getTextEncoding());
+
+        final String signature = base64.signString("data", StandardCharsets.UTF_8);
+        assertTrue(signature.startsWith(TextEncoding.BASE64URL_PREFIX));
+        assertTrue(signature.length() < hex.signString("data", StandardCharsets.UTF_8).length());
+
+        // Both encodings are accepted regardless of the encoding used to create values.
+        assertTrue(hex.verifyString("data", StandardCharsets.UTF_8, signature));
+        assertTrue(base64.verifyString("data", StandardCharsets.UTF_8, hex.signString("data", StandardCharsets.UTF_8)));
+        assertEquals("data", hex.decryptString(base64.encryptString("data", StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8));
+        assertEquals("data", base64.decryptString(hex.encryptString("data", StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testVerifyStringInvalidEncoding() throws EncryptionException {
+        new AESSymmetricKeyEncryption(getKeyPair()).verifyString("data", StandardCharsets.UTF_8, "not-hex");
+    }
 }
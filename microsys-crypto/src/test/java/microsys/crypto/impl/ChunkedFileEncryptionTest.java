@@ -0,0 +1,287 @@
+package microsys.crypto.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import microsys.crypto.EncryptionException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Perform testing on the {@link ChunkedFileEncryption} class.
+ */
+public class ChunkedFileEncryptionTest {
+    private final static byte[] KEY_HEADER = {0x01, 0x02, 0x03};
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    protected SecretKey getKey() throws Exception {
+        final KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(128);
+        return keyGenerator.generateKey();
+    }
+
+    protected Path createFile(final int length) throws IOException {
+        final byte[] data = new byte[length];
+        new Random().nextBytes(data);
+        return Files.write(this.tmp.newFile().toPath(), data);
+    }
+
+    protected void roundTrip(final int chunkSize, final int length) throws Exception {
+        final ChunkedFileEncryption chunked = new ChunkedFileEncryption(chunkSize);
+        final SecretKey key = getKey();
+        final Path input = createFile(length);
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        final Path decrypted = this.tmp.getRoot().toPath().resolve("decrypted");
+
+        chunked.encrypt(key, KEY_HEADER, input, encrypted);
+        final long chunks = ChunkedFileEncryption.getChunkCount(length, chunkSize);
+        assertEquals(length + chunks * 16, Files.size(encrypted) - getHeaderLength());
+
+        chunked.decrypt(keyHeader -> {
+            assertTrue(Arrays.equals(KEY_HEADER, keyHeader));
+            return key;
+        }, encrypted, decrypted);
+        assertTrue(Arrays.equals(Files.readAllBytes(input), Files.readAllBytes(decrypted)));
+    }
+
+    protected int getHeaderLength() {
+        // magic, key header length, key header, chunk size, plain length, nonce prefix
+        return 4 + 4 + KEY_HEADER.length + 4 + 8 + 4;
+    }
+
+    @Test
+    public void testRoundTripMultipleChunks() throws Exception {
+        roundTrip(1024, 10 * 1024 + 17);
+    }
+
+    @Test
+    public void testRoundTripExactChunks() throws Exception {
+        roundTrip(1024, 4 * 1024);
+    }
+
+    @Test
+    public void testRoundTripSingleChunk() throws Exception {
+        roundTrip(64 * 1024, 100);
+    }
+
+    @Test
+    public void testRoundTripEmpty() throws Exception {
+        roundTrip(1024, 0);
+    }
+
+    @Test
+    public void testRoundTripManyChunks() throws Exception {
+        roundTrip(16, 64 * 1024 + 5);
+    }
+
+    @Test
+    public void testGetChunkCount() {
+        assertEquals(1, ChunkedFileEncryption.getChunkCount(0, 10));
+        assertEquals(1, ChunkedFileEncryption.getChunkCount(10, 10));
+        assertEquals(2, ChunkedFileEncryption.getChunkCount(11, 10));
+    }
+
+    @Test
+    public void testGetChunkCountLargeFile() {
+        // A multi-GB file is processed in a bounded number of chunks with the default chunk size.
+        final long length = 3L * 1024 * 1024 * 1024 + 1;
+        assertEquals(769, ChunkedFileEncryption.getChunkCount(length, ChunkedFileEncryption.DEFAULT_CHUNK_SIZE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChunkSizeTooLarge() {
+        new ChunkedFileEncryption(ChunkedFileEncryption.MAX_CHUNK_SIZE + 1);
+    }
+
+    @Test
+    public void testReadWriteFullyAtPosition() throws Exception {
+        final Path file = this.tmp.newFile().toPath();
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ChunkedFileEncryption.writeFully(channel, ByteBuffer.wrap(new byte[] {0x01, 0x02}), 3);
+            assertEquals(5, channel.size());
+
+            final ByteBuffer buffer = ByteBuffer.allocate(2);
+            ChunkedFileEncryption.readFully(channel, buffer, 3);
+            assertTrue(Arrays.equals(new byte[] {0x01, 0x02}, buffer.array()));
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadFullyPastEnd() throws Exception {
+        try (final FileChannel channel = FileChannel.open(createFile(4), StandardOpenOption.READ)) {
+            ChunkedFileEncryption.readFully(channel, ByteBuffer.allocate(2), 3);
+        }
+    }
+
+    @Test
+    public void testGetChunkSize() {
+        assertEquals(10, new ChunkedFileEncryption(10).getChunkSize());
+    }
+
+    @Test
+    public void testDedicatedExecutor() throws Exception {
+        final AtomicInteger threads = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(4, runnable -> {
+            threads.incrementAndGet();
+            return new Thread(runnable, "test-chunked");
+        });
+        try {
+            final Set<String> names = Collections.synchronizedSet(new HashSet<>());
+            final AtomicInteger processed = new AtomicInteger();
+            final ChunkedFileEncryption chunked = new ChunkedFileEncryption(16, executor, 2);
+            assertEquals(2, chunked.getParallelism());
+            chunked.processChunks(64 * 16, 16, (index, plain, encrypted) -> {
+                names.add(Thread.currentThread().getName());
+                assertEquals(16, plain.length);
+                assertEquals(32, encrypted.length);
+                processed.incrementAndGet();
+            });
+
+            // Every chunk is processed on the dedicated executor, by no more workers than the parallelism.
+            assertEquals(64, processed.get());
+            assertEquals(Collections.singleton("test-chunked"), names);
+            assertTrue(threads.get() <= 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testProcessChunksFailure() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final AtomicInteger processed = new AtomicInteger();
+            final ChunkedFileEncryption chunked = new ChunkedFileEncryption(16, executor, 2);
+            try {
+                chunked.processChunks(1000 * 16, 16, (index, plain, encrypted) -> {
+                    processed.incrementAndGet();
+                    if (index == 3) {
+                        throw new IOException("Fake");
+                    }
+                });
+                throw new AssertionError("Expected chunk processing to fail");
+            } catch (final IOException expected) {
+                assertEquals("Fake", expected.getMessage());
+            }
+            // The workers stop taking new chunks after the failure.
+            assertTrue(processed.get() < 1000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelism() {
+        new ChunkedFileEncryption(10, Executors.newSingleThreadExecutor(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSize() {
+        new ChunkedFileEncryption(0);
+    }
+
+    @Test
+    public void testDecryptModified() throws Exception {
+        final ChunkedFileEncryption chunked = new ChunkedFileEncryption(1024);
+        final SecretKey key = getKey();
+        final Path input = createFile(5000);
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        final Path decrypted = this.tmp.getRoot().toPath().resolve("decrypted");
+        chunked.encrypt(key, KEY_HEADER, input, encrypted);
+
+        final byte[] data = Files.readAllBytes(encrypted);
+        data[data.length - 100] ^= 0x01;
+        Files.write(encrypted, data);
+
+        try {
+            chunked.decrypt(keyHeader -> key, encrypted, decrypted);
+            throw new AssertionError("Expected decryption to fail");
+        } catch (final EncryptionException expected) {
+            assertFalse(Files.exists(decrypted));
+        }
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecryptModifiedHeader() throws Exception {
+        final ChunkedFileEncryption chunked = new ChunkedFileEncryption(1024);
+        final SecretKey key = getKey();
+        final Path input = createFile(5000);
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        chunked.encrypt(key, KEY_HEADER, input, encrypted);
+
+        // Change the nonce prefix, which is authenticated with every chunk.
+        final byte[] data = Files.readAllBytes(encrypted);
+        data[getHeaderLength() - 1] ^= 0x01;
+        Files.write(encrypted, data);
+
+        chunked.decrypt(keyHeader -> key, encrypted, this.tmp.getRoot().toPath().resolve("decrypted"));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecryptTruncated() throws Exception {
+        final ChunkedFileEncryption chunked = new ChunkedFileEncryption(1024);
+        final SecretKey key = getKey();
+        final Path input = createFile(5000);
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        chunked.encrypt(key, KEY_HEADER, input, encrypted);
+
+        final byte[] data = Files.readAllBytes(encrypted);
+        Files.write(encrypted, Arrays.copyOf(data, data.length - 1040));
+
+        chunked.decrypt(keyHeader -> key, encrypted, this.tmp.getRoot().toPath().resolve("decrypted"));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecryptUnrecognizedFormat() throws Exception {
+        final ChunkedFileEncryption chunked = new ChunkedFileEncryption(1024);
+        chunked.decrypt(keyHeader -> getKey(), createFile(100), this.tmp.getRoot().toPath().resolve("decrypted"));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecryptWrongKey() throws Exception {
+        final ChunkedFileEncryption chunked = new ChunkedFileEncryption(1024);
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        chunked.encrypt(getKey(), KEY_HEADER, createFile(100), encrypted);
+
+        final SecretKey wrongKey = getKey();
+        chunked.decrypt(keyHeader -> wrongKey, encrypted, this.tmp.getRoot().toPath().resolve("decrypted"));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testEncryptSameFile() throws Exception {
+        final ChunkedFileEncryption chunked = new ChunkedFileEncryption(1024);
+        final Path input = createFile(100);
+        chunked.encrypt(getKey(), KEY_HEADER, input, input);
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testEncryptMissingInput() throws Exception {
+        final ChunkedFileEncryption chunked = new ChunkedFileEncryption(1024);
+        chunked.encrypt(getKey(), KEY_HEADER, this.tmp.getRoot().toPath().resolve("missing"),
+                this.tmp.getRoot().toPath().resolve("encrypted"));
+    }
+}
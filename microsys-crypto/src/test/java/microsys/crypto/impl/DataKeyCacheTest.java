@@ -0,0 +1,88 @@
+package microsys.crypto.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Perform testing on the {@link DataKeyCache} class.
+ */
+public class DataKeyCacheTest {
+    private DataKeyCache.DataKey createDataKey(final int id) {
+        return new DataKeyCache.DataKey(new SecretKeySpec(new byte[] {(byte) id}, "AES"), new byte[] {(byte) id});
+    }
+
+    @Test
+    public void testMaxMessages() throws Exception {
+        final DataKeyCache cache = new DataKeyCache(2, TimeUnit.MINUTES.toMillis(1), 10);
+        assertEquals(2, cache.getMaxMessages());
+        assertEquals(TimeUnit.MINUTES.toMillis(1), cache.getMaxAgeMillis());
+
+        final AtomicInteger created = new AtomicInteger();
+        final DataKeyCache.DataKey first = cache.getDataKey(() -> createDataKey(created.incrementAndGet()));
+        assertSame(first, cache.getDataKey(() -> createDataKey(created.incrementAndGet())));
+        assertEquals(2, first.getUses());
+
+        final DataKeyCache.DataKey second = cache.getDataKey(() -> createDataKey(created.incrementAndGet()));
+        assertNotSame(first, second);
+        assertEquals(2, created.get());
+        assertEquals(1, second.getUses());
+    }
+
+    @Test
+    public void testMaxAge() throws Exception {
+        final DataKeyCache cache = new DataKeyCache(100, 1, 10);
+        final DataKeyCache.DataKey first = cache.getDataKey(() -> createDataKey(1));
+        TimeUnit.MILLISECONDS.sleep(5);
+        assertNotSame(first, cache.getDataKey(() -> createDataKey(2)));
+    }
+
+    @Test
+    public void testUnwrapped() throws Exception {
+        final DataKeyCache cache = new DataKeyCache(100, TimeUnit.MINUTES.toMillis(1), 10);
+        final AtomicInteger unwraps = new AtomicInteger();
+        final SecretKey key = new SecretKeySpec(new byte[] {5}, "AES");
+
+        assertSame(key, cache.getUnwrapped(new byte[] {5}, () -> {
+            unwraps.incrementAndGet();
+            return key;
+        }));
+        assertSame(key, cache.getUnwrapped(new byte[] {5}, () -> {
+            unwraps.incrementAndGet();
+            return key;
+        }));
+        assertEquals(1, unwraps.get());
+
+        // Newly created data keys are available without unwrapping.
+        final DataKeyCache.DataKey dataKey = cache.getDataKey(() -> createDataKey(7));
+        assertSame(dataKey.getKey(), cache.getUnwrapped(new byte[] {7}, () -> {
+            throw new Exception("Should not unwrap");
+        }));
+        assertEquals(2, cache.getUnwrappedCount());
+
+        cache.clear();
+        assertEquals(0, cache.getUnwrappedCount());
+        assertNotSame(dataKey, cache.getDataKey(() -> createDataKey(8)));
+    }
+
+    @Test(expected = Exception.class)
+    public void testUnwrapFailed() throws Exception {
+        final DataKeyCache cache = new DataKeyCache(100, TimeUnit.MINUTES.toMillis(1), 10);
+        cache.getUnwrapped(new byte[] {1}, () -> {
+            throw new Exception("Failed");
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxMessages() {
+        new DataKeyCache(0, 1, 10);
+    }
+}
@@ -1,12 +1,23 @@
 package microsys.crypto.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static microsys.common.config.ConfigKeys.CRYPTO_ENVELOPE_ENABLED;
+import static microsys.common.config.ConfigKeys.CRYPTO_FILE_CHUNK_SIZE;
+import static microsys.common.config.ConfigKeys.CRYPTO_METRICS_SLOW_THRESHOLD;
+import static microsys.common.config.ConfigKeys.CRYPTO_TEXT_ENCODING;
 import static microsys.common.config.ConfigKeys.SHARED_SECRET_VARIABLE;
 import static microsys.common.config.ConfigKeys.SSL_ENABLED;
 import static microsys.common.config.ConfigKeys.SSL_KEYSTORE_FILE;
 import static microsys.common.config.ConfigKeys.SSL_KEYSTORE_PASSWORD;
 import static microsys.common.config.ConfigKeys.SSL_KEYSTORE_TYPE;
+import static microsys.common.config.ConfigKeys.SSL_RELOAD_DELAY;
+import static microsys.common.config.ConfigKeys.SSL_SESSION_CACHE_SIZE;
+import static microsys.common.config.ConfigKeys.SSL_SESSION_TIMEOUT;
 import static microsys.common.config.ConfigKeys.SSL_TRUSTSTORE_FILE;
 import static microsys.common.config.ConfigKeys.SSL_TRUSTSTORE_PASSWORD;
 import static microsys.common.config.ConfigKeys.SSL_TRUSTSTORE_TYPE;
@@ -16,24 +27,43 @@ import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigValue;
 import com.typesafe.config.ConfigValueFactory;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import microsys.crypto.CryptoFactory;
+import microsys.crypto.CryptoOperation;
 import microsys.crypto.EncryptionException;
 import microsys.crypto.PasswordBasedEncryption;
 import microsys.crypto.SymmetricKeyEncryption;
+import microsys.crypto.TextEncoding;
 
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
 
 /**
  * Perform testing on the {@link CryptoFactory} class.
  */
 public class DefaultCryptoFactoryTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void testPBEFromSystemEnvironment() throws EncryptionException {
         final Map<String, ConfigValue> map = new HashMap<>();
@@ -106,6 +136,75 @@ public class DefaultCryptoFactoryTest {
         }
     }
 
+    @Test
+    public void testMetrics() throws EncryptionException {
+        final Optional<URL> url = Optional.ofNullable(getClass().getClassLoader().getResource("keystore.jks"));
+        if (url.isPresent()) {
+            final Map<String, ConfigValue> map = new HashMap<>();
+            map.put(SSL_ENABLED.getKey(), ConfigValueFactory.fromAnyRef("true"));
+            map.put(SSL_KEYSTORE_FILE.getKey(), ConfigValueFactory.fromAnyRef(url.get().getFile()));
+            map.put(SSL_KEYSTORE_TYPE.getKey(), ConfigValueFactory.fromAnyRef("JKS"));
+            map.put(SSL_KEYSTORE_PASSWORD.getKey(), ConfigValueFactory.fromAnyRef("changeit"));
+            map.put(SHARED_SECRET_VARIABLE.getKey(), ConfigValueFactory.fromAnyRef("SHARED_SECRET"));
+            map.put("SHARED_SECRET", ConfigValueFactory.fromAnyRef("secret"));
+            map.put(CRYPTO_METRICS_SLOW_THRESHOLD.getKey(), ConfigValueFactory.fromAnyRef("250 milliseconds"));
+            final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
+            assertEquals(250, crypto.getMetrics().getSlowThresholdMillis());
+
+            final SymmetricKeyEncryption ske = crypto.getSymmetricKeyEncryption();
+            ske.sign("data".getBytes(StandardCharsets.UTF_8));
+            crypto.getPasswordBasedEncryption().encryptString("data", StandardCharsets.UTF_8);
+
+            // Both implementations record into the metrics of the factory.
+            assertEquals(1, crypto.getMetrics().getStats(CryptoOperation.KEYSTORE_LOAD).getCount());
+            assertEquals(1, crypto.getMetrics().getStats(CryptoOperation.SIGN).getCount());
+            assertEquals(1, crypto.getMetrics().getStats(CryptoOperation.ENCRYPT).getCount());
+            assertEquals(1, crypto.getMetrics().getStats(CryptoOperation.KEY_DERIVATION).getCount());
+        }
+    }
+
+    @Test
+    public void testTextEncoding() throws EncryptionException {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(SHARED_SECRET_VARIABLE.getKey(), ConfigValueFactory.fromAnyRef("SHARED_SECRET"));
+        map.put("SHARED_SECRET", ConfigValueFactory.fromAnyRef("secret"));
+        map.put(CRYPTO_TEXT_ENCODING.getKey(), ConfigValueFactory.fromAnyRef("base64url"));
+        final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
+        assertEquals(TextEncoding.BASE64URL, crypto.getTextEncoding());
+
+        // Configuration values may be encrypted with either encoding.
+        final String encrypted = crypto.getPasswordBasedEncryption().encryptString("value", StandardCharsets.UTF_8);
+        assertTrue(encrypted.startsWith(TextEncoding.BASE64URL_PREFIX));
+        map.put("encrypted", ConfigValueFactory.fromAnyRef("PBE{" + encrypted + "}"));
+        final DefaultCryptoFactory decrypting = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
+        assertEquals("value", decrypting.getDecryptedConfig("encrypted"));
+    }
+
+    @Test
+    public void testFileChunkSize() throws EncryptionException {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(SHARED_SECRET_VARIABLE.getKey(), ConfigValueFactory.fromAnyRef("SHARED_SECRET"));
+        map.put("SHARED_SECRET", ConfigValueFactory.fromAnyRef("secret"));
+        map.put(CRYPTO_FILE_CHUNK_SIZE.getKey(), ConfigValueFactory.fromAnyRef("1 MiB"));
+        final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
+        assertEquals(1024 * 1024, crypto.getFileChunkSize());
+        assertEquals(1024 * 1024,
+                ((AESPasswordBasedEncryption) crypto.getPasswordBasedEncryption()).getFileChunkSize());
+        assertEquals(ChunkedFileEncryption.DEFAULT_CHUNK_SIZE,
+                new DefaultCryptoFactory(ConfigFactory.empty()).getFileChunkSize());
+    }
+
+    @Test
+    public void testTextEncodingDefault() {
+        assertEquals(TextEncoding.HEX, new DefaultCryptoFactory(ConfigFactory.empty()).getTextEncoding());
+    }
+
+    @Test
+    public void testMetricsDefaultThreshold() {
+        final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.empty());
+        assertEquals(100, crypto.getMetrics().getSlowThresholdMillis());
+    }
+
     @Test(expected = EncryptionException.class)
     public void testSKEWrongType() throws EncryptionException {
         final Optional<URL> url = Optional.ofNullable(getClass().getClassLoader().getResource("keystore.jks"));
@@ -255,10 +354,10 @@ public class DefaultCryptoFactoryTest {
     @Test(expected = EncryptionException.class)
     public void testGetSSLContextException() throws EncryptionException {
         final DefaultCryptoFactory crypto = Mockito.mock(DefaultCryptoFactory.class);
-        Mockito.when(crypto.getSSLContext()).thenCallRealMethod();
+        Mockito.when(crypto.createSSLContext()).thenCallRealMethod();
         Mockito.when(crypto.getConfig()).thenThrow(new RuntimeException("Fake"));
 
-        crypto.getSSLContext();
+        crypto.createSSLContext();
     }
 
     @Test
@@ -277,6 +376,33 @@ public class DefaultCryptoFactoryTest {
         assertEquals("hello", crypto.getDecryptedConfig("key"));
     }
 
+    @Test
+    public void testGetDecryptedConfigPBECached() throws EncryptionException {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put("SHARED_SECRET", ConfigValueFactory.fromAnyRef("secret"));
+        map.put(SHARED_SECRET_VARIABLE.getKey(), ConfigValueFactory.fromAnyRef("SHARED_SECRET"));
+        final String encrypted =
+                "PBE{" + new DefaultCryptoFactory(ConfigFactory.parseMap(map)).getPasswordBasedEncryption()
+                        .encryptString("hello", StandardCharsets.UTF_8) + "}";
+        map.put("key", ConfigValueFactory.fromAnyRef(encrypted));
+
+        final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
+        final AESPasswordBasedEncryption pbe = (AESPasswordBasedEncryption) crypto.getPasswordBasedEncryption();
+        assertSame(pbe, crypto.getPasswordBasedEncryption());
+
+        assertEquals("hello", crypto.getDecryptedConfig("key"));
+        assertEquals(1, pbe.getCachedKeyCount());
+
+        // The second retrieval uses the memoized value, so no key is derived.
+        pbe.clearCache();
+        assertEquals("hello", crypto.getDecryptedConfig("key"));
+        assertEquals(0, pbe.getCachedKeyCount());
+
+        crypto.close();
+        assertNotSame(pbe, crypto.getPasswordBasedEncryption());
+        assertEquals("hello", crypto.getDecryptedConfig("key"));
+    }
+
     @Test
     public void testGetDecryptedConfigSKE() throws EncryptionException {
         final Optional<URL> url = Optional.ofNullable(getClass().getClassLoader().getResource("keystore.jks"));
@@ -296,6 +422,41 @@ public class DefaultCryptoFactoryTest {
         }
     }
 
+    @Test
+    public void testSKEEnvelope() throws EncryptionException {
+        final Optional<URL> url = Optional.ofNullable(getClass().getClassLoader().getResource("keystore.jks"));
+        if (url.isPresent()) {
+            final Map<String, ConfigValue> map = new HashMap<>();
+            map.put(SSL_ENABLED.getKey(), ConfigValueFactory.fromAnyRef("true"));
+            map.put(SSL_KEYSTORE_FILE.getKey(), ConfigValueFactory.fromAnyRef(url.get().getFile()));
+            map.put(SSL_KEYSTORE_TYPE.getKey(), ConfigValueFactory.fromAnyRef("JKS"));
+            map.put(SSL_KEYSTORE_PASSWORD.getKey(), ConfigValueFactory.fromAnyRef("changeit"));
+            map.put(CRYPTO_ENVELOPE_ENABLED.getKey(), ConfigValueFactory.fromAnyRef("true"));
+            final DefaultCryptoFactory crypto = new DefaultCryptoFactory(
+                    ConfigFactory.parseMap(map).withFallback(ConfigFactory.parseResources("reference.conf")));
+
+            final AESSymmetricKeyEncryption ske = (AESSymmetricKeyEncryption) crypto.getSymmetricKeyEncryption();
+            assertSame(ske, crypto.getSymmetricKeyEncryption());
+            assertTrue(ske.getDataKeyCache().isPresent());
+            assertEquals(1000, ske.getDataKeyCache().get().getMaxMessages());
+
+            final String encrypted = ske.encryptString("hello", StandardCharsets.UTF_8);
+            assertEquals("hello", ske.decryptString(encrypted, StandardCharsets.UTF_8));
+            assertEquals(1, ske.getDataKeyCache().get().getUnwrappedCount());
+
+            crypto.close();
+            assertEquals(0, ske.getDataKeyCache().get().getUnwrappedCount());
+            assertNotSame(ske, crypto.getSymmetricKeyEncryption());
+        }
+    }
+
+    @Test
+    public void testSKEEnvelopeDisabledByDefault() throws EncryptionException {
+        final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseResources("reference.conf"));
+        assertFalse(crypto.createDataKeyCache().isPresent());
+        assertFalse(new DefaultCryptoFactory(ConfigFactory.empty()).createDataKeyCache().isPresent());
+    }
+
     @Test
     public void testGetDecryptedConfigNotEncrypted() throws EncryptionException {
         final Map<String, ConfigValue> map = new HashMap<>();
@@ -332,4 +493,187 @@ public class DefaultCryptoFactoryTest {
         final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
         assertEquals("hello", crypto.getDecryptedConfig("key"));
     }
+
+    @Test
+    public void testDecryptConfig() throws EncryptionException {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put("SHARED_SECRET", ConfigValueFactory.fromAnyRef("secret"));
+        map.put(SHARED_SECRET_VARIABLE.getKey(), ConfigValueFactory.fromAnyRef("SHARED_SECRET"));
+        final PasswordBasedEncryption pbe =
+                new DefaultCryptoFactory(ConfigFactory.parseMap(map)).getPasswordBasedEncryption();
+        for (int i = 0; i < 5; i++) {
+            map.put("key" + i, ConfigValueFactory.fromAnyRef(
+                    "PBE{" + pbe.encryptString("value" + i, StandardCharsets.UTF_8) + "}"));
+        }
+        map.put("plain", ConfigValueFactory.fromAnyRef("plain value"));
+        map.put("invalid", ConfigValueFactory.fromAnyRef("PBE{0123}"));
+
+        final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertEquals(5, crypto.decryptConfig(executor));
+        } finally {
+            executor.shutdown();
+        }
+
+        // The preloaded values are served without deriving any keys.
+        final AESPasswordBasedEncryption aes = (AESPasswordBasedEncryption) crypto.getPasswordBasedEncryption();
+        aes.clearCache();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("value" + i, crypto.getDecryptedConfig("key" + i));
+        }
+        assertEquals(0, aes.getCachedKeyCount());
+        assertEquals("plain value", crypto.getDecryptedConfig("plain"));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void testDecryptConfigFailureReportedOnRequest() throws EncryptionException {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put("SHARED_SECRET", ConfigValueFactory.fromAnyRef("secret"));
+        map.put(SHARED_SECRET_VARIABLE.getKey(), ConfigValueFactory.fromAnyRef("SHARED_SECRET"));
+        map.put("invalid", ConfigValueFactory.fromAnyRef("PBE{0123}"));
+
+        final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(0, crypto.decryptConfig(executor));
+        } finally {
+            executor.shutdown();
+        }
+        crypto.getDecryptedConfig("invalid");
+    }
+
+    @Test
+    public void testGetDecryptedConfigCharsClearedOnClose() throws EncryptionException {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put("SHARED_SECRET", ConfigValueFactory.fromAnyRef("secret"));
+        map.put(SHARED_SECRET_VARIABLE.getKey(), ConfigValueFactory.fromAnyRef("SHARED_SECRET"));
+        final String encrypted =
+                "PBE{" + new DefaultCryptoFactory(ConfigFactory.parseMap(map)).getPasswordBasedEncryption()
+                        .encryptString("hello", StandardCharsets.UTF_8) + "}";
+        map.put("key", ConfigValueFactory.fromAnyRef(encrypted));
+
+        final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
+        final char[] copy = crypto.getDecryptedConfigChars("key");
+        assertTrue(Arrays.equals("hello".toCharArray(), copy));
+
+        // Callers get a copy, so clearing it does not affect the retained value.
+        Arrays.fill(copy, '\0');
+        assertEquals("hello", crypto.getDecryptedConfig("key"));
+
+        final char[] retained = crypto.getDecrypted("key").get();
+        crypto.close();
+        assertTrue(Arrays.equals(new char[5], retained));
+        assertTrue(Arrays.equals("plain".toCharArray(), new DefaultCryptoFactory(
+                ConfigFactory.parseMap(map).withValue("key", ConfigValueFactory.fromAnyRef("plain")))
+                .getDecryptedConfigChars("key")));
+    }
+
+    protected Optional<Map<String, ConfigValue>> getReloadableConfig() throws Exception {
+        final Optional<URL> url = Optional.ofNullable(getClass().getClassLoader().getResource("keystore.jks"));
+        if (!url.isPresent()) {
+            return Optional.empty();
+        }
+        final Path keystore = this.tmp.getRoot().toPath().resolve("keystore.jks");
+        Files.copy(Paths.get(url.get().toURI()), keystore, StandardCopyOption.REPLACE_EXISTING);
+
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(SSL_ENABLED.getKey(), ConfigValueFactory.fromAnyRef("true"));
+        map.put(SSL_KEYSTORE_FILE.getKey(), ConfigValueFactory.fromAnyRef(keystore.toString()));
+        map.put(SSL_KEYSTORE_TYPE.getKey(), ConfigValueFactory.fromAnyRef("JKS"));
+        map.put(SSL_KEYSTORE_PASSWORD.getKey(), ConfigValueFactory.fromAnyRef("changeit"));
+        map.put(SSL_TRUSTSTORE_FILE.getKey(), ConfigValueFactory.fromAnyRef(keystore.toString()));
+        map.put(SSL_TRUSTSTORE_TYPE.getKey(), ConfigValueFactory.fromAnyRef("JKS"));
+        map.put(SSL_TRUSTSTORE_PASSWORD.getKey(), ConfigValueFactory.fromAnyRef("changeit"));
+        map.put(SSL_RELOAD_DELAY.getKey(), ConfigValueFactory.fromAnyRef("50 milliseconds"));
+        return Optional.of(map);
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        final Optional<Map<String, ConfigValue>> map = getReloadableConfig();
+        if (map.isPresent()) {
+            final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map.get()));
+            final AtomicInteger reloads = new AtomicInteger(0);
+            crypto.addReloadListener(reloads::incrementAndGet);
+
+            final SSLContext sslContext = crypto.getSSLContext();
+            final SymmetricKeyEncryption ske = crypto.getSymmetricKeyEncryption();
+            assertSame(sslContext, crypto.getSSLContext());
+            assertSame(ske, crypto.getSymmetricKeyEncryption());
+
+            crypto.reload();
+            assertEquals(1, reloads.get());
+            assertNotSame(sslContext, crypto.getSSLContext());
+            assertNotSame(ske, crypto.getSymmetricKeyEncryption());
+        }
+    }
+
+    @Test
+    public void testReloadInvalidFileKeepsCurrent() throws Exception {
+        final Optional<Map<String, ConfigValue>> map = getReloadableConfig();
+        if (map.isPresent()) {
+            final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map.get()));
+            final AtomicInteger reloads = new AtomicInteger(0);
+            crypto.addReloadListener(reloads::incrementAndGet);
+
+            final SSLContext sslContext = crypto.getSSLContext();
+            final SymmetricKeyEncryption ske = crypto.getSymmetricKeyEncryption();
+
+            // A partially written key store file must not replace the current keys.
+            Files.write(Paths.get(map.get().get(SSL_KEYSTORE_FILE.getKey()).unwrapped().toString()), new byte[10]);
+            try {
+                crypto.reload();
+                throw new AssertionError("Expected reload to fail");
+            } catch (final EncryptionException expected) {
+                assertEquals(0, reloads.get());
+                assertSame(sslContext, crypto.getSSLContext());
+                assertSame(ske, crypto.getSymmetricKeyEncryption());
+            }
+        }
+    }
+
+    @Test
+    public void testWatchKeyStores() throws Exception {
+        final Optional<Map<String, ConfigValue>> map = getReloadableConfig();
+        if (map.isPresent()) {
+            final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map.get()));
+            final SSLContext sslContext = crypto.getSSLContext();
+            final CountDownLatch reloaded = new CountDownLatch(1);
+            crypto.addReloadListener(reloaded::countDown);
+            crypto.watchKeyStores();
+            try {
+                final Path keystore = Paths.get(map.get().get(SSL_KEYSTORE_FILE.getKey()).unwrapped().toString());
+                Files.write(keystore, Files.readAllBytes(keystore));
+
+                assertTrue(reloaded.await(10, TimeUnit.SECONDS));
+                assertNotSame(sslContext, crypto.getSSLContext());
+            } finally {
+                crypto.close();
+            }
+        }
+    }
+
+    @Test
+    public void testWatchKeyStoresSslDisabled() throws EncryptionException {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(SSL_ENABLED.getKey(), ConfigValueFactory.fromAnyRef("false"));
+        final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map));
+        crypto.watchKeyStores();
+        crypto.close();
+    }
+
+    @Test
+    public void testGetSSLContextSessions() throws Exception {
+        final Optional<Map<String, ConfigValue>> map = getReloadableConfig();
+        if (map.isPresent()) {
+            map.get().put(SSL_SESSION_CACHE_SIZE.getKey(), ConfigValueFactory.fromAnyRef(500));
+            map.get().put(SSL_SESSION_TIMEOUT.getKey(), ConfigValueFactory.fromAnyRef("2 hours"));
+            final DefaultCryptoFactory crypto = new DefaultCryptoFactory(ConfigFactory.parseMap(map.get()));
+
+            final SSLContext sslContext = crypto.getSSLContext();
+            assertEquals(500, sslContext.getClientSessionContext().getSessionCacheSize());
+            assertEquals(7200, sslContext.getClientSessionContext().getSessionTimeout());
+        }
+    }
 }
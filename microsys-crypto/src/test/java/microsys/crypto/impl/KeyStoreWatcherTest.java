@@ -0,0 +1,81 @@
+package microsys.crypto.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Perform testing on the {@link KeyStoreWatcher} class.
+ */
+public class KeyStoreWatcherTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testChangeDetected() throws Exception {
+        final Path keystore = this.tmp.newFile("keystore.jks").toPath();
+        final Path truststore = this.tmp.newFile("truststore.jks").toPath();
+        final CountDownLatch changed = new CountDownLatch(1);
+
+        try (final KeyStoreWatcher watcher = new KeyStoreWatcher(Arrays.asList(keystore, truststore), 50,
+                changed::countDown)) {
+            assertEquals(2, watcher.getFiles().size());
+            assertEquals(50, watcher.getDelayMillis());
+
+            Files.write(truststore, new byte[] {0x01});
+            assertTrue(changed.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testOtherFileIgnored() throws Exception {
+        final Path keystore = this.tmp.newFile("keystore.jks").toPath();
+        final CountDownLatch changed = new CountDownLatch(1);
+
+        final KeyStoreWatcher watcher = new KeyStoreWatcher(Collections.singleton(keystore), 50, changed::countDown);
+        try {
+            Files.write(this.tmp.getRoot().toPath().resolve("other.txt"), new byte[] {0x01});
+            assertFalse(changed.await(500, TimeUnit.MILLISECONDS));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testFailingCallbackKeepsWatching() throws Exception {
+        final Path keystore = this.tmp.newFile("keystore.jks").toPath();
+        final CountDownLatch changed = new CountDownLatch(2);
+
+        final KeyStoreWatcher watcher = new KeyStoreWatcher(Collections.singleton(keystore), 50, () -> {
+            changed.countDown();
+            throw new RuntimeException("Fake");
+        });
+        try {
+            Files.write(keystore, new byte[] {0x01});
+            while (changed.getCount() > 1) {
+                Thread.sleep(10);
+            }
+            Files.write(keystore, new byte[] {0x02});
+            assertTrue(changed.await(10, TimeUnit.SECONDS));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoFiles() throws Exception {
+        new KeyStoreWatcher(Collections.emptyList(), 50, () -> {
+        });
+    }
+}
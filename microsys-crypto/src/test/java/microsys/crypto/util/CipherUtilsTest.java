@@ -0,0 +1,75 @@
+package microsys.crypto.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.Signature;
+import java.util.concurrent.CompletableFuture;
+
+import javax.crypto.Cipher;
+
+/**
+ * Perform testing on the {@link CipherUtils} class.
+ */
+public class CipherUtilsTest {
+    @Test
+    public void testConstructor() {
+        // Only here for 100% coverage.
+        new CipherUtils();
+    }
+
+    @Test
+    public void testGetCipher() throws Exception {
+        final Cipher cipher = CipherUtils.getCipher("AES");
+        assertSame(cipher, CipherUtils.getCipher("AES"));
+        assertNotSame(cipher, CipherUtils.getCipher("AES/CBC/PKCS5Padding"));
+
+        // Each thread gets a separate instance.
+        assertNotSame(cipher, CompletableFuture.supplyAsync(() -> {
+            try {
+                return CipherUtils.getCipher("AES");
+            } catch (final Exception exception) {
+                throw new RuntimeException(exception);
+            }
+        }).get());
+    }
+
+    @Test
+    public void testGetSignature() throws Exception {
+        final Signature signature = CipherUtils.getSignature("SHA1withRSA");
+        assertSame(signature, CipherUtils.getSignature("SHA1withRSA"));
+    }
+
+    @Test
+    public void testReadFully() throws Exception {
+        final byte[] data = {0x01, 0x02, 0x03};
+        assertArrayEquals(new byte[] {0x01, 0x02}, CipherUtils.readFully(new ByteArrayInputStream(data), 2));
+        assertArrayEquals(data, CipherUtils.readFully(Channels.newChannel(new ByteArrayInputStream(data)), 3));
+
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        assertArrayEquals(new byte[] {0x01}, CipherUtils.readFully(buffer, 1));
+        assertArrayEquals(new byte[] {0x02, 0x03}, CipherUtils.readFully(buffer, 2));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadFullyStreamTooShort() throws Exception {
+        CipherUtils.readFully(new ByteArrayInputStream(new byte[1]), 2);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadFullyChannelTooShort() throws Exception {
+        CipherUtils.readFully(Channels.newChannel(new ByteArrayInputStream(new byte[1])), 2);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadFullyBufferTooShort() throws Exception {
+        CipherUtils.readFully(ByteBuffer.allocate(1), 2);
+    }
+}
@@ -1,9 +1,14 @@
 package microsys.crypto.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
 /**
  * Perform testing on the {@link HexUtils} class.
  */
@@ -23,4 +28,77 @@ public class HexUtilsTest {
 
         assertEquals(original.toLowerCase(), hex);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAllByteValues() {
+        final byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        final String hex = HexUtils.bytesToHex(bytes);
+        assertEquals("00010203", hex.substring(0, 8));
+        assertEquals("fcfdfeff", hex.substring(hex.length() - 8));
+        assertArrayEquals(bytes, HexUtils.hexToBytes(hex));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals("", HexUtils.bytesToHex(new byte[0]));
+        assertArrayEquals(new byte[0], HexUtils.hexToBytes(""));
+    }
+
+    @Test
+    public void testBytesToHexCharArray() {
+        final char[] dest = new char[8];
+        dest[0] = '[';
+        dest[7] = ']';
+        assertEquals(7, HexUtils.bytesToHex(new byte[] {0x01, (byte) 0xAB, 0x7F}, dest, 1));
+        assertEquals("[01ab7f]", new String(dest));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBytesToHexCharArrayTooSmall() {
+        HexUtils.bytesToHex(new byte[] {0x01, 0x02}, new char[4], 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBytesToHexCharArrayNegativeOffset() {
+        HexUtils.bytesToHex(new byte[] {0x01}, new char[4], -1);
+    }
+
+    @Test
+    public void testBytesToHexAppendable() throws IOException {
+        final StringBuilder dest = new StringBuilder("sig=");
+        HexUtils.bytesToHex(new byte[] {0x01, (byte) 0xAB}, dest);
+        assertEquals("sig=01ab", dest.toString());
+    }
+
+    @Test
+    public void testHexToBytesByteBuffer() {
+        final ByteBuffer dest = ByteBuffer.allocate(4);
+        dest.put((byte) 0x09);
+        HexUtils.hexToBytes("01aB", dest);
+        assertEquals(3, dest.position());
+        assertArrayEquals(new byte[] {0x09, 0x01, (byte) 0xAB, 0x00}, dest.array());
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void testHexToBytesByteBufferTooSmall() {
+        HexUtils.hexToBytes("0102", ByteBuffer.allocate(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHexToBytesOddLength() {
+        HexUtils.hexToBytes("abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHexToBytesInvalidCharacter() {
+        HexUtils.hexToBytes("0g");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHexToBytesNonAsciiCharacter() {
+        HexUtils.hexToBytes("0é");
+    }
+}
@@ -0,0 +1,125 @@
+package microsys.discovery;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import microsys.common.model.service.Service;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * An immutable class describing a change to the set of services registered with service discovery.
+ */
+public class DiscoveryEvent {
+    /**
+     * Defines the kinds of changes to the registered services.
+     */
+    public enum Type {
+        /**
+         * A service was registered.
+         */
+        ADDED,
+
+        /**
+         * A service was unregistered, or its registration expired.
+         */
+        REMOVED,
+
+        /**
+         * A service with the same id registered again with different details, such as a new version.
+         */
+        UPDATED,
+    }
+
+    @Nonnull
+    private final Type type;
+    @Nonnull
+    private final Service service;
+    @Nonnull
+    private final Optional<Service> previous;
+
+    /**
+     * @param type the kind of change that occurred
+     * @param service the service that was added or removed, or the new details of an updated service
+     * @param previous the previous details of an updated service, empty for other kinds of change
+     */
+    public DiscoveryEvent(
+            @Nonnull final Type type, @Nonnull final Service service, @Nonnull final Optional<Service> previous) {
+        this.type = Objects.requireNonNull(type);
+        this.service = Objects.requireNonNull(service);
+        this.previous = Objects.requireNonNull(previous);
+    }
+
+    /**
+     * @return the kind of change that occurred
+     */
+    @Nonnull
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * @return the service that was added or removed, or the new details of an updated service
+     */
+    @Nonnull
+    public Service getService() {
+        return this.service;
+    }
+
+    /**
+     * @return the previous details of an updated service, empty for other kinds of change
+     */
+    @Nonnull
+    public Optional<Service> getPrevious() {
+        return this.previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(@CheckForNull final Object other) {
+        if (!(other instanceof DiscoveryEvent)) {
+            return false;
+        }
+        final DiscoveryEvent event = (DiscoveryEvent) other;
+        final EqualsBuilder equals = new EqualsBuilder();
+        equals.append(getType(), event.getType());
+        equals.append(getService(), event.getService());
+        equals.append(getPrevious(), event.getPrevious());
+        return equals.isEquals();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        final HashCodeBuilder hash = new HashCodeBuilder();
+        hash.append(getType());
+        hash.append(getService());
+        hash.append(getPrevious());
+        return hash.toHashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public String toString() {
+        final ToStringBuilder str = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        str.append("type", getType());
+        str.append("service", getService());
+        if (getPrevious().isPresent()) {
+            str.append("previous", getPrevious().get());
+        }
+        return str.build();
+    }
+}
@@ -0,0 +1,14 @@
+package microsys.discovery;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives the changes to the services of a type registered with service discovery.
+ */
+@FunctionalInterface
+public interface DiscoveryListener {
+    /**
+     * @param event the change to the registered services
+     */
+    void onEvent(@Nonnull DiscoveryEvent event);
+}
@@ -31,6 +31,15 @@ public interface DiscoveryManager {
      */
     void unregister(@Nonnull Service service) throws DiscoveryException;
 
+    /**
+     * Replace the registration details of a service that is already registered, such as its published capacity,
+     * without removing and adding it again.
+     *
+     * @param service the {@link Service} with the updated registration details
+     * @throws DiscoveryException if there is a problem updating the service registration
+     */
+    void update(@Nonnull Service service) throws DiscoveryException;
+
     /**
      * @return all of the available {@link Service} objects that have registered with service discovery
      * @throws DiscoveryException if there is a problem retrieving all of the discoverable services
@@ -47,12 +56,59 @@ public interface DiscoveryManager {
     @Nonnull
     SortedSet<Service> getAll(@Nonnull ServiceType serviceType) throws DiscoveryException;
 
+    /**
+     * @param serviceType the {@link ServiceType} indicating the type of services to check
+     * @return whether the services of the specified type are currently answered from a provisional view, such as a
+     * snapshot saved before a restart, which will be replaced once the live services have been loaded
+     */
+    boolean isStale(@Nonnull ServiceType serviceType);
+
     /**
      * @param serviceType the {@link ServiceType} indicating the type of service to retrieve
      * @return a randomly chosen {@link Service} of the specified type that has registered with service discovery,
-     * possibly empty if there are no registered services of the specified type
+     * preferring services on the same host and then in the same zone (see {@link LocalitySelector}), possibly empty if
+     * there are no registered services of the specified type
      * @throws DiscoveryException if there is a problem retrieving a random discoverable service of the specified type
      */
     @Nonnull
     Optional<Service> getRandom(@Nonnull ServiceType serviceType) throws DiscoveryException;
+
+    /**
+     * @param serviceType the {@link ServiceType} indicating the type of service to retrieve
+     * @param key the key identifying the data being requested, such as a configuration key or user id
+     * @return the {@link Service} of the specified type to which requests for the key should be sent, which stays the
+     * same for all callers while the registered services do not change so that caches within the service are
+     * effective (see {@link LocalitySelector#selectConsistent(java.util.Collection, String)}), possibly empty if there
+     * are no registered services of the specified type
+     * @throws DiscoveryException if there is a problem retrieving the discoverable services of the specified type
+     */
+    @Nonnull
+    Optional<Service> getConsistent(@Nonnull ServiceType serviceType, @Nonnull String key) throws DiscoveryException;
+
+    /**
+     * Skip the service running on the specified host and port when selecting services for a while, typically after a
+     * request to it failed or it reported being overloaded, so that selection spills over to other services.
+     *
+     * @param host the host of the service to eject
+     * @param port the port of the service to eject
+     */
+    void eject(@Nonnull String host, int port);
+
+    /**
+     * Watch for changes to the registered services of the specified type. The listener is first sent an added event
+     * for each service already registered, and then an event for each later registration, removal, or update, so it
+     * can maintain its own view of the services without querying service discovery again. Changes to only the
+     * published capacity of a service are not reported, since they happen often and do not change the service.
+     *
+     * @param serviceType the {@link ServiceType} indicating the type of services to watch
+     * @param listener the {@link DiscoveryListener} to notify when the services change
+     * @throws DiscoveryException if there is a problem watching the services of the specified type
+     */
+    void addListener(@Nonnull ServiceType serviceType, @Nonnull DiscoveryListener listener) throws DiscoveryException;
+
+    /**
+     * @param serviceType the {@link ServiceType} for which the listener was added
+     * @param listener the {@link DiscoveryListener} to stop notifying
+     */
+    void removeListener(@Nonnull ServiceType serviceType, @Nonnull DiscoveryListener listener);
 }
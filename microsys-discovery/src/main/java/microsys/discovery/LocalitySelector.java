@@ -0,0 +1,329 @@
+package microsys.discovery;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.typesafe.config.Config;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceCapacity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Selects a service instance with a preference for instances close to the caller: instances on the same host are
+ * preferred, then instances in the same zone, then any instance. A closer instance is passed over when it is
+ * overloaded, meaning the spare capacity it last published has dropped to the configured minimum, or when it has been
+ * ejected after failing or reporting that it is overloaded, until the ejection expires. When every instance is
+ * overloaded or ejected the selection falls back to all of them, since trying a busy instance is better than failing
+ * outright. A configurable fraction of selections also spills over to all tiers so that local instances are not the
+ * only ones taking load. Within the chosen tier, instances are picked at random in proportion to their spare capacity.
+ * Requests for a particular key can instead be routed consistently using rendezvous hashing, so that caches within the
+ * services see every request for the keys they hold and only the keys of an instance that comes or goes are moved.
+ */
+public class LocalitySelector {
+    // The locality tiers, in order of preference
+    private final static int SAME_HOST = 0;
+    private final static int SAME_ZONE = 1;
+    private final static int OTHER = 2;
+
+    // Used to score each service for a key when selecting consistently
+    private final static HashFunction HASH = Hashing.murmur3_128();
+
+    @Nonnull
+    private final String host;
+    @Nonnull
+    private final Optional<String> zone;
+    private final double spillover;
+    private final double minSpareCapacity;
+    private final long ejectionMillis;
+
+    // The ids of the ejected services, mapped to the time (in milliseconds since the epoch) when the ejection expires
+    @Nonnull
+    private final Map<String, Long> ejected = new ConcurrentHashMap<>();
+
+    /**
+     * @param host the host on which the caller is running
+     * @param zone the rack or zone in which the caller is running, if configured
+     * @param spillover the fraction of selections, between 0 and 1, that choose from all tiers rather than the closest
+     * @param ejectionMillis the number of milliseconds for which an ejected service is skipped
+     */
+    public LocalitySelector(
+            @Nonnull final String host, @Nonnull final Optional<String> zone, final double spillover,
+            final long ejectionMillis) {
+        this(host, zone, spillover, 0, ejectionMillis);
+    }
+
+    /**
+     * @param host the host on which the caller is running
+     * @param zone the rack or zone in which the caller is running, if configured
+     * @param spillover the fraction of selections, between 0 and 1, that choose from all tiers rather than the closest
+     * @param minSpareCapacity the published spare capacity at or below which a service is considered overloaded
+     * @param ejectionMillis the number of milliseconds for which an ejected service is skipped
+     */
+    public LocalitySelector(
+            @Nonnull final String host, @Nonnull final Optional<String> zone, final double spillover,
+            final double minSpareCapacity, final long ejectionMillis) {
+        Preconditions.checkArgument(spillover >= 0 && spillover <= 1, "Spillover must be between 0 and 1");
+        Preconditions.checkArgument(minSpareCapacity >= 0, "Minimum spare capacity must not be negative");
+        Preconditions.checkArgument(ejectionMillis >= 0, "Ejection duration must not be negative");
+        this.host = Objects.requireNonNull(host);
+        this.zone = Objects.requireNonNull(zone);
+        this.spillover = spillover;
+        this.minSpareCapacity = minSpareCapacity;
+        this.ejectionMillis = ejectionMillis;
+    }
+
+    /**
+     * @param config the static system configuration information, providing the local host, zone, spillover fraction,
+     *     minimum spare capacity, and ejection duration
+     * @return a {@link LocalitySelector} for a caller running on the configured host, using default values for any
+     *     settings missing from the configuration
+     */
+    @Nonnull
+    public static LocalitySelector create(@Nonnull final Config config) {
+        Objects.requireNonNull(config);
+        final String host = config.hasPath(ConfigKeys.SERVER_HOSTNAME.getKey()) ?
+                config.getString(ConfigKeys.SERVER_HOSTNAME.getKey()) : "";
+        final Optional<String> zone = config.hasPath(ConfigKeys.SERVER_ZONE.getKey()) ?
+                Optional.of(config.getString(ConfigKeys.SERVER_ZONE.getKey())).filter(z -> !z.isEmpty()) :
+                Optional.empty();
+        final double spillover = config.hasPath(ConfigKeys.DISCOVERY_LOCALITY_SPILLOVER.getKey()) ?
+                config.getDouble(ConfigKeys.DISCOVERY_LOCALITY_SPILLOVER.getKey()) : 0d;
+        final double minSpare = config.hasPath(ConfigKeys.DISCOVERY_LOCALITY_MIN_SPARE.getKey()) ?
+                config.getDouble(ConfigKeys.DISCOVERY_LOCALITY_MIN_SPARE.getKey()) : 0d;
+        final long ejection = config.hasPath(ConfigKeys.DISCOVERY_EJECTION_DURATION.getKey()) ?
+                config.getDuration(ConfigKeys.DISCOVERY_EJECTION_DURATION.getKey(), TimeUnit.MILLISECONDS) : 0L;
+        return new LocalitySelector(host, zone, spillover, minSpare, ejection);
+    }
+
+    /**
+     * @return the host on which the caller is running
+     */
+    @Nonnull
+    public String getHost() {
+        return this.host;
+    }
+
+    /**
+     * @return the rack or zone in which the caller is running, if configured
+     */
+    @Nonnull
+    public Optional<String> getZone() {
+        return this.zone;
+    }
+
+    /**
+     * @return the fraction of selections that choose from all tiers rather than the closest
+     */
+    public double getSpillover() {
+        return this.spillover;
+    }
+
+    /**
+     * @return the published spare capacity at or below which a service is considered overloaded
+     */
+    public double getMinSpareCapacity() {
+        return this.minSpareCapacity;
+    }
+
+    /**
+     * Skip the service running on the specified host and port for the configured ejection duration.
+     *
+     * @param host the host of the service to eject
+     * @param port the port of the service to eject
+     */
+    public void eject(@Nonnull final String host, final int port) {
+        if (this.ejectionMillis > 0) {
+            final long expires = System.currentTimeMillis() + this.ejectionMillis;
+            this.ejected.put(getId(Objects.requireNonNull(host), port), expires);
+        }
+    }
+
+    /**
+     * @param service the service to check
+     * @return whether the service has been ejected and the ejection has not yet expired
+     */
+    public boolean isEjected(@Nonnull final Service service) {
+        final String id = getId(service.getHost(), service.getPort());
+        final Long expires = this.ejected.get(id);
+        if (expires != null && expires <= System.currentTimeMillis()) {
+            this.ejected.remove(id, expires);
+            return false;
+        }
+        return expires != null;
+    }
+
+    /**
+     * @param service the service to check
+     * @return whether the service has published a spare capacity at or below the configured minimum, services that
+     *     have not published their capacity are never considered overloaded
+     */
+    public boolean isOverloaded(@Nonnull final Service service) {
+        return service.getCapacity().isPresent()
+                && service.getCapacity().get().getSpareCapacity() <= getMinSpareCapacity();
+    }
+
+    /**
+     * @param service the service to classify
+     * @return the locality tier of the service relative to the caller, lower being closer
+     */
+    protected int getTier(@Nonnull final Service service) {
+        if (getHost().equals(service.getHost())) {
+            return SAME_HOST;
+        }
+        if (getZone().isPresent() && getZone().equals(service.getZone())) {
+            return SAME_ZONE;
+        }
+        return OTHER;
+    }
+
+    /**
+     * @param services the available services from which one should be selected
+     * @return the selected service, or empty when no services are available
+     */
+    @Nonnull
+    public Optional<Service> select(@Nonnull final Collection<Service> services) {
+        final List<Service> available = new ArrayList<>(services.size());
+        services.stream().filter(service -> !isEjected(service)).forEach(available::add);
+        if (available.isEmpty()) {
+            available.addAll(services);
+        }
+        if (available.isEmpty()) {
+            return Optional.empty();
+        }
+        // Overloaded services are dropped before choosing the tier, so an overloaded local tier falls through to the
+        // next closest tier with spare capacity.
+        if (available.stream().anyMatch(service -> !isOverloaded(service))) {
+            available.removeIf(this::isOverloaded);
+        }
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int closest = available.stream().mapToInt(this::getTier).min().getAsInt();
+        final List<Service> candidates = new ArrayList<>(available.size());
+        if (closest == OTHER || random.nextDouble() < getSpillover()) {
+            candidates.addAll(available);
+        } else {
+            available.stream().filter(service -> getTier(service) == closest).forEach(candidates::add);
+        }
+        return Optional.of(pick(candidates, random.nextDouble()));
+    }
+
+    /**
+     * Select a service for the specified key using weighted rendezvous hashing: each service is scored using a hash of
+     * the key and the service, and the highest score wins, so every caller chooses the same service for a key and only
+     * the keys of a service that is added or removed move elsewhere. Locality and spare capacity are ignored since
+     * they differ between callers and over time, but ejected services are skipped, moving their keys to the service
+     * with the next highest score until the ejection expires.
+     *
+     * @param services the available services from which one should be selected
+     * @param key the key identifying the data being requested, such as a configuration key or user id
+     * @return the selected service, or empty when no services are available
+     */
+    @Nonnull
+    public Optional<Service> selectConsistent(@Nonnull final Collection<Service> services, @Nonnull final String key) {
+        Objects.requireNonNull(key);
+        Optional<Service> selected = selectConsistent(services.stream().filter(service -> !isEjected(service)), key);
+        if (!selected.isPresent()) {
+            selected = selectConsistent(services.stream(), key);
+        }
+        return selected;
+    }
+
+    @Nonnull
+    private Optional<Service> selectConsistent(@Nonnull final Stream<Service> services, @Nonnull final String key) {
+        Service best = null;
+        double bestScore = 0;
+        long bestHash = 0;
+        for (final Service service : (Iterable<Service>) services::iterator) {
+            final long hash = getHash(service, key);
+            final double score = getScore(service, hash);
+            if (best == null || score > bestScore || (score == bestScore && hash > bestHash)) {
+                best = service;
+                bestScore = score;
+                bestHash = hash;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * @param service the service to hash
+     * @param key the key being requested
+     * @return a hash of the service and key
+     */
+    protected long getHash(@Nonnull final Service service, @Nonnull final String key) {
+        return HASH.newHasher().putString(getId(service.getHost(), service.getPort()), Charsets.UTF_8)
+                .putString(key, Charsets.UTF_8).hash().asLong();
+    }
+
+    /**
+     * @param service the service to score
+     * @param hash the hash of the service and the key being requested
+     * @return the rendezvous score of the service, such that the chance of a service having the highest score is in
+     *     proportion to its configured weight
+     */
+    protected double getScore(@Nonnull final Service service, final long hash) {
+        final int weight = service.getCapacity().map(ServiceCapacity::getWeight).orElse(ServiceCapacity.DEFAULT_WEIGHT);
+        // Map the hash into the range (0, 1), excluding both ends so the logarithm is negative and finite.
+        final double unit = ((hash >>> 11) + 0.5) / (1L << 53);
+        return -weight / Math.log(unit);
+    }
+
+    /**
+     * @param service the service to weigh
+     * @return the spare capacity published by the service, or the capacity of an idle service with the default
+     *     weight when the service has not published its capacity
+     */
+    protected double getSpareCapacity(@Nonnull final Service service) {
+        return service.getCapacity().map(ServiceCapacity::getSpareCapacity)
+                .orElse((double) ServiceCapacity.DEFAULT_WEIGHT);
+    }
+
+    /**
+     * @param candidates the services from which one should be picked, must not be empty
+     * @param fraction a random value between 0 (inclusive) and 1 (exclusive)
+     * @return the service at the specified fraction of the total spare capacity of the candidates, or a uniformly
+     *     chosen candidate when none of them have spare capacity
+     */
+    @Nonnull
+    protected Service pick(@Nonnull final List<Service> candidates, final double fraction) {
+        final double[] weights = new double[candidates.size()];
+        double total = 0;
+        for (int index = 0; index < weights.length; index++) {
+            weights[index] = getSpareCapacity(candidates.get(index));
+            total += weights[index];
+        }
+        if (total <= 0) {
+            return candidates.get((int) (fraction * candidates.size()));
+        }
+
+        double remaining = fraction * total;
+        for (int index = 0; index < weights.length; index++) {
+            remaining -= weights[index];
+            if (remaining < 0) {
+                return candidates.get(index);
+            }
+        }
+        // Only reached through floating-point rounding, when the fraction is very close to 1.
+        return candidates.get(candidates.size() - 1);
+    }
+
+    @Nonnull
+    private static String getId(@Nonnull final String host, final int port) {
+        return String.format("%s:%d", host, port);
+    }
+}
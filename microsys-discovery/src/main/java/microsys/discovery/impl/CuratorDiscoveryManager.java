@@ -7,33 +7,80 @@ import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.x.discovery.ServiceDiscovery;
 import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
 import org.apache.curator.x.discovery.ServiceInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import microsys.common.model.service.Service;
 import microsys.common.model.service.ServiceType;
 import microsys.discovery.DiscoveryException;
+import microsys.discovery.DiscoveryListener;
 import microsys.discovery.DiscoveryManager;
+import microsys.discovery.LocalitySelector;
+import microsys.discovery.snapshot.DiscoverySnapshot;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
 
 /**
  * The class is used to manage the system service discovery activity and is responsible for registering and
  * unregistering services, and retrieving available services.
+ * <p>
+ * The registered services are read from a {@link ServiceWatcher} per service type, which is kept current by zookeeper
+ * watches, so queries are answered from memory. The watchers are started on first use, and the watchers for all the
+ * service types are started concurrently when all services are first requested. Changes made by other processes become
+ * visible once the watch fires, while {@link #register(Service)} and {@link #unregister(Service)} wait briefly for the
+ * watch so a process sees its own changes.
+ * <p>
+ * When discovery snapshots are enabled, the known services are also written into a local {@link DiscoverySnapshot}
+ * each time they change. After a restart, the snapshot is loaded as a provisional, stale view: service types found in
+ * the snapshot are answered from it immediately while their watchers start in the background, and the live services
+ * replace the snapshot as each watcher finishes loading, so the first lookups succeed even while zookeeper is slow or
+ * unreachable.
  */
 public class CuratorDiscoveryManager implements DiscoveryManager {
+    // How long to wait for the watch to report a registration change made by this process - arbitrary
+    private final static long WATCH_TIMEOUT_MILLIS = 5000;
+
+    private final static Logger LOG = LoggerFactory.getLogger(CuratorDiscoveryManager.class);
+
     @Nonnull
     private final Config config;
     @Nonnull
     private final ServiceDiscovery<String> discovery;
+    @Nonnull
+    private final LocalitySelector selector;
+    @Nonnull
+    private final Map<ServiceType, ServiceWatcher> watchers = new EnumMap<>(ServiceType.class);
+    @Nonnull
+    private volatile Snapshot all = new Snapshot(Collections.emptyList(), Collections.emptySortedSet());
+    @Nonnull
+    private final Optional<DiscoverySnapshot> snapshot;
+    // The services loaded from the snapshot for the types whose watchers have not started yet
+    @Nonnull
+    private final Map<ServiceType, SortedSet<Service>> staleServices = new ConcurrentHashMap<>();
+    // The service types whose watchers are being started in the background
+    @Nonnull
+    private final Map<ServiceType, Boolean> starting = new ConcurrentHashMap<>();
+    @Nonnull
+    private final AtomicBoolean snapshotPending = new AtomicBoolean(false);
+    @Nonnull
+    private final Optional<ExecutorService> executor;
 
     private boolean isClosed = false;
 
@@ -45,7 +92,20 @@ public class CuratorDiscoveryManager implements DiscoveryManager {
     public CuratorDiscoveryManager(@Nonnull final Config config, @Nonnull final CuratorFramework curator)
             throws DiscoveryException {
         this.config = Objects.requireNonNull(config);
+        this.selector = LocalitySelector.create(config);
         this.discovery = ServiceDiscoveryBuilder.builder(String.class).client(curator).basePath("/discovery").build();
+        this.snapshot = DiscoverySnapshot.create(config);
+        this.executor = this.snapshot.map(snapshot -> Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "discovery-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        this.snapshot.flatMap(DiscoverySnapshot::load).ifPresent(services -> {
+            final Map<ServiceType, SortedSet<Service>> byType = new EnumMap<>(ServiceType.class);
+            services.forEach(service ->
+                    byType.computeIfAbsent(service.getType(), type -> new TreeSet<>()).add(service));
+            byType.forEach((type, stale) -> this.staleServices.put(type, Collections.unmodifiableSortedSet(stale)));
+        });
         try {
             this.discovery.start();
         } catch (final Exception exception) {
@@ -69,6 +129,185 @@ public class CuratorDiscoveryManager implements DiscoveryManager {
         return this.discovery;
     }
 
+    /**
+     * @return the {@link LocalitySelector} used to choose between the available services of a type
+     */
+    @Nonnull
+    protected LocalitySelector getSelector() {
+        return this.selector;
+    }
+
+    /**
+     * @return the local snapshot in which the known services are persisted, possibly empty if disabled
+     */
+    @Nonnull
+    protected Optional<DiscoverySnapshot> getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * @return the services loaded from the snapshot, by type, for the types whose watchers have not started yet
+     */
+    @Nonnull
+    protected Map<ServiceType, SortedSet<Service>> getStaleServices() {
+        return this.staleServices;
+    }
+
+    /**
+     * @return the watchers created for the service types that have been used, guarded by this manager
+     */
+    @Nonnull
+    protected Map<ServiceType, ServiceWatcher> getWatchers() {
+        return this.watchers;
+    }
+
+    /**
+     * @param serviceType the type of the services to watch
+     * @return a new, unstarted {@link ServiceWatcher} for the services of the specified type
+     */
+    @Nonnull
+    protected ServiceWatcher createWatcher(@Nonnull final ServiceType serviceType) {
+        return new ServiceWatcher(serviceType,
+                getDiscovery().serviceCacheBuilder().name(Objects.requireNonNull(serviceType).name()).build(),
+                this::createService);
+    }
+
+    /**
+     * @param serviceType the type of the services to watch
+     * @return the started {@link ServiceWatcher} for the services of the specified type
+     * @throws DiscoveryException if there is a problem starting the watcher
+     */
+    @Nonnull
+    protected synchronized ServiceWatcher getWatcher(@Nonnull final ServiceType serviceType)
+            throws DiscoveryException {
+        ServiceWatcher watcher = getWatchers().get(Objects.requireNonNull(serviceType));
+        if (watcher == null) {
+            watcher = createWatcher(serviceType);
+            watcher.start();
+            getWatchers().put(serviceType, watcher);
+            watched(watcher);
+        }
+        return watcher;
+    }
+
+    /**
+     * Start the watcher for the specified service type in the background, leaving the snapshot services in use until
+     * the live services have been loaded.
+     *
+     * @param serviceType the type of the services to watch
+     */
+    protected void startInBackground(@Nonnull final ServiceType serviceType) {
+        if (this.executor.isPresent() && this.starting.putIfAbsent(serviceType, Boolean.TRUE) == null) {
+            this.executor.get().submit(() -> {
+                try {
+                    // Start outside the lock, so lookups for other types are not held up while zookeeper is slow.
+                    final ServiceWatcher watcher = createWatcher(serviceType);
+                    watcher.start();
+                    synchronized (this) {
+                        if (isClosed() || getWatchers().containsKey(serviceType)) {
+                            watcher.close();
+                        } else {
+                            getWatchers().put(serviceType, watcher);
+                            watched(watcher);
+                        }
+                    }
+                } catch (final DiscoveryException startFailed) {
+                    LOG.warn("Failed to watch {} services, still using the snapshot: {}", serviceType,
+                            startFailed.getMessage());
+                } finally {
+                    this.starting.remove(serviceType);
+                }
+            });
+        }
+    }
+
+    /**
+     * Called once a watcher has been started and added, so the live services of its type replace any snapshot
+     * services and changes to them are written to the snapshot.
+     *
+     * @param watcher the started watcher
+     */
+    protected void watched(@Nonnull final ServiceWatcher watcher) {
+        getStaleServices().remove(watcher.getServiceType());
+        if (getSnapshot().isPresent()) {
+            watcher.addListener(event -> saveSnapshot());
+            // Save the reconciled view even when the type no longer has any services.
+            saveSnapshot();
+        }
+    }
+
+    /**
+     * Write the known services into the local snapshot in the background. Multiple requests made while a write is
+     * pending are combined into a single write.
+     */
+    protected void saveSnapshot() {
+        if (getSnapshot().isPresent() && this.executor.isPresent() && this.snapshotPending.compareAndSet(false, true)) {
+            this.executor.get().submit(() -> {
+                this.snapshotPending.set(false);
+                try {
+                    getSnapshot().get().save(getKnown());
+                } catch (final DiscoveryException saveException) {
+                    LOG.warn("Failed to save discovery snapshot: {}", saveException.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the live services from the started watchers along with the snapshot services for the other types, so
+     * the saved snapshot keeps the types this process has not looked up yet
+     */
+    @Nonnull
+    protected synchronized SortedSet<Service> getKnown() {
+        final SortedSet<Service> known = new TreeSet<>();
+        getWatchers().values().forEach(watcher -> known.addAll(watcher.getServices()));
+        getStaleServices().forEach((type, services) -> {
+            if (!getWatchers().containsKey(type)) {
+                known.addAll(services);
+            }
+        });
+        return known;
+    }
+
+    /**
+     * Start watchers for all of the service types that do not have one yet. The watchers load their initial services
+     * concurrently, so the first request for all services costs a single round-trip to zookeeper rather than one per
+     * service type.
+     *
+     * @return the started watchers for all of the service types
+     * @throws DiscoveryException if there is a problem starting any of the watchers
+     */
+    @Nonnull
+    protected synchronized List<ServiceWatcher> getAllWatchers() throws DiscoveryException {
+        final List<ServiceWatcher> created = new ArrayList<>();
+        for (final ServiceType serviceType : ServiceType.values()) {
+            if (!getWatchers().containsKey(serviceType)) {
+                created.add(createWatcher(serviceType));
+            }
+        }
+
+        final List<DiscoveryException> failures = new CopyOnWriteArrayList<>();
+        created.parallelStream().forEach(watcher -> {
+            try {
+                watcher.start();
+            } catch (final DiscoveryException exception) {
+                failures.add(exception);
+            }
+        });
+        if (!failures.isEmpty()) {
+            created.forEach(ServiceWatcher::close);
+            throw failures.get(0);
+        }
+        created.forEach(watcher -> getWatchers().put(watcher.getServiceType(), watcher));
+        created.forEach(this::watched);
+
+        final List<ServiceWatcher> all = new ArrayList<>();
+        for (final ServiceType serviceType : ServiceType.values()) {
+            all.add(getWatchers().get(serviceType));
+        }
+        return all;
+    }
+
     /**
      * @return whether this manager has been closed or not
      */
@@ -104,12 +343,31 @@ public class CuratorDiscoveryManager implements DiscoveryManager {
     public void close() {
         try {
             this.isClosed = true;
+            synchronized (this) {
+                getWatchers().values().forEach(ServiceWatcher::close);
+                getWatchers().clear();
+            }
             getDiscovery().close();
+            this.executor.ifPresent(ExecutorService::shutdown);
         } catch (final IOException ignored) {
             // Ignored.
         }
     }
 
+    /**
+     * @param service the service whose registration was changed by this process
+     * @param registered whether the service was registered or unregistered
+     */
+    protected void awaitWatcher(@Nonnull final Service service, final boolean registered) {
+        final ServiceWatcher watcher;
+        synchronized (this) {
+            watcher = getWatchers().get(service.getType());
+        }
+        if (watcher != null) {
+            watcher.await(service.getId(), registered, WATCH_TIMEOUT_MILLIS);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -122,6 +380,7 @@ public class CuratorDiscoveryManager implements DiscoveryManager {
             } catch (final Exception exception) {
                 throw new DiscoveryException("Failed to register service " + service, exception);
             }
+            awaitWatcher(service, true);
         }
     }
 
@@ -137,6 +396,22 @@ public class CuratorDiscoveryManager implements DiscoveryManager {
             } catch (final Exception exception) {
                 throw new DiscoveryException("Failed to unregister service " + service, exception);
             }
+            awaitWatcher(service, false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void update(@Nonnull final Service service) throws DiscoveryException {
+        final ServiceInstance<String> serviceInstance = createServiceInstance(Objects.requireNonNull(service));
+        if (!isClosed()) {
+            try {
+                getDiscovery().updateService(serviceInstance);
+            } catch (final Exception exception) {
+                throw new DiscoveryException("Failed to update service " + service, exception);
+            }
         }
     }
 
@@ -146,11 +421,31 @@ public class CuratorDiscoveryManager implements DiscoveryManager {
     @Override
     @Nonnull
     public SortedSet<Service> getAll() throws DiscoveryException {
-        final SortedSet<Service> services = new TreeSet<>();
-        for (final ServiceType serviceType : ServiceType.values()) {
-            services.addAll(getAll(serviceType));
+        if (isClosed()) {
+            return Collections.emptySortedSet();
         }
-        return services;
+
+        final List<SortedSet<Service>> sources = new ArrayList<>();
+        if (getStaleServices().isEmpty()) {
+            for (final ServiceWatcher watcher : getAllWatchers()) {
+                sources.add(watcher.getServices());
+            }
+        } else {
+            // Answer from the snapshot for the types not yet watched, rather than waiting for zookeeper.
+            for (final ServiceType serviceType : ServiceType.values()) {
+                sources.add(getAll(serviceType));
+            }
+        }
+
+        // Reuse the previous combined snapshot while none of the per-type snapshots have changed.
+        final Snapshot previous = this.all;
+        if (previous.isBuiltFrom(sources)) {
+            return previous.getServices();
+        }
+        final SortedSet<Service> services = new TreeSet<>();
+        sources.forEach(services::addAll);
+        this.all = new Snapshot(sources, Collections.unmodifiableSortedSet(services));
+        return this.all.getServices();
     }
 
     /**
@@ -159,17 +454,25 @@ public class CuratorDiscoveryManager implements DiscoveryManager {
     @Override
     @Nonnull
     public SortedSet<Service> getAll(@Nonnull final ServiceType serviceType) throws DiscoveryException {
-        final SortedSet<Service> services = new TreeSet<>();
-        if (!isClosed()) {
-            try {
-                final List<ServiceInstance<String>> list =
-                        new ArrayList<>(getDiscovery().queryForInstances(Objects.requireNonNull(serviceType).name()));
-                list.stream().map(this::createService).forEach(services::add);
-            } catch (final Exception exception) {
-                throw new DiscoveryException("Failed to retrieve service services of type " + serviceType, exception);
-            }
+        Objects.requireNonNull(serviceType);
+        if (isClosed()) {
+            return Collections.emptySortedSet();
         }
-        return services;
+        final SortedSet<Service> stale = getStaleServices().get(serviceType);
+        if (stale != null && isStale(serviceType)) {
+            startInBackground(serviceType);
+            return stale;
+        }
+        return getWatcher(serviceType).getServices();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isStale(@Nonnull final ServiceType serviceType) {
+        Objects.requireNonNull(serviceType);
+        return !isClosed() && !getWatchers().containsKey(serviceType) && getStaleServices().containsKey(serviceType);
     }
 
     /**
@@ -178,18 +481,100 @@ public class CuratorDiscoveryManager implements DiscoveryManager {
     @Override
     @Nonnull
     public Optional<Service> getRandom(@Nonnull final ServiceType serviceType) throws DiscoveryException {
-        if (!isClosed()) {
-            try {
-                final List<ServiceInstance<String>> services =
-                        new ArrayList<>(getDiscovery().queryForInstances(Objects.requireNonNull(serviceType).name()));
-                if (!services.isEmpty()) {
-                    // Return a random service instance from the list.
-                    return Optional.of(createService(services.get(new Random().nextInt(services.size()))));
+        return getSelector().select(getAll(Objects.requireNonNull(serviceType)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Optional<Service> getConsistent(@Nonnull final ServiceType serviceType, @Nonnull final String key)
+            throws DiscoveryException {
+        return getSelector().selectConsistent(getAll(Objects.requireNonNull(serviceType)), Objects.requireNonNull(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addListener(
+            @Nonnull final ServiceType serviceType, @Nonnull final DiscoveryListener listener)
+            throws DiscoveryException {
+        Objects.requireNonNull(serviceType);
+        Objects.requireNonNull(listener);
+        final ServiceWatcher watcher;
+        synchronized (this) {
+            if (isClosed()) {
+                return;
+            }
+            watcher = getWatcher(serviceType);
+        }
+        // Add the listener outside the lock, since it is sent the current services and may call back into this class.
+        watcher.addListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void removeListener(
+            @Nonnull final ServiceType serviceType, @Nonnull final DiscoveryListener listener) {
+        final ServiceWatcher watcher = getWatchers().get(Objects.requireNonNull(serviceType));
+        if (watcher != null) {
+            watcher.removeListener(Objects.requireNonNull(listener));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void eject(@Nonnull final String host, final int port) {
+        getSelector().eject(Objects.requireNonNull(host), port);
+    }
+
+    /**
+     * An immutable combination of the services of all types, along with the per-type snapshots it was built from.
+     */
+    protected static class Snapshot {
+        @Nonnull
+        private final List<SortedSet<Service>> sources;
+        @Nonnull
+        private final SortedSet<Service> services;
+
+        /**
+         * @param sources the per-type snapshots the services were combined from
+         * @param services the combined services of all types
+         */
+        protected Snapshot(
+                @Nonnull final List<SortedSet<Service>> sources, @Nonnull final SortedSet<Service> services) {
+            this.sources = Objects.requireNonNull(sources);
+            this.services = Objects.requireNonNull(services);
+        }
+
+        /**
+         * @return the combined services of all types
+         */
+        @Nonnull
+        protected SortedSet<Service> getServices() {
+            return this.services;
+        }
+
+        /**
+         * @param current the current per-type snapshots
+         * @return whether this snapshot was built from exactly the same per-type snapshot instances
+         */
+        protected boolean isBuiltFrom(@Nonnull final List<SortedSet<Service>> current) {
+            if (this.sources.size() != current.size()) {
+                return false;
+            }
+            for (int index = 0; index < current.size(); index++) {
+                if (this.sources.get(index) != current.get(index)) {
+                    return false;
                 }
-            } catch (final Exception exception) {
-                throw new DiscoveryException("Failed to retrieve random service of type " + serviceType, exception);
             }
+            return true;
         }
-        return Optional.empty();
     }
 }
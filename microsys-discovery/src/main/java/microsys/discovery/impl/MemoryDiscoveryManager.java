@@ -0,0 +1,233 @@
+package microsys.discovery.impl;
+
+import com.typesafe.config.Config;
+
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceType;
+import microsys.discovery.DiscoveryException;
+import microsys.discovery.DiscoveryListener;
+import microsys.discovery.DiscoveryManager;
+import microsys.discovery.LocalitySelector;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedSet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides an in-memory implementation of a {@link DiscoveryManager}, for single-node deployments and tests that
+ * should not need a running zookeeper. The services are held in a {@link MemoryServiceRegistry}, by default the one
+ * shared by the whole JVM, so every service running in the same process can find the others. Services running in
+ * separate processes, such as those launched individually by the distribution scripts, can not see each other.
+ * <p>
+ * Closing the manager unregisters the services registered through it and removes the listeners added through it,
+ * leaving the registrations made through the other managers in place.
+ */
+public class MemoryDiscoveryManager implements DiscoveryManager {
+    @Nonnull
+    private final LocalitySelector selector;
+    @Nonnull
+    private final MemoryServiceRegistry registry;
+
+    // The services registered through this manager, keyed by service id, guarded by this
+    @Nonnull
+    private final Map<String, Service> registered = new HashMap<>();
+    // The listeners added through this manager, guarded by this
+    @Nonnull
+    private final Map<ServiceType, List<DiscoveryListener>> listeners = new EnumMap<>(ServiceType.class);
+
+    private volatile boolean isClosed = false;
+
+    /**
+     * @param config the static system configuration information
+     */
+    public MemoryDiscoveryManager(@Nonnull final Config config) {
+        this(config, MemoryServiceRegistry.getShared());
+    }
+
+    /**
+     * @param config the static system configuration information
+     * @param registry the registry holding the services shared with other memory discovery managers
+     */
+    public MemoryDiscoveryManager(@Nonnull final Config config, @Nonnull final MemoryServiceRegistry registry) {
+        this.selector = LocalitySelector.create(Objects.requireNonNull(config));
+        this.registry = Objects.requireNonNull(registry);
+    }
+
+    /**
+     * @return the {@link LocalitySelector} used to choose between the available services
+     */
+    @Nonnull
+    protected LocalitySelector getSelector() {
+        return this.selector;
+    }
+
+    /**
+     * @return the registry holding the services shared with other memory discovery managers
+     */
+    @Nonnull
+    public MemoryServiceRegistry getRegistry() {
+        return this.registry;
+    }
+
+    /**
+     * @return whether this discovery manager has been closed
+     */
+    public boolean isClosed() {
+        return this.isClosed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        final List<Service> services;
+        final Map<ServiceType, List<DiscoveryListener>> added;
+        synchronized (this) {
+            this.isClosed = true;
+            services = new ArrayList<>(this.registered.values());
+            added = new EnumMap<>(ServiceType.class);
+            added.putAll(this.listeners);
+            this.registered.clear();
+            this.listeners.clear();
+        }
+        added.forEach((type, list) -> list.forEach(listener -> getRegistry().removeListener(type, listener)));
+        services.forEach(getRegistry()::remove);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void register(@Nonnull final Service service) throws DiscoveryException {
+        Objects.requireNonNull(service);
+        synchronized (this) {
+            if (isClosed()) {
+                return;
+            }
+            this.registered.put(service.getId(), service);
+        }
+        getRegistry().put(service, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unregister(@Nonnull final Service service) {
+        Objects.requireNonNull(service);
+        synchronized (this) {
+            this.registered.remove(service.getId());
+        }
+        getRegistry().remove(service);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void update(@Nonnull final Service service) throws DiscoveryException {
+        Objects.requireNonNull(service);
+        if (isClosed()) {
+            return;
+        }
+        getRegistry().put(service, true);
+        synchronized (this) {
+            this.registered.replace(service.getId(), service);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public SortedSet<Service> getAll() {
+        return getRegistry().getAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public SortedSet<Service> getAll(@Nonnull final ServiceType serviceType) {
+        return getRegistry().getAll(Objects.requireNonNull(serviceType));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStale(@Nonnull final ServiceType serviceType) {
+        // The registrations are always current since they never leave this process.
+        Objects.requireNonNull(serviceType);
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Optional<Service> getRandom(@Nonnull final ServiceType serviceType) {
+        return getSelector().select(getAll(Objects.requireNonNull(serviceType)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Optional<Service> getConsistent(@Nonnull final ServiceType serviceType, @Nonnull final String key) {
+        return getSelector().selectConsistent(getAll(Objects.requireNonNull(serviceType)), Objects.requireNonNull(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void eject(@Nonnull final String host, final int port) {
+        getSelector().eject(Objects.requireNonNull(host), port);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addListener(@Nonnull final ServiceType serviceType, @Nonnull final DiscoveryListener listener) {
+        Objects.requireNonNull(serviceType);
+        Objects.requireNonNull(listener);
+        synchronized (this) {
+            if (isClosed()) {
+                return;
+            }
+            this.listeners.computeIfAbsent(serviceType, type -> new ArrayList<>()).add(listener);
+        }
+        // Added outside the lock, since the registry immediately notifies the listener of the current services.
+        getRegistry().addListener(serviceType, listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeListener(@Nonnull final ServiceType serviceType, @Nonnull final DiscoveryListener listener) {
+        Objects.requireNonNull(serviceType);
+        Objects.requireNonNull(listener);
+        synchronized (this) {
+            final List<DiscoveryListener> added = this.listeners.get(serviceType);
+            if (added != null) {
+                added.remove(listener);
+            }
+        }
+        getRegistry().removeListener(serviceType, listener);
+    }
+}
@@ -0,0 +1,225 @@
+package microsys.discovery.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceType;
+import microsys.discovery.DiscoveryEvent;
+import microsys.discovery.DiscoveryException;
+import microsys.discovery.DiscoveryListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Holds the services registered through the {@link MemoryDiscoveryManager} objects that share it. The shared registry
+ * returned by {@link #getShared()} is used by default, so all of the services running within one JVM can find each
+ * other. Nothing is shared between separate processes.
+ * <p>
+ * The services are held as immutable snapshots which are replaced after each change. Listeners are notified of each
+ * change in order, after the registry lock is released, so they are free to call back into service discovery.
+ */
+public class MemoryServiceRegistry {
+    private final static Logger LOG = LoggerFactory.getLogger(MemoryServiceRegistry.class);
+
+    // The registry shared by all of the memory discovery managers within this JVM
+    @Nonnull
+    private final static MemoryServiceRegistry SHARED = new MemoryServiceRegistry();
+
+    // The registered services of each type, keyed by service id, guarded by this
+    @Nonnull
+    private final Map<ServiceType, Map<String, Service>> services = new EnumMap<>(ServiceType.class);
+    @Nonnull
+    private final Map<ServiceType, List<DiscoveryListener>> listeners = new EnumMap<>(ServiceType.class);
+    @Nonnull
+    private volatile Map<ServiceType, SortedSet<Service>> snapshots = Collections.emptyMap();
+    @Nonnull
+    private volatile SortedSet<Service> all = Collections.emptySortedSet();
+
+    // Notifications waiting to be delivered, in the order the changes were made
+    @Nonnull
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    // Whether a thread is currently delivering the pending notifications
+    @Nonnull
+    private final AtomicBoolean delivering = new AtomicBoolean(false);
+
+    /**
+     * @return the registry shared by all of the memory discovery managers within this JVM
+     */
+    @Nonnull
+    public static MemoryServiceRegistry getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @param service the service to add or replace
+     * @param required whether the service must already be registered
+     * @throws DiscoveryException if the service is required to be registered but is not
+     */
+    public void put(@Nonnull final Service service, final boolean required) throws DiscoveryException {
+        Objects.requireNonNull(service);
+        synchronized (this) {
+            final Map<String, Service> registered =
+                    this.services.computeIfAbsent(service.getType(), type -> new HashMap<>());
+            final Optional<Service> previous = Optional.ofNullable(registered.get(service.getId()));
+            if (required && !previous.isPresent()) {
+                throw new DiscoveryException("Failed to update service " + service + ", it is not registered");
+            }
+            if (previous.isPresent() && previous.get().equals(service)) {
+                if (!previous.get().getCapacity().equals(service.getCapacity())) {
+                    // Only the published capacity changed, so replace the snapshots without notifying listeners.
+                    registered.put(service.getId(), service);
+                    refresh(service.getType());
+                }
+                return;
+            }
+            registered.put(service.getId(), service);
+            refresh(service.getType());
+            publish(service.getType(), new DiscoveryEvent(
+                    previous.isPresent() ? DiscoveryEvent.Type.UPDATED : DiscoveryEvent.Type.ADDED, service,
+                    previous));
+        }
+        deliver();
+    }
+
+    /**
+     * @param service the service to remove
+     */
+    public void remove(@Nonnull final Service service) {
+        Objects.requireNonNull(service);
+        synchronized (this) {
+            final Map<String, Service> registered = this.services.get(service.getType());
+            final Service removed = registered == null ? null : registered.remove(service.getId());
+            if (removed == null) {
+                return;
+            }
+            refresh(service.getType());
+            publish(service.getType(), new DiscoveryEvent(DiscoveryEvent.Type.REMOVED, removed, Optional.empty()));
+        }
+        deliver();
+    }
+
+    /**
+     * Replace the snapshots after the services of the specified type have changed. The caller must hold the lock on
+     * this registry.
+     *
+     * @param serviceType the type of the services that changed
+     */
+    private void refresh(@Nonnull final ServiceType serviceType) {
+        final Map<ServiceType, SortedSet<Service>> updated = new EnumMap<>(ServiceType.class);
+        updated.putAll(this.snapshots);
+        updated.put(serviceType, Collections.unmodifiableSortedSet(
+                new TreeSet<>(this.services.getOrDefault(serviceType, Collections.emptyMap()).values())));
+
+        final SortedSet<Service> combined = new TreeSet<>();
+        updated.values().forEach(combined::addAll);
+        this.snapshots = updated;
+        this.all = Collections.unmodifiableSortedSet(combined);
+    }
+
+    /**
+     * @return an immutable snapshot of all of the registered services
+     */
+    @Nonnull
+    public SortedSet<Service> getAll() {
+        return this.all;
+    }
+
+    /**
+     * @param serviceType the type of the services to return
+     * @return an immutable snapshot of the registered services of the specified type
+     */
+    @Nonnull
+    public SortedSet<Service> getAll(@Nonnull final ServiceType serviceType) {
+        return this.snapshots.getOrDefault(Objects.requireNonNull(serviceType), Collections.emptySortedSet());
+    }
+
+    /**
+     * Add a listener, which is immediately sent an added event for each of the currently registered services of the
+     * type so it can build its initial state.
+     *
+     * @param serviceType the type of the services to watch
+     * @param listener the listener to notify when the services change
+     */
+    public void addListener(@Nonnull final ServiceType serviceType, @Nonnull final DiscoveryListener listener) {
+        Objects.requireNonNull(serviceType);
+        Objects.requireNonNull(listener);
+        synchronized (this) {
+            this.listeners.computeIfAbsent(serviceType, type -> new CopyOnWriteArrayList<>()).add(listener);
+            for (final Service service : getAll(serviceType)) {
+                final DiscoveryEvent event = new DiscoveryEvent(DiscoveryEvent.Type.ADDED, service, Optional.empty());
+                this.pending.add(() -> notify(listener, event));
+            }
+        }
+        deliver();
+    }
+
+    /**
+     * @param serviceType the type of the services being watched
+     * @param listener the listener to stop notifying
+     */
+    public synchronized void removeListener(
+            @Nonnull final ServiceType serviceType, @Nonnull final DiscoveryListener listener) {
+        final List<DiscoveryListener> registered = this.listeners.get(Objects.requireNonNull(serviceType));
+        if (registered != null) {
+            registered.remove(Objects.requireNonNull(listener));
+        }
+    }
+
+    /**
+     * Queue an event for the listeners registered now. The caller must hold the lock on this registry.
+     *
+     * @param serviceType the type of the service that changed
+     * @param event the event to send to all of the listeners for the service type
+     */
+    private void publish(@Nonnull final ServiceType serviceType, @Nonnull final DiscoveryEvent event) {
+        final List<DiscoveryListener> targets =
+                new ArrayList<>(this.listeners.getOrDefault(serviceType, Collections.emptyList()));
+        this.pending.add(() -> targets.forEach(listener -> notify(listener, event)));
+    }
+
+    /**
+     * Deliver the queued notifications in order. Only one thread delivers at a time, so when another thread (or an
+     * outer call on this thread) is already delivering, the notifications queued here are left for it to deliver.
+     */
+    protected void deliver() {
+        while (!this.pending.isEmpty() && this.delivering.compareAndSet(false, true)) {
+            try {
+                Runnable notification;
+                while ((notification = this.pending.poll()) != null) {
+                    notification.run();
+                }
+            } finally {
+                this.delivering.set(false);
+            }
+        }
+    }
+
+    /**
+     * @param listener the listener to notify
+     * @param event the event to send to the listener
+     */
+    protected void notify(@Nonnull final DiscoveryListener listener, @Nonnull final DiscoveryEvent event) {
+        try {
+            listener.onEvent(event);
+        } catch (final RuntimeException listenerFailed) {
+            // One failing listener should not prevent the others from seeing the change.
+            LOG.error("Discovery listener failed to handle event {}", event, listenerFailed);
+        }
+    }
+}
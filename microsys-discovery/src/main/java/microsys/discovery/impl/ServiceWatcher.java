@@ -0,0 +1,312 @@
+package microsys.discovery.impl;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.x.discovery.ServiceCache;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.apache.curator.x.discovery.details.ServiceCacheListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceType;
+import microsys.discovery.DiscoveryEvent;
+import microsys.discovery.DiscoveryException;
+import microsys.discovery.DiscoveryListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Watches the services of a single type using a curator {@link ServiceCache}, which is kept current by zookeeper
+ * watches, and turns each change to the cache into added, removed, and updated {@link DiscoveryEvent} objects for the
+ * registered listeners. Listeners are notified one event at a time, in order, so they should return quickly. Events
+ * are queued while the watcher state is locked but delivered after the lock is released, so listeners are free to
+ * call back into service discovery.
+ * <p>
+ * The services are also held as an immutable snapshot, replaced after each change, so reads never block or contact
+ * zookeeper. Each {@link Service} is kept until its instance payload changes, so the JSON payloads are only parsed for
+ * new or updated registrations.
+ */
+public class ServiceWatcher implements AutoCloseable {
+    private final static Logger LOG = LoggerFactory.getLogger(ServiceWatcher.class);
+
+    @Nonnull
+    private final ServiceType serviceType;
+    @Nonnull
+    private final ServiceCache<String> cache;
+    @Nonnull
+    private final Function<ServiceInstance<String>, Service> converter;
+    @Nonnull
+    private final List<DiscoveryListener> listeners = new CopyOnWriteArrayList<>();
+
+    // The services known after the last change, keyed by service id, guarded by this
+    @Nonnull
+    private Map<String, Service> services = new HashMap<>();
+    // The instance payloads from which the known services were created, keyed by service id, guarded by this
+    @Nonnull
+    private Map<String, String> payloads = new HashMap<>();
+    @Nonnull
+    private volatile SortedSet<Service> snapshot = Collections.emptySortedSet();
+
+    // Notifications waiting to be delivered, in the order the changes were made
+    @Nonnull
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    // Whether a thread is currently delivering the pending notifications
+    @Nonnull
+    private final AtomicBoolean delivering = new AtomicBoolean(false);
+
+    /**
+     * @param serviceType the type of the services being watched
+     * @param cache the {@link ServiceCache} holding the registered services of the type
+     * @param converter converts the service instances stored in zookeeper into {@link Service} objects
+     */
+    public ServiceWatcher(
+            @Nonnull final ServiceType serviceType, @Nonnull final ServiceCache<String> cache,
+            @Nonnull final Function<ServiceInstance<String>, Service> converter) {
+        this.serviceType = Objects.requireNonNull(serviceType);
+        this.cache = Objects.requireNonNull(cache);
+        this.converter = Objects.requireNonNull(converter);
+        this.cache.addListener(new ServiceCacheListener() {
+            @Override
+            public void cacheChanged() {
+                refresh();
+            }
+
+            @Override
+            public void stateChanged(final CuratorFramework client, final ConnectionState newState) {
+                // The cache rebuilds itself after reconnecting and reports the result through cacheChanged.
+            }
+        });
+    }
+
+    /**
+     * @return the type of the services being watched
+     */
+    @Nonnull
+    public ServiceType getServiceType() {
+        return this.serviceType;
+    }
+
+    /**
+     * Start the cache and load the services currently registered.
+     *
+     * @throws DiscoveryException if there is a problem starting the cache
+     */
+    public void start() throws DiscoveryException {
+        try {
+            this.cache.start();
+        } catch (final Exception exception) {
+            throw new DiscoveryException("Failed to watch services of type " + getServiceType(), exception);
+        }
+        refresh();
+    }
+
+    /**
+     * @return an immutable snapshot of the services of the watched type known after the last change
+     */
+    @Nonnull
+    public SortedSet<Service> getServices() {
+        return this.snapshot;
+    }
+
+    /**
+     * Wait for the watch to report a service as registered or unregistered, used after this process changes a
+     * registration so that its own change is visible when the call returns.
+     *
+     * @param id the id of the service
+     * @param registered whether to wait for the service to be registered, or to be unregistered
+     * @param timeoutMillis the maximum number of milliseconds to wait
+     * @return whether the service reached the requested state before the timeout
+     */
+    public synchronized boolean await(@Nonnull final String id, final boolean registered, final long timeoutMillis) {
+        Objects.requireNonNull(id);
+        final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (this.services.containsKey(id) != registered) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (final InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a listener, which is immediately sent an added event for each of the currently known services so it can
+     * build its initial state.
+     *
+     * @param listener the listener to notify when the services change
+     */
+    public void addListener(@Nonnull final DiscoveryListener listener) {
+        Objects.requireNonNull(listener);
+        synchronized (this) {
+            this.listeners.add(listener);
+            for (final Service service : getServices()) {
+                final DiscoveryEvent event = new DiscoveryEvent(DiscoveryEvent.Type.ADDED, service, Optional.empty());
+                this.pending.add(() -> notify(listener, event));
+            }
+        }
+        deliver();
+    }
+
+    /**
+     * @param listener the listener to stop notifying
+     * @return whether the listener had been added
+     */
+    public boolean removeListener(@Nonnull final DiscoveryListener listener) {
+        return this.listeners.remove(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Compare the services in the cache with the services known after the last change and notify the listeners of the
+     * differences. Services whose instance payload has not changed are reused rather than created again.
+     */
+    protected void refresh() {
+        synchronized (this) {
+            final Map<String, String> current = new HashMap<>();
+            final List<Service> refreshed = new ArrayList<>();
+            for (final ServiceInstance<String> instance : this.cache.getInstances()) {
+                final String payload = String.valueOf(instance.getPayload());
+                final Service known = this.services.get(instance.getId());
+                if (known != null && payload.equals(this.payloads.get(instance.getId()))) {
+                    refreshed.add(known);
+                } else {
+                    refreshed.add(this.converter.apply(instance));
+                }
+                current.put(instance.getId(), payload);
+            }
+            apply(refreshed);
+            this.payloads = current;
+        }
+        deliver();
+    }
+
+    /**
+     * @param current the services of the watched type that are now registered
+     */
+    protected void update(@Nonnull final Collection<Service> current) {
+        synchronized (this) {
+            apply(current);
+        }
+        deliver();
+    }
+
+    /**
+     * Replace the known services and queue the resulting events for the listeners. The caller must hold the lock on
+     * this watcher, and deliver the queued events after releasing it.
+     *
+     * @param current the services of the watched type that are now registered
+     */
+    private void apply(@Nonnull final Collection<Service> current) {
+        final Map<String, Service> updated = new HashMap<>();
+        current.forEach(service -> updated.put(service.getId(), service));
+
+        final List<DiscoveryEvent> events = new ArrayList<>();
+        for (final Service service : this.snapshot) {
+            if (!updated.containsKey(service.getId())) {
+                events.add(new DiscoveryEvent(DiscoveryEvent.Type.REMOVED, service, Optional.empty()));
+            }
+        }
+        boolean capacityChanged = false;
+        final SortedSet<Service> sorted = new TreeSet<>(updated.values());
+        for (final Service service : sorted) {
+            final Optional<Service> previous = Optional.ofNullable(this.services.get(service.getId()));
+            if (!previous.isPresent()) {
+                events.add(new DiscoveryEvent(DiscoveryEvent.Type.ADDED, service, Optional.empty()));
+            } else if (!previous.get().equals(service)) {
+                events.add(new DiscoveryEvent(DiscoveryEvent.Type.UPDATED, service, previous));
+            } else if (!previous.get().getCapacity().equals(service.getCapacity())) {
+                capacityChanged = true;
+            }
+        }
+
+        if (events.isEmpty() && !capacityChanged) {
+            // Keep the existing snapshot, so callers can tell that nothing has changed.
+            return;
+        }
+        // A change in published capacity only replaces the snapshot, so selection sees the new load, without
+        // notifying listeners, since the services themselves are unchanged.
+
+        // Replace the snapshot before notifying, so listeners that read the services see the change.
+        this.services = updated;
+        this.snapshot = Collections.unmodifiableSortedSet(sorted);
+        notifyAll();
+        events.forEach(this::publish);
+    }
+
+    /**
+     * Queue an event for the listeners registered now, so a listener added later only sees the changes made after
+     * its initial state was captured.
+     *
+     * @param event the event to send to all of the listeners
+     */
+    protected void publish(@Nonnull final DiscoveryEvent event) {
+        final List<DiscoveryListener> targets = new ArrayList<>(this.listeners);
+        this.pending.add(() -> targets.forEach(listener -> notify(listener, event)));
+    }
+
+    /**
+     * Deliver the queued notifications in order. Only one thread delivers at a time, so when another thread (or an
+     * outer call on this thread) is already delivering, the notifications queued here are left for it to deliver.
+     */
+    protected void deliver() {
+        while (!this.pending.isEmpty() && this.delivering.compareAndSet(false, true)) {
+            try {
+                Runnable notification;
+                while ((notification = this.pending.poll()) != null) {
+                    notification.run();
+                }
+            } finally {
+                this.delivering.set(false);
+            }
+        }
+    }
+
+    /**
+     * @param listener the listener to notify
+     * @param event the event to send to the listener
+     */
+    protected void notify(@Nonnull final DiscoveryListener listener, @Nonnull final DiscoveryEvent event) {
+        try {
+            listener.onEvent(event);
+        } catch (final RuntimeException listenerFailed) {
+            // One failing listener should not prevent the others from seeing the change.
+            LOG.error("Discovery listener failed to handle event {}", event, listenerFailed);
+        }
+    }
+
+    /**
+     * Stop watching the services.
+     */
+    @Override
+    public void close() {
+        try {
+            this.cache.close();
+        } catch (final IOException ignored) {
+            // Ignored.
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package microsys.discovery.snapshot;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.typesafe.config.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.model.service.Service;
+import microsys.discovery.DiscoveryException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Persists the most recently discovered services into a local file so that lookups made right after a restart, or
+ * while zookeeper is unavailable, can be answered before the live data has been loaded. The file is replaced
+ * atomically each time it is written so a reader never sees a partially written snapshot.
+ */
+public class DiscoverySnapshot {
+    private final static Logger LOG = LoggerFactory.getLogger(DiscoverySnapshot.class);
+
+    // The name of the snapshot file within the snapshot directory
+    private final static String SNAPSHOT_NAME = "discovery";
+
+    @Nonnull
+    private final Path file;
+
+    /**
+     * @param file the local file in which the discovery snapshot is stored
+     */
+    public DiscoverySnapshot(@Nonnull final Path file) {
+        this.file = Objects.requireNonNull(file);
+    }
+
+    /**
+     * @param config the static system configuration
+     * @return the configured {@link DiscoverySnapshot}, possibly empty if discovery snapshots are disabled
+     */
+    @Nonnull
+    public static Optional<DiscoverySnapshot> create(@Nonnull final Config config) {
+        final String enabled = ConfigKeys.DISCOVERY_SNAPSHOT_ENABLED.getKey();
+        if (!Objects.requireNonNull(config).hasPath(enabled) || !config.getBoolean(enabled)) {
+            return Optional.empty();
+        }
+        final Path dir = Paths.get(config.getString(ConfigKeys.SNAPSHOT_DIR.getKey()));
+        return Optional.of(new DiscoverySnapshot(dir.resolve(SNAPSHOT_NAME + ".json")));
+    }
+
+    /**
+     * @return the local file in which the discovery snapshot is stored
+     */
+    @Nonnull
+    public Path getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return the services from the snapshot file, possibly empty if the snapshot file does not exist or could not be
+     * read
+     */
+    @Nonnull
+    public Optional<SortedSet<Service>> load() {
+        if (!Files.exists(getFile())) {
+            return Optional.empty();
+        }
+
+        try (final Reader reader = Files.newBufferedReader(getFile(), StandardCharsets.UTF_8)) {
+            final JsonObject json = new JsonParser().parse(reader).getAsJsonObject();
+            final SortedSet<Service> services = new TreeSet<>();
+            for (final JsonElement service : json.getAsJsonArray("services")) {
+                services.add(new Service(service.getAsJsonObject()));
+            }
+            return Optional.of(Collections.unmodifiableSortedSet(services));
+        } catch (final IOException | RuntimeException loadException) {
+            LOG.warn("Failed to load discovery snapshot from {}: {}", getFile(), loadException.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param services the services to be written into the snapshot file
+     * @throws DiscoveryException if there is a problem writing the snapshot file
+     */
+    public void save(@Nonnull final Collection<Service> services) throws DiscoveryException {
+        final JsonArray array = new JsonArray();
+        Objects.requireNonNull(services).forEach(service -> array.add(service.toJson()));
+        final JsonObject json = new JsonObject();
+        json.add("services", array);
+
+        try {
+            final Path dir = getFile().toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+
+            // Write into a temporary file first and then rename it over the existing snapshot.
+            final Path temp = Files.createTempFile(dir, getFile().getFileName().toString(), ".tmp");
+            try (final Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(json.toString());
+            } catch (final IOException writeException) {
+                Files.deleteIfExists(temp);
+                throw writeException;
+            }
+            Files.move(temp, getFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException saveException) {
+            throw new DiscoveryException("Failed to save discovery snapshot to " + getFile(), saveException);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package microsys.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceType;
+
+import java.util.Optional;
+
+/**
+ * Perform testing of the {@link DiscoveryEvent} class.
+ */
+public class DiscoveryEventTest {
+    @Test
+    public void testGetters() {
+        final Service a = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
+        final Service b = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.4");
+        final DiscoveryEvent event = new DiscoveryEvent(DiscoveryEvent.Type.UPDATED, b, Optional.of(a));
+        assertEquals(DiscoveryEvent.Type.UPDATED, event.getType());
+        assertEquals(b, event.getService());
+        assertTrue(event.getPrevious().isPresent());
+        assertEquals(a, event.getPrevious().get());
+    }
+
+    @Test
+    public void testEquals() {
+        final Service a = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
+        final Service b = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.4");
+        final DiscoveryEvent ea = new DiscoveryEvent(DiscoveryEvent.Type.ADDED, a, Optional.empty());
+        final DiscoveryEvent eb = new DiscoveryEvent(DiscoveryEvent.Type.REMOVED, a, Optional.empty());
+        final DiscoveryEvent ec = new DiscoveryEvent(DiscoveryEvent.Type.UPDATED, b, Optional.of(a));
+
+        assertNotEquals(ea, null);
+        assertEquals(ea, ea);
+        assertNotEquals(ea, eb);
+        assertNotEquals(ea, ec);
+        assertNotEquals(eb, ec);
+        assertEquals(ec, new DiscoveryEvent(DiscoveryEvent.Type.UPDATED, b, Optional.of(a)));
+    }
+
+    @Test
+    public void testHashCode() {
+        final Service a = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
+        final DiscoveryEvent ea = new DiscoveryEvent(DiscoveryEvent.Type.ADDED, a, Optional.empty());
+        final DiscoveryEvent eb = new DiscoveryEvent(DiscoveryEvent.Type.REMOVED, a, Optional.empty());
+        assertEquals(ea.hashCode(), new DiscoveryEvent(DiscoveryEvent.Type.ADDED, a, Optional.empty()).hashCode());
+        assertNotEquals(ea.hashCode(), eb.hashCode());
+    }
+
+    @Test
+    public void testToString() {
+        final Service a = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
+        final Service b = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.4");
+        final String added = new DiscoveryEvent(DiscoveryEvent.Type.ADDED, a, Optional.empty()).toString();
+        assertTrue(added.startsWith("DiscoveryEvent[type=ADDED,service="));
+        assertFalse(added.contains("previous"));
+        final String updated = new DiscoveryEvent(DiscoveryEvent.Type.UPDATED, b, Optional.of(a)).toString();
+        assertTrue(updated.contains("previous="));
+    }
+}
@@ -0,0 +1,265 @@
+package microsys.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+
+import org.junit.Test;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceCapacity;
+import microsys.common.model.service.ServiceType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Perform testing of the {@link LocalitySelector} class.
+ */
+public class LocalitySelectorTest {
+    private final Service local = new Service(ServiceType.CONFIG, "local", 1234, false, "1.2.3", Optional.of("a"));
+    private final Service zone = new Service(ServiceType.CONFIG, "zone", 1234, false, "1.2.3", Optional.of("a"));
+    private final Service other = new Service(ServiceType.CONFIG, "other", 1234, false, "1.2.3", Optional.of("b"));
+    private final List<Service> all = Arrays.asList(this.local, this.zone, this.other);
+
+    @Test
+    public void testCreate() {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.SERVER_HOSTNAME.getKey(), ConfigValueFactory.fromAnyRef("local"));
+        map.put(ConfigKeys.SERVER_ZONE.getKey(), ConfigValueFactory.fromAnyRef("a"));
+        map.put(ConfigKeys.DISCOVERY_LOCALITY_SPILLOVER.getKey(), ConfigValueFactory.fromAnyRef(0.25));
+        map.put(ConfigKeys.DISCOVERY_LOCALITY_MIN_SPARE.getKey(), ConfigValueFactory.fromAnyRef(2.5));
+        final Config config = ConfigFactory.parseMap(map);
+
+        final LocalitySelector selector = LocalitySelector.create(config);
+        assertEquals("local", selector.getHost());
+        assertEquals(Optional.of("a"), selector.getZone());
+        assertEquals(0.25, selector.getSpillover(), 0.0001);
+        assertEquals(2.5, selector.getMinSpareCapacity(), 0.0001);
+    }
+
+    @Test
+    public void testCreateDefaults() {
+        final LocalitySelector selector = LocalitySelector.create(ConfigFactory.empty());
+        assertEquals("", selector.getHost());
+        assertFalse(selector.getZone().isPresent());
+        assertEquals(0, selector.getSpillover(), 0.0001);
+        assertEquals(0, selector.getMinSpareCapacity(), 0.0001);
+
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.SERVER_ZONE.getKey(), ConfigValueFactory.fromAnyRef(""));
+        assertFalse(LocalitySelector.create(ConfigFactory.parseMap(map)).getZone().isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSpillover() {
+        new LocalitySelector("local", Optional.empty(), 1.5, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMinSpareCapacity() {
+        new LocalitySelector("local", Optional.empty(), 0, -1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidEjection() {
+        new LocalitySelector("local", Optional.empty(), 0, -1);
+    }
+
+    @Test
+    public void testSelectEmpty() {
+        final LocalitySelector selector = new LocalitySelector("local", Optional.of("a"), 0, 1000);
+        assertFalse(selector.select(Collections.emptyList()).isPresent());
+    }
+
+    @Test
+    public void testSelectTiers() {
+        final LocalitySelector selector = new LocalitySelector("local", Optional.of("a"), 0, 60000);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Optional.of(this.local), selector.select(this.all));
+            assertEquals(Optional.of(this.zone), selector.select(Arrays.asList(this.zone, this.other)));
+        }
+
+        // Ejected services spill over to the next tier.
+        selector.eject("local", 1234);
+        assertTrue(selector.isEjected(this.local));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Optional.of(this.zone), selector.select(this.all));
+        }
+        selector.eject("zone", 1234);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Optional.of(this.other), selector.select(this.all));
+        }
+
+        // When everything is ejected, fall back to all the services.
+        selector.eject("other", 1234);
+        assertTrue(selector.select(this.all).isPresent());
+    }
+
+    @Test
+    public void testSelectOverloaded() {
+        final LocalitySelector selector = new LocalitySelector("local", Optional.of("a"), 0, 1, 0);
+        final Service saturated = this.local.withCapacity(new ServiceCapacity(0, 0, 0, 0));
+        assertTrue(selector.isOverloaded(saturated));
+        assertFalse(selector.isOverloaded(this.zone));
+
+        // A local service with no spare capacity spills over to the zone.
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Optional.of(this.zone), selector.select(Arrays.asList(saturated, this.zone, this.other)));
+        }
+
+        // A busy local service is passed over for another instance on the same host with spare capacity.
+        final Service busy = this.local.withCapacity(new ServiceCapacity(150, 50, 0, 100));
+        final Service spare = new Service(ServiceType.CONFIG, "local", 2345, false, "1.2.3", Optional.of("a"))
+                .withCapacity(new ServiceCapacity(0, 0, 0, 100));
+        assertTrue(selector.isOverloaded(busy));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Optional.of(spare), selector.select(Arrays.asList(busy, spare, this.zone)));
+        }
+
+        // When the closer tiers are all overloaded, the selection falls through to the other tier.
+        final Service busyZone = this.zone.withCapacity(new ServiceCapacity(0, 0, 0, 0));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Optional.of(this.other), selector.select(Arrays.asList(saturated, busyZone, this.other)));
+        }
+
+        // When everything is overloaded, the closest tier is used again.
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Optional.of(busy), selector.select(Arrays.asList(busy, busyZone)));
+        }
+    }
+
+    @Test
+    public void testSelectWithoutZone() {
+        final LocalitySelector selector = new LocalitySelector("elsewhere", Optional.empty(), 0, 0);
+        final Set<Service> selected = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            selected.add(selector.select(this.all).get());
+        }
+        assertEquals(new HashSet<>(this.all), selected);
+    }
+
+    @Test
+    public void testSpillover() {
+        final LocalitySelector selector = new LocalitySelector("local", Optional.of("a"), 1, 0);
+        final Set<Service> selected = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            selected.add(selector.select(this.all).get());
+        }
+        assertEquals(new HashSet<>(this.all), selected);
+    }
+
+    @Test
+    public void testEjectionExpires() throws Exception {
+        final LocalitySelector selector = new LocalitySelector("local", Optional.of("a"), 0, 10);
+        selector.eject("local", 1234);
+        assertTrue(selector.isEjected(this.local));
+        Thread.sleep(20);
+        assertFalse(selector.isEjected(this.local));
+        assertEquals(Optional.of(this.local), selector.select(this.all));
+    }
+
+    @Test
+    public void testEjectionDisabled() {
+        final LocalitySelector selector = new LocalitySelector("local", Optional.of("a"), 0, 0);
+        selector.eject("local", 1234);
+        assertFalse(selector.isEjected(this.local));
+    }
+
+    @Test
+    public void testPick() {
+        final LocalitySelector selector = new LocalitySelector("local", Optional.empty(), 0, 0);
+        final Service idle = this.other.withCapacity(new ServiceCapacity(0, 0, 0, 100));
+        final Service busy = this.zone.withCapacity(new ServiceCapacity(3, 0, 0, 100));
+        final List<Service> candidates = Arrays.asList(idle, busy);
+
+        // The idle service has 100 of the 125 total spare capacity.
+        assertEquals(idle, selector.pick(candidates, 0));
+        assertEquals(idle, selector.pick(candidates, 0.79));
+        assertEquals(busy, selector.pick(candidates, 0.81));
+        assertEquals(busy, selector.pick(candidates, 0.9999999999));
+
+        // Services without published capacity are treated as idle with the default weight.
+        assertEquals(100, selector.getSpareCapacity(this.local), 0.0001);
+
+        // With no spare capacity anywhere, pick uniformly.
+        final Service drained = this.local.withCapacity(new ServiceCapacity(0, 0, 0, 0));
+        final Service drained2 = this.zone.withCapacity(new ServiceCapacity(0, 0, 0, 0));
+        assertEquals(drained, selector.pick(Arrays.asList(drained, drained2), 0.1));
+        assertEquals(drained2, selector.pick(Arrays.asList(drained, drained2), 0.6));
+    }
+
+    @Test
+    public void testSelectWeighted() {
+        final LocalitySelector selector = new LocalitySelector("elsewhere", Optional.empty(), 0, 0);
+        final Service idle = this.other.withCapacity(new ServiceCapacity(0, 0, 0, 100));
+        final Service drained = this.zone.withCapacity(new ServiceCapacity(0, 0, 0, 0));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Optional.of(idle), selector.select(Arrays.asList(idle, drained)));
+        }
+    }
+
+    @Test
+    public void testSelectConsistent() {
+        final LocalitySelector selector = new LocalitySelector("local", Optional.of("a"), 0, 60000);
+        final LocalitySelector elsewhere = new LocalitySelector("other", Optional.of("b"), 1, 60000);
+        assertFalse(selector.selectConsistent(Collections.emptyList(), "key").isPresent());
+
+        // Every caller chooses the same service for a key, regardless of locality.
+        final Map<String, Service> before = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            final Service selected = selector.selectConsistent(this.all, "key" + i).get();
+            assertEquals(selected, elsewhere.selectConsistent(this.all, "key" + i).get());
+            before.put("key" + i, selected);
+        }
+        assertEquals(new HashSet<>(this.all), new HashSet<>(before.values()));
+
+        // Removing a service only moves the keys that were assigned to it.
+        final List<Service> remaining = Arrays.asList(this.local, this.other);
+        for (final Map.Entry<String, Service> entry : before.entrySet()) {
+            final Service selected = selector.selectConsistent(remaining, entry.getKey()).get();
+            if (!entry.getValue().equals(this.zone)) {
+                assertEquals(entry.getValue(), selected);
+            }
+        }
+
+        // Ejected services have their keys moved until the ejection expires, and are used when nothing else is left.
+        selector.eject("zone", 1234);
+        for (final Map.Entry<String, Service> entry : before.entrySet()) {
+            assertEquals(selector.selectConsistent(remaining, entry.getKey()),
+                    selector.selectConsistent(this.all, entry.getKey()));
+        }
+        assertEquals(Optional.of(this.zone), selector.selectConsistent(Collections.singletonList(this.zone), "key"));
+    }
+
+    @Test
+    public void testSelectConsistentWeighted() {
+        final LocalitySelector selector = new LocalitySelector("local", Optional.empty(), 0, 0);
+        final Service heavy = this.local.withCapacity(new ServiceCapacity(0, 0, 0, 300));
+        final Service light = this.other.withCapacity(new ServiceCapacity(50, 50, 90, 100));
+        final Service drained = this.zone.withCapacity(new ServiceCapacity(0, 0, 0, 0));
+        final List<Service> services = Arrays.asList(heavy, light, drained);
+
+        int heavyCount = 0;
+        for (int i = 0; i < 1000; i++) {
+            final Service selected = selector.selectConsistent(services, "key" + i).get();
+            assertFalse(selected.equals(drained));
+            heavyCount += selected.equals(heavy) ? 1 : 0;
+        }
+        // The heavy service should get about three quarters of the keys, load does not affect the assignment.
+        assertTrue(heavyCount > 650 && heavyCount < 850);
+        assertTrue(selector.selectConsistent(Collections.singletonList(drained), "key").isPresent());
+    }
+}
@@ -13,21 +13,35 @@ import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.curator.test.TestingServer;
+import org.apache.curator.x.discovery.ServiceCache;
+import org.apache.curator.x.discovery.ServiceCacheBuilder;
 import org.apache.curator.x.discovery.ServiceDiscovery;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import microsys.common.config.ConfigKeys;
 import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceCapacity;
 import microsys.common.model.service.ServiceType;
+import microsys.discovery.DiscoveryEvent;
 import microsys.discovery.DiscoveryException;
+import microsys.discovery.DiscoveryListener;
+import microsys.discovery.snapshot.DiscoverySnapshot;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Perform testing on the {@link CuratorDiscoveryManager} class.
@@ -37,6 +51,9 @@ public class CuratorDiscoveryManagerIT {
     private static TestingServer testingServer;
     private static CuratorFramework curator;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @BeforeClass
     public static void setup() throws Exception {
         testingServer = new TestingServer();
@@ -72,6 +89,7 @@ public class CuratorDiscoveryManagerIT {
             Assert.assertEquals(0, discovery.getAll().size());
             Assert.assertEquals(0, discovery.getAll(ServiceType.CONFIG).size());
             assertFalse(discovery.getRandom(ServiceType.CONFIG).isPresent());
+            assertFalse(discovery.getConsistent(ServiceType.CONFIG, "key").isPresent());
 
             final Service service = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
             discovery.register(service);
@@ -80,6 +98,20 @@ public class CuratorDiscoveryManagerIT {
             Assert.assertEquals(1, discovery.getAll().size());
             Assert.assertEquals(1, discovery.getAll(ServiceType.CONFIG).size());
             assertTrue(discovery.getRandom(ServiceType.CONFIG).isPresent());
+            Assert.assertEquals(Optional.of(service), discovery.getConsistent(ServiceType.CONFIG, "key"));
+
+            // Updating the registration replaces the published details.
+            final Service updated = service.withCapacity(new ServiceCapacity(1, 2, 3, 4));
+            discovery.update(updated);
+            final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (!discovery.getAll().first().getCapacity().isPresent() && System.currentTimeMillis() < end) {
+                Thread.sleep(20);
+            }
+            Assert.assertEquals(Collections.singleton(updated), discovery.getAll(ServiceType.CONFIG));
+            Assert.assertEquals(updated.getCapacity(), discovery.getAll(ServiceType.CONFIG).first().getCapacity());
+
+            // The combined snapshot is reused while nothing changes.
+            Assert.assertSame(discovery.getAll(), discovery.getAll());
 
             discovery.unregister(service);
 
@@ -113,6 +145,91 @@ public class CuratorDiscoveryManagerIT {
         assertFalse(discovery.getRandom(ServiceType.CONFIG).isPresent());
     }
 
+    @Test
+    public void testListener() throws Exception {
+        final CuratorDiscoveryManager discovery = new CuratorDiscoveryManager(config, curator);
+        final Service existing = new Service(ServiceType.SECURITY, "host", 1234, false, "1.2.3");
+        final Service added = new Service(ServiceType.SECURITY, "host", 2345, false, "1.2.3");
+        try {
+            discovery.register(existing);
+
+            final BlockingQueue<DiscoveryEvent> events = new LinkedBlockingQueue<>();
+            final DiscoveryListener listener = events::add;
+            discovery.addListener(ServiceType.SECURITY, listener);
+
+            // The already-registered service is reported first.
+            DiscoveryEvent event = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event);
+            Assert.assertEquals(DiscoveryEvent.Type.ADDED, event.getType());
+            Assert.assertEquals(existing, event.getService());
+
+            discovery.register(added);
+            event = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event);
+            Assert.assertEquals(DiscoveryEvent.Type.ADDED, event.getType());
+            Assert.assertEquals(added, event.getService());
+
+            discovery.unregister(existing);
+            event = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(event);
+            Assert.assertEquals(DiscoveryEvent.Type.REMOVED, event.getType());
+            Assert.assertEquals(existing, event.getService());
+
+            discovery.removeListener(ServiceType.SECURITY, listener);
+            discovery.unregister(added);
+            Assert.assertNull(events.poll(1, TimeUnit.SECONDS));
+        } finally {
+            discovery.close();
+        }
+
+        // Listeners are ignored once closed.
+        discovery.addListener(ServiceType.SECURITY, event -> Assert.fail());
+        discovery.removeListener(ServiceType.CONFIG, event -> Assert.fail());
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.DISCOVERY_SNAPSHOT_ENABLED.getKey(), ConfigValueFactory.fromAnyRef(true));
+        map.put(ConfigKeys.SNAPSHOT_DIR.getKey(), ConfigValueFactory.fromAnyRef(folder.getRoot().getPath()));
+        final Config snapshotConfig = ConfigFactory.parseMap(map).withFallback(config);
+
+        // A service that was running before the restart, but is no longer registered.
+        final DiscoverySnapshot snapshot = DiscoverySnapshot.create(snapshotConfig).get();
+        final Service gone = new Service(ServiceType.SHELL, "host", 1234, false, "1.2.3");
+        snapshot.save(Collections.singleton(gone));
+
+        final CuratorDiscoveryManager discovery = new CuratorDiscoveryManager(snapshotConfig, curator);
+        final Service live = new Service(ServiceType.SHELL, "host", 2345, false, "1.2.3");
+        try {
+            discovery.register(live);
+
+            // The snapshot is used for the first lookup while the watcher starts in the background.
+            assertTrue(discovery.isStale(ServiceType.SHELL));
+            Assert.assertEquals(Collections.singleton(gone), discovery.getAll(ServiceType.SHELL));
+            assertFalse(discovery.isStale(ServiceType.CONFIG));
+
+            final long timeout = System.currentTimeMillis() + 10000;
+            while (discovery.isStale(ServiceType.SHELL) && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            assertFalse(discovery.isStale(ServiceType.SHELL));
+            Assert.assertEquals(Collections.singleton(live), discovery.getAll(ServiceType.SHELL));
+
+            // The reconciled services replace the snapshot on disk.
+            Optional<SortedSet<Service>> saved = snapshot.load();
+            while (!saved.equals(Optional.of(Collections.singleton(live))) && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+                saved = snapshot.load();
+            }
+            Assert.assertEquals(Optional.of(Collections.singleton(live)), saved);
+        } finally {
+            discovery.unregister(live);
+            discovery.close();
+        }
+        assertFalse(discovery.isStale(ServiceType.SHELL));
+    }
+
     @Test(expected = DiscoveryException.class)
     public void testConstructorException() throws Exception {
         final CuratorFramework curator = Mockito.mock(CuratorFramework.class);
@@ -142,6 +259,17 @@ public class CuratorDiscoveryManagerIT {
         discovery.register(new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3"));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test(expected = DiscoveryException.class)
+    public void testUpdateWithException() throws Exception {
+        final ServiceDiscovery<String> serviceDiscovery = Mockito.mock(ServiceDiscovery.class);
+        Mockito.doThrow(new Exception("Fake")).when(serviceDiscovery).updateService(Mockito.any());
+        final CuratorDiscoveryManager discovery = Mockito.mock(CuratorDiscoveryManager.class);
+        Mockito.when(discovery.getDiscovery()).thenReturn(serviceDiscovery);
+        Mockito.doCallRealMethod().when(discovery).update(Mockito.any());
+        discovery.update(new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3"));
+    }
+
     @SuppressWarnings("unchecked")
     @Test(expected = DiscoveryException.class)
     public void testUnregisterWithException() throws Exception {
@@ -154,24 +282,49 @@ public class CuratorDiscoveryManagerIT {
     }
 
     @SuppressWarnings("unchecked")
-    @Test(expected = DiscoveryException.class)
-    public void testGetAllForServiceTypeWithException() throws Exception {
+    private static CuratorDiscoveryManager mockFailingWatcher() throws Exception {
+        final ServiceCache<String> cache = Mockito.mock(ServiceCache.class);
+        Mockito.doThrow(new Exception("Fake")).when(cache).start();
+        final ServiceCacheBuilder<String> builder = Mockito.mock(ServiceCacheBuilder.class);
+        Mockito.when(builder.name(Mockito.anyString())).thenReturn(builder);
+        Mockito.when(builder.build()).thenReturn(cache);
         final ServiceDiscovery<String> serviceDiscovery = Mockito.mock(ServiceDiscovery.class);
-        Mockito.doThrow(new Exception("Fake")).when(serviceDiscovery).queryForInstances(Mockito.anyString());
+        Mockito.when(serviceDiscovery.serviceCacheBuilder()).thenReturn(builder);
         final CuratorDiscoveryManager discovery = Mockito.mock(CuratorDiscoveryManager.class);
         Mockito.when(discovery.getDiscovery()).thenReturn(serviceDiscovery);
+        Mockito.doCallRealMethod().when(discovery).createWatcher(Mockito.any());
+        Mockito.doCallRealMethod().when(discovery).getWatcher(Mockito.any());
+        Mockito.doCallRealMethod().when(discovery).getAllWatchers();
+        return discovery;
+    }
+
+    @Test(expected = DiscoveryException.class)
+    public void testGetAllWithException() throws Exception {
+        final CuratorDiscoveryManager discovery = mockFailingWatcher();
+        Mockito.doCallRealMethod().when(discovery).getAll();
+        discovery.getAll();
+    }
+
+    @Test(expected = DiscoveryException.class)
+    public void testGetAllForServiceTypeWithException() throws Exception {
+        final CuratorDiscoveryManager discovery = mockFailingWatcher();
         Mockito.doCallRealMethod().when(discovery).getAll(Mockito.any());
         discovery.getAll(ServiceType.CONFIG);
     }
 
-    @SuppressWarnings("unchecked")
     @Test(expected = DiscoveryException.class)
     public void testGetRandomWithException() throws Exception {
-        final ServiceDiscovery<String> serviceDiscovery = Mockito.mock(ServiceDiscovery.class);
-        Mockito.doThrow(new Exception("Fake")).when(serviceDiscovery).queryForInstances(Mockito.anyString());
-        final CuratorDiscoveryManager discovery = Mockito.mock(CuratorDiscoveryManager.class);
-        Mockito.when(discovery.getDiscovery()).thenReturn(serviceDiscovery);
+        final CuratorDiscoveryManager discovery = mockFailingWatcher();
+        Mockito.doCallRealMethod().when(discovery).getAll(Mockito.any());
         Mockito.doCallRealMethod().when(discovery).getRandom(Mockito.any());
         discovery.getRandom(ServiceType.CONFIG);
     }
+
+    @Test(expected = DiscoveryException.class)
+    public void testGetConsistentWithException() throws Exception {
+        final CuratorDiscoveryManager discovery = mockFailingWatcher();
+        Mockito.doCallRealMethod().when(discovery).getAll(Mockito.any());
+        Mockito.doCallRealMethod().when(discovery).getConsistent(Mockito.any(), Mockito.any());
+        discovery.getConsistent(ServiceType.CONFIG, "key");
+    }
 }
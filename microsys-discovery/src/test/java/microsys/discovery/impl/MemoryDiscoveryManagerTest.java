@@ -0,0 +1,173 @@
+package microsys.discovery.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.ConfigFactory;
+
+import org.junit.Test;
+
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceCapacity;
+import microsys.common.model.service.ServiceType;
+import microsys.discovery.DiscoveryEvent;
+import microsys.discovery.DiscoveryException;
+import microsys.discovery.DiscoveryListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Perform testing of the {@link MemoryDiscoveryManager} class.
+ */
+public class MemoryDiscoveryManagerTest {
+    private final Service config = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
+    private final Service security = new Service(ServiceType.SECURITY, "host", 2345, false, "1.2.3");
+
+    @Test
+    public void test() throws DiscoveryException {
+        final MemoryDiscoveryManager discovery = new MemoryDiscoveryManager(ConfigFactory.load(), new MemoryServiceRegistry());
+
+        // Nothing registered at first.
+        assertEquals(0, discovery.getAll().size());
+        assertEquals(0, discovery.getAll(ServiceType.CONFIG).size());
+        assertFalse(discovery.getRandom(ServiceType.CONFIG).isPresent());
+        assertFalse(discovery.getConsistent(ServiceType.CONFIG, "key").isPresent());
+
+        discovery.register(this.config);
+        discovery.register(this.security);
+        assertEquals(2, discovery.getAll().size());
+        assertEquals(Collections.singleton(this.config), discovery.getAll(ServiceType.CONFIG));
+        assertEquals(Optional.of(this.config), discovery.getRandom(ServiceType.CONFIG));
+        assertEquals(Optional.of(this.security), discovery.getConsistent(ServiceType.SECURITY, "key"));
+
+        // The snapshots are reused while nothing changes.
+        assertSame(discovery.getAll(), discovery.getAll());
+        assertSame(discovery.getAll(ServiceType.CONFIG), discovery.getAll(ServiceType.CONFIG));
+
+        final Service updated = this.config.withCapacity(new ServiceCapacity(1, 2, 3, 4));
+        discovery.update(updated);
+        assertEquals(Collections.singleton(updated), discovery.getAll(ServiceType.CONFIG));
+        assertEquals(updated.getCapacity(), discovery.getAll(ServiceType.CONFIG).first().getCapacity());
+
+        // Ejected services are still used when nothing else is available.
+        discovery.eject("host", 1234);
+        assertEquals(Optional.of(updated), discovery.getRandom(ServiceType.CONFIG));
+
+        discovery.unregister(this.config);
+        discovery.unregister(this.config);
+        assertEquals(Collections.singleton(this.security), discovery.getAll());
+        assertEquals(0, discovery.getAll(ServiceType.CONFIG).size());
+
+        discovery.close();
+        assertTrue(discovery.isClosed());
+        assertEquals(0, discovery.getAll().size());
+
+        // Now that discovery is closed, nothing happens.
+        discovery.register(this.config);
+        discovery.update(this.config);
+        assertEquals(0, discovery.getAll().size());
+    }
+
+    @Test(expected = DiscoveryException.class)
+    public void testUpdateNotRegistered() throws DiscoveryException {
+        new MemoryDiscoveryManager(ConfigFactory.load(), new MemoryServiceRegistry()).update(this.config);
+    }
+
+    @Test
+    public void testListener() throws DiscoveryException {
+        final MemoryDiscoveryManager discovery = new MemoryDiscoveryManager(ConfigFactory.load(), new MemoryServiceRegistry());
+        discovery.register(this.config);
+
+        final List<DiscoveryEvent> events = new ArrayList<>();
+        final DiscoveryListener listener = events::add;
+        discovery.addListener(ServiceType.CONFIG, listener);
+        discovery.addListener(ServiceType.CONFIG, event -> {
+            throw new RuntimeException("Fake");
+        });
+        assertEquals(Collections.singletonList(
+                new DiscoveryEvent(DiscoveryEvent.Type.ADDED, this.config, Optional.empty())), events);
+
+        // Other service types and unchanged registrations are not reported.
+        events.clear();
+        discovery.register(this.security);
+        discovery.register(this.config);
+        assertTrue(events.isEmpty());
+
+        // Changes to only the published capacity replace the snapshot without being reported.
+        final Service loaded = this.config.withCapacity(new ServiceCapacity(1, 2, 3, 4));
+        discovery.update(loaded);
+        assertTrue(events.isEmpty());
+        assertEquals(loaded.getCapacity(), discovery.getAll(ServiceType.CONFIG).first().getCapacity());
+
+        final Service updated = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.4");
+        discovery.update(updated);
+        discovery.unregister(updated);
+        assertEquals(Arrays.asList(
+                new DiscoveryEvent(DiscoveryEvent.Type.UPDATED, updated, Optional.of(loaded)),
+                new DiscoveryEvent(DiscoveryEvent.Type.REMOVED, updated, Optional.empty())), events);
+
+        events.clear();
+        discovery.removeListener(ServiceType.CONFIG, listener);
+        discovery.removeListener(ServiceType.SECURITY, listener);
+        discovery.register(this.config);
+        assertTrue(events.isEmpty());
+
+        discovery.close();
+        discovery.addListener(ServiceType.CONFIG, listener);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testSharedRegistry() throws DiscoveryException {
+        // Managers created without a registry share the one for the whole JVM, so they find each other.
+        final MemoryDiscoveryManager first = new MemoryDiscoveryManager(ConfigFactory.load());
+        final MemoryDiscoveryManager second = new MemoryDiscoveryManager(ConfigFactory.load());
+        assertSame(MemoryServiceRegistry.getShared(), first.getRegistry());
+        try {
+            final List<DiscoveryEvent> events = new ArrayList<>();
+            second.addListener(ServiceType.CONFIG, events::add);
+
+            first.register(this.config);
+            second.register(this.security);
+            assertEquals(Optional.of(this.config), second.getRandom(ServiceType.CONFIG));
+            assertEquals(Optional.of(this.security), first.getRandom(ServiceType.SECURITY));
+            assertEquals(Collections.singletonList(
+                    new DiscoveryEvent(DiscoveryEvent.Type.ADDED, this.config, Optional.empty())), events);
+
+            // Closing one manager only removes the services registered through it.
+            first.close();
+            assertFalse(second.getRandom(ServiceType.CONFIG).isPresent());
+            assertEquals(Optional.of(this.security), second.getRandom(ServiceType.SECURITY));
+            assertEquals(Arrays.asList(
+                    new DiscoveryEvent(DiscoveryEvent.Type.ADDED, this.config, Optional.empty()),
+                    new DiscoveryEvent(DiscoveryEvent.Type.REMOVED, this.config, Optional.empty())), events);
+        } finally {
+            first.close();
+            second.close();
+        }
+        assertFalse(MemoryServiceRegistry.getShared().getAll().contains(this.security));
+    }
+
+    @Test
+    public void testListenerCallsBack() throws DiscoveryException {
+        final MemoryDiscoveryManager discovery =
+                new MemoryDiscoveryManager(ConfigFactory.load(), new MemoryServiceRegistry());
+        final List<Optional<Service>> seen = new ArrayList<>();
+        // Listeners are notified outside the registry lock, so they can read and change the registrations.
+        discovery.addListener(ServiceType.CONFIG, event -> {
+            seen.add(discovery.getRandom(ServiceType.CONFIG));
+            if (event.getType() == DiscoveryEvent.Type.ADDED) {
+                discovery.unregister(event.getService());
+            }
+        });
+        discovery.register(this.config);
+        assertEquals(Arrays.asList(Optional.of(this.config), Optional.empty()), seen);
+        assertEquals(0, discovery.getAll().size());
+    }
+}
@@ -0,0 +1,253 @@
+package microsys.discovery.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.curator.x.discovery.ServiceCache;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceCapacity;
+import microsys.common.model.service.ServiceType;
+import microsys.discovery.DiscoveryEvent;
+import microsys.discovery.DiscoveryException;
+import microsys.discovery.DiscoveryListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Perform testing of the {@link ServiceWatcher} class.
+ */
+public class ServiceWatcherTest {
+    private final Service a = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
+    private final Service b = new Service(ServiceType.CONFIG, "host", 2345, false, "1.2.3");
+    private final Service a2 = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.4");
+
+    @SuppressWarnings("unchecked")
+    private ServiceWatcher createWatcher() {
+        return new ServiceWatcher(ServiceType.CONFIG, Mockito.mock(ServiceCache.class), instance -> this.a);
+    }
+
+    @Test
+    public void testUpdate() {
+        final ServiceWatcher watcher = createWatcher();
+        assertEquals(ServiceType.CONFIG, watcher.getServiceType());
+
+        final List<DiscoveryEvent> events = new ArrayList<>();
+        watcher.addListener(events::add);
+        assertTrue(events.isEmpty());
+
+        watcher.update(Arrays.asList(this.a, this.b));
+        assertEquals(Arrays.asList(new DiscoveryEvent(DiscoveryEvent.Type.ADDED, this.a, Optional.empty()),
+                new DiscoveryEvent(DiscoveryEvent.Type.ADDED, this.b, Optional.empty())), events);
+        assertEquals(2, watcher.getServices().size());
+
+        // No change, no events.
+        events.clear();
+        watcher.update(Arrays.asList(this.b, this.a));
+        assertTrue(events.isEmpty());
+
+        watcher.update(Arrays.asList(this.a2, this.b));
+        assertEquals(Collections.singletonList(
+                new DiscoveryEvent(DiscoveryEvent.Type.UPDATED, this.a2, Optional.of(this.a))), events);
+
+        events.clear();
+        watcher.update(Collections.singletonList(this.b));
+        assertEquals(Collections.singletonList(
+                new DiscoveryEvent(DiscoveryEvent.Type.REMOVED, this.a2, Optional.empty())), events);
+        assertEquals(Collections.singleton(this.b), watcher.getServices());
+    }
+
+    @Test
+    public void testUpdateCapacityOnly() {
+        final ServiceWatcher watcher = createWatcher();
+        watcher.update(Arrays.asList(this.a, this.b));
+
+        final List<DiscoveryEvent> events = new ArrayList<>();
+        watcher.addListener(events::add);
+        events.clear();
+
+        // A new capacity replaces the snapshot, so selection sees it, but is not reported to the listeners.
+        final SortedSet<Service> before = watcher.getServices();
+        final Service loaded = this.a.withCapacity(new ServiceCapacity(1, 2, 3, 4));
+        watcher.update(Arrays.asList(loaded, this.b));
+        assertTrue(events.isEmpty());
+        assertNotSame(before, watcher.getServices());
+        assertEquals(loaded.getCapacity(), watcher.getServices().first().getCapacity());
+
+        // The same capacity again changes nothing.
+        final SortedSet<Service> after = watcher.getServices();
+        watcher.update(Arrays.asList(this.a.withCapacity(new ServiceCapacity(1, 2, 3, 4)), this.b));
+        assertSame(after, watcher.getServices());
+    }
+
+    @Test
+    public void testAddListenerReceivesCurrentServices() {
+        final ServiceWatcher watcher = createWatcher();
+        watcher.update(Arrays.asList(this.a, this.b));
+
+        final List<DiscoveryEvent> events = new ArrayList<>();
+        watcher.addListener(events::add);
+        assertEquals(Arrays.asList(new DiscoveryEvent(DiscoveryEvent.Type.ADDED, this.a, Optional.empty()),
+                new DiscoveryEvent(DiscoveryEvent.Type.ADDED, this.b, Optional.empty())), events);
+    }
+
+    @Test
+    public void testListenersNotifiedOutsideLock() {
+        final ServiceWatcher watcher = createWatcher();
+        watcher.update(Collections.singletonList(this.a));
+
+        final List<Boolean> locked = new ArrayList<>();
+        watcher.addListener(event -> locked.add(Thread.holdsLock(watcher)));
+        watcher.update(Arrays.asList(this.a, this.b));
+        assertEquals(Arrays.asList(false, false), locked);
+    }
+
+    @Test
+    public void testNestedUpdateDeliveredInOrder() {
+        final ServiceWatcher watcher = createWatcher();
+
+        final List<DiscoveryEvent> events = new ArrayList<>();
+        watcher.addListener(event -> {
+            if (event.getType() == DiscoveryEvent.Type.ADDED && event.getService().equals(this.a)) {
+                // The nested change is delivered after the listeners have seen the current change.
+                watcher.update(Collections.singletonList(this.b));
+            }
+        });
+        watcher.addListener(events::add);
+
+        watcher.update(Collections.singletonList(this.a));
+        assertEquals(Arrays.asList(new DiscoveryEvent(DiscoveryEvent.Type.ADDED, this.a, Optional.empty()),
+                new DiscoveryEvent(DiscoveryEvent.Type.REMOVED, this.a, Optional.empty()),
+                new DiscoveryEvent(DiscoveryEvent.Type.ADDED, this.b, Optional.empty())), events);
+        assertEquals(Collections.singleton(this.b), watcher.getServices());
+    }
+
+    @Test
+    public void testRemoveListener() {
+        final ServiceWatcher watcher = createWatcher();
+        final List<DiscoveryEvent> events = new ArrayList<>();
+        final DiscoveryListener listener = events::add;
+        watcher.addListener(listener);
+        assertTrue(watcher.removeListener(listener));
+        assertFalse(watcher.removeListener(listener));
+
+        watcher.update(Collections.singletonList(this.a));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testFailingListener() {
+        final ServiceWatcher watcher = createWatcher();
+        final List<DiscoveryEvent> events = new ArrayList<>();
+        watcher.addListener(event -> {
+            throw new RuntimeException("Fake");
+        });
+        watcher.addListener(events::add);
+
+        watcher.update(Collections.singletonList(this.a));
+        assertEquals(1, events.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testStartAndRefresh() throws Exception {
+        final ServiceCache<String> cache = Mockito.mock(ServiceCache.class);
+        final ServiceInstance<String> instance = ServiceInstance.<String>builder().name("CONFIG").build();
+        Mockito.when(cache.getInstances()).thenReturn(Collections.singletonList(instance));
+        final ServiceWatcher watcher = new ServiceWatcher(ServiceType.CONFIG, cache, i -> this.a);
+        watcher.start();
+        Mockito.verify(cache).start();
+        Mockito.verify(cache).addListener(Mockito.any());
+        assertEquals(Collections.singleton(this.a), watcher.getServices());
+    }
+
+    @Test
+    public void testSnapshot() {
+        final ServiceWatcher watcher = createWatcher();
+        watcher.update(Arrays.asList(this.a, this.b));
+        final SortedSet<Service> snapshot = watcher.getServices();
+
+        // The snapshot is only replaced when the services change.
+        watcher.update(Arrays.asList(this.b, this.a));
+        assertSame(snapshot, watcher.getServices());
+        watcher.update(Collections.singletonList(this.a));
+        assertNotSame(snapshot, watcher.getServices());
+        assertEquals(2, snapshot.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotImmutable() {
+        final ServiceWatcher watcher = createWatcher();
+        watcher.update(Collections.singletonList(this.a));
+        watcher.getServices().clear();
+    }
+
+    @Test
+    public void testAwait() throws Exception {
+        final ServiceWatcher watcher = createWatcher();
+        assertTrue(watcher.await(this.a.getId(), false, 0));
+        assertFalse(watcher.await(this.a.getId(), true, 10));
+
+        final Thread thread = new Thread(() -> watcher.update(Collections.singletonList(this.a)));
+        thread.start();
+        assertTrue(watcher.await(this.a.getId(), true, 10000));
+        thread.join();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRefreshReusesServices() throws Exception {
+        final ServiceCache<String> cache = Mockito.mock(ServiceCache.class);
+        final ServiceInstance<String> first =
+                ServiceInstance.<String>builder().name("CONFIG").id(this.a.getId()).payload("first").build();
+        final ServiceInstance<String> second =
+                ServiceInstance.<String>builder().name("CONFIG").id(this.a.getId()).payload("second").build();
+        Mockito.when(cache.getInstances()).thenReturn(Collections.singletonList(first));
+
+        final AtomicInteger conversions = new AtomicInteger();
+        final ServiceWatcher watcher = new ServiceWatcher(ServiceType.CONFIG, cache, instance -> {
+            conversions.incrementAndGet();
+            return "first".equals(instance.getPayload()) ? this.a : this.a2;
+        });
+        watcher.start();
+        watcher.refresh();
+        assertEquals(1, conversions.get());
+        assertEquals(Collections.singleton(this.a), watcher.getServices());
+
+        // A changed payload is converted again.
+        Mockito.when(cache.getInstances()).thenReturn(Collections.singletonList(second));
+        watcher.refresh();
+        assertEquals(2, conversions.get());
+        assertEquals(Collections.singleton(this.a2), watcher.getServices());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = DiscoveryException.class)
+    public void testStartWithException() throws Exception {
+        final ServiceCache<String> cache = Mockito.mock(ServiceCache.class);
+        Mockito.doThrow(new Exception("Fake")).when(cache).start();
+        new ServiceWatcher(ServiceType.CONFIG, cache, i -> this.a).start();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCloseWithException() throws Exception {
+        final ServiceCache<String> cache = Mockito.mock(ServiceCache.class);
+        Mockito.doThrow(new IOException("Fake")).when(cache).close();
+        new ServiceWatcher(ServiceType.CONFIG, cache, i -> this.a).close();
+        Mockito.verify(cache).close();
+    }
+}
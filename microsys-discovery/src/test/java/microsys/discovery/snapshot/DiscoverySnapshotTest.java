@@ -0,0 +1,92 @@
+package microsys.discovery.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceCapacity;
+import microsys.common.model.service.ServiceType;
+import microsys.discovery.DiscoveryException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Perform testing on the {@link DiscoverySnapshot} class.
+ */
+public class DiscoverySnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCreateDisabled() {
+        assertFalse(DiscoverySnapshot.create(ConfigFactory.load()).isPresent());
+        assertFalse(DiscoverySnapshot.create(ConfigFactory.empty()).isPresent());
+    }
+
+    @Test
+    public void testCreateEnabled() {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.DISCOVERY_SNAPSHOT_ENABLED.getKey(), ConfigValueFactory.fromAnyRef(true));
+        map.put(ConfigKeys.SNAPSHOT_DIR.getKey(), ConfigValueFactory.fromAnyRef(folder.getRoot().getPath()));
+        final Config config = ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
+
+        final Optional<DiscoverySnapshot> snapshot = DiscoverySnapshot.create(config);
+        assertTrue(snapshot.isPresent());
+        assertEquals(folder.getRoot().toPath().resolve("discovery.json"), snapshot.get().getFile());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws DiscoveryException {
+        final Path file = folder.getRoot().toPath().resolve("dir").resolve("discovery.json");
+        final DiscoverySnapshot snapshot = new DiscoverySnapshot(file);
+        assertFalse(snapshot.load().isPresent());
+
+        final SortedSet<Service> services = new TreeSet<>(Arrays.asList(
+                new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3", Optional.of("zone")),
+                new Service(ServiceType.SECURITY, "host", 2345, true, "1.2.3")
+                        .withCapacity(new ServiceCapacity(1, 2, 3, 4))));
+        snapshot.save(services);
+        assertTrue(Files.exists(file));
+        assertEquals(Optional.of(services), snapshot.load());
+        assertEquals(Optional.of(new ServiceCapacity(1, 2, 3, 4)), snapshot.load().get().last().getCapacity());
+
+        // Overwrite the existing snapshot.
+        snapshot.save(Collections.emptyList());
+        assertEquals(0, snapshot.load().get().size());
+        assertEquals(1, file.getParent().toFile().list().length);
+    }
+
+    @Test
+    public void testLoadInvalid() throws Exception {
+        final Path file = folder.newFile("invalid.json").toPath();
+        Files.write(file, "invalid".getBytes(StandardCharsets.UTF_8));
+        assertFalse(new DiscoverySnapshot(file).load().isPresent());
+    }
+
+    @Test(expected = DiscoveryException.class)
+    public void testSaveFailure() throws Exception {
+        // The parent of the snapshot file is a regular file, so the directory cannot be created.
+        final Path file = folder.newFile("file").toPath().resolve("discovery.json");
+        new DiscoverySnapshot(file).save(Collections.emptyList());
+    }
+}
@@ -19,6 +19,13 @@ public interface PortManager extends AutoCloseable {
     @Nonnull
     Reservation getReservation(@Nonnull ServiceType type, @Nonnull String host) throws PortReservationException;
 
+    /**
+     * @param reservation the {@link Reservation} to give up once the service using it has stopped, so the port can be
+     *     reserved again
+     * @throws PortReservationException if there is a problem releasing the port
+     */
+    void release(@Nonnull Reservation reservation) throws PortReservationException;
+
     /**
      * Clean up the resources associated with this class.
      */
@@ -1,5 +1,8 @@
 package microsys.portres;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Defines the interface used to verify if a port is available.
  */
@@ -11,4 +14,20 @@ public interface PortTester {
      * @throws PortReservationException if there is a problem verifying that the port is available
      */
     boolean isAvailable(String host, int port) throws PortReservationException;
+
+    /**
+     * @param host the host on which the ports should be checked
+     * @param ports the candidate port numbers, in order of preference
+     * @return the first of the candidate ports that is available, or empty if none of them are available
+     * @throws PortReservationException if there is a problem verifying that the ports are available
+     */
+    default Optional<Integer> findAvailable(final String host, final List<Integer> ports)
+            throws PortReservationException {
+        for (final int port : ports) {
+            if (isAvailable(host, port)) {
+                return Optional.of(port);
+            }
+        }
+        return Optional.empty();
+    }
 }
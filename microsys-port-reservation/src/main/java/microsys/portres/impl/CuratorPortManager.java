@@ -1,10 +1,13 @@
 package microsys.portres.impl;
 
+import com.google.common.base.Preconditions;
 import com.typesafe.config.Config;
 
 import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.recipes.shared.SharedCount;
-import org.apache.curator.framework.recipes.shared.VersionedValue;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
 
 import microsys.common.config.ConfigKeys;
 import microsys.common.model.service.Reservation;
@@ -13,32 +16,69 @@ import microsys.portres.PortManager;
 import microsys.portres.PortReservationException;
 import microsys.portres.PortTester;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.annotation.Nonnull;
 
 /**
- * This manager is used to reserve a unique port for a service, using curator recipes and zookeeper to make sure the
- * port is unique.
+ * This manager is used to reserve a unique port for a service, using zookeeper to make sure the port is unique on each
+ * host. Each reserved port is owned through an ephemeral node created by the zookeeper session of the process. The
+ * node is deleted when the reservation is released as the service stops, and otherwise the port is freed
+ * automatically when the process stops or its session expires. New reservations are allocated from the ports that are
+ * not owned. The last port reserved for each service type on a host is also recorded, so a service
+ * that restarts is given the same port again when it is free.
+ * <p>
+ * To keep services starting at the same time from competing for the same ports, a manager first leases a contiguous
+ * block of ports by creating an ephemeral node named after the first port in the block, and then offers the free ports
+ * in that block. Creating a node either succeeds or fails immediately when another manager got there first, so the
+ * managers simply move on to the next free block or port rather than retrying. Leased blocks are returned when the
+ * manager is closed, while the ports it reserved stay owned.
+ * <pre>
+ * /port-reservation/{host}/blocks/{first port}  - ephemeral, a block being offered by a manager
+ * /port-reservation/{host}/ports/{port}         - ephemeral, a port owned by a service, holding the service type
+ * /port-reservation/{host}/last/{service type}  - persistent, the last port reserved for the service type
+ * </pre>
  */
 public class CuratorPortManager implements PortManager {
     private final static String PORT_RESERVATION_PATH = "/port-reservation";
+    private final static String BLOCKS = "blocks";
+    private final static String PORTS = "ports";
+    private final static String LAST = "last";
 
     @Nonnull
     private final Config config;
     @Nonnull
-    private final SharedCount portReservation;
+    private final CuratorFramework curator;
     @Nonnull
     private final PortTester portTester;
 
+    // The block currently being handed out for each host, guarded by this
+    @Nonnull
+    private final Map<String, PortBlock> current = new HashMap<>();
+    // All of the blocks leased by this manager, guarded by this
+    @Nonnull
+    private final List<PortBlock> leased = new ArrayList<>();
+    // The first ports of the blocks for each host that this manager has already tried, guarded by this
+    @Nonnull
+    private final Map<String, Set<Integer>> tried = new HashMap<>();
+
     /**
      * @param config the static system configuration information
      * @param curator the {@link CuratorFramework} that is managing zookeeper operations
-     * @throws PortReservationException if there is a problem with zookeeper communication
      */
-    public CuratorPortManager(
-            @Nonnull final Config config, @Nonnull final CuratorFramework curator)
-            throws PortReservationException {
+    public CuratorPortManager(@Nonnull final Config config, @Nonnull final CuratorFramework curator) {
         this(config, curator, new DefaultPortTester());
     }
 
@@ -46,21 +86,14 @@ public class CuratorPortManager implements PortManager {
      * @param config the static system configuration information
      * @param curator the {@link CuratorFramework} that is managing zookeeper operations
      * @param portTester the {@link PortTester} used to verify that each port is available
-     * @throws PortReservationException if there is a problem with zookeeper communication
      */
     public CuratorPortManager(
-            @Nonnull final Config config, @Nonnull final CuratorFramework curator, @Nonnull final PortTester portTester)
-            throws PortReservationException {
+            @Nonnull final Config config, @Nonnull final CuratorFramework curator,
+            @Nonnull final PortTester portTester) {
         this.config = Objects.requireNonNull(config);
+        this.curator = Objects.requireNonNull(curator);
         this.portTester = Objects.requireNonNull(portTester);
-
-        final int minPort = config.getInt(ConfigKeys.SERVER_PORT_MIN.getKey()) - 1;
-        this.portReservation = new SharedCount(Objects.requireNonNull(curator), PORT_RESERVATION_PATH, minPort);
-        try {
-            this.portReservation.start();
-        } catch (final Exception exception) {
-            throw new PortReservationException("Failed to start the shared count", exception);
-        }
+        Preconditions.checkArgument(getBlockSize() > 0, "The port block size must be positive");
     }
 
     /**
@@ -72,11 +105,11 @@ public class CuratorPortManager implements PortManager {
     }
 
     /**
-     * @return the {@link SharedCount} object that represents the available port information from zookeeper
+     * @return the {@link CuratorFramework} that is managing zookeeper operations
      */
     @Nonnull
-    protected SharedCount getPortReservation() {
-        return this.portReservation;
+    protected CuratorFramework getCurator() {
+        return this.curator;
     }
 
     /**
@@ -87,6 +120,22 @@ public class CuratorPortManager implements PortManager {
         return this.portTester;
     }
 
+    /**
+     * @return the block currently being handed out for each host, guarded by this manager
+     */
+    @Nonnull
+    protected Map<String, PortBlock> getCurrent() {
+        return this.current;
+    }
+
+    /**
+     * @return the blocks of ports leased by this manager, guarded by this manager
+     */
+    @Nonnull
+    protected List<PortBlock> getLeased() {
+        return this.leased;
+    }
+
     /**
      * @return the minimum port that will be reserved for service usage, based on the static system configuration
      */
@@ -102,58 +151,270 @@ public class CuratorPortManager implements PortManager {
     }
 
     /**
-     * @param currentValue the current shared port number value from zookeeper
-     * @return the next port number to use
+     * @return the number of contiguous ports leased at a time, based on the static system configuration
      */
-    protected int getNextPort(@Nonnull final VersionedValue<Integer> currentValue) {
-        final int minPort = getMinPort();
-        final int maxPort = getMaxPort();
+    protected int getBlockSize() {
+        return getConfig().getInt(ConfigKeys.SERVER_PORT_BLOCK_SIZE.getKey());
+    }
 
-        int next = Objects.requireNonNull(currentValue).getValue() + 1;
-        if (next > maxPort) {
-            next = minPort;
-        }
-        return next;
+    /**
+     * @param host the host on which the ports are used
+     * @param child the name of the child node beneath the host node
+     * @return the zookeeper path of the child node for the host
+     */
+    @Nonnull
+    protected String getPath(@Nonnull final String host, @Nonnull final String child) {
+        return ZKPaths.makePath(ZKPaths.makePath(PORT_RESERVATION_PATH, host), child);
     }
 
     /**
-     * {@inheritDoc}
+     * Lease the next free block of ports for the specified host.
+     *
+     * @param host the host on which the ports will be used
+     * @param owned the ports currently owned by services on the host, used to skip the blocks without free ports
+     * @return the newly leased block of ports
+     * @throws PortReservationException if all of the blocks are leased or owned, or there is a problem communicating
+     *     with zookeeper
      */
-    @Override
     @Nonnull
-    public Reservation getReservation(@Nonnull final ServiceType type, @Nonnull final String host)
+    protected synchronized PortBlock lease(@Nonnull final String host, @Nonnull final Set<Integer> owned)
             throws PortReservationException {
-        boolean successful = false;
+        final String blocksPath = getPath(host, BLOCKS);
+        final Set<Integer> skip = this.tried.computeIfAbsent(host, h -> new HashSet<>());
+        // Skip the blocks already leased by other managers, so that only the creation of the lease node can conflict.
+        skip.addAll(getChildPorts(blocksPath));
+
+        final List<Integer> free = new ArrayList<>();
+        for (int first = getMinPort(); first <= getMaxPort(); first += getBlockSize()) {
+            final int last = getLast(first);
+            final boolean hasFree = IntStream.rangeClosed(first, last).anyMatch(port -> !owned.contains(port));
+            if (hasFree && !skip.contains(first)) {
+                free.add(first);
+            }
+        }
+        final int offset = free.isEmpty() ? 0 : getOffset(free.size());
+        for (int index = 0; index < free.size(); index++) {
+            final int first = free.get((offset + index) % free.size());
+            skip.add(first);
+            final String path = ZKPaths.makePath(blocksPath, String.valueOf(first));
+            if (create(path, CreateMode.EPHEMERAL, host)) {
+                final PortBlock block = new PortBlock(path, first, getLast(first));
+                getLeased().add(block);
+                return block;
+            }
+        }
+        throw new PortReservationException("Failed to reserve a port, all of them are currently taken");
+    }
+
+    /**
+     * @param first the first port in a block
+     * @return the last port in the block, inclusive
+     */
+    protected int getLast(final int first) {
+        return Math.min(first + getBlockSize() - 1, getMaxPort());
+    }
+
+    /**
+     * @param path the zookeeper path of the node to create
+     * @param mode the mode with which to create the node
+     * @param data the data to store in the node
+     * @return whether the node was created, or false if it already exists
+     * @throws PortReservationException if there is a problem communicating with zookeeper
+     */
+    protected boolean create(@Nonnull final String path, @Nonnull final CreateMode mode, @Nonnull final String data)
+            throws PortReservationException {
+        try {
+            getCurator().create().creatingParentsIfNeeded().withMode(mode)
+                    .forPath(path, data.getBytes(StandardCharsets.UTF_8));
+            return true;
+        } catch (final KeeperException.NodeExistsException taken) {
+            // Created by another manager first.
+            return false;
+        } catch (final Exception exception) {
+            throw new PortReservationException("Failed to create " + path, exception);
+        }
+    }
+
+    /**
+     * @param path the zookeeper path of the node to delete, ignoring failures since the nodes are ephemeral
+     */
+    protected void delete(@Nonnull final String path) {
+        try {
+            getCurator().delete().guaranteed().forPath(path);
+        } catch (final Exception ignored) {
+            // The node is ephemeral, and will be removed when the session ends.
+        }
+    }
+
+    /**
+     * @param freeBlocks the number of blocks that appear to be free, must be positive
+     * @return the index of the free block from which to start leasing, chosen at random so services starting at the
+     *     same time rarely try to lease the same block
+     */
+    protected int getOffset(final int freeBlocks) {
+        return ThreadLocalRandom.current().nextInt(freeBlocks);
+    }
+
+    /**
+     * @param path the zookeeper path beneath which the child nodes are named after ports
+     * @return the ports named by the child nodes, which is empty when the node does not exist
+     * @throws PortReservationException if there is a problem communicating with zookeeper
+     */
+    @Nonnull
+    protected Set<Integer> getChildPorts(@Nonnull final String path) throws PortReservationException {
+        final List<String> children;
+        try {
+            children = getCurator().getChildren().forPath(path);
+        } catch (final KeeperException.NoNodeException noChildren) {
+            return Collections.emptySet();
+        } catch (final Exception exception) {
+            throw new PortReservationException("Failed to retrieve the children of " + path, exception);
+        }
 
-        int totalAttempts = getMaxPort() - getMinPort() + 2;
-        int reservedPort = 0;
-        while (!successful && totalAttempts-- > 0) {
-            final VersionedValue<Integer> currentValue = getPortReservation().getVersionedValue();
-            reservedPort = getNextPort(currentValue);
+        final Set<Integer> ports = new HashSet<>();
+        for (final String child : children) {
             try {
-                successful = getPortReservation().trySetCount(currentValue, reservedPort) && getPortTester()
-                        .isAvailable(host, reservedPort);
-            } catch (final Exception exception) {
-                throw new PortReservationException("Failed to set the shared count", exception);
+                ports.add(Integer.parseInt(child));
+            } catch (final NumberFormatException ignored) {
+                // Not named after a port.
             }
         }
+        return ports;
+    }
 
-        if (!successful) {
-            throw new PortReservationException("Failed to reserve a port, all of them are currently taken");
+    /**
+     * @param type the type of service being reserved
+     * @param host the host on which the service will run
+     * @return the last port reserved for the service type on the host, if any
+     * @throws PortReservationException if there is a problem communicating with zookeeper
+     */
+    @Nonnull
+    protected Optional<Integer> getLastPort(@Nonnull final ServiceType type, @Nonnull final String host)
+            throws PortReservationException {
+        try {
+            final byte[] data = getCurator().getData().forPath(getPath(host, ZKPaths.makePath(LAST, type.name())));
+            return Optional.of(Integer.parseInt(new String(data, StandardCharsets.UTF_8)));
+        } catch (final KeeperException.NoNodeException | NumberFormatException noLastPort) {
+            return Optional.empty();
+        } catch (final Exception exception) {
+            throw new PortReservationException("Failed to retrieve the last port for " + type, exception);
         }
+    }
 
-        return new Reservation(type, host, reservedPort);
+    /**
+     * Take ownership of a port for a service, and record it as the last port used by the service type on the host.
+     *
+     * @param type the type of service being reserved
+     * @param host the host on which the service will run
+     * @param port the port to own
+     * @return whether the port is now owned by the service, or false if another service owns it
+     * @throws PortReservationException if there is a problem communicating with zookeeper
+     */
+    protected boolean own(@Nonnull final ServiceType type, @Nonnull final String host, final int port)
+            throws PortReservationException {
+        if (!create(ZKPaths.makePath(getPath(host, PORTS), String.valueOf(port)), CreateMode.EPHEMERAL, type.name())) {
+            return false;
+        }
+        final String lastPath = getPath(host, ZKPaths.makePath(LAST, type.name()));
+        final byte[] data = String.valueOf(port).getBytes(StandardCharsets.UTF_8);
+        try {
+            if (getCurator().checkExists().forPath(lastPath) == null) {
+                getCurator().create().creatingParentsIfNeeded().forPath(lastPath, data);
+            } else {
+                getCurator().setData().forPath(lastPath, data);
+            }
+        } catch (final Exception ignored) {
+            // The port is owned regardless, the service just may not get the same port after restarting.
+        }
+        return true;
+    }
+
+    /**
+     * Return a leased block of ports. The ports already reserved from the block stay owned by their services.
+     *
+     * @param block the block to return
+     */
+    protected synchronized void returnBlock(@Nonnull final PortBlock block) {
+        if (getLeased().remove(block)) {
+            delete(block.getPath());
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void close() {
+    @Nonnull
+    public synchronized Reservation getReservation(@Nonnull final ServiceType type, @Nonnull final String host)
+            throws PortReservationException {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(host);
+
+        final Set<Integer> owned = getChildPorts(getPath(host, PORTS));
+
+        // Give a restarted service its previous port when nothing else has taken it.
+        final Optional<Integer> lastPort = getLastPort(type, host).filter(port -> !owned.contains(port))
+                .filter(port -> port >= getMinPort() && port <= getMaxPort());
+        if (lastPort.isPresent() && getPortTester().isAvailable(host, lastPort.get())
+                && own(type, host, lastPort.get())) {
+            return new Reservation(type, host, lastPort.get());
+        }
+
+        PortBlock block = getCurrent().get(host);
+        while (true) {
+            if (block == null || !block.hasNext()) {
+                if (block != null) {
+                    returnBlock(block);
+                }
+                // Throws once all of the blocks have been tried.
+                block = lease(host, owned);
+                getCurrent().put(host, block);
+            }
+
+            final List<Integer> candidates = block.getRemaining().stream().filter(port -> !owned.contains(port))
+                    .collect(Collectors.toList());
+            final Optional<Integer> port = getPortTester().findAvailable(host, candidates);
+            if (!port.isPresent()) {
+                block.skipRemaining();
+            } else {
+                block.offer(port.get());
+                if (own(type, host, port.get())) {
+                    return new Reservation(type, host, port.get());
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(@Nonnull final Reservation reservation) throws PortReservationException {
+        Objects.requireNonNull(reservation);
+        final String path = ZKPaths.makePath(getPath(reservation.getHost(), PORTS),
+                String.valueOf(reservation.getPort()));
         try {
-            getPortReservation().close();
-        } catch (final Exception ignored) {
-            // Ignored.
+            final Stat stat = new Stat();
+            final byte[] data = getCurator().getData().storingStatIn(stat).forPath(path);
+            final long sessionId = getCurator().getZookeeperClient().getZooKeeper().getSessionId();
+            // Only give up the port when it is still owned by this session for the same service type.
+            if (stat.getEphemeralOwner() == sessionId
+                    && reservation.getType().name().equals(new String(data, StandardCharsets.UTF_8))) {
+                getCurator().delete().withVersion(stat.getVersion()).forPath(path);
+            }
+        } catch (final KeeperException.NoNodeException | KeeperException.BadVersionException notOwned) {
+            // Already released, or the port has since been reserved again.
+        } catch (final Exception exception) {
+            throw new PortReservationException("Failed to release port " + reservation.getPort(), exception);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() {
+        new ArrayList<>(getLeased()).forEach(this::returnBlock);
+        getCurrent().clear();
+    }
 }
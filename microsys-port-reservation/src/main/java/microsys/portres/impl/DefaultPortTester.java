@@ -1,29 +1,143 @@
 package microsys.portres.impl;
 
+import com.google.common.base.Preconditions;
+
+import microsys.portres.PortReservationException;
 import microsys.portres.PortTester;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
 
 /**
- * Provides the default implementation of the {@link PortTester} interface.
+ * Provides the default implementation of the {@link PortTester} interface. A port is available when a server socket
+ * can be bound to it on the address of the requested host, which fails or succeeds immediately rather than waiting on
+ * connection timeouts. Ports found to be in use are remembered for a while, keyed by address and port, and skipped
+ * without being probed again, so reservations move quickly through crowded port ranges. The failures are held by the
+ * tester, so a single long-lived tester should be shared by all the port managers in a process.
  */
 public class DefaultPortTester implements PortTester {
+    // How long a port found to be in use is skipped without being probed again - arbitrary
+    private final static long DEFAULT_FAILED_PORT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    // The number of candidate ports probed concurrently - arbitrary
+    private final static int BATCH_SIZE = 16;
+
+    private final long failedPortMillis;
+
+    // The addresses and ports found to be in use, mapped to the time (in milliseconds since the epoch) when probed
+    @Nonnull
+    private final Map<InetSocketAddress, Long> failed = new ConcurrentHashMap<>();
+
     /**
-     * {@inheritDoc}
+     * Create a port tester that skips ports found to be in use for the default duration.
+     */
+    public DefaultPortTester() {
+        this(DEFAULT_FAILED_PORT_MILLIS);
+    }
+
+    /**
+     * @param failedPortMillis the number of milliseconds for which a port found to be in use is skipped without being
+     *     probed again, with 0 always probing
+     */
+    public DefaultPortTester(final long failedPortMillis) {
+        Preconditions.checkArgument(failedPortMillis >= 0, "Failed port duration must not be negative");
+        this.failedPortMillis = failedPortMillis;
+    }
+
+    /**
+     * @return the number of milliseconds for which a port found to be in use is skipped without being probed again
+     */
+    public long getFailedPortMillis() {
+        return this.failedPortMillis;
+    }
+
+    /**
+     * @param address the address on which the port was probed
+     * @param port the port to check
+     * @return whether the port was recently found to be in use on the address
      */
-    public boolean isAvailable(@Nonnull final String host, final int port) {
-        Objects.requireNonNull(host);
-        try (final Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(host, port), (int) TimeUnit.SECONDS.toMillis(1));
+    protected boolean isRecentlyFailed(@Nonnull final InetAddress address, final int port) {
+        final InetSocketAddress key = new InetSocketAddress(Objects.requireNonNull(address), port);
+        final Long failedAt = this.failed.get(key);
+        if (failedAt != null && failedAt + getFailedPortMillis() <= System.currentTimeMillis()) {
+            this.failed.remove(key, failedAt);
             return false;
-        } catch (final IOException ioException) {
+        }
+        return failedAt != null;
+    }
+
+    /**
+     * @param host the host on which ports should be probed
+     * @return the local address of the host, to which the probe sockets are bound
+     * @throws PortReservationException if the host name cannot be resolved
+     */
+    @Nonnull
+    protected InetAddress getAddress(@Nonnull final String host) throws PortReservationException {
+        try {
+            return InetAddress.getByName(Objects.requireNonNull(host));
+        } catch (final UnknownHostException unknownHost) {
+            throw new PortReservationException("Unable to resolve host " + host, unknownHost);
+        }
+    }
+
+    /**
+     * @param address the address on which the port should be probed
+     * @param port the port to probe by binding a server socket to it on the address
+     * @return whether the port could be bound
+     */
+    protected boolean probe(@Nonnull final InetAddress address, final int port) {
+        final InetSocketAddress key = new InetSocketAddress(address, port);
+        try (final ServerSocketChannel channel = ServerSocketChannel.open()) {
+            // Match the server, which allows binding to ports with connections still closing.
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(key);
+            this.failed.remove(key);
             return true;
+        } catch (final IOException inUse) {
+            this.failed.put(key, System.currentTimeMillis());
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAvailable(@Nonnull final String host, final int port) throws PortReservationException {
+        final InetAddress address = getAddress(host);
+        return !isRecentlyFailed(address, port) && probe(address, port);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Optional<Integer> findAvailable(@Nonnull final String host, @Nonnull final List<Integer> ports)
+            throws PortReservationException {
+        final InetAddress address = getAddress(host);
+        final List<Integer> candidates =
+                ports.stream().filter(port -> !isRecentlyFailed(address, port)).collect(Collectors.toList());
+        for (int start = 0; start < candidates.size(); start += BATCH_SIZE) {
+            final List<Integer> batch = candidates.subList(start, Math.min(start + BATCH_SIZE, candidates.size()));
+            // Probe the whole batch at once, but keep the first available port in the order given.
+            final Optional<Integer> available = batch.parallelStream().filter(port -> probe(address, port)).findFirst();
+            if (available.isPresent()) {
+                return available;
+            }
         }
+        return Optional.empty();
     }
 }
@@ -0,0 +1,122 @@
+package microsys.portres.impl;
+
+import com.typesafe.config.Config;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.model.service.Reservation;
+import microsys.common.model.service.ServiceType;
+import microsys.portres.PortManager;
+import microsys.portres.PortReservationException;
+import microsys.portres.PortTester;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * This manager is used to reserve a unique port for a service without zookeeper, for single-node deployments and
+ * tests. The last reserved port is shared by all the managers within the JVM, so services started in the same process
+ * are given different ports, while the {@link PortTester} skips ports already in use by other processes.
+ */
+public class MemoryPortManager implements PortManager {
+    // The last port reserved within this JVM, shared by all the memory port managers
+    private final static AtomicInteger LAST_PORT = new AtomicInteger();
+
+    @Nonnull
+    private final Config config;
+    @Nonnull
+    private final PortTester portTester;
+
+    /**
+     * @param config the static system configuration information
+     */
+    public MemoryPortManager(@Nonnull final Config config) {
+        this(config, new DefaultPortTester());
+    }
+
+    /**
+     * @param config the static system configuration information
+     * @param portTester the {@link PortTester} used to verify that each port is available
+     */
+    public MemoryPortManager(@Nonnull final Config config, @Nonnull final PortTester portTester) {
+        this.config = Objects.requireNonNull(config);
+        this.portTester = Objects.requireNonNull(portTester);
+    }
+
+    /**
+     * @return the static system configuration information
+     */
+    @Nonnull
+    protected Config getConfig() {
+        return this.config;
+    }
+
+    /**
+     * @return the {@link PortTester} used to verify that each port is available
+     */
+    @Nonnull
+    protected PortTester getPortTester() {
+        return this.portTester;
+    }
+
+    /**
+     * @return the minimum port that will be reserved for service usage, based on the static system configuration
+     */
+    protected int getMinPort() {
+        return getConfig().getInt(ConfigKeys.SERVER_PORT_MIN.getKey());
+    }
+
+    /**
+     * @return the maximum port that will be reserved for service usage, based on the static system configuration
+     */
+    protected int getMaxPort() {
+        return getConfig().getInt(ConfigKeys.SERVER_PORT_MAX.getKey());
+    }
+
+    /**
+     * @return the next port number to use, wrapping around to the minimum port after the maximum port
+     */
+    protected int getNextPort() {
+        final int minPort = getMinPort();
+        final int maxPort = getMaxPort();
+        return LAST_PORT.updateAndGet(last -> last < minPort || last >= maxPort ? minPort : last + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Reservation getReservation(@Nonnull final ServiceType type, @Nonnull final String host)
+            throws PortReservationException {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(host);
+
+        int totalAttempts = getMaxPort() - getMinPort() + 1;
+        while (totalAttempts-- > 0) {
+            final int port = getNextPort();
+            if (getPortTester().isAvailable(host, port)) {
+                return new Reservation(type, host, port);
+            }
+        }
+        throw new PortReservationException("Failed to reserve a port, all of them are currently taken");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(@Nonnull final Reservation reservation) {
+        Objects.requireNonNull(reservation);
+        // Nothing is held for the reserved ports, which are tested again when reserving.
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        // Nothing to clean up.
+    }
+}
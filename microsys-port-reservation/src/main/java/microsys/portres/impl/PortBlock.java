@@ -0,0 +1,109 @@
+package microsys.portres.impl;
+
+import com.google.common.base.Preconditions;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A contiguous range of ports leased by a port manager, from which ports are handed out locally without any further
+ * coordination. Instances are not thread-safe, the owning manager is expected to guard access.
+ */
+public class PortBlock {
+    @Nonnull
+    private final String path;
+    private final int first;
+    private final int last;
+
+    private int next;
+
+    /**
+     * @param path the zookeeper path of the node representing the lease on this block
+     * @param first the first port in the block
+     * @param last the last port in the block, inclusive
+     */
+    public PortBlock(@Nonnull final String path, final int first, final int last) {
+        Preconditions.checkArgument(first <= last, "The first port must not be after the last port");
+        this.path = Objects.requireNonNull(path);
+        this.first = first;
+        this.last = last;
+        this.next = first;
+    }
+
+    /**
+     * @return the zookeeper path of the node representing the lease on this block
+     */
+    @Nonnull
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * @return the first port in the block
+     */
+    public int getFirst() {
+        return this.first;
+    }
+
+    /**
+     * @return the last port in the block, inclusive
+     */
+    public int getLast() {
+        return this.last;
+    }
+
+    /**
+     * @return whether there are ports in this block that have not yet been offered
+     */
+    public boolean hasNext() {
+        return this.next <= this.last;
+    }
+
+    /**
+     * @return the ports in the block that have not yet been offered, in order
+     */
+    @Nonnull
+    public List<Integer> getRemaining() {
+        return IntStream.rangeClosed(this.next, this.last).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Record that the specified port has been offered to a service. The ports before it that have not yet been offered
+     * are skipped, since they were found to be unavailable.
+     *
+     * @param port the port that has been offered
+     * @throws IllegalArgumentException if the port is not one of the remaining ports in the block
+     */
+    public void offer(final int port) {
+        Preconditions.checkArgument(port >= this.next && port <= this.last, "The port is not remaining in the block");
+        this.next = port + 1;
+    }
+
+    /**
+     * Skip all of the remaining ports in the block, after they were found to be unavailable.
+     */
+    public void skipRemaining() {
+        this.next = this.last + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public String toString() {
+        final ToStringBuilder str = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        str.append("path", getPath());
+        str.append("first", getFirst());
+        str.append("last", getLast());
+        str.append("next", this.next);
+        return str.build();
+    }
+}
@@ -11,9 +11,10 @@ import com.typesafe.config.ConfigValueFactory;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
-import org.apache.curator.framework.recipes.shared.SharedCount;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.KeeperException;
+import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -22,10 +23,24 @@ import microsys.common.model.service.Reservation;
 import microsys.common.model.service.ServiceType;
 import microsys.portres.PortManager;
 import microsys.portres.PortReservationException;
+import microsys.portres.PortTester;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
 
 /**
  * Perform testing on the {@link PortManager} class.
@@ -38,7 +53,8 @@ public class CuratorPortManagerIT {
         final Map<String, ConfigValue> map = new HashMap<>();
         map.put(ConfigKeys.ZOOKEEPER_HOSTS.getKey(), ConfigValueFactory.fromAnyRef(testingServer.getConnectString()));
         map.put(ConfigKeys.SERVER_PORT_MIN.getKey(), ConfigValueFactory.fromAnyRef(5000));
-        map.put(ConfigKeys.SERVER_PORT_MAX.getKey(), ConfigValueFactory.fromAnyRef(5002));
+        map.put(ConfigKeys.SERVER_PORT_MAX.getKey(), ConfigValueFactory.fromAnyRef(5003));
+        map.put(ConfigKeys.SERVER_PORT_BLOCK_SIZE.getKey(), ConfigValueFactory.fromAnyRef(1));
         final Config config = ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
 
         final CuratorFramework curator =
@@ -56,25 +72,30 @@ public class CuratorPortManagerIT {
             assertNotNull(r1);
             assertEquals(ServiceType.CONFIG, r1.getType());
             assertEquals("localhost", r1.getHost());
-            assertTrue(5000 <= r1.getPort() && r1.getPort() <= 5002);
+            assertTrue(5000 <= r1.getPort() && r1.getPort() <= 5003);
 
             final Reservation r2 = secondary.getReservation(ServiceType.HEALTH, "localhost");
             assertNotNull(r2);
             assertEquals(ServiceType.HEALTH, r2.getType());
             assertEquals("localhost", r2.getHost());
-            assertTrue(5000 <= r2.getPort() && r2.getPort() <= 5002);
+            assertTrue(5000 <= r2.getPort() && r2.getPort() <= 5003);
 
             final Reservation r3 = primary.getReservation(ServiceType.WEB, "localhost");
             assertNotNull(r3);
             assertEquals(ServiceType.WEB, r3.getType());
             assertEquals("localhost", r3.getHost());
-            assertTrue(5000 <= r3.getPort() && r3.getPort() <= 5002);
+            assertTrue(5000 <= r3.getPort() && r3.getPort() <= 5003);
 
             final Reservation r4 = secondary.getReservation(ServiceType.WEB, "localhost");
             assertNotNull(r4);
             assertEquals(ServiceType.WEB, r4.getType());
             assertEquals("localhost", r4.getHost());
-            assertTrue(5000 <= r4.getPort() && r4.getPort() <= 5002);
+            assertTrue(5000 <= r4.getPort() && r4.getPort() <= 5003);
+
+            // No port is handed out twice.
+            final Set<Integer> ports =
+                    new HashSet<>(Arrays.asList(r1.getPort(), r2.getPort(), r3.getPort(), r4.getPort()));
+            assertEquals(4, ports.size());
         } finally {
             primary.close();
             secondary.close();
@@ -108,32 +129,249 @@ public class CuratorPortManagerIT {
         }
     }
 
-    @Test(expected = PortReservationException.class)
-    public void testConstructorException() throws Exception {
-        final Config config = ConfigFactory.load();
-        final CuratorFramework curator = Mockito.mock(CuratorFramework.class);
-        Mockito.when(curator.getConnectionStateListenable()).thenThrow(new RuntimeException("Fake"));
-        new CuratorPortManager(config, curator);
+    @Test
+    public void testBlocks() throws Exception {
+        final TestingServer testingServer = new TestingServer();
+        final Config config = getConfig(testingServer, 5000, 5009, 3);
+        final CuratorFramework curator = getCurator(testingServer);
+
+        final CuratorPortManager primary = new OrderedPortManager(config, curator, (host, port) -> port != 5007);
+        final CuratorPortManager secondary = new OrderedPortManager(config, curator, (host, port) -> true);
+        try {
+            // Each manager offers ports from its own block.
+            assertEquals(5000, primary.getReservation(ServiceType.CONFIG, "localhost").getPort());
+            assertEquals(5003, secondary.getReservation(ServiceType.HEALTH, "localhost").getPort());
+            assertEquals(5001, primary.getReservation(ServiceType.SECURITY, "localhost").getPort());
+            assertEquals(5002, primary.getReservation(ServiceType.SHELL, "localhost").getPort());
+
+            // The next free block is leased when a block runs out, and unavailable ports are skipped.
+            assertEquals(5006, primary.getReservation(ServiceType.WEB, "localhost").getPort());
+            assertEquals(5008, primary.getReservation(ServiceType.WEB, "localhost").getPort());
+
+            // Blocks are leased separately for each host.
+            assertEquals(5000, secondary.getReservation(ServiceType.CONFIG, "otherhost").getPort());
+            assertEquals(2, secondary.getLeased().size());
+        } finally {
+            primary.close();
+            secondary.close();
+        }
+
+        try {
+            // The blocks are returned, while the reserved ports stay owned until the session ends.
+            assertTrue(curator.getChildren().forPath("/port-reservation/localhost/blocks").isEmpty());
+            assertEquals(Arrays.asList("5000", "5001", "5002", "5003", "5006", "5008"),
+                    sorted(curator.getChildren().forPath("/port-reservation/localhost/ports")));
+
+            // New reservations come from the ports that are not owned, even within blocks already used.
+            try (final CuratorPortManager next = new OrderedPortManager(config, curator, (host, port) -> true)) {
+                assertEquals(5004, next.getReservation(ServiceType.CONFIG, "localhost").getPort());
+            }
+
+            final CuratorPortManager unavailable = new OrderedPortManager(config, curator, (host, port) -> false);
+            try {
+                unavailable.getReservation(ServiceType.CONFIG, "localhost");
+                Assert.fail("No ports should be available");
+            } catch (final PortReservationException expected) {
+                assertTrue(unavailable.getLeased().isEmpty());
+            } finally {
+                unavailable.close();
+            }
+        } finally {
+            curator.close();
+            testingServer.close();
+        }
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        final TestingServer testingServer = new TestingServer();
+        final Config config = getConfig(testingServer, 5000, 5009, 3);
+        final CuratorFramework curator = getCurator(testingServer);
+        try {
+            final CuratorFramework previous = getCurator(testingServer);
+            try (final CuratorPortManager portManager =
+                         new OrderedPortManager(config, previous, (host, port) -> true)) {
+                assertEquals(5000, portManager.getReservation(ServiceType.CONFIG, "localhost").getPort());
+                assertEquals(5001, portManager.getReservation(ServiceType.CONFIG, "localhost").getPort());
+            }
+            assertEquals(Optional.of(5001), new CuratorPortManager(config, curator)
+                    .getLastPort(ServiceType.CONFIG, "localhost"));
+
+            // Once the session of the previous process ends, its ports are freed and the last one is reserved again.
+            previous.close();
+            try (final CuratorPortManager portManager =
+                         new OrderedPortManager(config, curator, (host, port) -> true)) {
+                assertEquals(5001, portManager.getReservation(ServiceType.CONFIG, "localhost").getPort());
+                assertEquals(5000, portManager.getReservation(ServiceType.CONFIG, "localhost").getPort());
+            }
+        } finally {
+            curator.close();
+            testingServer.close();
+        }
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        final TestingServer testingServer = new TestingServer();
+        final Config config = getConfig(testingServer, 5000, 5009, 3);
+        final CuratorFramework curator = getCurator(testingServer);
+        try {
+            final Reservation reservation;
+            try (final CuratorPortManager portManager =
+                         new OrderedPortManager(config, curator, (host, port) -> true)) {
+                reservation = portManager.getReservation(ServiceType.CONFIG, "localhost");
+                assertEquals(5000, reservation.getPort());
+
+                // Releasing a reservation for another service type leaves the port owned.
+                portManager.release(new Reservation(ServiceType.WEB, "localhost", 5000));
+                assertEquals(5001, portManager.getReservation(ServiceType.HEALTH, "localhost").getPort());
+            }
+
+            // The service restarts on the same session, and is given the same port once it has been released.
+            try (final CuratorPortManager portManager =
+                         new OrderedPortManager(config, curator, (host, port) -> true)) {
+                portManager.release(reservation);
+                portManager.release(reservation);
+                assertEquals(5000, portManager.getReservation(ServiceType.CONFIG, "localhost").getPort());
+            }
+        } finally {
+            curator.close();
+            testingServer.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentStarters() throws Exception {
+        final TestingServer testingServer = new TestingServer();
+        final Config config = getConfig(testingServer, 5000, 5500, 10);
+        final CuratorFramework curator = getCurator(testingServer);
+        try {
+            // Warm up the connection, so the first round is not slower than the others.
+            getReservationMillis(config, curator, 1);
+
+            final double single = getReservationMillis(config, curator, 1);
+            final double many = getReservationMillis(config, curator, 32);
+            // Starters only conflict on the creation of a lease node, so the time for each should stay about the same.
+            assertTrue(String.format("Single %.1fms, many %.1fms", single, many), many < single * 10 + 100);
+        } finally {
+            curator.close();
+            testingServer.close();
+        }
+    }
+
+    private static double getReservationMillis(
+            @Nonnull final Config config, @Nonnull final CuratorFramework curator, final int starters)
+            throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(starters);
+        final CountDownLatch ready = new CountDownLatch(1);
+        final List<Future<Long>> futures = new ArrayList<>();
+        final Set<Integer> ports = Collections.synchronizedSet(new HashSet<>());
+        for (int i = 0; i < starters; i++) {
+            futures.add(executor.submit(() -> {
+                ready.await();
+                final long start = System.nanoTime();
+                try (final CuratorPortManager portManager =
+                             new CuratorPortManager(config, curator, (host, port) -> true)) {
+                    assertTrue(ports.add(portManager.getReservation(ServiceType.CONFIG, "concurrent").getPort()));
+                }
+                return System.nanoTime() - start;
+            }));
+        }
+        ready.countDown();
+
+        long total = 0;
+        for (final Future<Long> future : futures) {
+            total += future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        return TimeUnit.NANOSECONDS.toMillis(total) / (double) starters;
+    }
+
+    @Nonnull
+    private static Config getConfig(
+            @Nonnull final TestingServer testingServer, final int minPort, final int maxPort, final int blockSize) {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.ZOOKEEPER_HOSTS.getKey(), ConfigValueFactory.fromAnyRef(testingServer.getConnectString()));
+        map.put(ConfigKeys.SERVER_PORT_MIN.getKey(), ConfigValueFactory.fromAnyRef(minPort));
+        map.put(ConfigKeys.SERVER_PORT_MAX.getKey(), ConfigValueFactory.fromAnyRef(maxPort));
+        map.put(ConfigKeys.SERVER_PORT_BLOCK_SIZE.getKey(), ConfigValueFactory.fromAnyRef(blockSize));
+        return ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
+    }
+
+    @Nonnull
+    private static CuratorFramework getCurator(@Nonnull final TestingServer testingServer) {
+        final CuratorFramework curator =
+                CuratorFrameworkFactory.builder().namespace("blocks").connectString(testingServer.getConnectString())
+                        .defaultData(new byte[0]).retryPolicy(new ExponentialBackoffRetry(1000, 3)).build();
+        curator.start();
+        return curator;
+    }
+
+    /**
+     * Leases the free blocks in order, so the tests know which ports to expect.
+     */
+    private static class OrderedPortManager extends CuratorPortManager {
+        public OrderedPortManager(
+                @Nonnull final Config config, @Nonnull final CuratorFramework curator,
+                @Nonnull final PortTester portTester) {
+            super(config, curator, portTester);
+        }
+
+        @Override
+        protected int getOffset(final int freeBlocks) {
+            return 0;
+        }
+    }
+
+    @Nonnull
+    private static List<String> sorted(@Nonnull final List<String> values) {
+        final List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBlockSize() {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.SERVER_PORT_BLOCK_SIZE.getKey(), ConfigValueFactory.fromAnyRef(0));
+        final Config config = ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
+        new CuratorPortManager(config, Mockito.mock(CuratorFramework.class));
     }
 
     @Test
     public void testCloseException() throws Exception {
+        final CuratorFramework curator = Mockito.mock(CuratorFramework.class);
+        Mockito.when(curator.delete()).thenThrow(new RuntimeException("Fake"));
         final CuratorPortManager portManager = Mockito.mock(CuratorPortManager.class);
-        final SharedCount mockedSharedCount = Mockito.mock(SharedCount.class);
-        Mockito.doThrow(new IOException("Fake")).when(mockedSharedCount).close();
         Mockito.doCallRealMethod().when(portManager).close();
-        Mockito.when(portManager.getPortReservation()).thenReturn(mockedSharedCount);
+        Mockito.doCallRealMethod().when(portManager).returnBlock(Mockito.any());
+        Mockito.doCallRealMethod().when(portManager).delete(Mockito.anyString());
+        Mockito.when(portManager.getCurator()).thenReturn(curator);
+        final List<PortBlock> leased = new ArrayList<>();
+        leased.add(new PortBlock("/port-reservation/localhost/5000", 5000, 5009));
+        Mockito.when(portManager.getLeased()).thenReturn(leased);
 
         portManager.close();
+        assertTrue(leased.isEmpty());
     }
 
     @Test(expected = PortReservationException.class)
     public void testGetReservationException() throws Exception {
-        final SharedCount mockedSharedCount = Mockito.mock(SharedCount.class);
-        Mockito.when(mockedSharedCount.trySetCount(Mockito.any(), Mockito.anyInt())).thenThrow(new Exception("Fake"));
-        final CuratorPortManager portManager = Mockito.mock(CuratorPortManager.class);
-        Mockito.doCallRealMethod().when(portManager).getReservation(Mockito.any(), Mockito.any());
-        Mockito.when(portManager.getPortReservation()).thenReturn(mockedSharedCount);
-        portManager.getReservation(ServiceType.CONFIG, "localhost");
+        final CuratorFramework curator = Mockito.mock(CuratorFramework.class);
+        Mockito.when(curator.getChildren()).thenThrow(new RuntimeException("Fake"));
+        try (final CuratorPortManager portManager = new CuratorPortManager(ConfigFactory.load(), curator)) {
+            portManager.getReservation(ServiceType.CONFIG, "localhost");
+        }
+    }
+
+    @Test(expected = PortReservationException.class)
+    public void testLeaseException() throws Exception {
+        final CuratorFramework curator = Mockito.mock(CuratorFramework.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(curator.getChildren().forPath(Mockito.anyString()))
+                .thenThrow(new KeeperException.NoNodeException());
+        Mockito.when(curator.create()).thenThrow(new RuntimeException("Fake"));
+        try (final CuratorPortManager portManager = new CuratorPortManager(ConfigFactory.load(), curator)) {
+            portManager.getReservation(ServiceType.CONFIG, "localhost");
+        }
     }
 }
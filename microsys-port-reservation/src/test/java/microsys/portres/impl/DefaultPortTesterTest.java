@@ -1,11 +1,20 @@
 package microsys.portres.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import microsys.portres.PortReservationException;
+import microsys.portres.PortTester;
+
+import java.net.InetAddress;
 import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Perform testing on the {@link DefaultPortTester} class.
@@ -18,8 +27,92 @@ public class DefaultPortTesterTest {
 
     @Test
     public void testIsAvailableWhenNotAvailable() throws Exception {
-        try (@SuppressWarnings("unused") final ServerSocket listener = new ServerSocket(6001)) {
+        try (final ServerSocket listener = new ServerSocket(6001)) {
             assertFalse(new DefaultPortTester().isAvailable("localhost", listener.getLocalPort()));
         }
     }
+
+    @Test
+    public void testRecentlyFailed() throws Exception {
+        final DefaultPortTester tester = new DefaultPortTester(60000);
+        assertEquals(60000, tester.getFailedPortMillis());
+        try (final ServerSocket listener = new ServerSocket(6002)) {
+            assertFalse(tester.isAvailable("localhost", listener.getLocalPort()));
+        }
+
+        // The port is still skipped after it is freed, until the failure expires.
+        assertTrue(tester.isRecentlyFailed(InetAddress.getByName("localhost"), 6002));
+        assertFalse(tester.isAvailable("localhost", 6002));
+
+        // Failures are not shared with other testers.
+        final DefaultPortTester other = new DefaultPortTester(60000);
+        assertFalse(other.isRecentlyFailed(InetAddress.getByName("localhost"), 6002));
+        assertTrue(other.isAvailable("localhost", 6002));
+        assertTrue(tester.isRecentlyFailed(InetAddress.getByName("localhost"), 6002));
+    }
+
+    @Test
+    public void testRecentlyFailedExpires() throws Exception {
+        final DefaultPortTester tester = new DefaultPortTester(100);
+        try (final ServerSocket listener = new ServerSocket(6003)) {
+            assertFalse(tester.isAvailable("localhost", listener.getLocalPort()));
+        }
+        assertTrue(tester.isRecentlyFailed(InetAddress.getByName("localhost"), 6003));
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertFalse(tester.isRecentlyFailed(InetAddress.getByName("localhost"), 6003));
+        assertTrue(tester.isAvailable("localhost", 6003));
+    }
+
+    @Test
+    public void testIsAvailableOnHostAddress() throws Exception {
+        final DefaultPortTester tester = new DefaultPortTester(0);
+        try (final ServerSocket listener = new ServerSocket(6004, 1, InetAddress.getByName("127.0.0.1"))) {
+            assertFalse(tester.isAvailable("127.0.0.1", listener.getLocalPort()));
+        }
+        assertTrue(tester.isAvailable("127.0.0.1", 6004));
+    }
+
+    @Test
+    public void testRecentlyFailedByAddress() throws Exception {
+        final DefaultPortTester tester = new DefaultPortTester(60000);
+        final InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        try (final ServerSocket listener = new ServerSocket(6006, 1, loopback)) {
+            assertFalse(tester.isAvailable("127.0.0.1", listener.getLocalPort()));
+        }
+        assertTrue(tester.isRecentlyFailed(loopback, 6006));
+
+        // The failure is only remembered for the address on which the port was probed.
+        assertFalse(tester.isRecentlyFailed(InetAddress.getByName("0.0.0.0"), 6006));
+    }
+
+    @Test(expected = PortReservationException.class)
+    public void testIsAvailableUnknownHost() throws Exception {
+        new DefaultPortTester().isAvailable("unknown.host.invalid", 6005);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFailedPortMillis() {
+        new DefaultPortTester(-1);
+    }
+
+    @Test
+    public void testFindAvailable() throws Exception {
+        final DefaultPortTester tester = new DefaultPortTester(0);
+        try (final ServerSocket first = new ServerSocket(6010);
+             final ServerSocket second = new ServerSocket(6011)) {
+            assertEquals(Optional.of(6012), tester.findAvailable("localhost",
+                    Arrays.asList(first.getLocalPort(), second.getLocalPort(), 6012, 6013)));
+            assertFalse(tester.findAvailable("localhost",
+                    Arrays.asList(first.getLocalPort(), second.getLocalPort())).isPresent());
+        }
+        assertFalse(tester.findAvailable("localhost", Collections.emptyList()).isPresent());
+    }
+
+    @Test
+    public void testFindAvailableDefault() throws PortReservationException {
+        final PortTester tester = (host, port) -> port > 6021;
+        assertEquals(Optional.of(6022), tester.findAvailable("localhost", Arrays.asList(6020, 6021, 6022, 6023)));
+        assertFalse(tester.findAvailable("localhost", Arrays.asList(6020, 6021)).isPresent());
+    }
 }
@@ -0,0 +1,116 @@
+package microsys.portres.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+
+import org.junit.Test;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.model.service.Reservation;
+import microsys.common.model.service.ServiceType;
+import microsys.portres.PortReservationException;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Perform testing on the {@link MemoryPortManager} class.
+ */
+public class MemoryPortManagerTest {
+    private Config getConfig() {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.SERVER_PORT_MIN.getKey(), ConfigValueFactory.fromAnyRef(5000));
+        map.put(ConfigKeys.SERVER_PORT_MAX.getKey(), ConfigValueFactory.fromAnyRef(5002));
+        return ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
+    }
+
+    @Test
+    public void test() throws PortReservationException {
+        final Config config = getConfig();
+        try (final MemoryPortManager primary = new MemoryPortManager(config, (host, port) -> true);
+             final MemoryPortManager secondary = new MemoryPortManager(config, (host, port) -> true)) {
+            assertEquals(config, primary.getConfig());
+
+            final Reservation r1 = primary.getReservation(ServiceType.CONFIG, "localhost");
+            assertEquals(ServiceType.CONFIG, r1.getType());
+            assertEquals("localhost", r1.getHost());
+            assertTrue(5000 <= r1.getPort() && r1.getPort() <= 5002);
+
+            // Managers in the same JVM do not hand out the same port consecutively.
+            final Reservation r2 = secondary.getReservation(ServiceType.SECURITY, "localhost");
+            assertTrue(5000 <= r2.getPort() && r2.getPort() <= 5002);
+            assertNotEquals(r1.getPort(), r2.getPort());
+
+            // Ports wrap around once the range is exhausted.
+            for (int i = 0; i < 5; i++) {
+                final Reservation next = primary.getReservation(ServiceType.WEB, "localhost");
+                assertTrue(5000 <= next.getPort() && next.getPort() <= 5002);
+            }
+        }
+    }
+
+    @Test
+    public void testSkipsUnavailable() throws PortReservationException {
+        try (final MemoryPortManager portManager = new MemoryPortManager(getConfig(), (host, port) -> port == 5001)) {
+            assertEquals(5001, portManager.getReservation(ServiceType.CONFIG, "localhost").getPort());
+            assertEquals(5001, portManager.getReservation(ServiceType.CONFIG, "localhost").getPort());
+        }
+    }
+
+    @Test
+    public void testRelease() throws PortReservationException {
+        try (final MemoryPortManager portManager = new MemoryPortManager(getConfig(), (host, port) -> port == 5001)) {
+            final Reservation reservation = portManager.getReservation(ServiceType.CONFIG, "localhost");
+            portManager.release(reservation);
+            assertEquals(5001, portManager.getReservation(ServiceType.CONFIG, "localhost").getPort());
+        }
+    }
+
+    @Test
+    public void testSharedPortTester() throws Exception {
+        final AtomicInteger probes = new AtomicInteger();
+        final DefaultPortTester tester = new DefaultPortTester(60000) {
+            @Override
+            protected boolean probe(@Nonnull final InetAddress address, final int port) {
+                probes.incrementAndGet();
+                return super.probe(address, port);
+            }
+        };
+        try (final ServerSocket listener = new ServerSocket(0)) {
+            final Map<String, ConfigValue> map = new HashMap<>();
+            map.put(ConfigKeys.SERVER_PORT_MIN.getKey(), ConfigValueFactory.fromAnyRef(listener.getLocalPort()));
+            map.put(ConfigKeys.SERVER_PORT_MAX.getKey(), ConfigValueFactory.fromAnyRef(listener.getLocalPort()));
+            final Config config = ConfigFactory.parseMap(map).withFallback(ConfigFactory.load());
+
+            for (int manager = 0; manager < 2; manager++) {
+                try (final MemoryPortManager portManager = new MemoryPortManager(config, tester)) {
+                    portManager.getReservation(ServiceType.CONFIG, "localhost");
+                    fail("The only port in the range is in use");
+                } catch (final PortReservationException expected) {
+                    // Expected, since the port is in use.
+                }
+            }
+        }
+        // The second port manager skips the port the first one found in use, rather than probing it again.
+        assertEquals(1, probes.get());
+    }
+
+    @Test(expected = PortReservationException.class)
+    public void testNoneAvailable() throws PortReservationException {
+        try (final MemoryPortManager portManager = new MemoryPortManager(getConfig(), (host, port) -> false)) {
+            portManager.getReservation(ServiceType.CONFIG, "localhost");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package microsys.portres.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Perform testing on the {@link PortBlock} class.
+ */
+public class PortBlockTest {
+    @Test
+    public void test() {
+        final PortBlock block = new PortBlock("/port-reservation/host/5000", 5000, 5002);
+        assertEquals("/port-reservation/host/5000", block.getPath());
+        assertEquals(5000, block.getFirst());
+        assertEquals(5002, block.getLast());
+
+        assertTrue(block.hasNext());
+        assertEquals(Arrays.asList(5000, 5001, 5002), block.getRemaining());
+        block.offer(5001);
+        assertEquals(Collections.singletonList(5002), block.getRemaining());
+
+        block.skipRemaining();
+        assertFalse(block.hasNext());
+        assertTrue(block.getRemaining().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfferSkipped() {
+        final PortBlock block = new PortBlock("/port-reservation/host/5000", 5000, 5002);
+        block.offer(5001);
+        block.offer(5000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new PortBlock("/port-reservation/host/5000", 5001, 5000);
+    }
+
+    @Test
+    public void testToString() {
+        final PortBlock block = new PortBlock("/path", 5000, 5009);
+        assertEquals("PortBlock[path=/path,first=5000,last=5009,next=5000]", block.toString());
+    }
+}
@@ -45,18 +45,20 @@ public class SecurityClient implements UserService {
     }
 
     /**
-     * @return a randomly chosen {@link Service} object from service discovery to use when connecting to the security
-     * service
-     * @throws DiscoveryException if there is a problem retrieving a random {@link Service}
-     * @throws UserServiceException if there no random security {@link Service} objects are available
+     * @param key the user id or name being requested or changed
+     * @return the {@link Service} object from service discovery to which requests for the key are consistently sent,
+     * so that any caching within the security service sees every request for the user
+     * @throws DiscoveryException if there is a problem retrieving the {@link Service}
+     * @throws UserServiceException if there no security {@link Service} objects are available
      */
     @Nonnull
-    protected Service getRandom() throws DiscoveryException, UserServiceException {
-        final Optional<Service> random = getServiceEnvironment().getDiscoveryManager().getRandom(ServiceType.SECURITY);
-        if (!random.isPresent()) {
+    protected Service getConsistent(@Nonnull final String key) throws DiscoveryException, UserServiceException {
+        final Optional<Service> consistent =
+                getServiceEnvironment().getDiscoveryManager().getConsistent(ServiceType.SECURITY, key);
+        if (!consistent.isPresent()) {
             throw new UserServiceException("Unable to find a running security service");
         }
-        return random.get();
+        return consistent.get();
     }
 
     /**
@@ -80,14 +82,16 @@ public class SecurityClient implements UserService {
     }
 
     /**
+     * @param key the user id or name used to choose the security service to which the request is sent
      * @param url the base url path from which a {@link User} object will be retrieved
      * @return an {@link Optional} {@link User}, possibly empty if not found, wrapped in a {@link Future}
      */
     @Nonnull
-    protected Future<Optional<User>> get(@Nonnull final String url) {
+    protected Future<Optional<User>> get(@Nonnull final String key, @Nonnull final String url) {
+        Objects.requireNonNull(key);
         Objects.requireNonNull(url);
         return getServiceEnvironment().getExecutor().submit(() -> {
-            final Request request = new Request.Builder().url(getRandom().asUrl() + url).get().build();
+            final Request request = new Request.Builder().url(getConsistent(key).asUrl() + url).get().build();
             return handleResponse(getServiceEnvironment().getHttpClient().newCall(request).execute());
         });
     }
@@ -98,7 +102,7 @@ public class SecurityClient implements UserService {
     @Override
     @Nonnull
     public Future<Optional<User>> getById(@Nonnull final String id) {
-        return get("id/" + Objects.requireNonNull(id));
+        return get(Objects.requireNonNull(id), "id/" + id);
     }
 
     /**
@@ -107,7 +111,7 @@ public class SecurityClient implements UserService {
     @Override
     @Nonnull
     public Future<Optional<User>> getByName(@Nonnull final String name) {
-        return get("name/" + Objects.requireNonNull(name));
+        return get(Objects.requireNonNull(name), "name/" + name);
     }
 
     /**
@@ -120,7 +124,7 @@ public class SecurityClient implements UserService {
         return getServiceEnvironment().getExecutor().submit(() -> {
             final RequestBody body =
                     RequestBody.create(MediaType.parse("application/json; charset=utf-8"), user.toJson().toString());
-            final Request request = new Request.Builder().url(getRandom().asUrl()).post(body).build();
+            final Request request = new Request.Builder().url(getConsistent(user.getId()).asUrl()).post(body).build();
             return handleResponse(getServiceEnvironment().getHttpClient().newCall(request).execute());
         });
     }
@@ -133,7 +137,7 @@ public class SecurityClient implements UserService {
     public Future<Optional<User>> remove(@Nonnull final String id) {
         Objects.requireNonNull(id);
         return getServiceEnvironment().getExecutor().submit(() -> {
-            final Request request = new Request.Builder().url(getRandom().asUrl() + id).delete().build();
+            final Request request = new Request.Builder().url(getConsistent(id).asUrl() + id).delete().build();
             return handleResponse(getServiceEnvironment().getHttpClient().newCall(request).execute());
         });
     }
@@ -4,6 +4,8 @@ import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
 import microsys.common.model.service.ServiceType;
+import microsys.config.client.ConfigClient;
+import microsys.config.client.DynamicConfigUpdater;
 import microsys.security.route.GetById;
 import microsys.security.route.GetByName;
 import microsys.security.route.Remove;
@@ -14,6 +16,7 @@ import microsys.service.BaseService;
 import spark.Spark;
 
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 
 import javax.annotation.Nonnull;
@@ -22,6 +25,9 @@ import javax.annotation.Nonnull;
  * The main class used to run this service.
  */
 public class Runner extends BaseService {
+    @Nonnull
+    private Optional<DynamicConfigUpdater> dynamicConfigUpdater = Optional.empty();
+
     /**
      * This constructor initializes the system configuration, then configures the REST end-points and starts the
      * micro service
@@ -33,6 +39,10 @@ public class Runner extends BaseService {
     public Runner(@Nonnull final Config config, @Nonnull final CountDownLatch serverStopLatch) throws Exception {
         super(Objects.requireNonNull(config), ServiceType.SECURITY, serverStopLatch);
         addRoutes(new MemoryUserService());
+
+        this.dynamicConfigUpdater = Optional.of(
+                new DynamicConfigUpdater(getServiceEnvironment(), new ConfigClient(getServiceEnvironment())));
+        this.dynamicConfigUpdater.get().start();
     }
 
     protected void addRoutes(@Nonnull final UserService userService) {
@@ -42,6 +52,18 @@ public class Runner extends BaseService {
         Spark.delete("/:id", new Remove(getServiceEnvironment(), userService));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        // The service may be stopped during construction, before the updater field is initialized.
+        if (this.dynamicConfigUpdater != null && this.dynamicConfigUpdater.isPresent()) {
+            this.dynamicConfigUpdater.get().close();
+        }
+        super.stop();
+    }
+
     /**
      * @param args the command-line parameters
      * @throws Exception if there is a problem during service initialization
@@ -133,7 +133,8 @@ public class SecurityClientIT {
     @Test(expected = ExecutionException.class)
     public void testNoSecurityServiceGetById() throws Exception {
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.SECURITY)).thenReturn(Optional.empty());
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.SECURITY), Mockito.anyString()))
+                .thenReturn(Optional.empty());
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -147,7 +148,8 @@ public class SecurityClientIT {
     @Test(expected = ExecutionException.class)
     public void testNoSecurityServiceGetByName() throws Exception {
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.SECURITY)).thenReturn(Optional.empty());
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.SECURITY), Mockito.anyString()))
+                .thenReturn(Optional.empty());
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -161,7 +163,8 @@ public class SecurityClientIT {
     @Test(expected = ExecutionException.class)
     public void testNoSecurityServiceSave() throws Exception {
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.SECURITY)).thenReturn(Optional.empty());
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.SECURITY), Mockito.anyString()))
+                .thenReturn(Optional.empty());
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -175,7 +178,8 @@ public class SecurityClientIT {
     @Test(expected = ExecutionException.class)
     public void testNoSecurityServiceUnset() throws Exception {
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.SECURITY)).thenReturn(Optional.empty());
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.SECURITY), Mockito.anyString()))
+                .thenReturn(Optional.empty());
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -193,8 +197,9 @@ public class SecurityClientIT {
         mockServer.enqueue(response);
 
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.SECURITY)).thenReturn(Optional.of(
-                new Service(ServiceType.SECURITY, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.SECURITY), Mockito.anyString()))
+                .thenReturn(Optional.of(new Service(
+                        ServiceType.SECURITY, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -212,8 +217,9 @@ public class SecurityClientIT {
         mockServer.enqueue(response);
 
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.SECURITY)).thenReturn(Optional.of(
-                new Service(ServiceType.SECURITY, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.SECURITY), Mockito.anyString()))
+                .thenReturn(Optional.of(new Service(
+                        ServiceType.SECURITY, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -231,8 +237,9 @@ public class SecurityClientIT {
         mockServer.enqueue(response);
 
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.SECURITY)).thenReturn(Optional.of(
-                new Service(ServiceType.SECURITY, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.SECURITY), Mockito.anyString()))
+                .thenReturn(Optional.of(new Service(
+                        ServiceType.SECURITY, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
@@ -250,8 +257,9 @@ public class SecurityClientIT {
         mockServer.enqueue(response);
 
         final DiscoveryManager mockDiscovery = Mockito.mock(DiscoveryManager.class);
-        Mockito.when(mockDiscovery.getRandom(ServiceType.SECURITY)).thenReturn(Optional.of(
-                new Service(ServiceType.SECURITY, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
+        Mockito.when(mockDiscovery.getConsistent(Mockito.eq(ServiceType.SECURITY), Mockito.anyString()))
+                .thenReturn(Optional.of(new Service(
+                        ServiceType.SECURITY, mockServer.getHostName(), mockServer.getPort(), false, "1.2.3")));
 
         final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
         Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(mockDiscovery);
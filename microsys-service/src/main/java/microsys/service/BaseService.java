@@ -17,13 +17,15 @@ import microsys.discovery.DiscoveryException;
 import microsys.discovery.DiscoveryManager;
 import microsys.portres.PortManager;
 import microsys.portres.PortReservationException;
-import microsys.portres.impl.CuratorPortManager;
+import microsys.service.filter.RequestCounter;
 import microsys.service.filter.RequestLoggingFilter;
 import microsys.service.filter.RequestSigningFilter;
 import microsys.service.model.ServiceEnvironment;
 import microsys.service.route.ServiceControlRoute;
+import microsys.service.route.ServiceCryptoRoute;
 import microsys.service.route.ServiceInfoRoute;
 import microsys.service.route.ServiceMemoryRoute;
+import microsys.service.route.ServiceTlsRoute;
 import okhttp3.OkHttpClient;
 import spark.Spark;
 
@@ -47,7 +49,13 @@ public abstract class BaseService {
     @Nonnull
     private final Optional<CountDownLatch> serverStopLatch;
     @Nonnull
+    private final RequestCounter requestCounter = new RequestCounter();
+    @Nonnull
     private Optional<Service> service;
+    @Nonnull
+    private Optional<Reservation> reservation = Optional.empty();
+    @Nonnull
+    private Optional<CapacityReporter> capacityReporter = Optional.empty();
     private boolean shouldRestart = false;
 
     /**
@@ -113,6 +121,30 @@ public abstract class BaseService {
         return this.service;
     }
 
+    /**
+     * @return the port {@link Reservation} held by this service, possibly not present if not running
+     */
+    @Nonnull
+    protected Optional<Reservation> getReservation() {
+        return this.reservation;
+    }
+
+    /**
+     * @return the {@link RequestCounter} tracking the requests being processed by this service
+     */
+    @Nonnull
+    public RequestCounter getRequestCounter() {
+        return this.requestCounter;
+    }
+
+    /**
+     * @return the {@link CapacityReporter} publishing the capacity of this service, present once registered
+     */
+    @Nonnull
+    protected Optional<CapacityReporter> getCapacityReporter() {
+        return this.capacityReporter;
+    }
+
     /**
      * @return whether the service should be restarted after being shut down
      */
@@ -132,6 +164,15 @@ public abstract class BaseService {
         return getServiceEnvironment().getConfig().getString(ConfigKeys.SERVER_HOSTNAME.getKey());
     }
 
+    @Nonnull
+    protected Optional<String> getZone() {
+        final Config config = getServiceEnvironment().getConfig();
+        if (!config.hasPath(ConfigKeys.SERVER_ZONE.getKey())) {
+            return Optional.empty();
+        }
+        return Optional.of(config.getString(ConfigKeys.SERVER_ZONE.getKey())).filter(zone -> !zone.isEmpty());
+    }
+
     protected void configurePort(@Nonnull final Reservation reservation) {
         Spark.port(reservation.getPort());
     }
@@ -145,6 +186,16 @@ public abstract class BaseService {
         Spark.threadPool(maxThreads, minThreads, (int) timeoutMillis);
     }
 
+    protected void configureDynamicConfig() {
+        // The embedded web server cannot be reconfigured while running, so these changes apply after a restart.
+        for (final ConfigKeys key : new ConfigKeys[] {ConfigKeys.SERVER_THREADS_MAX, ConfigKeys.SERVER_THREADS_MIN,
+                ConfigKeys.SERVER_TIMEOUT}) {
+            getServiceEnvironment().getDynamicConfig().addListener(key.getKey(), Config::getValue,
+                    value -> LOG.warn("Configuration {} changed, a service restart is required to apply it",
+                            key.getKey()));
+        }
+    }
+
     protected void configureSecurity() throws EncryptionException {
         final boolean ssl = getServiceEnvironment().getConfig().getBoolean(ConfigKeys.SSL_ENABLED.getKey());
         if (ssl) {
@@ -157,6 +208,11 @@ public abstract class BaseService {
             final String truststorePass = getServiceEnvironment().getCryptoFactory()
                     .getDecryptedConfig(ConfigKeys.SSL_TRUSTSTORE_PASSWORD.getKey());
             Spark.secure(keystoreFile, keystorePass, truststoreFile, truststorePass);
+
+            // The embedded web server loads the key store files once and cannot swap them while running, so only the
+            // client side picks up reloaded certificates.
+            getServiceEnvironment().getCryptoFactory().addReloadListener(() -> LOG.warn(
+                    "Key store files changed, a service restart is required to apply them to the web server"));
         }
     }
 
@@ -168,25 +224,49 @@ public abstract class BaseService {
         Spark.before(new RequestSigningFilter(getServiceEnvironment()));
     }
 
+    protected void configureRequestCounter() {
+        // Registered after the request signer, so requests rejected by the signer are never counted.
+        Spark.before(getRequestCounter().getBeforeFilter());
+        Spark.after(getRequestCounter().getAfterFilter());
+    }
+
+    @Nonnull
+    protected CapacityReporter createCapacityReporter(@Nonnull final Service service) {
+        return new CapacityReporter(getServiceEnvironment(), getRequestCounter(), service);
+    }
+
     protected void configureRoutes() {
         Spark.get("/service/info", new ServiceInfoRoute(getServiceEnvironment()));
         Spark.get("/service/memory", new ServiceMemoryRoute(getServiceEnvironment()));
+        Spark.get("/service/tls", new ServiceTlsRoute(getServiceEnvironment()));
+        Spark.get("/service/crypto", new ServiceCryptoRoute(getServiceEnvironment()));
         Spark.get("/service/control/:action", new ServiceControlRoute(this));
     }
 
     protected Reservation getPortReservation() throws PortReservationException {
-        try (final PortManager portManager = new CuratorPortManager(
-                getServiceEnvironment().getConfig(), getServiceEnvironment().getCuratorFramework())) {
+        try (final PortManager portManager = getServiceEnvironment().createPortManager()) {
             return portManager.getReservation(getServiceEnvironment().getServiceType(), getHostName());
         }
     }
 
+    protected void releasePortReservation() {
+        if (getReservation().isPresent()) {
+            try (final PortManager portManager = getServiceEnvironment().createPortManager()) {
+                portManager.release(getReservation().get());
+            } catch (final PortReservationException failure) {
+                // Not really an issue because the ephemeral reservation will disappear when the session ends.
+                LOG.warn("Failed to release the port reservation", failure);
+            }
+            this.reservation = Optional.empty();
+        }
+    }
+
     protected void registerWithServiceDiscovery(final Reservation reservation) {
         final ServiceType serviceType = getServiceEnvironment().getServiceType();
         final boolean ssl = getServiceEnvironment().getConfig().getBoolean(ConfigKeys.SSL_ENABLED.getKey());
         final String version = getServiceEnvironment().getConfig().getString(ConfigKeys.SYSTEM_VERSION.getKey());
-        this.service =
-                Optional.of(new Service(serviceType, reservation.getHost(), reservation.getPort(), ssl, version));
+        this.service = Optional.of(
+                new Service(serviceType, reservation.getHost(), reservation.getPort(), ssl, version, getZone()));
 
         // Register with service discovery once the server has started.
         getServiceEnvironment().getExecutor().submit(() -> {
@@ -196,6 +276,9 @@ public abstract class BaseService {
             try {
                 if (getService().isPresent()) {
                     getServiceEnvironment().getDiscoveryManager().register(getService().get());
+                    final CapacityReporter reporter = createCapacityReporter(getService().get());
+                    this.capacityReporter = Optional.of(reporter);
+                    reporter.start();
                 }
             } catch (final DiscoveryException registerFailed) {
                 LOG.error("Failed to register with service discovery", registerFailed);
@@ -205,6 +288,8 @@ public abstract class BaseService {
     }
 
     protected void unregisterWithServiceDiscovery() {
+        getCapacityReporter().ifPresent(CapacityReporter::close);
+        this.capacityReporter = Optional.empty();
         try {
             if (getService().isPresent()) {
                 getServiceEnvironment().getDiscoveryManager().unregister(getService().get());
@@ -224,12 +309,15 @@ public abstract class BaseService {
     public void start() throws PortReservationException, EncryptionException {
         // Configure the service.
         final Reservation reservation = getPortReservation();
+        this.reservation = Optional.of(reservation);
 
         configurePort(reservation);
         configureThreading();
+        configureDynamicConfig();
         configureSecurity();
         configureRequestLogger();
         configureRequestSigner();
+        configureRequestCounter();
         configureRoutes();
 
         registerWithServiceDiscovery(reservation);
@@ -242,6 +330,7 @@ public abstract class BaseService {
         unregisterWithServiceDiscovery();
 
         Spark.stop();
+        releasePortReservation();
         getServiceEnvironment().close();
 
         if (getServerStopLatch().isPresent()) {
@@ -0,0 +1,192 @@
+package microsys.service;
+
+import com.google.common.base.Preconditions;
+import com.typesafe.config.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceCapacity;
+import microsys.discovery.DiscoveryException;
+import microsys.service.filter.RequestCounter;
+import microsys.service.model.ServiceEnvironment;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Periodically publishes the capacity of a running service (in-flight requests, executor queue depth, heap usage, and
+ * configured weight) with its service discovery registration, so that callers can weight their selection toward the
+ * services with the most spare capacity.
+ * <p>
+ * The capacity is sampled at the minimum interval but only published when it has changed significantly, or when the
+ * maximum interval has passed since it was last published. While the capacity keeps changing, the time between
+ * publications doubles up to the maximum interval, and it drops back to the minimum interval once the capacity
+ * settles, so a service under fluctuating load does not flood zookeeper with updates.
+ */
+public class CapacityReporter implements AutoCloseable {
+    private final static Logger LOG = LoggerFactory.getLogger(CapacityReporter.class);
+
+    // The smallest change in outstanding work (in-flight requests plus queued tasks) worth publishing - arbitrary
+    private final static int MIN_LOAD_CHANGE = 2;
+    // The fraction by which the outstanding work must change to be worth publishing - arbitrary
+    private final static double LOAD_CHANGE_FRACTION = 0.2;
+    // The change in heap usage, in percentage points, worth publishing - arbitrary
+    private final static int HEAP_CHANGE_PERCENT = 10;
+
+    @Nonnull
+    private final ServiceEnvironment serviceEnvironment;
+    @Nonnull
+    private final RequestCounter requestCounter;
+    private final int weight;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    @Nonnull
+    private final ScheduledExecutorService scheduler;
+
+    // The remaining fields are guarded by this
+    @Nonnull
+    private Service service;
+    @Nonnull
+    private Optional<ServiceCapacity> published = Optional.empty();
+    private long lastPublished = 0;
+    private long gapMillis;
+
+    /**
+     * @param serviceEnvironment the environment of the running service
+     * @param requestCounter the {@link RequestCounter} tracking the requests being processed by the service
+     * @param service the registered {@link Service} whose capacity is published
+     */
+    public CapacityReporter(
+            @Nonnull final ServiceEnvironment serviceEnvironment, @Nonnull final RequestCounter requestCounter,
+            @Nonnull final Service service) {
+        this.serviceEnvironment = Objects.requireNonNull(serviceEnvironment);
+        this.requestCounter = Objects.requireNonNull(requestCounter);
+        this.service = Objects.requireNonNull(service);
+
+        final Config config = serviceEnvironment.getConfig();
+        this.weight = config.getInt(ConfigKeys.DISCOVERY_WEIGHT.getKey());
+        this.minIntervalMillis =
+                config.getDuration(ConfigKeys.DISCOVERY_CAPACITY_INTERVAL_MIN.getKey(), TimeUnit.MILLISECONDS);
+        this.maxIntervalMillis =
+                config.getDuration(ConfigKeys.DISCOVERY_CAPACITY_INTERVAL_MAX.getKey(), TimeUnit.MILLISECONDS);
+        Preconditions.checkArgument(this.minIntervalMillis > 0, "Minimum capacity interval must be positive");
+        Preconditions.checkArgument(this.maxIntervalMillis >= this.minIntervalMillis,
+                "Maximum capacity interval must not be less than the minimum");
+        this.gapMillis = this.minIntervalMillis;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "capacity-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the registered service, including the most recently published capacity
+     */
+    @Nonnull
+    public synchronized Service getService() {
+        return this.service;
+    }
+
+    /**
+     * @return the time to wait after a publication before publishing a further change, in milliseconds
+     */
+    protected synchronized long getGapMillis() {
+        return this.gapMillis;
+    }
+
+    /**
+     * Start sampling and publishing the capacity of the service.
+     */
+    public void start() {
+        this.scheduler.scheduleWithFixedDelay(this::check, 0, this.minIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the current capacity of the service
+     */
+    @Nonnull
+    protected ServiceCapacity measure() {
+        final int queueDepth = this.serviceEnvironment.getExecutor() instanceof ThreadPoolExecutor ?
+                ((ThreadPoolExecutor) this.serviceEnvironment.getExecutor()).getQueue().size() : 0;
+        final Runtime runtime = Runtime.getRuntime();
+        final long used = runtime.totalMemory() - runtime.freeMemory();
+        final int heapUsedPercent = (int) Math.min(100, used * 100 / runtime.maxMemory());
+        return new ServiceCapacity(this.requestCounter.getInFlight(), queueDepth, heapUsedPercent, this.weight);
+    }
+
+    /**
+     * @param previous the capacity most recently published
+     * @param current the capacity just measured
+     * @return whether the change in capacity is large enough to be worth publishing
+     */
+    protected static boolean isSignificant(
+            @Nonnull final ServiceCapacity previous, @Nonnull final ServiceCapacity current) {
+        final int previousLoad = previous.getInFlight() + previous.getQueueDepth();
+        final int currentLoad = current.getInFlight() + current.getQueueDepth();
+        final double loadThreshold = Math.max(MIN_LOAD_CHANGE, previousLoad * LOAD_CHANGE_FRACTION);
+        return previous.getWeight() != current.getWeight() || Math.abs(currentLoad - previousLoad) >= loadThreshold
+                || Math.abs(current.getHeapUsedPercent() - previous.getHeapUsedPercent()) >= HEAP_CHANGE_PERCENT;
+    }
+
+    /**
+     * Sample the capacity of the service and publish it when appropriate.
+     */
+    protected void check() {
+        check(measure(), System.currentTimeMillis());
+    }
+
+    /**
+     * @param capacity the current capacity of the service
+     * @param now the current time, in milliseconds since the epoch
+     */
+    protected synchronized void check(@Nonnull final ServiceCapacity capacity, final long now) {
+        final long sinceLast = now - this.lastPublished;
+        if (!this.published.isPresent() || isSignificant(this.published.get(), capacity)) {
+            if (sinceLast >= this.gapMillis) {
+                publish(capacity, now);
+                this.gapMillis = Math.min(this.gapMillis * 2, this.maxIntervalMillis);
+            }
+        } else {
+            // The capacity has settled, so the next change can be published promptly.
+            this.gapMillis = this.minIntervalMillis;
+            if (sinceLast >= this.maxIntervalMillis) {
+                publish(capacity, now);
+            }
+        }
+    }
+
+    /**
+     * @param capacity the capacity to publish
+     * @param now the current time, in milliseconds since the epoch
+     */
+    protected synchronized void publish(@Nonnull final ServiceCapacity capacity, final long now) {
+        final Service updated = this.service.withCapacity(capacity);
+        try {
+            this.serviceEnvironment.getDiscoveryManager().update(updated);
+            this.service = updated;
+            this.published = Optional.of(capacity);
+            this.lastPublished = now;
+        } catch (final DiscoveryException | RuntimeException updateFailed) {
+            LOG.warn("Failed to publish service capacity", updateFailed);
+        }
+    }
+
+    /**
+     * Stop publishing the capacity of the service.
+     */
+    @Override
+    public void close() {
+        this.scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,55 @@
+package microsys.service.client;
+
+import microsys.discovery.DiscoveryManager;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Ejects the target of a REST call from service discovery selection when the call fails to connect or the target
+ * responds that it is unavailable, so that subsequent calls spill over to other instances of the service.
+ */
+public class EjectionInterceptor implements Interceptor {
+    @Nonnull
+    private final DiscoveryManager discoveryManager;
+
+    /**
+     * @param discoveryManager the service discovery manager from which failing services are ejected
+     */
+    public EjectionInterceptor(@Nonnull final DiscoveryManager discoveryManager) {
+        this.discoveryManager = Objects.requireNonNull(discoveryManager);
+    }
+
+    /**
+     * @return the service discovery manager from which failing services are ejected
+     */
+    @Nonnull
+    protected DiscoveryManager getDiscoveryManager() {
+        return this.discoveryManager;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Response intercept(@Nonnull final Chain chain) throws IOException {
+        final HttpUrl url = chain.request().url();
+        try {
+            final Response response = chain.proceed(chain.request());
+            if (response.code() == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+                getDiscoveryManager().eject(url.host(), url.port());
+            }
+            return response;
+        } catch (final IOException callFailed) {
+            getDiscoveryManager().eject(url.host(), url.port());
+            throw callFailed;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package microsys.service.client;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Counts the TLS handshakes performed by client connections, distinguishing the full handshakes from those that
+ * resumed a cached session. A handshake is considered resumed when its session was created before the socket.
+ */
+public class HandshakeCounter {
+    @Nonnull
+    private final AtomicLong fullHandshakes = new AtomicLong(0);
+    @Nonnull
+    private final AtomicLong resumedHandshakes = new AtomicLong(0);
+
+    /**
+     * @return the number of handshakes that negotiated a new session
+     */
+    public long getFullHandshakes() {
+        return this.fullHandshakes.get();
+    }
+
+    /**
+     * @return the number of handshakes that resumed a cached session
+     */
+    public long getResumedHandshakes() {
+        return this.resumedHandshakes.get();
+    }
+
+    /**
+     * @param event the completed handshake
+     * @param socketCreated the time at which the socket was created, in milliseconds since the epoch
+     */
+    protected void handshakeCompleted(@Nonnull final HandshakeCompletedEvent event, final long socketCreated) {
+        if (event.getSession().getCreationTime() < socketCreated) {
+            this.resumedHandshakes.incrementAndGet();
+        } else {
+            this.fullHandshakes.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param delegate the {@link SSLSocketFactory} that creates the sockets
+     * @return an {@link SSLSocketFactory} that counts the handshakes of the sockets created by the delegate
+     */
+    @Nonnull
+    public SSLSocketFactory wrap(@Nonnull final SSLSocketFactory delegate) {
+        return new CountingSocketFactory(Objects.requireNonNull(delegate));
+    }
+
+    /**
+     * Adds a handshake listener to each socket created by the delegate factory.
+     */
+    protected class CountingSocketFactory extends SSLSocketFactory {
+        @Nonnull
+        private final SSLSocketFactory delegate;
+
+        /**
+         * @param delegate the {@link SSLSocketFactory} that creates the sockets
+         */
+        protected CountingSocketFactory(@Nonnull final SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * @param socket the newly created socket
+         * @return the same socket, with a handshake listener added when it is an {@link SSLSocket}
+         */
+        @Nonnull
+        protected Socket track(@Nonnull final Socket socket) {
+            if (socket instanceof SSLSocket) {
+                final long created = System.currentTimeMillis();
+                ((SSLSocket) socket).addHandshakeCompletedListener(event -> handshakeCompleted(event, created));
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return this.delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return this.delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return track(this.delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(final Socket socket, final String host, final int port, final boolean autoClose)
+                throws IOException {
+            return track(this.delegate.createSocket(socket, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port) throws IOException {
+            return track(this.delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(
+                final String host, final int port, final InetAddress localHost, final int localPort)
+                throws IOException {
+            return track(this.delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress host, final int port) throws IOException {
+            return track(this.delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(
+                final InetAddress address, final int port, final InetAddress localAddress, final int localPort)
+                throws IOException {
+            return track(this.delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
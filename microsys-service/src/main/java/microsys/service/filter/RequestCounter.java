@@ -0,0 +1,64 @@
+package microsys.service.filter;
+
+import spark.Filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Counts the requests currently being processed, using a before filter to count each request as started and an after
+ * filter to count it as finished. The web server skips the after filters when a route throws an exception, so each
+ * request thread remembers whether it is still counted: a thread that starts a new request without having finished
+ * the previous one reuses its count, which keeps a missed finish from inflating the count for longer than the thread
+ * stays idle.
+ */
+public class RequestCounter {
+    @Nonnull
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    @Nonnull
+    private final ThreadLocal<Boolean> counted = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    /**
+     * @return the number of requests currently being processed
+     */
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * Count a request as started on the current thread.
+     */
+    public void started() {
+        if (!this.counted.get()) {
+            this.counted.set(Boolean.TRUE);
+            this.inFlight.incrementAndGet();
+        }
+    }
+
+    /**
+     * Count the request on the current thread as finished.
+     */
+    public void finished() {
+        if (this.counted.get()) {
+            this.counted.set(Boolean.FALSE);
+            this.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the {@link Filter} to run before each request, which counts the request as started
+     */
+    @Nonnull
+    public Filter getBeforeFilter() {
+        return (request, response) -> started();
+    }
+
+    /**
+     * @return the {@link Filter} to run after each request, which counts the request as finished
+     */
+    @Nonnull
+    public Filter getAfterFilter() {
+        return (request, response) -> finished();
+    }
+}
@@ -3,8 +3,12 @@ package microsys.service.model;
 import com.typesafe.config.Config;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import microsys.common.config.ConfigKeys;
+import microsys.common.config.DynamicConfig;
+import microsys.common.model.CoordinationBackend;
 import microsys.common.model.service.ServiceType;
 import microsys.crypto.CryptoFactory;
 import microsys.crypto.EncryptionException;
@@ -14,32 +18,57 @@ import microsys.curator.CuratorException;
 import microsys.discovery.DiscoveryException;
 import microsys.discovery.DiscoveryManager;
 import microsys.discovery.impl.CuratorDiscoveryManager;
+import microsys.discovery.impl.MemoryDiscoveryManager;
+import microsys.portres.PortManager;
+import microsys.portres.PortReservationException;
+import microsys.portres.PortTester;
+import microsys.portres.impl.CuratorPortManager;
+import microsys.portres.impl.DefaultPortTester;
+import microsys.portres.impl.MemoryPortManager;
+import microsys.service.client.EjectionInterceptor;
+import microsys.service.client.HandshakeCounter;
+import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
 
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.net.ssl.SSLContext;
 
 /**
  * Provides service environmental configuration and utilities.
  */
 public class ServiceEnvironment {
+    private final static Logger LOG = LoggerFactory.getLogger(ServiceEnvironment.class);
+
     @Nonnull
     private final Config config;
     @Nonnull
+    private final DynamicConfig dynamicConfig;
+    @Nonnull
     private final ServiceType serviceType;
     @Nonnull
     private final ExecutorService executor;
     @Nonnull
     private final CryptoFactory cryptoFactory;
     @Nonnull
-    private final CuratorFramework curatorFramework;
+    private final CoordinationBackend coordinationBackend;
+    @Nonnull
+    private final Optional<CuratorFramework> curatorFramework;
     @Nonnull
     private final DiscoveryManager discoveryManager;
     @Nonnull
-    private final OkHttpClient httpClient;
+    private final HandshakeCounter handshakeCounter = new HandshakeCounter();
+    // Shared by every port manager created here, so ports found in use are remembered between reservations
+    @Nonnull
+    private final PortTester portTester = new DefaultPortTester();
+    @Nonnull
+    private volatile OkHttpClient httpClient;
 
     /**
      * @param config the static system configuration information
@@ -53,9 +82,24 @@ public class ServiceEnvironment {
 
         this.executor = createExecutor(this.config);
         this.cryptoFactory = createCryptoFactory(this.config);
-        this.curatorFramework = CuratorCreator.create(this.config, this.cryptoFactory);
-        this.discoveryManager = createDiscoveryManager(this.config, this.curatorFramework);
+        // Decrypt all the encrypted configuration values up front, concurrently, rather than one at a time on use.
+        this.cryptoFactory.decryptConfig(this.executor);
+        this.coordinationBackend = CoordinationBackend.fromConfig(this.config);
+        if (this.coordinationBackend == CoordinationBackend.MEMORY) {
+            // Nothing to connect to, so service startup does not wait for a zookeeper session. The registrations are
+            // shared with the other environments in this JVM, but not with other processes.
+            this.curatorFramework = Optional.empty();
+            this.discoveryManager = new MemoryDiscoveryManager(this.config);
+        } else {
+            final CuratorFramework curator = CuratorCreator.create(this.config, this.cryptoFactory);
+            this.curatorFramework = Optional.of(curator);
+            this.discoveryManager = createDiscoveryManager(this.config, curator);
+        }
         this.httpClient = createHttpClient(this.cryptoFactory);
+
+        this.dynamicConfig = new DynamicConfig(this.config);
+        addDynamicConfigListeners();
+        this.cryptoFactory.addReloadListener(this::reloadHttpClient);
     }
 
     /**
@@ -76,9 +120,67 @@ public class ServiceEnvironment {
         this.serviceType = Objects.requireNonNull(serviceType);
         this.executor = Objects.requireNonNull(executor);
         this.cryptoFactory = Objects.requireNonNull(cryptoFactory);
-        this.curatorFramework = Objects.requireNonNull(curatorFramework);
+        this.coordinationBackend = CoordinationBackend.ZOOKEEPER;
+        this.curatorFramework = Optional.of(Objects.requireNonNull(curatorFramework));
+        this.discoveryManager = Objects.requireNonNull(discoveryManager);
+        this.httpClient = Objects.requireNonNull(httpClient);
+
+        this.dynamicConfig = new DynamicConfig(this.config);
+        addDynamicConfigListeners();
+        this.cryptoFactory.addReloadListener(this::reloadHttpClient);
+    }
+
+    /**
+     * Create an environment using the in-memory coordination backend, without zookeeper.
+     *
+     * @param config the static system configuration information
+     * @param serviceType the type of this service
+     * @param executor the {@link ExecutorService} used to perform asynchronous task processing
+     * @param cryptoFactory the {@link CryptoFactory} used to perform encryption operations
+     * @param discoveryManager the service discovery manager used to find and manage available micro services
+     * @param httpClient the {@link OkHttpClient} used to make REST calls to other services
+     */
+    public ServiceEnvironment(
+            @Nonnull final Config config, @Nonnull final ServiceType serviceType,
+            @Nonnull final ExecutorService executor, @Nonnull final CryptoFactory cryptoFactory,
+            @Nonnull final DiscoveryManager discoveryManager, @Nonnull final OkHttpClient httpClient) {
+        this.config = Objects.requireNonNull(config);
+        this.serviceType = Objects.requireNonNull(serviceType);
+        this.executor = Objects.requireNonNull(executor);
+        this.cryptoFactory = Objects.requireNonNull(cryptoFactory);
+        this.coordinationBackend = CoordinationBackend.MEMORY;
+        this.curatorFramework = Optional.empty();
         this.discoveryManager = Objects.requireNonNull(discoveryManager);
         this.httpClient = Objects.requireNonNull(httpClient);
+
+        this.dynamicConfig = new DynamicConfig(this.config);
+        addDynamicConfigListeners();
+        this.cryptoFactory.addReloadListener(this::reloadHttpClient);
+    }
+
+    /**
+     * Register for changes to the dynamic configuration values that can be applied to this environment while running.
+     */
+    protected void addDynamicConfigListeners() {
+        getDynamicConfig().addListener(ConfigKeys.EXECUTOR_THREADS.getKey(), Config::getInt, this::resizeExecutor);
+    }
+
+    /**
+     * @param threads the new number of threads to use in the executor service
+     */
+    protected void resizeExecutor(final int threads) {
+        if (threads > 0 && getExecutor() instanceof ThreadPoolExecutor) {
+            final ThreadPoolExecutor pool = (ThreadPoolExecutor) getExecutor();
+            // The maximum pool size can never be less than the core pool size, so order the updates accordingly.
+            if (threads > pool.getMaximumPoolSize()) {
+                pool.setMaximumPoolSize(threads);
+                pool.setCorePoolSize(threads);
+            } else {
+                pool.setCorePoolSize(threads);
+                pool.setMaximumPoolSize(threads);
+            }
+            LOG.info("Executor resized to {} threads", threads);
+        }
     }
 
     @Nonnull
@@ -88,8 +190,13 @@ public class ServiceEnvironment {
     }
 
     @Nonnull
-    protected CryptoFactory createCryptoFactory(@Nonnull final Config config) throws DiscoveryException {
-        return new DefaultCryptoFactory(Objects.requireNonNull(config));
+    protected CryptoFactory createCryptoFactory(@Nonnull final Config config) throws EncryptionException {
+        final DefaultCryptoFactory cryptoFactory = new DefaultCryptoFactory(Objects.requireNonNull(config));
+        if (config.hasPath(ConfigKeys.SSL_RELOAD_ENABLED.getKey())
+                && config.getBoolean(ConfigKeys.SSL_RELOAD_ENABLED.getKey())) {
+            cryptoFactory.watchKeyStores();
+        }
+        return cryptoFactory;
     }
 
     @Nonnull
@@ -101,10 +208,35 @@ public class ServiceEnvironment {
     @Nonnull
     protected OkHttpClient createHttpClient(@Nonnull final CryptoFactory cryptoFactory) throws EncryptionException {
         final OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        builder.sslSocketFactory(cryptoFactory.getSSLContext().getSocketFactory());
+        builder.sslSocketFactory(getHandshakeCounter().wrap(cryptoFactory.getSSLContext().getSocketFactory()));
+        // Calls that fail or find the target overloaded steer service discovery selection away from that target.
+        builder.addInterceptor(new EjectionInterceptor(getDiscoveryManager()));
+        if (getConfig().hasPath(ConfigKeys.HTTP_POOL_MAX_IDLE.getKey())
+                && getConfig().hasPath(ConfigKeys.HTTP_POOL_KEEP_ALIVE.getKey())) {
+            // Keep enough idle connections to other services that repeated calls skip the TCP and TLS handshakes.
+            final int maxIdle = getConfig().getInt(ConfigKeys.HTTP_POOL_MAX_IDLE.getKey());
+            final long keepAlive =
+                    getConfig().getDuration(ConfigKeys.HTTP_POOL_KEEP_ALIVE.getKey(), TimeUnit.MILLISECONDS);
+            builder.connectionPool(new ConnectionPool(maxIdle, keepAlive, TimeUnit.MILLISECONDS));
+        }
         return builder.build();
     }
 
+    /**
+     * Replace the {@link OkHttpClient} with one using the reloaded {@link SSLContext}. The new client shares the
+     * connection pool and dispatcher with the previous one, but new connections use the reloaded certificates.
+     */
+    protected void reloadHttpClient() {
+        try {
+            final SSLContext sslContext = getCryptoFactory().getSSLContext();
+            this.httpClient = getHttpClient().newBuilder()
+                    .sslSocketFactory(getHandshakeCounter().wrap(sslContext.getSocketFactory())).build();
+            LOG.info("HTTP client updated to use the reloaded SSL context");
+        } catch (final EncryptionException reloadFailed) {
+            LOG.error("Failed to update the HTTP client with the reloaded SSL context", reloadFailed);
+        }
+    }
+
     /**
      * @return the static system configuration information
      */
@@ -113,6 +245,14 @@ public class ServiceEnvironment {
         return this.config;
     }
 
+    /**
+     * @return the system configuration with any dynamic configuration values layered over the static configuration
+     */
+    @Nonnull
+    public DynamicConfig getDynamicConfig() {
+        return this.dynamicConfig;
+    }
+
     /**
      * @return the type of service being hosted
      */
@@ -137,12 +277,42 @@ public class ServiceEnvironment {
         return this.discoveryManager;
     }
 
+    /**
+     * @return the backend used to coordinate service discovery, port reservation, and dynamic configuration
+     */
+    @Nonnull
+    public CoordinationBackend getCoordinationBackend() {
+        return this.coordinationBackend;
+    }
+
     /**
      * @return the curator framework used to manage interactions with zookeeper
+     * @throws IllegalStateException if the in-memory coordination backend is in use, so there is no zookeeper
      */
     @Nonnull
     public CuratorFramework getCuratorFramework() {
-        return this.curatorFramework;
+        return this.curatorFramework.orElseThrow(
+                () -> new IllegalStateException("No curator framework is available with the memory backend"));
+    }
+
+    /**
+     * @return a new {@link PortManager} for the configured coordination backend, which the caller should close
+     * @throws PortReservationException if there is a problem creating the port manager
+     */
+    @Nonnull
+    public PortManager createPortManager() throws PortReservationException {
+        if (getCoordinationBackend() == CoordinationBackend.MEMORY) {
+            return new MemoryPortManager(getConfig(), getPortTester());
+        }
+        return new CuratorPortManager(getConfig(), getCuratorFramework(), getPortTester());
+    }
+
+    /**
+     * @return the {@link PortTester} shared by the port managers created by this environment
+     */
+    @Nonnull
+    public PortTester getPortTester() {
+        return this.portTester;
     }
 
     /**
@@ -153,6 +323,14 @@ public class ServiceEnvironment {
         return this.httpClient;
     }
 
+    /**
+     * @return the {@link HandshakeCounter} tracking the TLS handshakes performed by the {@link OkHttpClient}
+     */
+    @Nonnull
+    public HandshakeCounter getHandshakeCounter() {
+        return this.handshakeCounter;
+    }
+
     /**
      * @return the {@link CryptoFactory} used to perform encryption operations
      */
@@ -166,7 +344,8 @@ public class ServiceEnvironment {
      */
     public void close() {
         getExecutor().shutdown();
-        getCuratorFramework().close();
+        this.curatorFramework.ifPresent(CuratorFramework::close);
+        getCryptoFactory().close();
         try {
             getDiscoveryManager().close();
         } catch (final DiscoveryException closeFailed) {
@@ -0,0 +1,222 @@
+package microsys.service.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Converter;
+import com.google.gson.JsonObject;
+
+import org.apache.commons.lang3.builder.CompareToBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import microsys.common.model.Model;
+
+import java.util.Objects;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable class representing the TLS handshake and connection pool counters for the outgoing connections of a
+ * service.
+ */
+public class ServiceTls implements Model, Comparable<ServiceTls> {
+    private final long fullHandshakes;
+    private final long resumedHandshakes;
+    private final int connections;
+    private final int idleConnections;
+
+    /**
+     * @param fullHandshakes the number of handshakes that negotiated a new session
+     * @param resumedHandshakes the number of handshakes that resumed a cached session
+     * @param connections the number of connections in the connection pool
+     * @param idleConnections the number of idle connections in the connection pool
+     */
+    public ServiceTls(
+            final long fullHandshakes, final long resumedHandshakes, final int connections,
+            final int idleConnections) {
+        this.fullHandshakes = fullHandshakes;
+        this.resumedHandshakes = resumedHandshakes;
+        this.connections = connections;
+        this.idleConnections = idleConnections;
+    }
+
+    /**
+     * @param json the JSON representation of a {@link ServiceTls} object
+     */
+    public ServiceTls(@Nonnull final JsonObject json) {
+        Objects.requireNonNull(json);
+        checkArgument(json.has("handshakes"), "Handshakes field required");
+        checkArgument(json.get("handshakes").isJsonObject(), "Handshakes field must be an object");
+        checkArgument(json.has("pool"), "Pool field required");
+        checkArgument(json.get("pool").isJsonObject(), "Pool field must be an object");
+
+        final JsonObject handshakes = json.get("handshakes").getAsJsonObject();
+        checkArgument(handshakes.has("full"), "Full Handshakes field required");
+        checkArgument(handshakes.get("full").isJsonPrimitive(), "Full Handshakes field must be a primitive");
+        checkArgument(handshakes.has("resumed"), "Resumed Handshakes field required");
+        checkArgument(handshakes.get("resumed").isJsonPrimitive(), "Resumed Handshakes field must be a primitive");
+
+        final JsonObject pool = json.get("pool").getAsJsonObject();
+        checkArgument(pool.has("connections"), "Connections field required");
+        checkArgument(pool.get("connections").isJsonPrimitive(), "Connections field must be a primitive");
+        checkArgument(pool.has("idle"), "Idle Connections field required");
+        checkArgument(pool.get("idle").isJsonPrimitive(), "Idle Connections field must be a primitive");
+
+        this.fullHandshakes = handshakes.get("full").getAsLong();
+        this.resumedHandshakes = handshakes.get("resumed").getAsLong();
+        this.connections = pool.get("connections").getAsInt();
+        this.idleConnections = pool.get("idle").getAsInt();
+    }
+
+    /**
+     * @return the number of handshakes that negotiated a new session
+     */
+    public long getFullHandshakes() {
+        return this.fullHandshakes;
+    }
+
+    /**
+     * @return the number of handshakes that resumed a cached session
+     */
+    public long getResumedHandshakes() {
+        return this.resumedHandshakes;
+    }
+
+    /**
+     * @return the percentage of handshakes that resumed a cached session, or zero when no handshakes have happened
+     */
+    public double getResumedPercent() {
+        final long total = getFullHandshakes() + getResumedHandshakes();
+        return total == 0 ? 0d : ((double) getResumedHandshakes()) / total * 100d;
+    }
+
+    /**
+     * @return the number of connections in the connection pool
+     */
+    public int getConnections() {
+        return this.connections;
+    }
+
+    /**
+     * @return the number of idle connections in the connection pool
+     */
+    public int getIdleConnections() {
+        return this.idleConnections;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compareTo(@Nullable final ServiceTls other) {
+        if (other == null) {
+            return 1;
+        }
+
+        final CompareToBuilder cmp = new CompareToBuilder();
+        cmp.append(getFullHandshakes(), other.getFullHandshakes());
+        cmp.append(getResumedHandshakes(), other.getResumedHandshakes());
+        cmp.append(getConnections(), other.getConnections());
+        cmp.append(getIdleConnections(), other.getIdleConnections());
+        return cmp.toComparison();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(@CheckForNull final Object other) {
+        return (other instanceof ServiceTls) && compareTo((ServiceTls) other) == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        final HashCodeBuilder hash = new HashCodeBuilder();
+        hash.append(getFullHandshakes());
+        hash.append(getResumedHandshakes());
+        hash.append(getConnections());
+        hash.append(getIdleConnections());
+        return hash.toHashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public String toString() {
+        final ToStringBuilder str = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        str.append("fullHandshakes", getFullHandshakes());
+        str.append("resumedHandshakes", getResumedHandshakes());
+        str.append("resumedPercent", getResumedPercent());
+        str.append("connections", getConnections());
+        str.append("idleConnections", getIdleConnections());
+        return str.build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public JsonObject toJson() {
+        final JsonObject handshakes = new JsonObject();
+        handshakes.addProperty("full", getFullHandshakes());
+        handshakes.addProperty("resumed", getResumedHandshakes());
+        handshakes.addProperty("resumedPercent", getResumedPercent());
+
+        final JsonObject pool = new JsonObject();
+        pool.addProperty("connections", getConnections());
+        pool.addProperty("idle", getIdleConnections());
+
+        final JsonObject json = new JsonObject();
+        json.add("handshakes", handshakes);
+        json.add("pool", pool);
+        return json;
+    }
+
+    /**
+     * Support conversions to and from {@link JsonObject} with this class.
+     */
+    public static class ServiceTlsConverter extends Converter<JsonObject, ServiceTls> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @Nonnull
+        protected ServiceTls doForward(@Nonnull final JsonObject jsonObject) {
+            return new ServiceTls(Objects.requireNonNull(jsonObject));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @Nonnull
+        protected JsonObject doBackward(@Nonnull final ServiceTls serviceTls) {
+            return Objects.requireNonNull(serviceTls).toJson();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(@CheckForNull final Object other) {
+            return (other instanceof ServiceTlsConverter);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return getClass().getName().hashCode();
+        }
+    }
+}
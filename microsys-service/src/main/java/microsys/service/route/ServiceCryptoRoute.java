@@ -0,0 +1,35 @@
+package microsys.service.route;
+
+import com.google.common.net.MediaType;
+
+import microsys.service.BaseRoute;
+import microsys.service.model.ServiceEnvironment;
+import spark.Request;
+import spark.Response;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A base route that provides the counts and timing histograms of the crypto operations performed by this service.
+ */
+public class ServiceCryptoRoute extends BaseRoute {
+    /**
+     * @param serviceEnvironment the service environment
+     */
+    public ServiceCryptoRoute(@Nonnull final ServiceEnvironment serviceEnvironment) {
+        super(serviceEnvironment);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Object handle(@Nonnull final Request request, @Nonnull final Response response) {
+        response.status(HttpServletResponse.SC_OK);
+        response.type(MediaType.JSON_UTF_8.type());
+
+        return getServiceEnvironment().getCryptoFactory().getMetrics().toJson();
+    }
+}
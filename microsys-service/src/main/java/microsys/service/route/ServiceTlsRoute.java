@@ -0,0 +1,42 @@
+package microsys.service.route;
+
+import com.google.common.net.MediaType;
+
+import microsys.service.BaseRoute;
+import microsys.service.client.HandshakeCounter;
+import microsys.service.model.ServiceEnvironment;
+import microsys.service.model.ServiceTls;
+import okhttp3.ConnectionPool;
+import spark.Request;
+import spark.Response;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A base route that provides the TLS handshake and connection pool counters for the outgoing connections of this
+ * service, showing how many requests to other services avoided a full TLS handshake.
+ */
+public class ServiceTlsRoute extends BaseRoute {
+    /**
+     * @param serviceEnvironment the service environment
+     */
+    public ServiceTlsRoute(@Nonnull final ServiceEnvironment serviceEnvironment) {
+        super(serviceEnvironment);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public Object handle(@Nonnull final Request request, @Nonnull final Response response) {
+        response.status(HttpServletResponse.SC_OK);
+        response.type(MediaType.JSON_UTF_8.type());
+
+        final HandshakeCounter handshakes = getServiceEnvironment().getHandshakeCounter();
+        final ConnectionPool pool = getServiceEnvironment().getHttpClient().connectionPool();
+        return new ServiceTls(handshakes.getFullHandshakes(), handshakes.getResumedHandshakes(),
+                pool.connectionCount(), pool.idleConnectionCount()).toJson();
+    }
+}
@@ -0,0 +1,165 @@
+package microsys.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import microsys.common.config.ConfigKeys;
+import microsys.common.model.service.Service;
+import microsys.common.model.service.ServiceCapacity;
+import microsys.common.model.service.ServiceType;
+import microsys.discovery.DiscoveryException;
+import microsys.discovery.DiscoveryManager;
+import microsys.service.filter.RequestCounter;
+import microsys.service.model.ServiceEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Perform testing of the {@link CapacityReporter} class.
+ */
+public class CapacityReporterTest {
+    private final Service service = new Service(ServiceType.CONFIG, "host", 1234, false, "1.2.3");
+
+    private ServiceEnvironment getServiceEnvironment(final DiscoveryManager discovery, final ExecutorService executor) {
+        final Map<String, ConfigValue> map = new HashMap<>();
+        map.put(ConfigKeys.DISCOVERY_WEIGHT.getKey(), ConfigValueFactory.fromAnyRef(50));
+        map.put(ConfigKeys.DISCOVERY_CAPACITY_INTERVAL_MIN.getKey(), ConfigValueFactory.fromAnyRef("1 second"));
+        map.put(ConfigKeys.DISCOVERY_CAPACITY_INTERVAL_MAX.getKey(), ConfigValueFactory.fromAnyRef("8 seconds"));
+        final Config config = ConfigFactory.parseMap(map);
+
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getConfig()).thenReturn(config);
+        Mockito.when(serviceEnvironment.getDiscoveryManager()).thenReturn(discovery);
+        Mockito.when(serviceEnvironment.getExecutor()).thenReturn(executor);
+        return serviceEnvironment;
+    }
+
+    private static List<Optional<ServiceCapacity>> getPublished(final DiscoveryManager discovery) {
+        return Mockito.mockingDetails(discovery).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("update"))
+                .map(invocation -> ((Service) invocation.getArguments()[0]).getCapacity())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testMeasure() {
+        final ExecutorService executor = Executors.newFixedThreadPool(1);
+        final RequestCounter counter = new RequestCounter();
+        counter.started();
+        try (final CapacityReporter reporter = new CapacityReporter(
+                getServiceEnvironment(Mockito.mock(DiscoveryManager.class), executor), counter, this.service)) {
+            final ServiceCapacity capacity = reporter.measure();
+            assertEquals(1, capacity.getInFlight());
+            assertEquals(0, capacity.getQueueDepth());
+            assertEquals(50, capacity.getWeight());
+            assertTrue(capacity.getHeapUsedPercent() >= 0 && capacity.getHeapUsedPercent() <= 100);
+        } finally {
+            counter.finished();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testIsSignificant() {
+        final ServiceCapacity base = new ServiceCapacity(10, 0, 50, 100);
+        assertFalse(CapacityReporter.isSignificant(base, base));
+        assertFalse(CapacityReporter.isSignificant(base, new ServiceCapacity(11, 0, 50, 100)));
+        assertTrue(CapacityReporter.isSignificant(base, new ServiceCapacity(10, 2, 50, 100)));
+        assertTrue(CapacityReporter.isSignificant(base, new ServiceCapacity(5, 0, 50, 100)));
+        assertTrue(CapacityReporter.isSignificant(base, new ServiceCapacity(10, 0, 60, 100)));
+        assertTrue(CapacityReporter.isSignificant(base, new ServiceCapacity(10, 0, 50, 99)));
+
+        // Small services need at least a change of two.
+        final ServiceCapacity idle = new ServiceCapacity(0, 0, 50, 100);
+        assertFalse(CapacityReporter.isSignificant(idle, new ServiceCapacity(1, 0, 50, 100)));
+        assertTrue(CapacityReporter.isSignificant(idle, new ServiceCapacity(2, 0, 50, 100)));
+    }
+
+    @Test
+    public void testAdaptiveInterval() throws Exception {
+        final DiscoveryManager discovery = Mockito.mock(DiscoveryManager.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(1);
+        try (final CapacityReporter reporter = new CapacityReporter(
+                getServiceEnvironment(discovery, executor), new RequestCounter(), this.service)) {
+            final long start = TimeUnit.HOURS.toMillis(1);
+            final ServiceCapacity idle = new ServiceCapacity(0, 0, 10, 50);
+            final ServiceCapacity busy = new ServiceCapacity(20, 0, 10, 50);
+
+            // The first capacity is always published.
+            reporter.check(idle, start);
+            assertEquals(Collections.singletonList(Optional.of(idle)), getPublished(discovery));
+            assertEquals(Optional.of(idle), reporter.getService().getCapacity());
+            assertEquals(2000, reporter.getGapMillis());
+
+            // Insignificant changes are not published until the maximum interval passes, and the gap resets.
+            reporter.check(new ServiceCapacity(1, 0, 10, 50), start + 1000);
+            assertEquals(1000, reporter.getGapMillis());
+            assertEquals(1, getPublished(discovery).size());
+
+            // Significant changes are published, with a growing gap while the capacity keeps changing.
+            reporter.check(busy, start + 2000);
+            assertEquals(Arrays.asList(Optional.of(idle), Optional.of(busy)), getPublished(discovery));
+            assertEquals(2000, reporter.getGapMillis());
+            reporter.check(idle, start + 3000);
+            assertEquals(2, getPublished(discovery).size());
+            reporter.check(idle, start + 4000);
+            assertEquals(Arrays.asList(Optional.of(idle), Optional.of(busy), Optional.of(idle)),
+                    getPublished(discovery));
+            assertEquals(4000, reporter.getGapMillis());
+
+            // Settled capacity is republished at the maximum interval.
+            reporter.check(idle, start + 5000);
+            assertEquals(1000, reporter.getGapMillis());
+            assertEquals(3, getPublished(discovery).size());
+            reporter.check(idle, start + 12000);
+            assertEquals(4, getPublished(discovery).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPublishFailure() throws Exception {
+        final DiscoveryManager discovery = Mockito.mock(DiscoveryManager.class);
+        Mockito.doThrow(new DiscoveryException("Fake")).when(discovery).update(Mockito.any());
+        final ExecutorService executor = Executors.newFixedThreadPool(1);
+        try (final CapacityReporter reporter = new CapacityReporter(
+                getServiceEnvironment(discovery, executor), new RequestCounter(), this.service)) {
+            reporter.check(new ServiceCapacity(0, 0, 10, 50), 1000);
+            assertEquals(this.service, reporter.getService());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStart() throws Exception {
+        final DiscoveryManager discovery = Mockito.mock(DiscoveryManager.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(1);
+        try (final CapacityReporter reporter = new CapacityReporter(
+                getServiceEnvironment(discovery, executor), new RequestCounter(), this.service)) {
+            reporter.start();
+            Mockito.verify(discovery, Mockito.timeout(5000)).update(Mockito.any());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
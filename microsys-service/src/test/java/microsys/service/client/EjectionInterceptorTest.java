@@ -0,0 +1,76 @@
+package microsys.service.client;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import microsys.discovery.DiscoveryManager;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Perform testing of the {@link EjectionInterceptor} class.
+ */
+public class EjectionInterceptorTest {
+    @Test
+    public void testSuccess() throws Exception {
+        final DiscoveryManager discovery = Mockito.mock(DiscoveryManager.class);
+        final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new EjectionInterceptor(discovery)).build();
+        final MockWebServer server = new MockWebServer();
+        try {
+            server.enqueue(new MockResponse().setResponseCode(HttpServletResponse.SC_OK));
+            server.start();
+            final Response response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute();
+            assertEquals(HttpServletResponse.SC_OK, response.code());
+            response.body().close();
+        } finally {
+            server.shutdown();
+        }
+        Mockito.verifyZeroInteractions(discovery);
+    }
+
+    @Test
+    public void testServiceUnavailable() throws Exception {
+        final DiscoveryManager discovery = Mockito.mock(DiscoveryManager.class);
+        final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new EjectionInterceptor(discovery)).build();
+        final MockWebServer server = new MockWebServer();
+        try {
+            server.enqueue(new MockResponse().setResponseCode(HttpServletResponse.SC_SERVICE_UNAVAILABLE));
+            server.start();
+            final Response response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute();
+            assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.code());
+            response.body().close();
+            Mockito.verify(discovery).eject(server.getHostName(), server.getPort());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testConnectionFailure() throws Exception {
+        final DiscoveryManager discovery = Mockito.mock(DiscoveryManager.class);
+        final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new EjectionInterceptor(discovery)).build();
+
+        // Find a port with nothing listening on it.
+        final int port;
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        try {
+            client.newCall(new Request.Builder().url("http://localhost:" + port + "/").build()).execute();
+        } catch (final IOException expected) {
+            Mockito.verify(discovery).eject("localhost", port);
+            return;
+        }
+        throw new AssertionError("Expected the call to fail");
+    }
+}
@@ -0,0 +1,88 @@
+package microsys.service.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Perform testing on the {@link HandshakeCounter} class.
+ */
+public class HandshakeCounterTest {
+    private HandshakeCompletedEvent event(final long sessionCreated) {
+        final SSLSession session = Mockito.mock(SSLSession.class);
+        Mockito.when(session.getCreationTime()).thenReturn(sessionCreated);
+        final HandshakeCompletedEvent event = Mockito.mock(HandshakeCompletedEvent.class);
+        Mockito.when(event.getSession()).thenReturn(session);
+        return event;
+    }
+
+    @Test
+    public void testHandshakeCompleted() {
+        final HandshakeCounter counter = new HandshakeCounter();
+        counter.handshakeCompleted(event(1000), 500);
+        counter.handshakeCompleted(event(1000), 1000);
+        counter.handshakeCompleted(event(1000), 2000);
+
+        assertEquals(2, counter.getFullHandshakes());
+        assertEquals(1, counter.getResumedHandshakes());
+    }
+
+    @Test
+    public void testWrap() throws Exception {
+        final SSLSocket socket = Mockito.mock(SSLSocket.class);
+        final SSLSocketFactory delegate = Mockito.mock(SSLSocketFactory.class);
+        Mockito.when(delegate.createSocket(Mockito.any(Socket.class), Mockito.anyString(), Mockito.anyInt(),
+                Mockito.anyBoolean())).thenReturn(socket);
+        Mockito.when(delegate.getDefaultCipherSuites()).thenReturn(new String[] {"a"});
+        Mockito.when(delegate.getSupportedCipherSuites()).thenReturn(new String[] {"b"});
+
+        final HandshakeCounter counter = new HandshakeCounter();
+        final SSLSocketFactory factory = counter.wrap(delegate);
+        assertArrayEquals(new String[] {"a"}, factory.getDefaultCipherSuites());
+        assertArrayEquals(new String[] {"b"}, factory.getSupportedCipherSuites());
+        assertSame(socket, factory.createSocket(Mockito.mock(Socket.class), "host", 443, true));
+
+        final ArgumentCaptor<HandshakeCompletedListener> listener =
+                ArgumentCaptor.forClass(HandshakeCompletedListener.class);
+        Mockito.verify(socket).addHandshakeCompletedListener(listener.capture());
+
+        listener.getValue().handshakeCompleted(event(System.currentTimeMillis() + 60000));
+        listener.getValue().handshakeCompleted(event(0));
+        assertEquals(1, counter.getFullHandshakes());
+        assertEquals(1, counter.getResumedHandshakes());
+    }
+
+    @Test
+    public void testWrapPlainSocket() throws Exception {
+        final Socket socket = Mockito.mock(Socket.class);
+        final SSLSocketFactory delegate = Mockito.mock(SSLSocketFactory.class);
+        Mockito.when(delegate.createSocket()).thenReturn(socket);
+        Mockito.when(delegate.createSocket("host", 443)).thenReturn(socket);
+        Mockito.when(delegate.createSocket(Mockito.anyString(), Mockito.anyInt(), Mockito.any(InetAddress.class),
+                Mockito.anyInt())).thenReturn(socket);
+        Mockito.when(delegate.createSocket(Mockito.any(InetAddress.class), Mockito.anyInt())).thenReturn(socket);
+        Mockito.when(delegate.createSocket(Mockito.any(InetAddress.class), Mockito.anyInt(),
+                Mockito.any(InetAddress.class), Mockito.anyInt())).thenReturn(socket);
+
+        final SSLSocketFactory factory = new HandshakeCounter().wrap(delegate);
+        final InetAddress local = InetAddress.getLoopbackAddress();
+        assertSame(socket, factory.createSocket());
+        assertSame(socket, factory.createSocket("host", 443));
+        assertSame(socket, factory.createSocket("host", 443, local, 0));
+        assertSame(socket, factory.createSocket(local, 443));
+        assertSame(socket, factory.createSocket(local, 443, local, 0));
+    }
+}
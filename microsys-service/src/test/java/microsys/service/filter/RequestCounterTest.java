@@ -0,0 +1,48 @@
+package microsys.service.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Perform testing on the {@link RequestCounter} class.
+ */
+public class RequestCounterTest {
+    @Test
+    public void testFilters() throws Exception {
+        final RequestCounter counter = new RequestCounter();
+        assertEquals(0, counter.getInFlight());
+
+        counter.getBeforeFilter().handle(Mockito.mock(Request.class), Mockito.mock(Response.class));
+        assertEquals(1, counter.getInFlight());
+        counter.getAfterFilter().handle(Mockito.mock(Request.class), Mockito.mock(Response.class));
+        assertEquals(0, counter.getInFlight());
+    }
+
+    @Test
+    public void testMissedFinish() {
+        final RequestCounter counter = new RequestCounter();
+
+        // A request whose after filter never runs is replaced by the next request on the same thread.
+        counter.started();
+        counter.started();
+        assertEquals(1, counter.getInFlight());
+        counter.finished();
+        counter.finished();
+        assertEquals(0, counter.getInFlight());
+    }
+
+    @Test
+    public void testMultipleThreads() throws Exception {
+        final RequestCounter counter = new RequestCounter();
+        counter.started();
+        final Thread thread = new Thread(counter::started);
+        thread.start();
+        thread.join();
+        assertEquals(2, counter.getInFlight());
+    }
+}
@@ -1,20 +1,42 @@
 package microsys.service.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import microsys.common.config.ConfigKeys;
+import microsys.common.model.CoordinationBackend;
+import microsys.common.model.service.Service;
 import microsys.common.model.service.ServiceType;
 import microsys.crypto.CryptoFactory;
+import microsys.crypto.EncryptionException;
 import microsys.discovery.impl.CuratorDiscoveryManager;
+import microsys.discovery.impl.MemoryDiscoveryManager;
+import microsys.portres.PortManager;
+import microsys.portres.impl.DefaultPortTester;
+import microsys.portres.impl.MemoryPortManager;
+import microsys.service.client.EjectionInterceptor;
 import okhttp3.OkHttpClient;
 
+import java.util.Collections;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.net.ssl.SSLContext;
 
 /**
  * Perform testing on the {@link ServiceEnvironment}.
@@ -38,5 +60,144 @@ public class ServiceEnvironmentTest {
         assertEquals(curator, env.getCuratorFramework());
         assertEquals(httpClient, env.getHttpClient());
         assertEquals(cryptoFactory, env.getCryptoFactory());
+        assertEquals(config, env.getDynamicConfig().getStaticConfig());
+        assertEquals(CoordinationBackend.ZOOKEEPER, env.getCoordinationBackend());
+    }
+
+    @Test
+    public void testMemoryBackend() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final MemoryDiscoveryManager discovery = new MemoryDiscoveryManager(ConfigFactory.load());
+        final ServiceEnvironment env = new ServiceEnvironment(ConfigFactory.load(), ServiceType.SHELL, executor,
+                Mockito.mock(CryptoFactory.class), discovery, new OkHttpClient.Builder().build());
+        try {
+            assertEquals(CoordinationBackend.MEMORY, env.getCoordinationBackend());
+            assertEquals(discovery, env.getDiscoveryManager());
+            try (final PortManager portManager = env.createPortManager()) {
+                assertTrue(portManager instanceof MemoryPortManager);
+            }
+            // The same port tester is used for every reservation, so it can remember the ports found in use.
+            assertTrue(env.getPortTester() instanceof DefaultPortTester);
+            assertSame(env.getPortTester(), env.getPortTester());
+        } finally {
+            env.close();
+        }
+        assertTrue(discovery.isClosed());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMemoryBackendNoCurator() {
+        final ServiceEnvironment env = new ServiceEnvironment(ConfigFactory.load(), ServiceType.SHELL,
+                Executors.newFixedThreadPool(1), Mockito.mock(CryptoFactory.class),
+                Mockito.mock(MemoryDiscoveryManager.class), new OkHttpClient.Builder().build());
+        env.getCuratorFramework();
+    }
+
+    @Test
+    public void testMemoryBackendFromConfig() throws Exception {
+        final Config config = ConfigFactory.parseMap(Collections.singletonMap(
+                ConfigKeys.COORDINATION_BACKEND.getKey(), ConfigValueFactory.fromAnyRef("memory")))
+                .withFallback(ConfigFactory.load());
+        final ServiceEnvironment env = new ServiceEnvironment(config, ServiceType.SHELL);
+        try {
+            assertEquals(CoordinationBackend.MEMORY, env.getCoordinationBackend());
+            assertTrue(env.getDiscoveryManager() instanceof MemoryDiscoveryManager);
+        } finally {
+            env.close();
+        }
+    }
+
+    @Test
+    public void testMemoryBackendSharedDiscovery() throws Exception {
+        final Config config = ConfigFactory.parseMap(Collections.singletonMap(
+                ConfigKeys.COORDINATION_BACKEND.getKey(), ConfigValueFactory.fromAnyRef("memory")))
+                .withFallback(ConfigFactory.load());
+        final ServiceEnvironment configEnv = new ServiceEnvironment(config, ServiceType.CONFIG);
+        final ServiceEnvironment securityEnv = new ServiceEnvironment(config, ServiceType.SECURITY);
+        final Service configService = new Service(ServiceType.CONFIG, "localhost", 1234, false, "1.2.3");
+        final Service securityService = new Service(ServiceType.SECURITY, "localhost", 2345, false, "1.2.3");
+        try {
+            configEnv.getDiscoveryManager().register(configService);
+            securityEnv.getDiscoveryManager().register(securityService);
+
+            // Each environment discovers the service registered through the other.
+            assertEquals(Optional.of(configService), securityEnv.getDiscoveryManager().getRandom(ServiceType.CONFIG));
+            assertEquals(Optional.of(securityService),
+                    configEnv.getDiscoveryManager().getRandom(ServiceType.SECURITY));
+        } finally {
+            configEnv.close();
+        }
+        try {
+            // The registrations go away with the environment that made them.
+            assertFalse(securityEnv.getDiscoveryManager().getRandom(ServiceType.CONFIG).isPresent());
+            assertEquals(Optional.of(securityService),
+                    securityEnv.getDiscoveryManager().getRandom(ServiceType.SECURITY));
+        } finally {
+            securityEnv.close();
+        }
+    }
+
+    @Test
+    public void testResizeExecutor() {
+        final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(3);
+        final ServiceEnvironment env = new ServiceEnvironment(ConfigFactory.load(), ServiceType.SHELL, executor,
+                Mockito.mock(CryptoFactory.class), Mockito.mock(CuratorFramework.class),
+                Mockito.mock(CuratorDiscoveryManager.class), new OkHttpClient.Builder().build());
+
+        env.getDynamicConfig().update(Collections.singletonMap(ConfigKeys.EXECUTOR_THREADS.getKey(), "10"));
+        assertEquals(10, executor.getCorePoolSize());
+        assertEquals(10, executor.getMaximumPoolSize());
+
+        env.getDynamicConfig().update(Collections.singletonMap(ConfigKeys.EXECUTOR_THREADS.getKey(), "2"));
+        assertEquals(2, executor.getCorePoolSize());
+        assertEquals(2, executor.getMaximumPoolSize());
+
+        // Invalid sizes are ignored.
+        env.getDynamicConfig().update(Collections.singletonMap(ConfigKeys.EXECUTOR_THREADS.getKey(), "0"));
+        assertEquals(2, executor.getCorePoolSize());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testReloadHttpClient() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final CryptoFactory cryptoFactory = Mockito.mock(CryptoFactory.class);
+        Mockito.when(cryptoFactory.getSSLContext()).thenReturn(SSLContext.getDefault());
+        final OkHttpClient httpClient = new OkHttpClient.Builder().build();
+        final ServiceEnvironment env = new ServiceEnvironment(ConfigFactory.load(), ServiceType.SHELL, executor,
+                cryptoFactory, Mockito.mock(CuratorFramework.class), Mockito.mock(CuratorDiscoveryManager.class),
+                httpClient);
+
+        final ArgumentCaptor<Runnable> listener = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(cryptoFactory).addReloadListener(listener.capture());
+        listener.getValue().run();
+
+        assertNotSame(httpClient, env.getHttpClient());
+        assertSame(httpClient.connectionPool(), env.getHttpClient().connectionPool());
+
+        // A failure to get the reloaded context leaves the current client in place.
+        final OkHttpClient reloaded = env.getHttpClient();
+        Mockito.when(cryptoFactory.getSSLContext()).thenThrow(new EncryptionException("Fake"));
+        listener.getValue().run();
+        assertSame(reloaded, env.getHttpClient());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCreateHttpClient() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final CryptoFactory cryptoFactory = Mockito.mock(CryptoFactory.class);
+        Mockito.when(cryptoFactory.getSSLContext()).thenReturn(SSLContext.getDefault());
+        final ServiceEnvironment env = new ServiceEnvironment(ConfigFactory.load(), ServiceType.SHELL, executor,
+                cryptoFactory, Mockito.mock(CuratorFramework.class), Mockito.mock(CuratorDiscoveryManager.class),
+                new OkHttpClient.Builder().build());
+
+        final OkHttpClient httpClient = env.createHttpClient(cryptoFactory);
+        assertNotSame(SSLContext.getDefault().getSocketFactory(), httpClient.sslSocketFactory());
+        assertNotNull(httpClient.connectionPool());
+        assertEquals(0, httpClient.connectionPool().connectionCount());
+        assertEquals(0, env.getHandshakeCounter().getFullHandshakes());
+        assertTrue(httpClient.interceptors().stream().anyMatch(i -> i instanceof EjectionInterceptor));
+        executor.shutdown();
     }
 }
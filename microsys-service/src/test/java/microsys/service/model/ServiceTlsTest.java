@@ -0,0 +1,143 @@
+package microsys.service.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+/**
+ * Perform testing on the {@link ServiceTls} class.
+ */
+public class ServiceTlsTest {
+    @Test
+    public void testCompareTo() {
+        final ServiceTls a = new ServiceTls(1, 3, 2, 1);
+        final ServiceTls b = new ServiceTls(1, 3, 2, 2);
+        final ServiceTls c = new ServiceTls(2, 3, 2, 1);
+
+        assertEquals(1, a.compareTo(null));
+        assertEquals(0, a.compareTo(a));
+        assertEquals(-1, a.compareTo(b));
+        assertEquals(-1, a.compareTo(c));
+        assertEquals(1, b.compareTo(a));
+        assertEquals(0, b.compareTo(b));
+        assertEquals(-1, b.compareTo(c));
+        assertEquals(1, c.compareTo(a));
+        assertEquals(1, c.compareTo(b));
+        assertEquals(0, c.compareTo(c));
+    }
+
+    @Test
+    public void testEquals() {
+        final ServiceTls a = new ServiceTls(1, 3, 2, 1);
+        final ServiceTls b = new ServiceTls(1, 3, 2, 2);
+
+        assertNotEquals(a, null);
+        assertEquals(a, a);
+        assertNotEquals(a, b);
+        assertNotEquals(b, a);
+        assertEquals(b, b);
+    }
+
+    @Test
+    public void testHashCode() {
+        final ServiceTls a = new ServiceTls(1, 3, 2, 1);
+        final ServiceTls b = new ServiceTls(1, 3, 2, 2);
+
+        assertEquals(a.hashCode(), new ServiceTls(1, 3, 2, 1).hashCode());
+        assertNotEquals(a.hashCode(), b.hashCode());
+    }
+
+    @Test
+    public void testGetters() {
+        final ServiceTls tls = new ServiceTls(1, 3, 2, 1);
+        assertEquals(1, tls.getFullHandshakes());
+        assertEquals(3, tls.getResumedHandshakes());
+        assertEquals(75d, tls.getResumedPercent(), 0.001);
+        assertEquals(2, tls.getConnections());
+        assertEquals(1, tls.getIdleConnections());
+    }
+
+    @Test
+    public void testResumedPercentNoHandshakes() {
+        assertEquals(0d, new ServiceTls(0, 0, 0, 0).getResumedPercent(), 0.001);
+    }
+
+    @Test
+    public void testToString() {
+        final ServiceTls tls = new ServiceTls(1, 3, 2, 1);
+        assertEquals("ServiceTls[fullHandshakes=1,resumedHandshakes=3,resumedPercent=75.0,connections=2,"
+                + "idleConnections=1]", tls.toString());
+    }
+
+    @Test
+    public void testToJson() {
+        final ServiceTls tls = new ServiceTls(1, 3, 2, 1);
+        assertEquals("{\"handshakes\":{\"full\":1,\"resumed\":3,\"resumedPercent\":75.0},"
+                + "\"pool\":{\"connections\":2,\"idle\":1}}", tls.toJson().toString());
+    }
+
+    @Test
+    public void testJsonConstructor() {
+        final ServiceTls original = new ServiceTls(1, 3, 2, 1);
+        final ServiceTls copy = new ServiceTls(original.toJson());
+        assertEquals(original, copy);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoHandshakes() {
+        new ServiceTls(new JsonParser().parse("{\"pool\":{\"connections\":2,\"idle\":1}}").getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorHandshakesWrongType() {
+        new ServiceTls(new JsonParser().parse("{\"handshakes\":[],\"pool\":{\"connections\":2,\"idle\":1}}")
+                .getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoPool() {
+        new ServiceTls(new JsonParser().parse("{\"handshakes\":{\"full\":1,\"resumed\":3}}").getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoFull() {
+        new ServiceTls(new JsonParser().parse("{\"handshakes\":{\"resumed\":3},\"pool\":{\"connections\":2,"
+                + "\"idle\":1}}").getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoResumed() {
+        new ServiceTls(new JsonParser().parse("{\"handshakes\":{\"full\":1},\"pool\":{\"connections\":2,"
+                + "\"idle\":1}}").getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoConnections() {
+        new ServiceTls(new JsonParser().parse("{\"handshakes\":{\"full\":1,\"resumed\":3},\"pool\":{\"idle\":1}}")
+                .getAsJsonObject());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonConstructorNoIdle() {
+        new ServiceTls(new JsonParser().parse("{\"handshakes\":{\"full\":1,\"resumed\":3},\"pool\":"
+                + "{\"connections\":2}}").getAsJsonObject());
+    }
+
+    @Test
+    public void testConverter() {
+        final ServiceTls.ServiceTlsConverter converter = new ServiceTls.ServiceTlsConverter();
+        final ServiceTls original = new ServiceTls(1, 3, 2, 1);
+        final JsonObject json = converter.reverse().convert(original);
+        assertEquals(original, converter.convert(json));
+
+        assertTrue(converter.equals(new ServiceTls.ServiceTlsConverter()));
+        assertFalse(converter.equals(null));
+        assertEquals(ServiceTls.ServiceTlsConverter.class.getName().hashCode(), converter.hashCode());
+    }
+}
@@ -0,0 +1,45 @@
+package microsys.service.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.net.MediaType;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import microsys.crypto.CryptoFactory;
+import microsys.crypto.CryptoMetrics;
+import microsys.crypto.CryptoOperation;
+import microsys.service.model.ServiceEnvironment;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Perform testing on the {@link ServiceCryptoRoute} class.
+ */
+public class ServiceCryptoRouteTest {
+    @Test
+    public void testHandle() {
+        final CryptoMetrics metrics = new CryptoMetrics();
+        metrics.record(CryptoOperation.SIGN, 1000);
+        final CryptoFactory cryptoFactory = Mockito.mock(CryptoFactory.class);
+        Mockito.when(cryptoFactory.getMetrics()).thenReturn(metrics);
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getCryptoFactory()).thenReturn(cryptoFactory);
+
+        final ServiceCryptoRoute route = new ServiceCryptoRoute(serviceEnvironment);
+
+        final Request request = Mockito.mock(Request.class);
+        final Response response = Mockito.mock(Response.class);
+        final Object obj = route.handle(request, response);
+
+        Mockito.verify(response).status(HttpServletResponse.SC_OK);
+        Mockito.verify(response).type(MediaType.JSON_UTF_8.type());
+        assertTrue(obj instanceof JsonObject);
+        assertEquals(1, ((JsonObject) obj).getAsJsonObject("sign").get("count").getAsInt());
+    }
+}
@@ -0,0 +1,42 @@
+package microsys.service.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.net.MediaType;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import microsys.service.client.HandshakeCounter;
+import microsys.service.model.ServiceEnvironment;
+import microsys.service.model.ServiceTls;
+import okhttp3.OkHttpClient;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Perform testing on the {@link ServiceTlsRoute} class.
+ */
+public class ServiceTlsRouteTest {
+    @Test
+    public void testHandle() {
+        final ServiceEnvironment serviceEnvironment = Mockito.mock(ServiceEnvironment.class);
+        Mockito.when(serviceEnvironment.getHandshakeCounter()).thenReturn(new HandshakeCounter());
+        Mockito.when(serviceEnvironment.getHttpClient()).thenReturn(new OkHttpClient.Builder().build());
+
+        final ServiceTlsRoute route = new ServiceTlsRoute(serviceEnvironment);
+
+        final Request request = Mockito.mock(Request.class);
+        final Response response = Mockito.mock(Response.class);
+        final Object obj = route.handle(request, response);
+
+        Mockito.verify(response).status(HttpServletResponse.SC_OK);
+        Mockito.verify(response).type(MediaType.JSON_UTF_8.type());
+        assertTrue(obj instanceof JsonObject);
+        assertEquals(new ServiceTls(0, 0, 0, 0), new ServiceTls((JsonObject) obj));
+    }
+}
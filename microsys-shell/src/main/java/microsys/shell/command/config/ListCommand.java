@@ -8,6 +8,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import microsys.common.model.ConfigType;
 import microsys.config.client.ConfigClient;
+import microsys.config.model.ConfigFilter;
 import microsys.config.model.ConfigKeyValue;
 import microsys.config.model.ConfigKeyValueCollection;
 import microsys.shell.model.CommandPath;
@@ -97,8 +98,11 @@ public class ListCommand extends BaseConfigCommand {
         if (!filter.fetchDynamic()) {
             return Collections.emptyList();
         }
-        return Objects.requireNonNull(configClient).getAll().get().asSet().stream().filter(filter::matches)
-                .collect(Collectors.toList());
+        // The filter text is sent to the configuration service so only the matching values are returned.
+        final ConfigFilter configFilter =
+                new ConfigFilter(filter.getFilter(), Optional.empty(), Optional.empty(), 0, Optional.empty());
+        return Objects.requireNonNull(configClient).getAll(configFilter).get().asSet().stream()
+                .filter(filter::matches).collect(Collectors.toList());
     }
 
     /**
@@ -40,6 +40,16 @@ public abstract class BaseCryptoCommand extends Command {
                 Optional.empty());
     }
 
+    /**
+     * @param description the description to include in the option
+     * @return the {@link Option} used to specify the file to which processed file data is written
+     */
+    @Nonnull
+    protected Option getOutputOption(@Nonnull final String description) {
+        return new Option(description, "o", Optional.of("output"), Optional.of("file"), 1, false, false,
+                Optional.empty());
+    }
+
     /**
      * @param description the description to include in the option
      * @return the {@link Option} used to input the signature to verify
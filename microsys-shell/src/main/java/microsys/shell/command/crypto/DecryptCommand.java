@@ -10,6 +10,8 @@ import org.apache.commons.cli.CommandLine;
 import javax.annotation.Nonnull;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -32,8 +34,10 @@ public class DecryptCommand extends BaseCryptoCommand {
     @Nonnull
     public List<Registration> getRegistrations() {
         final Option type = getTypeOption("the encryption type to use when decrypting the data");
-        final Option input = getInputOption("the user data to decrypt");
-        final Optional<Options> decryptOptions = Optional.of(new Options(type, input));
+        final Option input =
+                getInputOption("the user data to decrypt, or the input file when an output file is provided");
+        final Option output = getOutputOption("the file into which the input file will be decrypted");
+        final Optional<Options> decryptOptions = Optional.of(new Options(type, input, output));
 
         final Optional<String> description = Optional.of("decrypt the provided input data");
         final CommandPath commandPath = new CommandPath("crypto", "decrypt");
@@ -52,6 +56,11 @@ public class DecryptCommand extends BaseCryptoCommand {
         final EncryptionType encryptionType = EncryptionType.valueOf(commandLine.getOptionValue("t").toUpperCase());
         final String input = commandLine.getOptionValue("i");
 
+        if (commandLine.hasOption("o")) {
+            final Path output = Paths.get(commandLine.getOptionValue("o"));
+            return processFile(cryptoFactory, encryptionType, Paths.get(input), output, writer);
+        }
+
         try {
             if (encryptionType == EncryptionType.PASSWORD_BASED) {
                 final PasswordBasedEncryption pbe = cryptoFactory.getPasswordBasedEncryption();
@@ -66,4 +75,30 @@ public class DecryptCommand extends BaseCryptoCommand {
 
         return CommandStatus.SUCCESS;
     }
+
+    /**
+     * @param cryptoFactory the {@link CryptoFactory} providing the encryption implementations
+     * @param encryptionType the type of encryption to use
+     * @param input the file to decrypt
+     * @param output the file into which the decrypted data is written
+     * @param writer the {@link PrintWriter} to which command output is written
+     * @return the status of the command
+     */
+    @Nonnull
+    protected CommandStatus processFile(
+            @Nonnull final CryptoFactory cryptoFactory, @Nonnull final EncryptionType encryptionType,
+            @Nonnull final Path input, @Nonnull final Path output, @Nonnull final PrintWriter writer) {
+        try {
+            if (encryptionType == EncryptionType.PASSWORD_BASED) {
+                cryptoFactory.getPasswordBasedEncryption().decryptFile(input, output);
+            } else {
+                cryptoFactory.getSymmetricKeyEncryption().decryptFile(input, output);
+            }
+            writer.println("Decrypted " + input + " into " + output);
+        } catch (final Exception exception) {
+            writer.println("Failed to decrypt file: " + exception.getMessage());
+        }
+
+        return CommandStatus.SUCCESS;
+    }
 }
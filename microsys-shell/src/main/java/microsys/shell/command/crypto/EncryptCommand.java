@@ -10,6 +10,8 @@ import org.apache.commons.cli.CommandLine;
 import javax.annotation.Nonnull;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -32,8 +34,10 @@ public class EncryptCommand extends BaseCryptoCommand {
     @Nonnull
     public List<Registration> getRegistrations() {
         final Option type = getTypeOption("the encryption type to use when encrypting the data");
-        final Option input = getInputOption("the user data to encrypt");
-        final Optional<Options> encryptOptions = Optional.of(new Options(type, input));
+        final Option input =
+                getInputOption("the user data to encrypt, or the input file when an output file is provided");
+        final Option output = getOutputOption("the file into which the input file will be encrypted");
+        final Optional<Options> encryptOptions = Optional.of(new Options(type, input, output));
 
         final Optional<String> description = Optional.of("encrypt the provided input data");
         final CommandPath commandPath = new CommandPath("crypto", "encrypt");
@@ -52,6 +56,11 @@ public class EncryptCommand extends BaseCryptoCommand {
         final EncryptionType encryptionType = EncryptionType.valueOf(commandLine.getOptionValue("t").toUpperCase());
         final String input = commandLine.getOptionValue("i");
 
+        if (commandLine.hasOption("o")) {
+            final Path output = Paths.get(commandLine.getOptionValue("o"));
+            return processFile(cryptoFactory, encryptionType, Paths.get(input), output, writer);
+        }
+
         try {
             if (encryptionType == EncryptionType.PASSWORD_BASED) {
                 final PasswordBasedEncryption pbe = cryptoFactory.getPasswordBasedEncryption();
@@ -66,4 +75,30 @@ public class EncryptCommand extends BaseCryptoCommand {
 
         return CommandStatus.SUCCESS;
     }
+
+    /**
+     * @param cryptoFactory the {@link CryptoFactory} providing the encryption implementations
+     * @param encryptionType the type of encryption to use
+     * @param input the file to encrypt
+     * @param output the file into which the encrypted data is written
+     * @param writer the {@link PrintWriter} to which command output is written
+     * @return the status of the command
+     */
+    @Nonnull
+    protected CommandStatus processFile(
+            @Nonnull final CryptoFactory cryptoFactory, @Nonnull final EncryptionType encryptionType,
+            @Nonnull final Path input, @Nonnull final Path output, @Nonnull final PrintWriter writer) {
+        try {
+            if (encryptionType == EncryptionType.PASSWORD_BASED) {
+                cryptoFactory.getPasswordBasedEncryption().encryptFile(input, output);
+            } else {
+                cryptoFactory.getSymmetricKeyEncryption().encryptFile(input, output);
+            }
+            writer.println("Encrypted " + input + " into " + output);
+        } catch (final Exception exception) {
+            writer.println("Failed to encrypt file: " + exception.getMessage());
+        }
+
+        return CommandStatus.SUCCESS;
+    }
 }
@@ -13,6 +13,7 @@ import org.mockito.Mockito;
 
 import microsys.common.config.ConfigKeys;
 import microsys.config.client.ConfigClient;
+import microsys.config.model.ConfigFilter;
 import microsys.config.model.ConfigKeyValue;
 import microsys.config.model.ConfigKeyValueCollection;
 import microsys.shell.model.CommandPath;
@@ -28,6 +29,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.SortedSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
@@ -50,7 +52,8 @@ public class ListCommandTest {
                 new ConfigKeyValueCollection(new ConfigKeyValue("remote-key", "remote-value"));
 
         final ConfigClient configClient = Mockito.mock(ConfigClient.class);
-        Mockito.when(configClient.getAll()).thenReturn(CompletableFuture.completedFuture(collection));
+        Mockito.when(configClient.getAll(Mockito.any(ConfigFilter.class)))
+                .thenReturn(CompletableFuture.completedFuture(collection));
 
         final ShellEnvironment shellEnvironment = Mockito.mock(ShellEnvironment.class);
         Mockito.when(shellEnvironment.getConfig()).thenReturn(config);
@@ -144,6 +147,11 @@ public class ListCommandTest {
         assertEquals("  ssl.keystore.file => file", lines.get(line++));
         assertEquals("  ssl.keystore.password => changeit", lines.get(line++));
         assertEquals("  ssl.keystore.type => JKS", lines.get(line));
+
+        // Make sure the filter was sent to the configuration service.
+        final ConfigFilter expected =
+                new ConfigFilter(Optional.of("key"), Optional.empty(), Optional.empty(), 0, Optional.empty());
+        Mockito.verify(shellEnvironment.getConfigClient()).getAll(expected);
     }
 
     @Test
@@ -216,7 +224,8 @@ public class ListCommandTest {
         };
 
         final ConfigClient configClient = Mockito.mock(ConfigClient.class);
-        Mockito.when(configClient.getAll()).thenReturn(CompletableFuture.supplyAsync(supplier));
+        Mockito.when(configClient.getAll(Mockito.any(ConfigFilter.class)))
+                .thenReturn(CompletableFuture.supplyAsync(supplier));
 
         final ShellEnvironment shellEnvironment = getShellEnvironment();
         Mockito.when(shellEnvironment.getConfigClient()).thenReturn(configClient);
@@ -8,7 +8,9 @@ import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigValue;
 import com.typesafe.config.ConfigValueFactory;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import microsys.common.config.ConfigKeys;
@@ -28,6 +30,8 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -39,6 +43,9 @@ import java.util.SortedSet;
  * Perform testing of the {@link DecryptCommand} class.
  */
 public class DecryptCommandTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @SuppressWarnings("unchecked")
     protected ShellEnvironment getShellEnvironment() throws Exception {
         final Optional<URL> keystore = Optional.ofNullable(getClass().getClassLoader().getResource("keystore.jks"));
@@ -79,7 +86,7 @@ public class DecryptCommandTest {
         assertEquals("decrypt the provided input data", decrypt.getDescription().get());
         assertTrue(decrypt.getOptions().isPresent());
         final SortedSet<Option> decryptOptions = decrypt.getOptions().get().getOptions();
-        assertEquals(2, decryptOptions.size());
+        assertEquals(3, decryptOptions.size());
     }
 
     @Test
@@ -142,6 +149,54 @@ public class DecryptCommandTest {
         final List<String> output = Arrays.asList(stringWriter.getBuffer().toString().split(System.lineSeparator()));
         assertEquals(1, output.size());
 
-        assertEquals("Failed to decrypt input: Failed to decrypt data", output.iterator().next());
+        assertEquals("Failed to decrypt input: Invalid encoded data", output.iterator().next());
+    }
+
+    @Test
+    public void testProcessPasswordBasedFile() throws Exception {
+        final ShellEnvironment shellEnvironment = getShellEnvironment();
+        final Path input = Files.write(this.tmp.newFile().toPath(), "hello".getBytes(StandardCharsets.UTF_8));
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        final Path decrypted = this.tmp.getRoot().toPath().resolve("decrypted");
+        shellEnvironment.getCryptoFactory().getPasswordBasedEncryption().encryptFile(input, encrypted);
+
+        final DecryptCommand decryptCommand = new DecryptCommand(shellEnvironment);
+        final Registration reg = decryptCommand.getRegistrations().iterator().next();
+        final CommandPath commandPath = new CommandPath("crypto", "decrypt");
+        final UserCommand userCommand = new UserCommand(commandPath, reg, Arrays.asList("crypto", "decrypt", "-t",
+                EncryptionType.PASSWORD_BASED.name(), "-i", encrypted.toString(), "-o", decrypted.toString()));
+        final StringWriter stringWriter = new StringWriter();
+        final PrintWriter writer = new PrintWriter(stringWriter, true);
+
+        final CommandStatus status = decryptCommand.process(userCommand, writer);
+        assertEquals(CommandStatus.SUCCESS, status);
+
+        final List<String> output = Arrays.asList(stringWriter.getBuffer().toString().split(System.lineSeparator()));
+        assertEquals(1, output.size());
+        assertEquals("Decrypted " + encrypted + " into " + decrypted, output.iterator().next());
+
+        assertEquals("hello", new String(Files.readAllBytes(decrypted), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProcessFileMissing() throws Exception {
+        final ShellEnvironment shellEnvironment = getShellEnvironment();
+        final Path input = this.tmp.getRoot().toPath().resolve("missing");
+        final Path output = this.tmp.getRoot().toPath().resolve("output");
+
+        final DecryptCommand decryptCommand = new DecryptCommand(shellEnvironment);
+        final Registration reg = decryptCommand.getRegistrations().iterator().next();
+        final CommandPath commandPath = new CommandPath("crypto", "decrypt");
+        final UserCommand userCommand = new UserCommand(commandPath, reg, Arrays.asList("crypto", "decrypt", "-t",
+                EncryptionType.SYMMETRIC_KEY.name(), "-i", input.toString(), "-o", output.toString()));
+        final StringWriter stringWriter = new StringWriter();
+        final PrintWriter writer = new PrintWriter(stringWriter, true);
+
+        final CommandStatus status = decryptCommand.process(userCommand, writer);
+        assertEquals(CommandStatus.SUCCESS, status);
+
+        final List<String> lines = Arrays.asList(stringWriter.getBuffer().toString().split(System.lineSeparator()));
+        assertEquals(1, lines.size());
+        assertTrue(lines.iterator().next().startsWith("Failed to decrypt file: "));
     }
 }
@@ -8,7 +8,9 @@ import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigValue;
 import com.typesafe.config.ConfigValueFactory;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import microsys.common.config.ConfigKeys;
@@ -28,6 +30,8 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -39,6 +43,9 @@ import java.util.SortedSet;
  * Perform testing of the {@link EncryptCommand} class.
  */
 public class EncryptCommandTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @SuppressWarnings("unchecked")
     protected ShellEnvironment getShellEnvironment() throws Exception {
         final Optional<URL> keystore = Optional.ofNullable(getClass().getClassLoader().getResource("keystore.jks"));
@@ -79,7 +86,7 @@ public class EncryptCommandTest {
         assertEquals("encrypt the provided input data", encrypt.getDescription().get());
         assertTrue(encrypt.getOptions().isPresent());
         final SortedSet<Option> encryptOptions = encrypt.getOptions().get().getOptions();
-        assertEquals(2, encryptOptions.size());
+        assertEquals(3, encryptOptions.size());
     }
 
     @Test
@@ -151,4 +158,52 @@ public class EncryptCommandTest {
 
         assertEquals("Failed to encrypt input: Fake", output.iterator().next());
     }
+
+    @Test
+    public void testProcessPasswordBasedFile() throws Exception {
+        final ShellEnvironment shellEnvironment = getShellEnvironment();
+        final Path input = Files.write(this.tmp.newFile().toPath(), "hello".getBytes(StandardCharsets.UTF_8));
+        final Path encrypted = this.tmp.getRoot().toPath().resolve("encrypted");
+        final Path decrypted = this.tmp.getRoot().toPath().resolve("decrypted");
+
+        final EncryptCommand encryptCommand = new EncryptCommand(shellEnvironment);
+        final Registration reg = encryptCommand.getRegistrations().iterator().next();
+        final CommandPath commandPath = new CommandPath("crypto", "encrypt");
+        final UserCommand userCommand = new UserCommand(commandPath, reg, Arrays.asList("crypto", "encrypt", "-t",
+                EncryptionType.PASSWORD_BASED.name(), "-i", input.toString(), "-o", encrypted.toString()));
+        final StringWriter stringWriter = new StringWriter();
+        final PrintWriter writer = new PrintWriter(stringWriter, true);
+
+        final CommandStatus status = encryptCommand.process(userCommand, writer);
+        assertEquals(CommandStatus.SUCCESS, status);
+
+        final List<String> output = Arrays.asList(stringWriter.getBuffer().toString().split(System.lineSeparator()));
+        assertEquals(1, output.size());
+        assertEquals("Encrypted " + input + " into " + encrypted, output.iterator().next());
+
+        shellEnvironment.getCryptoFactory().getPasswordBasedEncryption().decryptFile(encrypted, decrypted);
+        assertEquals("hello", new String(Files.readAllBytes(decrypted), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProcessFileMissing() throws Exception {
+        final ShellEnvironment shellEnvironment = getShellEnvironment();
+        final Path input = this.tmp.getRoot().toPath().resolve("missing");
+        final Path output = this.tmp.getRoot().toPath().resolve("output");
+
+        final EncryptCommand encryptCommand = new EncryptCommand(shellEnvironment);
+        final Registration reg = encryptCommand.getRegistrations().iterator().next();
+        final CommandPath commandPath = new CommandPath("crypto", "encrypt");
+        final UserCommand userCommand = new UserCommand(commandPath, reg, Arrays.asList("crypto", "encrypt", "-t",
+                EncryptionType.SYMMETRIC_KEY.name(), "-i", input.toString(), "-o", output.toString()));
+        final StringWriter stringWriter = new StringWriter();
+        final PrintWriter writer = new PrintWriter(stringWriter, true);
+
+        final CommandStatus status = encryptCommand.process(userCommand, writer);
+        assertEquals(CommandStatus.SUCCESS, status);
+
+        final List<String> lines = Arrays.asList(stringWriter.getBuffer().toString().split(System.lineSeparator()));
+        assertEquals(1, lines.size());
+        assertTrue(lines.iterator().next().startsWith("Failed to encrypt file: "));
+    }
 }